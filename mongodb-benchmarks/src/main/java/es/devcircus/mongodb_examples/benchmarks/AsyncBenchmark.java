@@ -0,0 +1,115 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.async.AsyncCollection;
+import es.devcircus.mongodb_examples.hello_world.async.AsyncDB;
+import es.devcircus.mongodb_examples.hello_world.async.ConcurrencyLimiter;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Búsquedas por i en ráfagas de {@value #FAN_OUT}: una detrás de
+ * otra con el API síncrono, o todas a la vez con la fachada asíncrona y
+ * {@code concurrency} operaciones en vuelo. El número de hilos de JMH es el
+ * mismo en ambos casos; el resultado va en búsquedas por segundo. Contra la
+ * base de datos en memoria no hay espera de red que solapar, así que la
+ * diferencia sólo aparece con -Dmongodb.benchmark.target=mongod.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AsyncBenchmark {
+
+    private static final String COLLECTION = "asyncBenchmark";
+    private static final int DOCUMENT_COUNT = 1000;
+    private static final int FAN_OUT = 100;
+
+    @Param({"4", "16"})
+    public int concurrency;
+
+    private DBCollection coll;
+    private ExecutorService executor;
+    private AsyncCollection asyncColl;
+
+    @Setup
+    public void setUp() {
+        coll = MongoTarget.open().getCollection(COLLECTION);
+        coll.drop();
+        BulkInserter inserter = new BulkInserter(coll);
+        try {
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                inserter.add(DocumentShape.FLAT.create(i));
+            }
+        } finally {
+            inserter.close();
+        }
+        coll.createIndex(new BasicDBObject("i", 1));
+        executor = Executors.newFixedThreadPool(concurrency);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(executor, concurrency, Integer.MAX_VALUE);
+        asyncColl = new AsyncDB(coll.getDB(), limiter).getCollection(COLLECTION);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        coll.drop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FAN_OUT)
+    public void syncLookups(Blackhole bh) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < FAN_OUT; i++) {
+            bh.consume(coll.findOne(new BasicDBObject("i", random.nextInt(DOCUMENT_COUNT))));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FAN_OUT)
+    public void asyncLookups(Blackhole bh) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        @SuppressWarnings("unchecked")
+        CompletableFuture<DBObject>[] lookups = new CompletableFuture[FAN_OUT];
+        for (int i = 0; i < FAN_OUT; i++) {
+            lookups[i] = asyncColl.findOne(new BasicDBObject("i", random.nextInt(DOCUMENT_COUNT)));
+        }
+        for (CompletableFuture<DBObject> lookup : lookups) {
+            bh.consume(lookup.join());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import java.io.File;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Punto de entrada de los benchmarks. Ejecuta la batería una vez
+ * por cada número de hilos indicado en -Dmongodb.benchmark.threads (por
+ * defecto "1,4") y deja los resultados en JSON, un fichero por número de
+ * hilos, para poder compararlos entre versiones. Admite además las opciones
+ * habituales de línea de comandos de JMH.
+ */
+public class BenchmarkRunner {
+
+    public static final String THREADS_PROPERTY = "mongodb.benchmark.threads";
+    private static final String DEFAULT_INCLUDE = "es\\.devcircus\\.mongodb_examples\\.benchmarks\\..*Benchmark";
+
+    /**
+     * Método main.
+     *
+     * @param args Opciones de JMH.
+     * @throws RunnerException Si falla la ejecución de los benchmarks.
+     * @throws CommandLineOptionException Si las opciones no son válidas.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        for (String threads : System.getProperty(THREADS_PROPERTY, "1,4").split(",")) {
+            int count = Integer.parseInt(threads.trim());
+            File result = new File(cli.getResult().orElse("target/jmh-result") + "-" + count + "threads.json");
+            if (result.getAbsoluteFile().getParentFile() != null) {
+                result.getAbsoluteFile().getParentFile().mkdirs();
+            }
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(cli)
+                    .threads(count)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.getPath());
+            if (cli.getIncludes().isEmpty()) {
+                options.include(DEFAULT_INCLUDE);
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
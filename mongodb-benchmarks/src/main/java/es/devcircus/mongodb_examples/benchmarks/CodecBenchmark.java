@@ -0,0 +1,125 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.ByteDecoder;
+import com.mongodb.Bytes;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonReader;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonWriter;
+import es.devcircus.mongodb_examples.hello_world.codec.Projection;
+import es.devcircus.mongodb_examples.hello_world.model.Employee;
+import es.devcircus.mongodb_examples.hello_world.model.EmployeeCodec;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Benchmarks sin servidor del mapeo de Employee: el camino de
+ * los ejemplos (un BasicDBObject que codifica y decodifica el driver, y del
+ * que se copian los campos a mano) frente al EmployeeCodec generado, que
+ * escribe y lee el BSON directamente. Se incluye la lectura con una
+ * proyección de dos campos. El decodificador del driver se reutiliza, ya
+ * que Bytes.decode reserva sus buffers (12 MB) en cada llamada.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CodecBenchmark {
+
+    private static final int EMPLOYEES = 1024;
+
+    private final EmployeeCodec codec = new EmployeeCodec();
+    private final Employee[] employees = new Employee[EMPLOYEES];
+    private final byte[][] documents = new byte[EMPLOYEES][];
+    private final long names = Projection.of(codec, "firstname", "lastname").getMask();
+    private ByteBuffer buffer;
+    private BsonWriter writer;
+    private BsonReader reader;
+    private ByteDecoder decoder;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        buffer = ByteBuffer.allocate(64 * 1024);
+        writer = new BsonWriter(buffer);
+        reader = new BsonReader(ByteBuffer.allocate(0));
+        decoder = new ByteDecoder(ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN));
+        for (int i = 0; i < EMPLOYEES; i++) {
+            employees[i] = new Employee(i, "Nombre" + i, "Apellido" + i, new Date(i * 86400000L), "600" + i);
+            documents[i] = Bytes.encode(toDBObject(employees[i]));
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeMap() {
+        return Bytes.encode(toDBObject(employees[counter++ & (EMPLOYEES - 1)]));
+    }
+
+    @Benchmark
+    public int encodeCodec() {
+        buffer.clear();
+        writer.reset(buffer);
+        codec.encode(writer.startDocument(), employees[counter++ & (EMPLOYEES - 1)]);
+        writer.endDocument();
+        return buffer.position();
+    }
+
+    @Benchmark
+    public Employee decodeMap() {
+        decoder.reset(ByteBuffer.wrap(documents[counter++ & (EMPLOYEES - 1)]).order(ByteOrder.LITTLE_ENDIAN));
+        DBObject doc = decoder.readObject();
+        Employee employee = new Employee();
+        employee.setId(((Number) doc.get("_id")).longValue());
+        employee.setFirstname((String) doc.get("firstname"));
+        employee.setLastname((String) doc.get("lastname"));
+        employee.setBirthDate((Date) doc.get("birthDate"));
+        employee.setCellPhone((String) doc.get("cellPhone"));
+        return employee;
+    }
+
+    @Benchmark
+    public Employee decodeCodec() {
+        reader.reset(ByteBuffer.wrap(documents[counter++ & (EMPLOYEES - 1)]));
+        return codec.decode(reader, Projection.all().getMask());
+    }
+
+    @Benchmark
+    public Employee decodeCodecProjection() {
+        reader.reset(ByteBuffer.wrap(documents[counter++ & (EMPLOYEES - 1)]));
+        return codec.decode(reader, names);
+    }
+
+    private static DBObject toDBObject(Employee employee) {
+        return new BasicDBObject("_id", employee.getId())
+                .append("firstname", employee.getFirstname())
+                .append("lastname", employee.getLastname())
+                .append("birthDate", employee.getBirthDate())
+                .append("cellPhone", employee.getCellPhone());
+    }
+}
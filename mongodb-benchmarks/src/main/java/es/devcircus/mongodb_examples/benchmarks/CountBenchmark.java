@@ -0,0 +1,102 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import es.devcircus.mongodb_examples.hello_world.cache.CountCache;
+import es.devcircus.mongodb_examples.hello_world.cache.CountMode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Cuentas de documentos lanzadas contra el servidor frente a las
+ * servidas por la {@link CountCache}, para toda la colección y con el filtro
+ * 2 &lt; i &lt;= 7.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CountBenchmark {
+
+    private static final String COLLECTION = "countBenchmark";
+    private static final DBObject FILTER = new BasicDBObject("i", new BasicDBObject("$gt", 2).append("$lte", 7));
+
+    @Param({"1000", "100000"})
+    public int documentCount;
+
+    private DBCollection coll;
+    private CountCache counts;
+
+    @Setup
+    public void setUp() {
+        coll = MongoTarget.open().getCollection(COLLECTION);
+        coll.drop();
+        BulkInserter inserter = new BulkInserter(coll);
+        try {
+            for (int i = 0; i < documentCount; i++) {
+                inserter.add(DocumentShape.FLAT.create(i));
+            }
+        } finally {
+            inserter.close();
+        }
+        counts = new CountCache(1, 5, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        counts.close();
+        coll.drop();
+    }
+
+    @Benchmark
+    public long getCount() {
+        return coll.getCount();
+    }
+
+    @Benchmark
+    public long getCountFiltered() {
+        return coll.getCount(FILTER);
+    }
+
+    @Benchmark
+    public long cachedExact() {
+        return counts.count(coll, CountMode.EXACT);
+    }
+
+    @Benchmark
+    public long cachedEstimated() {
+        return counts.count(coll, CountMode.ESTIMATED);
+    }
+
+    @Benchmark
+    public long cachedFiltered() {
+        return counts.count(coll, FILTER);
+    }
+}
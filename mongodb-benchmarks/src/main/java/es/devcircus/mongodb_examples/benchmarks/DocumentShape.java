@@ -0,0 +1,88 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonWriter;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Formas de documento empleadas en los ejemplos: el documento
+ * plano {i} de addingMultipleDocuments() y el documento con subdocumento
+ * info{x,y} de insertIngADocument(). Ambas llevan el campo i para poder
+ * consultarlas igual.
+ */
+public enum DocumentShape {
+
+    FLAT {
+        @Override
+        public DBObject create(int i) {
+            return new BasicDBObject("i", i);
+        }
+
+        @Override
+        public void write(BsonWriter writer, int i) {
+            writer.putInt("i", i);
+        }
+    },
+    NESTED {
+        @Override
+        public DBObject create(int i) {
+            BasicDBObject info = new BasicDBObject();
+            info.put("x", 203);
+            info.put("y", 102);
+            BasicDBObject doc = new BasicDBObject();
+            doc.put("name", "MongoDB");
+            doc.put("type", "database");
+            doc.put("count", 1);
+            doc.put("i", i);
+            doc.put("info", info);
+            return doc;
+        }
+
+        @Override
+        public void write(BsonWriter writer, int i) {
+            writer.putString("name", "MongoDB")
+                    .putString("type", "database")
+                    .putInt("count", 1)
+                    .putInt("i", i)
+                    .startDocument("info")
+                    .putInt("x", 203)
+                    .putInt("y", 102)
+                    .endDocument();
+        }
+    };
+
+    /**
+     * Método que construye el documento con el valor indicado en el campo i.
+     *
+     * @param i Valor del campo i.
+     * @return Documento.
+     */
+    public abstract DBObject create(int i);
+
+    /**
+     * Método que escribe los campos del mismo documento directamente en BSON,
+     * dentro de un documento ya abierto en el escritor.
+     *
+     * @param writer Escritor BSON con el documento abierto.
+     * @param i Valor del campo i.
+     */
+    public abstract void write(BsonWriter writer, int i);
+}
@@ -0,0 +1,78 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.Bytes;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonWriter;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Benchmarks de codificación BSON sin servidor: el camino del
+ * driver (BasicDBObject más Bytes.encode) frente al escritor directo sobre un
+ * buffer reutilizado. Para ver los bytes reservados por operación hay que
+ * lanzarlo desde el módulo con el perfilador de memoria, por ejemplo
+ * {@code java -jar target/benchmarks.jar EncodingBenchmark -prof gc}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EncodingBenchmark {
+
+    @Param({"FLAT", "NESTED"})
+    public DocumentShape shape;
+
+    private ByteBuffer buffer;
+    private BsonWriter writer;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        buffer = ByteBuffer.allocateDirect(64 * 1024);
+        writer = new BsonWriter(buffer);
+    }
+
+    /**
+     * Documento construido como en los ejemplos y codificado por el driver.
+     */
+    @Benchmark
+    public byte[] driverEncode() {
+        return Bytes.encode(shape.create(counter++));
+    }
+
+    /**
+     * Mismo documento escrito campo a campo sobre el buffer reutilizado.
+     */
+    @Benchmark
+    public int bsonWriter() {
+        buffer.clear();
+        writer.reset(buffer);
+        shape.write(writer.startDocument(), counter++);
+        writer.endDocument();
+        return buffer.position();
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Benchmarks de creación de índices y de getIndexInfo().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IndexBenchmark {
+
+    private static final String COLLECTION = "indexBenchmark";
+    private static final DBObject INDEX_KEYS = new BasicDBObject("i", 1);
+
+    @Param({"1000", "100000"})
+    public int documentCount;
+
+    @Param({"FLAT", "NESTED"})
+    public DocumentShape shape;
+
+    private DBCollection coll;
+
+    @Setup
+    public void setUp() {
+        coll = MongoTarget.open().getCollection(COLLECTION);
+        coll.drop();
+        BulkInserter inserter = new BulkInserter(coll);
+        try {
+            for (int i = 0; i < documentCount; i++) {
+                inserter.add(shape.create(i));
+            }
+        } finally {
+            inserter.close();
+        }
+    }
+
+    /**
+     * Cada medición parte de la colección sin el índice. Las operaciones
+     * medidas duran milisegundos, así que el coste de este setup por
+     * invocación no distorsiona el resultado.
+     */
+    @Setup(Level.Invocation)
+    public void dropIndex() {
+        coll.dropIndexes();
+        coll.resetIndexCache();
+    }
+
+    @TearDown
+    public void tearDown() {
+        coll.drop();
+    }
+
+    @Benchmark
+    public void createIndex() {
+        coll.createIndex(INDEX_KEYS);
+    }
+
+    @Benchmark
+    public List<DBObject> getIndexInfo() {
+        return coll.getIndexInfo();
+    }
+}
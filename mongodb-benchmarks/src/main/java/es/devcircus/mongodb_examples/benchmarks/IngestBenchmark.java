@@ -0,0 +1,158 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import es.devcircus.mongodb_examples.hello_world.ingest.DurabilityTier;
+import es.devcircus.mongodb_examples.hello_world.ingest.IngestOptions;
+import es.devcircus.mongodb_examples.hello_world.ingest.IngestStats;
+import es.devcircus.mongodb_examples.hello_world.ingest.TieredInserter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Benchmarks de {@link TieredInserter} en cada nivel de
+ * durabilidad. Cada operación recibe {@value #BURST} documentos de golpe y
+ * espera a que estén confirmados. Con spill=true la cola en memoria sólo
+ * admite {@value #SPILL_QUEUE} documentos, así que casi toda la ráfaga pasa
+ * por el spill log en disco. Los contadores auxiliares dan, por segundo, los
+ * documentos confirmados, los que han pasado por disco y los que no se han
+ * podido confirmar (rechazados, fallidos o perdidos). Contra la base de datos
+ * en memoria getlasterror responde al momento y los niveles sólo se
+ * distinguen por la ida y vuelta extra; las diferencias reales aparecen
+ * contra un mongod con journal o un replica set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IngestBenchmark {
+
+    private static final String COLLECTION = "ingestBenchmark";
+    private static final int BURST = 1000;
+    private static final int SPILL_QUEUE = 100;
+
+    @Param({"FIRE_AND_FORGET", "ACKNOWLEDGED", "JOURNALED", "MAJORITY"})
+    public DurabilityTier tier;
+
+    @Param({"false", "true"})
+    public boolean spill;
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private DBCollection coll;
+    private Path spillDirectory;
+    private TieredInserter inserter;
+
+    /**
+     * Documentos por segundo de cada hilo según lo que ha sido de ellos.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Documents {
+
+        public long confirmed;
+        public long spilled;
+        public long unconfirmed;
+
+        private long lastConfirmed;
+        private long lastSpilled;
+        private long lastUnconfirmed;
+
+        /**
+         * Cada iteración empieza con un insertador nuevo.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            confirmed = 0;
+            spilled = 0;
+            unconfirmed = 0;
+            lastConfirmed = 0;
+            lastSpilled = 0;
+            lastUnconfirmed = 0;
+        }
+
+        void update(IngestStats stats) {
+            long nowConfirmed = stats.getWritten() + stats.getReplayed() + stats.getDuplicates();
+            long nowSpilled = stats.getSpilled();
+            long nowUnconfirmed = stats.getRejected() + stats.getFailed() + stats.getUnconfirmed() + stats.getLost();
+            confirmed += nowConfirmed - lastConfirmed;
+            spilled += nowSpilled - lastSpilled;
+            unconfirmed += nowUnconfirmed - lastUnconfirmed;
+            lastConfirmed = nowConfirmed;
+            lastSpilled = nowSpilled;
+            lastUnconfirmed = nowUnconfirmed;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        coll = MongoTarget.open().getCollection(COLLECTION);
+        coll.drop();
+        IngestOptions options = IngestOptions.defaults().tier(tier);
+        if (spill) {
+            spillDirectory = Files.createTempDirectory("ingest-benchmark");
+            options.queueDocuments(SPILL_QUEUE).spillDirectory(spillDirectory);
+        } else {
+            options.queueDocuments(BURST * 4);
+        }
+        inserter = new TieredInserter(coll, options);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        inserter.close();
+        coll.drop();
+        if (spillDirectory != null) {
+            try (Stream<Path> files = Files.walk(spillDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+            spillDirectory = null;
+        }
+    }
+
+    /**
+     * Ráfaga de {@value #BURST} documentos pequeños, confirmados según el
+     * nivel.
+     */
+    @Benchmark
+    public void burst(Documents documents) throws InterruptedException {
+        for (int i = 0; i < BURST; i++) {
+            inserter.submit(new BasicDBObject("i", counter.getAndIncrement()).append("source", "sensor")
+                    .append("value", i * 0.5));
+        }
+        inserter.flush(1, TimeUnit.MINUTES);
+        documents.update(inserter.getStats());
+    }
+}
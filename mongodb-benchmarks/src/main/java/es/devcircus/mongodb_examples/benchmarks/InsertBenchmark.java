@@ -0,0 +1,125 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonInserter;
+import es.devcircus.mongodb_examples.hello_world.bson.BufferPool;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Benchmarks de inserción. Cada invocación de los benchmarks de
+ * inserción múltiple escribe {@code batchSize} documentos, así que para
+ * obtener documentos por segundo hay que multiplicar el resultado por el
+ * tamaño del lote.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InsertBenchmark {
+
+    private static final String COLLECTION = "insertBenchmark";
+
+    @Param({"FLAT", "NESTED"})
+    public DocumentShape shape;
+
+    @Param({"1", "100", "1000"})
+    public int batchSize;
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private DBCollection coll;
+    private BulkInserter inserter;
+    private BsonInserter bsonInserter;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        coll = MongoTarget.open().getCollection(COLLECTION);
+        coll.drop();
+        inserter = new BulkInserter(coll, batchSize, BulkInserter.DEFAULT_MAX_BATCH_BYTES,
+                BulkInserter.DEFAULT_MAX_IN_FLIGHT);
+        bsonInserter = new BsonInserter(coll, new BufferPool(2, 4 * 1024 * 1024, true));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        inserter.close();
+        bsonInserter.close();
+        coll.drop();
+    }
+
+    /**
+     * Un documento por llamada, como en insertIngADocument(). No depende del
+     * tamaño de lote.
+     */
+    @Benchmark
+    public void singleInsert() {
+        coll.insert(shape.create(counter.getAndIncrement()));
+    }
+
+    /**
+     * Un lote de documentos enviado con una única llamada a insert(List).
+     */
+    @Benchmark
+    public void multiInsert() {
+        List<DBObject> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(shape.create(counter.getAndIncrement()));
+        }
+        coll.insert(batch);
+    }
+
+    /**
+     * Un lote de documentos a través del insertador por lotes, con varios
+     * lotes en vuelo.
+     */
+    @Benchmark
+    public void bulkInserter() {
+        for (int i = 0; i < batchSize; i++) {
+            inserter.add(shape.create(counter.getAndIncrement()));
+        }
+    }
+
+    /**
+     * Un lote de documentos escritos directamente en BSON sobre un buffer
+     * reutilizado, sin construir BasicDBObject.
+     */
+    @Benchmark
+    public void rawBsonInsert() {
+        for (int i = 0; i < batchSize; i++) {
+            shape.write(bsonInserter.startDocument(), counter.getAndIncrement());
+            bsonInserter.endDocument();
+        }
+        bsonInserter.flush();
+    }
+}
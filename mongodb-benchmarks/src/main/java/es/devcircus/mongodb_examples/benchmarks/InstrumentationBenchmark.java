@@ -0,0 +1,100 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import es.devcircus.mongodb_examples.hello_world.metrics.InstrumentedDB;
+import es.devcircus.mongodb_examples.hello_world.metrics.MetricsRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Coste de la instrumentación: las mismas operaciones sobre la
+ * colección del driver y sobre la colección instrumentada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InstrumentationBenchmark {
+
+    private static final String COLLECTION = "instrumentationBenchmark";
+    private static final int DOCUMENT_COUNT = 1000;
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private MetricsRegistry registry;
+    private DBCollection coll;
+
+    @Setup
+    public void setUp() {
+        DB db = MongoTarget.open();
+        if (instrumented) {
+            registry = new MetricsRegistry();
+            db = new InstrumentedDB(db, registry);
+        }
+        coll = db.getCollection(COLLECTION);
+        coll.drop();
+        BulkInserter inserter = new BulkInserter(coll);
+        try {
+            for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                inserter.add(DocumentShape.NESTED.create(i));
+            }
+        } finally {
+            inserter.close();
+        }
+        coll.createIndex(new BasicDBObject("i", 1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        coll.drop();
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    @Benchmark
+    public DBObject findOne() {
+        return coll.findOne(new BasicDBObject("i", ThreadLocalRandom.current().nextInt(DOCUMENT_COUNT)));
+    }
+
+    @Benchmark
+    public long getCount() {
+        return coll.getCount();
+    }
+
+    @Benchmark
+    public void insert() {
+        coll.insert(DocumentShape.NESTED.create(DOCUMENT_COUNT + ThreadLocalRandom.current().nextInt(DOCUMENT_COUNT)));
+    }
+}
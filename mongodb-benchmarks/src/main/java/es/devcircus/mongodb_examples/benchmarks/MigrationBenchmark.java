@@ -0,0 +1,114 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import es.devcircus.mongodb_examples.hello_world.migration.EmployeeRowMapper;
+import es.devcircus.mongodb_examples.hello_world.migration.JdbcConnectionFactory;
+import es.devcircus.mongodb_examples.hello_world.migration.MigrationOptions;
+import es.devcircus.mongodb_examples.hello_world.migration.MigrationStats;
+import es.devcircus.mongodb_examples.hello_world.migration.MongoCheckpointStore;
+import es.devcircus.mongodb_examples.hello_world.migration.TableMigration;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Migración completa de la tabla employee desde una base de
+ * datos H2 en memoria. Cada invocación migra {@code rows} filas; las filas
+ * por segundo salen de dividir entre el tiempo medido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MigrationBenchmark {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:employee;DB_CLOSE_DELAY=-1";
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    private final JdbcConnectionFactory connections = JdbcConnectionFactory.of(JDBC_URL, "sa", "");
+    private DBCollection target;
+    private MongoCheckpointStore checkpoints;
+
+    @Setup
+    public void setUp() throws SQLException {
+        try (Connection conn = connections.open(); Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS employee");
+            st.execute("CREATE TABLE employee (id BIGINT PRIMARY KEY, firstname VARCHAR(50), "
+                    + "lastname VARCHAR(50), birth_date DATE NOT NULL, cell_phone VARCHAR(15) NOT NULL)");
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO employee VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= rows; i++) {
+                    ps.setLong(1, i);
+                    ps.setString(2, "Firstname" + i);
+                    ps.setString(3, "Lastname" + i);
+                    ps.setDate(4, new Date(0));
+                    ps.setString(5, "600" + i);
+                    ps.addBatch();
+                    if (i % 1000 == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        }
+        DB db = MongoTarget.open();
+        target = db.getCollection(EmployeeRowMapper.TABLE);
+        checkpoints = new MongoCheckpointStore(db.getCollection(MongoCheckpointStore.DEFAULT_COLLECTION));
+    }
+
+    @Setup(Level.Invocation)
+    public void clean() {
+        target.drop();
+        checkpoints.clear("benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        target.drop();
+        try (Connection conn = connections.open(); Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE employee");
+        }
+    }
+
+    @Benchmark
+    public MigrationStats migrate() {
+        return new TableMigration("benchmark", connections, EmployeeRowMapper.TABLE, EmployeeRowMapper.ID_COLUMN,
+                new EmployeeRowMapper(), target, checkpoints,
+                MigrationOptions.defaults().workers(workers).progressSeconds(0)).run();
+    }
+}
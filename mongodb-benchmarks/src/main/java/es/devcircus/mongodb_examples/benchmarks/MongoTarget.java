@@ -0,0 +1,56 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.DB;
+import es.devcircus.mongodb_examples.benchmarks.embedded.InMemoryDB;
+import es.devcircus.mongodb_examples.hello_world.connection.ConnectionSettings;
+import es.devcircus.mongodb_examples.hello_world.connection.MongoConnectionManager;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Selección del destino de los benchmarks. Por defecto se emplea
+ * la base de datos en memoria; con -Dmongodb.benchmark.target=mongod se
+ * trabaja contra un mongod (localhost:27017 salvo que se indique otro con
+ * mongodb.benchmark.host y mongodb.benchmark.port).
+ */
+public final class MongoTarget {
+
+    public static final String TARGET_PROPERTY = "mongodb.benchmark.target";
+    public static final String HOST_PROPERTY = "mongodb.benchmark.host";
+    public static final String PORT_PROPERTY = "mongodb.benchmark.port";
+    public static final String DB_NAME = "benchmarks";
+
+    private MongoTarget() {
+    }
+
+    /**
+     * Método que abre la base de datos de benchmarks en el destino elegido.
+     *
+     * @return Base de datos.
+     */
+    public static DB open() {
+        if ("mongod".equals(System.getProperty(TARGET_PROPERTY))) {
+            return MongoConnectionManager.get(ConnectionSettings.defaults()
+                    .host(System.getProperty(HOST_PROPERTY, "localhost"))
+                    .port(Integer.getInteger(PORT_PROPERTY, 27017)))
+                    .getDB(DB_NAME);
+        }
+        return new InMemoryDB(DB_NAME);
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.payload.PayloadCollection;
+import es.devcircus.mongodb_examples.hello_world.payload.PayloadOptions;
+import es.devcircus.mongodb_examples.hello_world.payload.PayloadStats;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Benchmarks de documentos grandes (unos 20 KB: un texto largo y
+ * un historial de 50 entradas) con y sin compresión de campos. Además del
+ * rendimiento, los contadores auxiliares wireBytes y logicalBytes dan los
+ * bytes por segundo que viajan por la red y los que maneja la aplicación.
+ * Contra la base de datos en memoria no hay red, así que sólo se ve el coste
+ * de CPU de comprimir; la ganancia en rendimiento aparece contra un mongod
+ * remoto, cuando la red es el cuello de botella.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PayloadBenchmark {
+
+    private static final String COLLECTION = "payloadBenchmark";
+    private static final int BATCH_SIZE = 100;
+    private static final String[] WORDS = {"mongodb", "document", "collection", "index", "query", "cursor",
+        "replica", "shard", "employee", "salary", "department", "manager", "report", "status", "pending",
+        "approved", "rejected", "the", "of", "and", "a", "to", "in", "is", "for", "with", "on", "by"};
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    @Param({"1000"})
+    public int documentCount;
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private DBCollection coll;
+    private PayloadCollection full;
+    private PayloadCollection projected;
+
+    /**
+     * Bytes por segundo de cada hilo, en la red y tal como los ve la
+     * aplicación.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+
+        public long wireBytes;
+        public long logicalBytes;
+
+        private long lastWire;
+        private long lastLogical;
+
+        void update(PayloadStats stats) {
+            long wire = stats.getWireBytesSent() + stats.getWireBytesReceived();
+            long logical = stats.getLogicalBytesSent() + stats.getLogicalBytesReceived();
+            wireBytes += wire - lastWire;
+            logicalBytes += logical - lastLogical;
+            lastWire = wire;
+            lastLogical = logical;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        coll = MongoTarget.open().getCollection(COLLECTION);
+        coll.drop();
+        PayloadOptions options = PayloadOptions.defaults();
+        if (compressed) {
+            options.compress("body", "history");
+        }
+        full = new PayloadCollection(coll, options);
+        List<DBObject> docs = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            docs.add(create(counter.getAndIncrement()));
+        }
+        full.insert(docs);
+        PayloadOptions projectedOptions = PayloadOptions.defaults().project("i", "name", "status");
+        if (compressed) {
+            projectedOptions.compress("body", "history");
+        }
+        projected = new PayloadCollection(coll, projectedOptions);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        coll.drop();
+    }
+
+    /**
+     * Un lote de {@value #BATCH_SIZE} documentos grandes con una única
+     * llamada a insert(List).
+     */
+    @Benchmark
+    public void insert(WireBytes bytes) {
+        List<DBObject> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(create(counter.getAndIncrement()));
+        }
+        full.insert(batch);
+        bytes.update(full.getStats());
+    }
+
+    /**
+     * Recorrido completo leyendo todos los campos.
+     */
+    @Benchmark
+    public void fullScan(WireBytes bytes, Blackhole bh) {
+        consume(full.find(null), bh);
+        bytes.update(full.getStats());
+    }
+
+    /**
+     * Recorrido completo con la proyección por defecto, que deja fuera el
+     * texto y el historial.
+     */
+    @Benchmark
+    public void projectedScan(WireBytes bytes, Blackhole bh) {
+        consume(projected.find(null), bh);
+        bytes.update(projected.getStats());
+    }
+
+    private static void consume(Iterator<DBObject> it, Blackhole bh) {
+        while (it.hasNext()) {
+            bh.consume(it.next());
+        }
+    }
+
+    /**
+     * Documento de unos 20 KB. El texto se genera con una semilla fija por
+     * documento, así que se comprime como un texto real repetitivo y no
+     * como datos aleatorios.
+     */
+    private static DBObject create(int i) {
+        Random random = new Random(i);
+        StringBuilder body = new StringBuilder(16 * 1024);
+        while (body.length() < 16 * 1024) {
+            body.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        List<DBObject> history = new ArrayList<>(50);
+        for (int j = 0; j < 50; j++) {
+            history.add(new BasicDBObject("ts", new Date(1262304000000L + j * 3600000L))
+                    .append("status", WORDS[14 + random.nextInt(3)])
+                    .append("by", WORDS[random.nextInt(WORDS.length)]));
+        }
+        return new BasicDBObject("i", i)
+                .append("name", "document-" + i)
+                .append("status", WORDS[14 + random.nextInt(3)])
+                .append("body", body.toString())
+                .append("history", history);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Benchmarks de las operaciones de lectura de los ejemplos:
+ * findOne, getCount, recorrido completo con cursor, consulta por igualdad
+ * sobre i y consulta por rango 2 &lt; i &lt;= 7, con y sin índice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QueryBenchmark {
+
+    private static final String COLLECTION = "queryBenchmark";
+
+    @Param({"1000", "100000"})
+    public int documentCount;
+
+    @Param({"FLAT", "NESTED"})
+    public DocumentShape shape;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private DBCollection coll;
+
+    @Setup
+    public void setUp() {
+        DB db = MongoTarget.open();
+        coll = db.getCollection(COLLECTION);
+        coll.drop();
+        BulkInserter inserter = new BulkInserter(coll);
+        try {
+            for (int i = 0; i < documentCount; i++) {
+                inserter.add(shape.create(i));
+            }
+        } finally {
+            inserter.close();
+        }
+        if (indexed) {
+            coll.createIndex(new BasicDBObject("i", 1));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        coll.drop();
+    }
+
+    @Benchmark
+    public DBObject findOne() {
+        return coll.findOne();
+    }
+
+    @Benchmark
+    public long getCount() {
+        return coll.getCount();
+    }
+
+    @Benchmark
+    public void fullScan(Blackhole bh) {
+        consume(coll.find(), bh);
+    }
+
+    @Benchmark
+    public void equalityQuery(Blackhole bh) {
+        consume(coll.find(new BasicDBObject("i", randomKey())), bh);
+    }
+
+    @Benchmark
+    public void rangeQuery(Blackhole bh) {
+        int from = randomKey();
+        consume(coll.find(new BasicDBObject("i", new BasicDBObject("$gt", from).append("$lte", from + 5))), bh);
+    }
+
+    private int randomKey() {
+        return ThreadLocalRandom.current().nextInt(documentCount);
+    }
+
+    private static void consume(DBCursor cur, Blackhole bh) {
+        while (cur.hasNext()) {
+            bh.consume(cur.next());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks.embedded;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Colección en memoria. Implementa los métodos abstractos de
+ * {@link DBCollection}, de forma que el resto del API del driver (cursores,
+ * findOne, getCount, getIndexInfo...) funciona sin cambios sobre ella.
+ */
+public class InMemoryCollection extends DBCollection {
+
+    private final InMemoryDB db;
+    private final List<DBObject> documents = new ArrayList<>();
+
+    InMemoryCollection(InMemoryDB db, String name) {
+        super(db, name);
+        this.db = db;
+    }
+
+    @Override
+    public void insert(DBObject doc) throws MongoException {
+        insert(new DBObject[]{doc});
+    }
+
+    @Override
+    public void insert(DBObject[] docs) throws MongoException {
+        for (DBObject doc : docs) {
+            apply(doc);
+        }
+        synchronized (documents) {
+            Collections.addAll(documents, docs);
+        }
+    }
+
+    @Override
+    public void insert(List<DBObject> docs) throws MongoException {
+        insert(docs.toArray(new DBObject[docs.size()]));
+    }
+
+    @Override
+    public void update(DBObject query, DBObject update, boolean upsert, boolean multi) throws MongoException {
+        boolean modifier = !update.keySet().isEmpty() && update.keySet().iterator().next().startsWith("$");
+        boolean found = false;
+        synchronized (documents) {
+            for (int i = 0; i < documents.size(); i++) {
+                DBObject doc = documents.get(i);
+                if (!QueryMatcher.matches(doc, query)) {
+                    continue;
+                }
+                found = true;
+                if (modifier) {
+                    applyModifiers(doc, update);
+                } else {
+                    DBObject replacement = new BasicDBObject(update.toMap());
+                    replacement.put("_id", doc.get("_id"));
+                    documents.set(i, replacement);
+                }
+                if (!multi) {
+                    break;
+                }
+            }
+        }
+        if (!found && upsert) {
+            DBObject doc = new BasicDBObject();
+            if (modifier) {
+                applyModifiers(doc, update);
+            } else {
+                doc.putAll(update);
+            }
+            insert(doc);
+        }
+    }
+
+    @Override
+    protected void doapply(DBObject o) {
+    }
+
+    @Override
+    public void remove(DBObject query) throws MongoException {
+        synchronized (documents) {
+            Iterator<DBObject> it = documents.iterator();
+            while (it.hasNext()) {
+                if (QueryMatcher.matches(it.next(), query)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Método que resuelve una consulta con la misma firma que emplea
+     * {@link com.mongodb.DBCursor}. Un {@code numToReturn} negativo limita el
+     * número de resultados; uno positivo es sólo el tamaño del lote, y el
+     * límite lo aplica el propio cursor.
+     */
+    @Override
+    public Iterator<DBObject> find(DBObject ref, DBObject fields, int numToSkip, int numToReturn, int options)
+            throws MongoException {
+        DBObject query = ref;
+        DBObject orderBy = null;
+        if (ref != null && ref.containsField("query") && ref.get("query") instanceof DBObject) {
+            query = (DBObject) ref.get("query");
+            orderBy = (DBObject) ref.get("orderby");
+            if (Boolean.TRUE.equals(ref.get("$explain"))) {
+                return Collections.singletonList(explain(query)).iterator();
+            }
+        }
+        List<DBObject> result = new ArrayList<>();
+        synchronized (documents) {
+            for (DBObject doc : documents) {
+                if (QueryMatcher.matches(doc, query)) {
+                    result.add(doc);
+                }
+            }
+        }
+        if (orderBy != null && orderBy.containsField("$natural")) {
+            // orden de inserción, que es el de la lista
+            if (((Number) orderBy.get("$natural")).intValue() < 0) {
+                Collections.reverse(result);
+            }
+        } else if (orderBy != null && !orderBy.keySet().isEmpty()) {
+            Collections.sort(result, new OrderByComparator(orderBy));
+        }
+        int from = Math.min(numToSkip, result.size());
+        int to = numToReturn < 0 ? Math.min(result.size(), from - numToReturn) : result.size();
+        List<DBObject> page = result.subList(from, to);
+        if (fields == null || fields.keySet().isEmpty()) {
+            return new ArrayList<>(page).iterator();
+        }
+        List<DBObject> projected = new ArrayList<>(page.size());
+        for (DBObject doc : page) {
+            projected.add(project(doc, fields));
+        }
+        return projected.iterator();
+    }
+
+    /**
+     * Plan con el formato de explain() de los servidores 1.x. No hay índices
+     * reales: si alguno empieza por un campo de la consulta se informa como
+     * BtreeCursor y se cuentan como examinados los documentos que cumplen la
+     * condición sobre ese campo; si no, como recorrido completo.
+     */
+    private DBObject explain(DBObject query) {
+        String indexName = null;
+        DBObject indexQuery = null;
+        for (DBObject index : db.getIndexes(this)) {
+            DBObject keys = (DBObject) index.get("key");
+            String first = keys.keySet().iterator().next();
+            if (query.containsField(first)) {
+                indexName = (String) index.get("name");
+                indexQuery = new BasicDBObject(first, query.get(first));
+                break;
+            }
+        }
+        int scanned = 0;
+        int matched = 0;
+        synchronized (documents) {
+            for (DBObject doc : documents) {
+                if (indexQuery == null || QueryMatcher.matches(doc, indexQuery)) {
+                    scanned++;
+                    if (QueryMatcher.matches(doc, query)) {
+                        matched++;
+                    }
+                }
+            }
+        }
+        return new BasicDBObject("cursor", indexName == null ? "BasicCursor" : "BtreeCursor " + indexName)
+                .append("nscanned", scanned)
+                .append("n", matched)
+                .append("millis", 0);
+    }
+
+    @Override
+    protected void createIndex(DBObject keys, DBObject options) throws MongoException {
+        db.registerIndex(this, keys, options);
+    }
+
+    /**
+     * Método que devuelve el número de documentos de la colección.
+     *
+     * @return Número de documentos.
+     */
+    public int size() {
+        synchronized (documents) {
+            return documents.size();
+        }
+    }
+
+    void clear() {
+        synchronized (documents) {
+            documents.clear();
+        }
+    }
+
+    private static DBObject project(DBObject doc, DBObject fields) {
+        DBObject result = new BasicDBObject();
+        result.put("_id", doc.get("_id"));
+        for (String key : fields.keySet()) {
+            Object value = QueryMatcher.resolve(doc, key);
+            if (value == null) {
+                continue;
+            }
+            // los campos con puntos se devuelven anidados, como en el servidor
+            DBObject parent = result;
+            String[] path = key.split("\\.");
+            for (int i = 0; i < path.length - 1; i++) {
+                Object child = parent.get(path[i]);
+                if (!(child instanceof DBObject)) {
+                    child = new BasicDBObject();
+                    parent.put(path[i], child);
+                }
+                parent = (DBObject) child;
+            }
+            parent.put(path[path.length - 1], value);
+        }
+        result.markAsPartialObject();
+        return result;
+    }
+
+    private static void applyModifiers(DBObject doc, DBObject update) {
+        for (String op : update.keySet()) {
+            DBObject args = (DBObject) update.get(op);
+            for (String field : args.keySet()) {
+                Object arg = args.get(field);
+                switch (op) {
+                    case "$set":
+                        doc.put(field, arg);
+                        break;
+                    case "$unset":
+                        doc.removeField(field);
+                        break;
+                    case "$inc":
+                        Object current = doc.get(field);
+                        doc.put(field, current == null
+                                ? arg
+                                : ((Number) current).longValue() + ((Number) arg).longValue());
+                        break;
+                    default:
+                        throw new UnsupportedOperationException("Modificador no soportado: " + op);
+                }
+            }
+        }
+    }
+
+    /**
+     * Comparador que aplica un criterio de ordenación de MongoDB.
+     */
+    private static class OrderByComparator implements Comparator<DBObject> {
+
+        private final DBObject orderBy;
+
+        OrderByComparator(DBObject orderBy) {
+            this.orderBy = orderBy;
+        }
+
+        @Override
+        public int compare(DBObject a, DBObject b) {
+            for (String key : orderBy.keySet()) {
+                int direction = ((Number) orderBy.get(key)).intValue() < 0 ? -1 : 1;
+                int result = QueryMatcher.compare(QueryMatcher.resolve(a, key), QueryMatcher.resolve(b, key));
+                if (result != 0) {
+                    return direction * result;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks.embedded;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Base de datos en memoria que hace de sustituto de un mongod
+ * local. Sirve para ejecutar los benchmarks sin servidor y medir el coste del
+ * lado cliente (construcción de documentos, cursores, etc.); las cifras de
+ * red y de servidor sólo tienen sentido contra un mongod real.
+ */
+public class InMemoryDB extends DB {
+
+    private static final String SYSTEM_INDEXES = "system.indexes";
+
+    private final Map<String, InMemoryCollection> collections = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param name Nombre de la base de datos.
+     */
+    public InMemoryDB(String name) {
+        super(name);
+    }
+
+    @Override
+    public DBCollection getCollectionFromFull(String fullName) {
+        String prefix = getName() + ".";
+        return getCollection(fullName.startsWith(prefix) ? fullName.substring(prefix.length()) : fullName);
+    }
+
+    @Override
+    protected DBCollection doGetCollection(String name) {
+        InMemoryCollection collection = collections.get(name);
+        if (collection == null) {
+            synchronized (collections) {
+                collection = collections.get(name);
+                if (collection == null) {
+                    collection = new InMemoryCollection(this, name);
+                    collections.put(name, collection);
+                }
+            }
+        }
+        return collection;
+    }
+
+    @Override
+    public DB getSisterDB(String name) {
+        return new InMemoryDB(name);
+    }
+
+    @Override
+    public Set<String> getCollectionNames() throws MongoException {
+        return new LinkedHashSet<>(collections.keySet());
+    }
+
+    /**
+     * Método que resuelve los comandos que emplea el driver para las
+     * operaciones de los ejemplos: count, collstats, drop, deleteIndexes,
+     * dropDatabase y getlasterror. Las escrituras en memoria son síncronas y
+     * sus errores se lanzan al momento, así que getlasterror siempre responde
+     * sin error, con cualquier w o j.
+     */
+    @Override
+    public DBObject command(DBObject cmd) throws MongoException {
+        BasicDBObject result = new BasicDBObject("ok", 1);
+        String name = cmd.keySet().iterator().next();
+        switch (name) {
+            case "count": {
+                InMemoryCollection collection = (InMemoryCollection) getCollection((String) cmd.get("count"));
+                DBObject query = (DBObject) cmd.get("query");
+                long n = 0;
+                Iterator<DBObject> it = collection.find(query, null, 0, 0, 0);
+                while (it.hasNext()) {
+                    it.next();
+                    n++;
+                }
+                result.put("n", (double) n);
+                break;
+            }
+            case "collstats": {
+                InMemoryCollection collection = (InMemoryCollection) getCollection((String) cmd.get("collstats"));
+                result.put("ns", collection.getFullName());
+                result.put("count", collection.size());
+                break;
+            }
+            case "drop": {
+                String collectionName = (String) cmd.get("drop");
+                // conservamos la instancia: el driver reutiliza el mismo
+                // DBCollection después de un drop()
+                InMemoryCollection collection = collections.get(collectionName);
+                if (collection != null) {
+                    collection.clear();
+                }
+                dropIndexes(getName() + "." + collectionName, null);
+                break;
+            }
+            case "deleteIndexes": {
+                String index = (String) cmd.get("index");
+                dropIndexes(getName() + "." + cmd.get("deleteIndexes"), "*".equals(index) ? null : index);
+                break;
+            }
+            case "getlasterror":
+                result.put("err", null);
+                result.put("n", 0);
+                break;
+            case "dropDatabase":
+                for (InMemoryCollection collection : collections.values()) {
+                    collection.clear();
+                }
+                break;
+            default:
+                result.put("ok", 0);
+                // mismo mensaje que un mongod 1.x, para que los clientes lo reconozcan
+                result.put("errmsg", "no such cmd: " + name);
+        }
+        return result;
+    }
+
+    List<DBObject> getIndexes(InMemoryCollection collection) {
+        List<DBObject> indexes = new ArrayList<>();
+        for (DBObject index : getCollection(SYSTEM_INDEXES).find(new BasicDBObject("ns", collection.getFullName()))) {
+            indexes.add(index);
+        }
+        return indexes;
+    }
+
+    void registerIndex(InMemoryCollection collection, DBObject keys, DBObject options) {
+        DBCollection indexes = getCollection(SYSTEM_INDEXES);
+        String name = options != null && options.get("name") != null
+                ? (String) options.get("name")
+                : DBCollection.genIndexName(keys);
+        BasicDBObject existing = new BasicDBObject("ns", collection.getFullName()).append("name", name);
+        if (indexes.findOne(existing) != null) {
+            return;
+        }
+        BasicDBObject index = new BasicDBObject("name", name)
+                .append("ns", collection.getFullName())
+                .append("key", keys);
+        if (options != null) {
+            for (String key : options.keySet()) {
+                if (!index.containsField(key)) {
+                    index.put(key, options.get(key));
+                }
+            }
+        }
+        indexes.insert(index);
+    }
+
+    private void dropIndexes(String ns, String name) {
+        BasicDBObject query = new BasicDBObject("ns", ns);
+        if (name != null) {
+            query.put("name", name);
+        }
+        getCollection(SYSTEM_INDEXES).remove(query);
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.benchmarks.embedded;
+
+import com.mongodb.DBObject;
+import com.mongodb.DBTimestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Evaluador de consultas para la base de datos en memoria. Sólo
+ * cubre lo que usan los ejemplos: igualdad, $gt, $gte, $lt, $lte, $ne, $in,
+ * $nin, $exists, $and y $or, con campos anidados separados por puntos.
+ */
+public final class QueryMatcher {
+
+    private QueryMatcher() {
+    }
+
+    /**
+     * Método que comprueba si un documento cumple una consulta.
+     *
+     * @param doc Documento a evaluar.
+     * @param query Consulta. Una consulta nula o vacía acepta cualquier
+     * documento.
+     * @return true si el documento cumple la consulta.
+     */
+    public static boolean matches(DBObject doc, DBObject query) {
+        if (query == null) {
+            return true;
+        }
+        for (String key : query.keySet()) {
+            Object condition = query.get(key);
+            if ("$and".equals(key)) {
+                for (Object sub : (List<?>) condition) {
+                    if (!matches(doc, (DBObject) sub)) {
+                        return false;
+                    }
+                }
+            } else if ("$or".equals(key)) {
+                boolean any = false;
+                for (Object sub : (List<?>) condition) {
+                    if (matches(doc, (DBObject) sub)) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any) {
+                    return false;
+                }
+            } else if (!matchesField(resolve(doc, key), doc, key, condition)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Método que recupera el valor de un campo, admitiendo rutas con puntos.
+     *
+     * @param doc Documento.
+     * @param path Ruta del campo.
+     * @return Valor del campo o null si no existe.
+     */
+    public static Object resolve(DBObject doc, String path) {
+        Object current = doc;
+        for (String part : path.split("\\.")) {
+            if (!(current instanceof DBObject)) {
+                return null;
+            }
+            current = ((DBObject) current).get(part);
+        }
+        return current;
+    }
+
+    /**
+     * Método que compara dos valores con el orden que aplica MongoDB a los
+     * tipos que manejamos. Los números se comparan por su valor.
+     *
+     * @param a Primer valor.
+     * @param b Segundo valor.
+     * @return Negativo, cero o positivo.
+     */
+    @SuppressWarnings("unchecked")
+    public static int compare(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof Date && b instanceof Date) {
+            return ((Date) a).compareTo((Date) b);
+        }
+        if (a instanceof DBTimestamp && b instanceof DBTimestamp) {
+            DBTimestamp x = (DBTimestamp) a;
+            DBTimestamp y = (DBTimestamp) b;
+            return x.getTime() != y.getTime() ? Integer.compare(x.getTime(), y.getTime())
+                    : Integer.compare(x.getInc(), y.getInc());
+        }
+        if (a.getClass() == b.getClass() && a instanceof Comparable) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+        return a.getClass().getName().compareTo(b.getClass().getName());
+    }
+
+    private static boolean matchesField(Object value, DBObject doc, String key, Object condition) {
+        if (condition instanceof DBObject && isOperatorObject((DBObject) condition)) {
+            DBObject operators = (DBObject) condition;
+            for (String op : operators.keySet()) {
+                if (!matchesOperator(value, doc, key, op, operators.get(op))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return equal(value, condition);
+    }
+
+    private static boolean matchesOperator(Object value, DBObject doc, String key, String op, Object arg) {
+        switch (op) {
+            case "$gt":
+                return value != null && comparable(value, arg) && compare(value, arg) > 0;
+            case "$gte":
+                return value != null && comparable(value, arg) && compare(value, arg) >= 0;
+            case "$lt":
+                return value != null && comparable(value, arg) && compare(value, arg) < 0;
+            case "$lte":
+                return value != null && comparable(value, arg) && compare(value, arg) <= 0;
+            case "$ne":
+                return !equal(value, arg);
+            case "$in":
+                return contains((Collection<?>) arg, value);
+            case "$nin":
+                return !contains((Collection<?>) arg, value);
+            case "$exists":
+                boolean exists = resolveExists(doc, key);
+                return Boolean.TRUE.equals(arg) ? exists : !exists;
+            default:
+                throw new UnsupportedOperationException("Operador no soportado: " + op);
+        }
+    }
+
+    private static boolean resolveExists(DBObject doc, String path) {
+        int dot = path.lastIndexOf('.');
+        Object parent = dot < 0 ? doc : resolve(doc, path.substring(0, dot));
+        return parent instanceof DBObject
+                && ((DBObject) parent).containsField(dot < 0 ? path : path.substring(dot + 1));
+    }
+
+    private static boolean contains(Collection<?> values, Object value) {
+        for (Object candidate : values) {
+            if (equal(value, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean comparable(Object a, Object b) {
+        return (a instanceof Number && b instanceof Number) || a.getClass() == b.getClass();
+    }
+
+    private static boolean equal(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return compare(a, b) == 0;
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static boolean isOperatorObject(DBObject condition) {
+        for (String key : condition.keySet()) {
+            if (!key.startsWith("$")) {
+                return false;
+            }
+        }
+        return !condition.keySet().isEmpty();
+    }
+}
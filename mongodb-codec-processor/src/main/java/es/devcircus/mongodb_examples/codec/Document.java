@@ -0,0 +1,44 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Marca una clase como entidad de MongoDB. Al compilarla se
+ * genera, en el mismo paquete, un codificador con el nombre de la clase más
+ * el sufijo Codec. La clase necesita un constructor sin argumentos que no
+ * sea privado, y cada campo que no sea static ni transient debe ser
+ * accesible desde el paquete o tener getter y setter.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Document {
+
+    /**
+     * Nombre de la colección. Por defecto, el nombre de la clase con la
+     * primera letra en minúscula.
+     *
+     * @return Nombre de la colección.
+     */
+    String value() default "";
+}
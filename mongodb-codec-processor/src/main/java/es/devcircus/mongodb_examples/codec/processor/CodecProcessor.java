@@ -0,0 +1,461 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.codec.processor;
+
+import es.devcircus.mongodb_examples.codec.Document;
+import es.devcircus.mongodb_examples.codec.Field;
+import es.devcircus.mongodb_examples.codec.Id;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Procesador de anotaciones que genera un codificador BSON por
+ * cada clase anotada con {@link Document}. El codificador implementa el
+ * {@code DocumentCodec} de mongodb-hello-world y lee y escribe cada campo con
+ * una llamada directa al {@code BsonReader} y al {@code BsonWriter}, así que
+ * en ejecución no hay reflexión ni mapas. Tipos admitidos: int, long,
+ * double, boolean y sus envoltorios, String, Date, ObjectId y enumerados
+ * (por nombre). Cualquier otro tipo es un error de compilación, igual que
+ * los campos persistentes heredados de una superclase, que el codificador no
+ * vería.
+ */
+@SupportedAnnotationTypes("es.devcircus.mongodb_examples.codec.Document")
+public class CodecProcessor extends AbstractProcessor {
+
+    private static final String RUNTIME = "es.devcircus.mongodb_examples.hello_world";
+    private static final int MAX_FIELDS = 64;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWith(Document.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@Document sólo se puede aplicar a clases");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<Property> properties = analyze(type);
+            if (properties != null) {
+                write(type, properties);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene los campos de la entidad y comprueba que se pueden generar.
+     * Devuelve null si hay algún error, ya informado al compilador.
+     */
+    private List<Property> analyze(TypeElement type) {
+        boolean valid = true;
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "Una entidad no puede ser abstracta");
+            valid = false;
+        }
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL && !type.getModifiers().contains(Modifier.STATIC)) {
+            error(type, "Una entidad anidada debe ser static");
+            valid = false;
+        }
+        boolean constructor = false;
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE)) {
+                constructor = true;
+            }
+        }
+        if (!constructor) {
+            error(type, "Una entidad necesita un constructor sin argumentos que no sea privado");
+            valid = false;
+        }
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+        List<Property> properties = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        Set<String> constants = new HashSet<>();
+        boolean id = false;
+        for (TypeMirror parent = type.getSuperclass(); parent.getKind() == TypeKind.DECLARED;) {
+            TypeElement superclass = (TypeElement) ((DeclaredType) parent).asElement();
+            for (VariableElement field : ElementFilter.fieldsIn(superclass.getEnclosedElements())) {
+                if (isPersistent(field)) {
+                    error(type, "La entidad hereda el campo persistente " + field.getSimpleName() + " de "
+                            + superclass.getQualifiedName() + "; márcalo transient o decláralo en la entidad");
+                    valid = false;
+                }
+            }
+            parent = superclass.getSuperclass();
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!isPersistent(field)) {
+                continue;
+            }
+            Property property = new Property();
+            property.javaName = field.getSimpleName().toString();
+            property.id = field.getAnnotation(Id.class) != null;
+            Field rename = field.getAnnotation(Field.class);
+            if (property.id) {
+                property.bsonName = "_id";
+                if (id) {
+                    error(field, "Sólo puede haber un campo @Id");
+                    valid = false;
+                }
+                id = true;
+            } else {
+                property.bsonName = rename != null ? rename.value() : property.javaName;
+            }
+            if (!names.add(property.bsonName)) {
+                error(field, "Hay dos campos que se guardan como " + property.bsonName);
+                valid = false;
+            }
+            if (!constants.add(property.constant())) {
+                error(field, "El nombre de " + property.javaName + " se confunde con el de otro campo en el "
+                        + "codificador generado (" + property.constant() + "); renombra uno de los dos");
+                valid = false;
+            }
+            TypeMirror fieldType = field.asType();
+            property.kind = Kind.of(fieldType);
+            if (property.kind == null) {
+                error(field, "Tipo no soportado por el codificador: " + fieldType);
+                valid = false;
+                continue;
+            }
+            property.primitive = fieldType.getKind().isPrimitive();
+            property.typeName = processingEnv.getTypeUtils().erasure(fieldType).toString()
+                    .replaceFirst("^java\\.lang\\.(\\w+)$", "$1");
+            if (modifiers.contains(Modifier.FINAL)) {
+                error(field, "Un campo persistente no puede ser final; márcalo transient para ignorarlo");
+                valid = false;
+            } else if (!modifiers.contains(Modifier.PRIVATE)) {
+                property.getter = property.javaName;
+                property.setter = null;
+            } else {
+                String suffix = property.javaName.substring(0, 1).toUpperCase(Locale.ROOT)
+                        + property.javaName.substring(1);
+                property.getter = accessor(methods, fieldType, "get" + suffix, 0);
+                if (property.getter == null && fieldType.getKind() == TypeKind.BOOLEAN) {
+                    property.getter = accessor(methods, fieldType, "is" + suffix, 0);
+                }
+                property.setter = accessor(methods, fieldType, "set" + suffix, 1);
+                if (property.getter == null || property.setter == null) {
+                    error(field, "Un campo privado necesita getter y setter accesibles");
+                    valid = false;
+                }
+            }
+            properties.add(property);
+        }
+        if (properties.size() > MAX_FIELDS) {
+            error(type, "Una entidad no puede tener más de " + MAX_FIELDS + " campos");
+            valid = false;
+        }
+        return valid ? properties : null;
+    }
+
+    private static boolean isPersistent(VariableElement field) {
+        Set<Modifier> modifiers = field.getModifiers();
+        return !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT);
+    }
+
+    /**
+     * Devuelve la llamada a un getter (sin argumentos) o el nombre de un
+     * setter (un argumento del tipo del campo), o null si no existe.
+     */
+    private String accessor(List<ExecutableElement> methods, TypeMirror fieldType, String name, int parameters) {
+        for (ExecutableElement method : methods) {
+            if (!method.getSimpleName().contentEquals(name) || method.getParameters().size() != parameters
+                    || method.getModifiers().contains(Modifier.PRIVATE)
+                    || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            TypeMirror type = parameters == 0 ? method.getReturnType() : method.getParameters().get(0).asType();
+            if (processingEnv.getTypeUtils().isSameType(type, fieldType)) {
+                return parameters == 0 ? name + "()" : name;
+            }
+        }
+        return null;
+    }
+
+    private void write(TypeElement type, List<Property> properties) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.getQualifiedName().toString();
+        String entity = type.getNestingKind() == NestingKind.TOP_LEVEL
+                ? type.getSimpleName().toString() : type.getQualifiedName().toString();
+        String codec = type.getSimpleName() + "Codec";
+        String collection = type.getAnnotation(Document.class).value();
+        if (collection.isEmpty()) {
+            String simple = type.getSimpleName().toString();
+            collection = simple.substring(0, 1).toLowerCase(Locale.ROOT) + simple.substring(1);
+        }
+        String qualified = packageName.isEmpty() ? codec : packageName + "." + codec;
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualified, type)
+                .openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import " + RUNTIME + ".bson.BsonReader;");
+            out.println("import " + RUNTIME + ".bson.BsonWriter;");
+            out.println("import " + RUNTIME + ".codec.DocumentCodec;");
+            out.println("import java.nio.charset.StandardCharsets;");
+            out.println("import java.util.Arrays;");
+            out.println("import java.util.Collections;");
+            out.println("import java.util.List;");
+            out.println();
+            out.println("/**");
+            out.println(" * Codificador de {@link " + entity + "} generado por CodecProcessor. No");
+            out.println(" * modificar: se vuelve a generar en cada compilación.");
+            out.println(" */");
+            out.println("public final class " + codec + " implements DocumentCodec<" + entity + "> {");
+            out.println();
+            for (int i = 0; i < properties.size(); i++) {
+                out.println("    private static final int " + properties.get(i).constant() + " = " + i + ";");
+            }
+            StringBuilder names = new StringBuilder();
+            for (Property property : properties) {
+                names.append(names.length() == 0 ? "" : ", ").append(literal(property.bsonName));
+            }
+            out.println("    private static final List<String> FIELD_NAMES = Collections.unmodifiableList(");
+            out.println("            Arrays.asList(" + names + "));");
+            out.println("    private static final byte[][] NAMES = new byte[FIELD_NAMES.size()][];");
+            out.println();
+            out.println("    static {");
+            out.println("        for (int i = 0; i < NAMES.length; i++) {");
+            out.println("            NAMES[i] = FIELD_NAMES.get(i).getBytes(StandardCharsets.UTF_8);");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<" + entity + "> getEntityClass() {");
+            out.println("        return " + entity + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getCollectionName() {");
+            out.println("        return " + literal(collection) + ";");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public List<String> getFieldNames() {");
+            out.println("        return FIELD_NAMES;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void encode(BsonWriter writer, " + entity + " value) {");
+            for (Property property : properties) {
+                writeEncode(out, property);
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + entity + " decode(BsonReader reader, long fields) {");
+            out.println("        " + entity + " value = new " + entity + "();");
+            out.println("        reader.startDocument();");
+            out.println("        byte type;");
+            out.println("        while ((type = reader.readType()) != BsonReader.END) {");
+            out.println("            int field = reader.matchName(NAMES);");
+            out.println("            if (field < 0 || (fields & (1L << field)) == 0 || type == BsonReader.NULL) {");
+            out.println("                reader.skipValue(type);");
+            out.println("                continue;");
+            out.println("            }");
+            out.println("            switch (field) {");
+            for (Property property : properties) {
+                out.println("                case " + property.constant() + ":");
+                out.println("                    " + property.assign(property.kind.read(property.typeName)));
+                out.println("                    break;");
+            }
+            out.println("                default:");
+            out.println("                    reader.skipValue(type);");
+            out.println("            }");
+            out.println("        }");
+            out.println("        return value;");
+            out.println("    }");
+            out.println("}");
+        } catch (IOException ex) {
+            error(type, "No se pudo generar " + qualified + ": " + ex.getMessage());
+        }
+    }
+
+    private static void writeEncode(PrintWriter out, Property property) {
+        String name = literal(property.bsonName);
+        String read = "value." + property.getter;
+        if (property.primitive || property.kind == Kind.STRING && !property.id) {
+            // putString ya escribe null si la cadena es null
+            out.println("        writer." + property.kind.write(name, read) + ";");
+            return;
+        }
+        String local = property.javaName + "Value";
+        out.println("        " + property.typeName + " " + local + " = " + read + ";");
+        if (property.id) {
+            out.println("        if (" + local + " != null) {");
+            out.println("            writer." + property.kind.write(name, local) + ";");
+            out.println("        }");
+        } else {
+            out.println("        if (" + local + " == null) {");
+            out.println("            writer.putNull(" + name + ");");
+            out.println("        } else {");
+            out.println("            writer." + property.kind.write(name, local) + ";");
+            out.println("        }");
+        }
+    }
+
+    /**
+     * Literal de cadena Java con el valor indicado.
+     */
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20 || c == 0x7F) {
+                // en octal: un escape unicode se traduciría antes de leer el literal
+                sb.append(String.format("\\%03o", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Campo persistente de una entidad.
+     */
+    private static class Property {
+
+        String javaName;
+        String bsonName;
+        Kind kind;
+        String typeName;
+        boolean primitive;
+        boolean id;
+        String getter;
+        String setter;
+
+        /**
+         * Constante con el índice del campo. El prefijo evita que choque con
+         * las constantes fijas del codificador (FIELD_NAMES, NAMES).
+         */
+        String constant() {
+            return "F_" + javaName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT);
+        }
+
+        String assign(String expression) {
+            return setter == null
+                    ? "value." + javaName + " = " + expression + ";"
+                    : "value." + setter + "(" + expression + ");";
+        }
+    }
+
+    /**
+     * Tipos admitidos, con la llamada que escribe y la que lee cada uno.
+     */
+    private enum Kind {
+
+        INT("putInt(%s, %s)", "reader.readInt(type)"),
+        LONG("putLong(%s, %s)", "reader.readLong(type)"),
+        DOUBLE("putDouble(%s, %s)", "reader.readDouble(type)"),
+        BOOLEAN("putBoolean(%s, %s)", "reader.readBoolean(type)"),
+        STRING("putString(%s, %s)", "reader.readString(type)"),
+        DATE("putDate(%s, %s.getTime())", "new java.util.Date(reader.readDate(type))"),
+        OBJECT_ID("putObjectId(%s, %s)", "reader.readObjectId(type)"),
+        ENUM("putString(%s, %s.name())", "%s.valueOf(reader.readString(type))");
+
+        private final String write;
+        private final String read;
+
+        Kind(String write, String read) {
+            this.write = write;
+            this.read = read;
+        }
+
+        String write(String name, String value) {
+            return String.format(write, name, value);
+        }
+
+        String read(String typeName) {
+            return String.format(read, typeName);
+        }
+
+        static Kind of(TypeMirror type) {
+            switch (type.getKind()) {
+                case INT:
+                    return INT;
+                case LONG:
+                    return LONG;
+                case DOUBLE:
+                    return DOUBLE;
+                case BOOLEAN:
+                    return BOOLEAN;
+                case DECLARED:
+                    break;
+                default:
+                    return null;
+            }
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            if (element.getKind() == ElementKind.ENUM) {
+                return ENUM;
+            }
+            switch (element.getQualifiedName().toString()) {
+                case "java.lang.Integer":
+                    return INT;
+                case "java.lang.Long":
+                    return LONG;
+                case "java.lang.Double":
+                    return DOUBLE;
+                case "java.lang.Boolean":
+                    return BOOLEAN;
+                case "java.lang.String":
+                    return STRING;
+                case "java.util.Date":
+                    return DATE;
+                case "com.mongodb.ObjectId":
+                    return OBJECT_ID;
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.mongodb;
+
+import java.util.Iterator;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Puente hacia los miembros protegidos o de paquete del driver
+ * que necesita la instrumentación: la creación de índices y la aplicación de
+ * _id de una colección envuelta, y los bytes recibidos y las peticiones
+ * getMore de un cursor real. Junto con {@link RawBsonSupport} es lo único que
+ * hay en este paquete; no añadir nada más.
+ */
+public final class InstrumentationSupport {
+
+    private InstrumentationSupport() {
+    }
+
+    /**
+     * Método que crea un índice en la colección indicada con las opciones ya
+     * calculadas.
+     *
+     * @param coll Colección.
+     * @param keys Campos del índice.
+     * @param options Opciones del índice (name, ns, unique...).
+     */
+    public static void createIndex(DBCollection coll, DBObject keys, DBObject options) {
+        coll.createIndex(keys, options);
+    }
+
+    /**
+     * Método que asigna el _id a un documento según las reglas de la
+     * colección indicada.
+     *
+     * @param coll Colección.
+     * @param o Documento.
+     */
+    public static void apply(DBCollection coll, DBObject o) {
+        coll.doapply(o);
+    }
+
+    /**
+     * Método que indica si un iterador es un cursor real del driver, del que
+     * se pueden leer {@link #totalBytes} y {@link #numGetMores}.
+     *
+     * @param it Iterador devuelto por DBCollection.find.
+     * @return true si es un cursor del driver.
+     */
+    public static boolean isDriverCursor(Iterator<DBObject> it) {
+        return it instanceof DBApiLayer.Result;
+    }
+
+    /**
+     * Bytes recibidos hasta ahora por un cursor del driver.
+     *
+     * @param it Cursor del driver.
+     * @return Bytes recibidos.
+     */
+    public static long totalBytes(Iterator<DBObject> it) {
+        return ((DBApiLayer.Result) it).totalBytes();
+    }
+
+    /**
+     * Peticiones getMore realizadas hasta ahora por un cursor del driver.
+     *
+     * @param it Cursor del driver.
+     * @return Número de getMore.
+     */
+    public static int numGetMores(Iterator<DBObject> it) {
+        return ((DBApiLayer.Result) it).numGetMores();
+    }
+}
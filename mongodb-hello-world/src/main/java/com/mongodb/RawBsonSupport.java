@@ -0,0 +1,133 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package com.mongodb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Puente hacia las operaciones de bajo nivel del driver. La
+ * versión del driver que empleamos sólo permite insertar y leer a través de
+ * {@link DBObject}; el envío de mensajes ya codificados
+ * ({@code DBApiLayer.doInsert}, {@code doQuery}...) es protegido, por eso
+ * esta clase vive en el paquete del driver. Junto con {@link InstrumentationSupport} es lo único
+ * que hay en este paquete; no añadir nada más.
+ */
+public final class RawBsonSupport {
+
+    private RawBsonSupport() {
+    }
+
+    /**
+     * Método que indica si a la base de datos se le pueden enviar mensajes
+     * ya codificados, es decir, si es una base de datos real del driver.
+     *
+     * @param db Base de datos.
+     * @return true si se pueden emplear {@link #insert}, {@link #query},
+     * {@link #getMore} y {@link #killCursors}.
+     */
+    public static boolean supportsRawMessages(DB db) {
+        return db instanceof DBApiLayer;
+    }
+
+    /**
+     * Método que envía un mensaje OP_INSERT ya codificado por la conexión del
+     * driver.
+     *
+     * @param db Base de datos.
+     * @param message Cuerpo del mensaje: flags (int32), espacio de nombres
+     * (cstring) y los documentos, preparado para lectura (flip).
+     * @param concern Nivel de confirmación de la escritura.
+     */
+    public static void insert(DB db, ByteBuffer message, DB.WriteConcern concern) {
+        ((DBApiLayer) db).doInsert(message, concern);
+    }
+
+    /**
+     * Método que envía un mensaje OP_QUERY ya codificado y deja la respuesta
+     * sin decodificar en el buffer indicado.
+     *
+     * @param db Base de datos.
+     * @param message Cuerpo del mensaje: flags (int32), espacio de nombres
+     * (cstring), documentos a saltar (int32), documentos a devolver (int32),
+     * consulta y, opcionalmente, proyección; preparado para lectura (flip).
+     * @param response Buffer en little-endian para la respuesta. Al volver
+     * contiene, preparado para lectura, la cabecera de OP_REPLY (flags,
+     * cursor, posición inicial y número de documentos) y los documentos.
+     * Debe tener capacidad para la respuesta más grande del servidor.
+     */
+    public static void query(DB db, ByteBuffer message, ByteBuffer response) {
+        response.clear();
+        response.position(((DBApiLayer) db).doQuery(message, response));
+        response.flip();
+    }
+
+    /**
+     * Método que envía un mensaje OP_GET_MORE ya codificado. La respuesta
+     * tiene el mismo formato que la de {@link #query}.
+     *
+     * @param db Base de datos.
+     * @param message Cuerpo del mensaje: cero (int32), espacio de nombres
+     * (cstring), documentos a devolver (int32) e id del cursor (int64).
+     * @param response Buffer en little-endian para la respuesta.
+     */
+    public static void getMore(DB db, ByteBuffer message, ByteBuffer response) {
+        response.clear();
+        response.position(((DBApiLayer) db).doGetMore(message, response));
+        response.flip();
+    }
+
+    /**
+     * Método que cierra cursores del servidor con un mensaje
+     * OP_KILL_CURSORS ya codificado.
+     *
+     * @param db Base de datos.
+     * @param message Cuerpo del mensaje: cero (int32), número de cursores
+     * (int32) y sus ids (int64).
+     */
+    public static void killCursors(DB db, ByteBuffer message) {
+        ((DBApiLayer) db).doKillCursors(message);
+    }
+
+    /**
+     * Método que escribe los 12 bytes de un ObjectId tal y como lo hace el
+     * codificador del driver, sin crear objetos intermedios.
+     *
+     * @param buffer Buffer de destino, en orden little-endian.
+     * @param id Identificador.
+     */
+    public static void putObjectId(ByteBuffer buffer, ObjectId id) {
+        buffer.putInt(id._time);
+        buffer.putInt(id._machine);
+        buffer.putInt(id._inc);
+    }
+
+    /**
+     * Método que lee los 12 bytes de un ObjectId escritos con
+     * {@link #putObjectId}.
+     *
+     * @param buffer Buffer de origen, en orden little-endian.
+     * @return Identificador.
+     */
+    public static ObjectId getObjectId(ByteBuffer buffer) {
+        int time = buffer.getInt();
+        int machine = buffer.getInt();
+        int inc = buffer.getInt();
+        return new ObjectId(time, machine, inc);
+    }
+}
@@ -21,13 +21,69 @@ import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
-import com.mongodb.Mongo;
 import com.mongodb.MongoException;
-import java.net.UnknownHostException;
+import es.devcircus.mongodb_examples.hello_world.aggregation.Aggregation;
+import es.devcircus.mongodb_examples.hello_world.aggregation.Group;
+import es.devcircus.mongodb_examples.hello_world.aggregation.Sort;
+import es.devcircus.mongodb_examples.hello_world.async.AsyncClient;
+import es.devcircus.mongodb_examples.hello_world.async.AsyncCollection;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import es.devcircus.mongodb_examples.hello_world.cache.CachingCollection;
+import es.devcircus.mongodb_examples.hello_world.cache.CountCache;
+import es.devcircus.mongodb_examples.hello_world.cache.CountMode;
+import es.devcircus.mongodb_examples.hello_world.cache.QueryCache;
+import es.devcircus.mongodb_examples.hello_world.codec.Projection;
+import es.devcircus.mongodb_examples.hello_world.codec.TypedCollection;
+import es.devcircus.mongodb_examples.hello_world.codec.TypedCursor;
+import es.devcircus.mongodb_examples.hello_world.connection.ConnectionSettings;
+import es.devcircus.mongodb_examples.hello_world.connection.ManagedMongo;
+import es.devcircus.mongodb_examples.hello_world.connection.MongoConnectionManager;
+import es.devcircus.mongodb_examples.hello_world.cursor.CursorStreams;
+import es.devcircus.mongodb_examples.hello_world.cursor.ScanOptions;
+import es.devcircus.mongodb_examples.hello_world.index.IndexAdvisor;
+import es.devcircus.mongodb_examples.hello_world.index.IndexBuild;
+import es.devcircus.mongodb_examples.hello_world.index.IndexBuildOptions;
+import es.devcircus.mongodb_examples.hello_world.index.IndexDiff;
+import es.devcircus.mongodb_examples.hello_world.index.IndexOrchestrator;
+import es.devcircus.mongodb_examples.hello_world.index.IndexRecommendation;
+import es.devcircus.mongodb_examples.hello_world.index.IndexSpec;
+import es.devcircus.mongodb_examples.hello_world.ingest.DurabilityTier;
+import es.devcircus.mongodb_examples.hello_world.ingest.IngestOptions;
+import es.devcircus.mongodb_examples.hello_world.ingest.TieredInserter;
+import es.devcircus.mongodb_examples.hello_world.metrics.InstrumentedDB;
+import es.devcircus.mongodb_examples.hello_world.metrics.LoggingReporter;
+import es.devcircus.mongodb_examples.hello_world.metrics.MetricsRegistry;
+import es.devcircus.mongodb_examples.hello_world.model.Employee;
+import es.devcircus.mongodb_examples.hello_world.model.EmployeeCodec;
+import es.devcircus.mongodb_examples.hello_world.payload.PayloadCollection;
+import es.devcircus.mongodb_examples.hello_world.payload.PayloadOptions;
+import es.devcircus.mongodb_examples.hello_world.resilience.Idempotency;
+import es.devcircus.mongodb_examples.hello_world.resilience.ResilientCollection;
+import es.devcircus.mongodb_examples.hello_world.resilience.ResilientExecutor;
+import es.devcircus.mongodb_examples.hello_world.routing.ReplicaMember;
+import es.devcircus.mongodb_examples.hello_world.routing.ReplicaRouter;
+import es.devcircus.mongodb_examples.hello_world.routing.RoutingOptions;
+import es.devcircus.mongodb_examples.hello_world.snapshot.SnapshotException;
+import es.devcircus.mongodb_examples.hello_world.snapshot.SnapshotExporter;
+import es.devcircus.mongodb_examples.hello_world.snapshot.SnapshotImporter;
+import es.devcircus.mongodb_examples.hello_world.snapshot.SnapshotOptions;
+import es.devcircus.mongodb_examples.hello_world.snapshot.SnapshotStats;
+import es.devcircus.mongodb_examples.hello_world.sync.CollectionMirrorSink;
+import es.devcircus.mongodb_examples.hello_world.sync.MongoPositionStore;
+import es.devcircus.mongodb_examples.hello_world.sync.OplogSync;
+import es.devcircus.mongodb_examples.hello_world.sync.SyncOptions;
+import es.devcircus.mongodb_examples.hello_world.workload.LoadGenerator;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * @author Adrian Novegil Toledo
@@ -37,8 +93,19 @@ import java.util.logging.Logger;
 public class Main {
 
     private static DB db;
+    private static AsyncClient async;
     private final static String DB_NAME = "mydb";
     private final static String TEST_COLLECTION = "testCollection";
+    private final static QueryCache QUERY_CACHE = new QueryCache(1000, 5, TimeUnit.MINUTES);
+    private final static CountCache COUNTS = new CountCache(30, 120, TimeUnit.SECONDS);
+    private final static MetricsRegistry METRICS = new MetricsRegistry();
+    private final static IndexAdvisor INDEX_ADVISOR = new IndexAdvisor();
+    private final static ResilientExecutor RESILIENCE = new ResilientExecutor();
+    private final static ConnectionSettings SETTINGS = ConnectionSettings.defaults()
+            .host("localhost")
+            .port(27017)
+            .connectionsPerHost(10)
+            .waitQueueMultiplier(5);
 
     /**
      * Método main.
@@ -47,44 +114,82 @@ public class Main {
      */
     public static void main(String[] args) {
 
+        //Load generator mode: "java -jar mongodb-hello-world.jar load" replays
+        //these operations from several threads (see LoadGenerator)
+        if (args.length > 0 && "load".equals(args[0])) {
+            LoadGenerator.main(args);
+            return;
+        }
+
         //Making A Connection
         makingAConnection();
-        
+        if (db == null) {
+            System.out.println(" Sin conexión con MongoDB en " + SETTINGS.getClusterKey());
+            RESILIENCE.close();
+            METRICS.close();
+            MongoConnectionManager.shutdown();
+            System.exit(1);
+        }
+
+        //Each section below runs on a connection reserved through the managed
+        //client, so the time spent waiting for it shows up in its pool stats
+
         //Inserting a Document
-        insertIngADocument();
+        pooled(Main::insertIngADocument);
 
         //Getting A List Of Collections
-        gettingAListOfCollections();
+        pooled(Main::gettingAListOfCollections);
         
         //Getting A Collection
-        gettingACollection();
+        pooled(Main::gettingACollection);
 
         //Finding the First Document In A Collection using findOne()
-        findingTheFirstDocumentInACollectionUsingFindOne();
+        pooled(Main::findingTheFirstDocumentInACollectionUsingFindOne);
 
         //Adding Multiple Documents
-        addingMultipleDocuments();
+        pooled(Main::addingMultipleDocuments);
+
+        //Ingesting With Durability Tiers
+        pooled(Main::ingestingWithDurabilityTiers);
 
         //Counting Documents in A Collection
-        countingDocumentsInACollection();
+        pooled(Main::countingDocumentsInACollection);
 
         //Using a Cursor to Get All the Documents
-        usingACursorToGetAllTheDocuments();
+        pooled(Main::usingACursorToGetAllTheDocuments);
 
         //Getting A Single Document with A Query
-        gettingASingleDocumentWithAQuery();
+        pooled(Main::gettingASingleDocumentWithAQuery);
 
         //Getting A Set of Documents With a Query
-        gettingASetOfDocumentsWithAQuery();
+        pooled(Main::gettingASetOfDocumentsWithAQuery);
 
         //Creating An Index
-        creatingAnIndex();
+        pooled(Main::creatingAnIndex);
 
         //Getting a List of Indexes on a Collection
-        gettingAListOfIndexesOnACollection();
+        pooled(Main::gettingAListOfIndexesOnACollection);
+
+        //Using Typed Documents
+        pooled(Main::usingTypedDocuments);
+
+        //Reading From A Replica Set
+        pooled(Main::readingFromAReplicaSet);
+
+        //Mirroring A Collection
+        pooled(Main::mirroringACollection);
+
+        //Snapshotting A Collection
+        pooled(Main::snapshottingACollection);
+
+        //Storing Large Documents
+        pooled(Main::storingLargeDocuments);
+
+        //Surviving Failures
+        pooled(Main::survivingFailures);
 
         //Quick Tour of the Administrative Functions
-        quickTourOfTheAdministrativeFunctions();
+        pooled(Main::quickTourOfTheAdministrativeFunctions);
 
         System.out.println();
         System.out.println("---------------------------------------------------------------");
@@ -93,10 +198,30 @@ public class Main {
         System.out.println();
 
         // End
+        System.out.println(" Pool de conexiones....: " + MongoConnectionManager.get(SETTINGS).getPoolStats());
+        async.close();
+        RESILIENCE.close();
+        COUNTS.close();
+        METRICS.report(new LoggingReporter());
+        METRICS.close();
+        MongoConnectionManager.shutdown();
         System.exit(0);
 
     }
 
+    /**
+     * Método que ejecuta una sección de los ejemplos con una conexión del
+     * pool reservada para el hilo principal, a través del cliente gestionado.
+     *
+     * @param section Sección de los ejemplos.
+     */
+    private static void pooled(Runnable section) {
+        MongoConnectionManager.get(SETTINGS).execute(db, d -> {
+            section.run();
+            return null;
+        });
+    }
+
     /**
      * Método que nos permite crear una nueva conexión con nuestra base de 
      * datos.
@@ -116,13 +241,40 @@ public class Main {
              * The following example shows three ways to connect to the database 
              * mydb on the local machine :*/
 
-            Mongo m = new Mongo();
+            //Mongo m = new Mongo();
             // or
             //Mongo m = new Mongo( "localhost" );
             // or
             //Mongo m = new Mongo( "localhost" , 27017 );
 
-            db = m.getDB(DB_NAME);
+            /*All the examples share a single pooled client per cluster, owned
+             * by the connection manager, instead of building their own Mongo
+             * instances.*/
+
+            ManagedMongo m = MongoConnectionManager.get(SETTINGS);
+
+            /*The first round trip goes through the resilience layer: while
+             * mongod is starting up or a new primary is being elected, it is
+             * retried with jittered backoff instead of failing at once. If it
+             * still fails, db stays null and main() stops there.*/
+
+            DB plain = RESILIENCE.execute(SETTINGS.getClusterKey(), "admin", Idempotency.IDEMPOTENT, () -> {
+                DBObject reply = m.getDB("admin").command(new BasicDBObject("ismaster", 1));
+                Object ok = reply.get("ok");
+                if (!(ok instanceof Number) || ((Number) ok).intValue() != 1) {
+                    throw new MongoException("ismaster: " + reply);
+                }
+                return m.getDB(DB_NAME);
+            });
+
+            /*Every operation on db and on its collections is timed and
+             * published through JMX; the totals are logged at the end.*/
+
+            METRICS.enableJmx();
+            METRICS.addQueryListener(INDEX_ADVISOR);
+            RESILIENCE.enableJmx("main");
+            db = new InstrumentedDB(plain, METRICS);
+            async = new AsyncClient(m);
 
             System.out.println(" Conexión establecida..: " + db.getName());
 
@@ -143,7 +295,7 @@ public class Main {
              all resource usage limits (max connections, etc) apply per mongo instance
              to dispose of an instance, make sure you call mongo.close() to clean 
              * up resources*/
-        } catch (UnknownHostException | MongoException ex) {
+        } catch (MongoException ex) {
             Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
@@ -308,17 +460,27 @@ public class Main {
          "i" : value
          }*/
 
-        /*and we can do this fairly efficiently in a loop*/
+        /*and we can do this fairly efficiently in a loop. Inserting them one
+         * by one costs a network round trip per document, so we group them
+         * in batches and send every batch with a single insert(List) call*/
 
         System.out.print(" Insertando elementos ...");
 
         DBCollection coll = db.getCollection(TEST_COLLECTION);
 
-        for (int i = 0; i < 10; i++) {
-            coll.insert(new BasicDBObject().append("i", i));
+        BulkInserter inserter = new BulkInserter(coll);
+        inserter.addListener(QUERY_CACHE);
+        inserter.addListener(COUNTS);
+        try {
+            for (int i = 0; i < 10; i++) {
+                inserter.add(new BasicDBObject().append("i", i));
+            }
+        } finally {
+            inserter.close();
         }
-        
+
         System.out.println("[OK]");
+        System.out.println(" " + inserter.getStats());
 
         /*Notice that we can insert documents of different "shapes" into the 
          * same collection. This aspect is what we mean when we say that 
@@ -326,6 +488,58 @@ public class Main {
 
     }
 
+    /**
+     * Método que inserta documentos con distintos niveles de durabilidad,
+     * desde "enviar y olvidar" hasta la confirmación de la mayoría.
+     */
+    public static void ingestingWithDurabilityTiers() {
+
+        System.out.println();
+        System.out.println("---------------------------------------------------------------");
+        System.out.println(" Ingesting With Durability Tiers                               ");
+        System.out.println("---------------------------------------------------------------");
+        System.out.println();
+
+        /*Not every write is worth the same. Telemetry can be sent without
+         * waiting for the server (FIRE_AND_FORGET), while an order should
+         * only count as written once it is journaled or on a majority of the
+         * replica set. A TieredInserter batches the documents in a writer
+         * thread and waits for the strongest tier found in each batch, so
+         * submit() never blocks the caller. When the queue is full or the
+         * server is unreachable, the documents go to an append-only log on
+         * disk and are replayed, in order, once the server is back.*/
+
+        Path spill = Paths.get(System.getProperty("java.io.tmpdir"), "mongodb-hello-world-spill");
+        TieredInserter telemetry = new TieredInserter(db.getCollection("telemetry"),
+                IngestOptions.defaults().tier(DurabilityTier.FIRE_AND_FORGET).spillDirectory(spill));
+        TieredInserter orders = new TieredInserter(db.getCollection("orders"),
+                IngestOptions.defaults().spillDirectory(spill));
+        try {
+            for (int i = 0; i < 1000; i++) {
+                telemetry.submit(new BasicDBObject("sensor", i % 10).append("value", i));
+            }
+            // the tier can also be chosen per call; the rest of the batch waits with it
+            orders.submit(new BasicDBObject("order", 1).append("total", 99.95), DurabilityTier.MAJORITY);
+            orders.submit(new BasicDBObject("order", 2).append("total", 12.50), DurabilityTier.JOURNALED);
+
+            /*flush() waits until everything submitted so far has been written
+             * or, if the server went away, is safe in the spill log*/
+
+            telemetry.flush(10, TimeUnit.SECONDS);
+            orders.flush(10, TimeUnit.SECONDS);
+            System.out.println(" Telemetría............: " + telemetry.getStats());
+            System.out.println(" Pedidos...............: " + orders.getStats());
+            System.out.println(" Pendientes............: " + (telemetry.getBacklog() + orders.getBacklog()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (MongoException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            telemetry.close();
+            orders.close();
+        }
+    }
+
     /**
      * Método que cuenta el número de documentos que hay en una colección 
      * determinada de nuestra base de datos.
@@ -349,6 +563,19 @@ public class Main {
 
         /*and it should print 101.*/
 
+        /*getCount() runs a full count on the server every time it is called.
+         * When the same numbers are read over and over, a CountCache serves
+         * them from memory: it asks the server only the first time, refreshes
+         * them in the background and adjusts them with the inserts made
+         * through BulkInserter. The collstats estimate avoids counting at all,
+         * and a filtered count takes a query.*/
+
+        System.out.println(" Cuenta exacta.........: " + COUNTS.count(coll, CountMode.EXACT));
+        System.out.println(" Cuenta estimada.......: " + COUNTS.count(coll, CountMode.ESTIMATED));
+        System.out.println(" Documentos con i > 5..: "
+                + COUNTS.count(coll, new BasicDBObject("i", new BasicDBObject("$gt", 5))));
+        System.out.println(" Contadores............: " + COUNTS.getStats());
+
     }
 
     /**
@@ -371,10 +598,14 @@ public class Main {
 
         DBCollection coll = db.getCollection(TEST_COLLECTION);
 
-        DBCursor cur = coll.find();
+        /*On big collections we don't want to hold whole batches in memory 
+         * while we print them, so the cursor is read in small batches by a 
+         * background thread that stays a bounded number of documents ahead 
+         * of us:*/
 
-        while (cur.hasNext()) {
-            System.out.println(" - " + cur.next());
+        try (Stream<DBObject> docs = CursorStreams.stream(coll, null,
+                ScanOptions.defaults().batchSize(100))) {
+            docs.forEach(doc -> System.out.println(" - " + doc));
         }
 
         /*and that should print all 101 documents in the collection.*/
@@ -407,11 +638,17 @@ public class Main {
 
         query.put("i", 7);
 
-        cur = coll.find(query);
+        /*Hot lookups like this one can be served from a client side cache, 
+         * which is invalidated by the inserts of this collection:*/
 
-        while (cur.hasNext()) {
-            System.out.println(" - " + cur.next());
+        CachingCollection cached = new CachingCollection(coll, QUERY_CACHE);
+
+        for (DBObject o : cached.find(query)) {
+            System.out.println(" - " + o);
         }
+        cached.find(query);  // served from the cache, no server round trip
+
+        System.out.println(" Caché de consultas..: " + QUERY_CACHE.getStats());
 
         /*and it should just print just one document
         
@@ -481,6 +718,46 @@ public class Main {
         while (cur.hasNext()) {
             System.out.println("  - " + cur.next());
         }
+
+        /*The same range can also be fetched as independent lookups issued
+         * all at once, without blocking a thread per lookup. The async
+         * client never runs more of them at a time than the pool has
+         * connections:*/
+
+        System.out.println();
+
+        AsyncCollection asyncColl = async.getDB(db).getCollection(TEST_COLLECTION);
+        List<CompletableFuture<DBObject>> lookups = new ArrayList<>();
+        for (int i = 3; i <= 7; i++) {
+            lookups.add(asyncColl.findOne(new BasicDBObject("i", i)));
+        }
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[lookups.size()])).join();
+
+        System.out.println(" Consultas concurrentes, 2 < i <= 7\n");
+        for (CompletableFuture<DBObject> lookup : lookups) {
+            System.out.println("  - " + lookup.join());
+        }
+
+        /*When only a summary of the matching documents is needed, there is
+         * no point in pulling them all to count and add them up here. An
+         * aggregation does the filtering, grouping and sorting on the
+         * server, next to the data, and only the result crosses the wire:*/
+
+        System.out.println();
+
+        List<DBObject> summary = Aggregation.on(coll)
+                .match(query)
+                .group(Group.all().count("count").sum("sum", "i").avg("avg", "i"))
+                .toList();
+        System.out.println(" Resumen, 2 < i <= 7...: " + summary);
+
+        List<DBObject> top = Aggregation.on(coll)
+                .match(new BasicDBObject("i", new BasicDBObject("$gt", 5)))
+                .sort(Sort.descending("i"))
+                .limit(3)
+                .project("i")
+                .toList();
+        System.out.println(" Mayores valores de i..: " + top);
     }
 
     /**
@@ -500,12 +777,36 @@ public class Main {
          * and specify if you want the index to be ascending (1) or descending 
          * (-1). The following creates an ascending index on the "i" field :*/
 
-        DBCollection coll = db.getCollection(TEST_COLLECTION);
-        
-        System.out.print(" Creando índice ...");
-        // create index on "i", ascending
-        coll.createIndex(new BasicDBObject("i", 1));  
-        System.out.println("[OK]");
+        /*Instead of calling createIndex directly, the wanted indexes are
+         * declared per collection and the orchestrator diffs them against
+         * getIndexInfo(). Missing indexes are built one at a time in the
+         * background, holding off while the server is busy and reporting
+         * progress from currentOp.*/
+
+        try (IndexOrchestrator orchestrator = new IndexOrchestrator(db, IndexBuildOptions.defaults()
+                .progressIntervalMillis(2000))) {
+            // index on "i", ascending
+            orchestrator.declare(TEST_COLLECTION, IndexSpec.on("i", 1));
+            for (IndexDiff diff : orchestrator.plan()) {
+                System.out.println(" Plan..................: " + diff);
+            }
+            for (IndexBuild build : orchestrator.apply()) {
+                System.out.println(" Construcción..........: " + build);
+            }
+        }
+
+        /*The index advisor has been watching every query run so far. It
+         * explains a sample of each query shape and proposes compound indexes
+         * (equality fields first, then sort fields, then ranges) for the ones
+         * that scan the whole collection, skipping those an existing index
+         * already serves. The proposals are built in the background.*/
+
+        List<IndexRecommendation> recommendations = INDEX_ADVISOR.analyze();
+        System.out.println(" Índices recomendados..: " + recommendations.size());
+        for (IndexRecommendation recommendation : recommendations) {
+            System.out.println("  - " + recommendation);
+        }
+        System.out.println(" Índices creados.......: " + INDEX_ADVISOR.apply(recommendations));
 
     }
 
@@ -535,6 +836,269 @@ public class Main {
          { "name" : "i_1" , "ns" : "mydb.testCollection" , "key" : { "i" : 1} }*/
     }
 
+    /**
+     * Método que guarda y lee empleados como objetos Employee, con el
+     * codificador generado al compilar, en lugar de como BasicDBObject.
+     */
+    public static void usingTypedDocuments() {
+
+        System.out.println();
+        System.out.println("---------------------------------------------------------------");
+        System.out.println(" Using Typed Documents                                         ");
+        System.out.println("---------------------------------------------------------------");
+        System.out.println();
+
+        /*Classes annotated with @Document get a codec generated at compile
+         * time (Employee -> EmployeeCodec) that writes and reads BSON
+         * directly, with no reflection and no intermediate map. A Projection
+         * asks the server for some fields only and decodes just those.*/
+
+        try {
+            EmployeeCodec codec = new EmployeeCodec();
+            //The typed path talks to the driver directly, so it takes the
+            //plain DB instead of the instrumented one
+            DB plain = MongoConnectionManager.get(SETTINGS).getDB(DB_NAME);
+            TypedCollection<Employee> employees = new TypedCollection<>(plain, codec);
+            employees.getCollection().drop();
+            List<Employee> list = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                list.add(new Employee(i, "Nombre" + i, "Apellido" + (i % 3), new Date(), "60000000" + i));
+            }
+            employees.insert(list);
+
+            System.out.println(" Empleado 3............: " + employees.findOne(new BasicDBObject("_id", 3L)));
+            Projection names = Projection.of(codec, "firstname", "lastname");
+            try (TypedCursor<Employee> cursor = employees.find(new BasicDBObject("lastname", "Apellido1"), names)) {
+                for (Employee e : cursor) {
+                    System.out.println(" - " + e.getFirstname() + " " + e.getLastname());
+                }
+            }
+        } catch (MongoException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Método que reparte lecturas entre los miembros de un replica set. Sólo
+     * se ejecuta si se indican los miembros con -Dmongodb.replicas, por
+     * ejemplo -Dmongodb.replicas=localhost:27017,localhost:27018,localhost:27019.
+     */
+    public static void readingFromAReplicaSet() {
+
+        System.out.println();
+        System.out.println("---------------------------------------------------------------");
+        System.out.println(" Reading From A Replica Set                                    ");
+        System.out.println("---------------------------------------------------------------");
+        System.out.println();
+
+        String replicas = System.getProperty("mongodb.replicas");
+        if (replicas == null) {
+            System.out.println(" Sin -Dmongodb.replicas, se omite");
+            return;
+        }
+
+        /*A ReplicaRouter probes every member and sends each read to the
+         * fastest one that is not lagging too far behind the primary. Hedged
+         * reads repeat the query on a second member when the first one takes
+         * longer than the delay, and keep whichever answer comes first.
+         * Writes still go to the primary.*/
+
+        ReplicaRouter router = null;
+        try {
+            router = ReplicaRouter.forHosts(replicas, RoutingOptions.defaults().hedgeDelayMillis(20));
+            router.getPrimaryDB(DB_NAME).getCollection(TEST_COLLECTION).insert(new BasicDBObject("i", 100));
+            for (int i = 0; i < 20; i++) {
+                final int key = i % 10;
+                router.hedgedRead(DB_NAME, rdb -> rdb.getCollection(TEST_COLLECTION)
+                        .findOne(new BasicDBObject("i", key)));
+            }
+            long count = router.read(DB_NAME, rdb -> rdb.getCollection(TEST_COLLECTION)
+                    .getCount(new BasicDBObject("i", new BasicDBObject("$gt", 5))));
+            System.out.println(" Documentos con i > 5..: " + count);
+            for (ReplicaMember member : router.getMembers()) {
+                System.out.println("  - " + member);
+            }
+        } catch (MongoException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            if (router != null) {
+                router.close();
+            }
+        }
+    }
+
+    /**
+     * Método que mantiene una copia de la colección de pruebas siguiendo el
+     * oplog. Sólo funciona si el servidor forma parte de un replica set.
+     */
+    public static void mirroringACollection() {
+
+        System.out.println();
+        System.out.println("---------------------------------------------------------------");
+        System.out.println(" Mirroring A Collection                                        ");
+        System.out.println("---------------------------------------------------------------");
+        System.out.println();
+
+        DB local = db.getSisterDB("local");
+        if (!local.getCollectionNames().contains("oplog.rs")) {
+            System.out.println(" Sin oplog (el servidor no es un replica set), se omite");
+            return;
+        }
+
+        /*Instead of reading the whole collection again with find() every
+         * time, an OplogSync copies it once and then follows the oplog,
+         * delivering only the inserts, updates and deletes made since. The
+         * oplog position is saved after every batch, so a restarted sync
+         * carries on where it stopped.*/
+
+        DBCollection coll = db.getCollection(TEST_COLLECTION);
+        DBCollection mirror = db.getCollection(TEST_COLLECTION + "Mirror");
+        MongoPositionStore positions = new MongoPositionStore(db.getCollection(MongoPositionStore.DEFAULT_COLLECTION));
+        OplogSync sync = new OplogSync(TEST_COLLECTION, coll, local, new CollectionMirrorSink(mirror), positions,
+                SyncOptions.defaults());
+        sync.start();
+        try {
+            coll.insert(new BasicDBObject("i", 200));
+            coll.update(new BasicDBObject("i", 200), new BasicDBObject("$set", new BasicDBObject("j", 1)), false, false);
+            coll.remove(new BasicDBObject("i", 200));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (mirror.getCount() != coll.getCount() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sync.stop();
+        }
+        System.out.println(" Documentos en la copia: " + mirror.getCount());
+        System.out.println(" Sincronización........: " + sync.getStats());
+    }
+
+    /**
+     * Método que guarda la colección de pruebas en una instantánea y la
+     * restaura en otra colección, antes de que se borre la base de datos.
+     */
+    public static void snapshottingACollection() {
+
+        System.out.println();
+        System.out.println("---------------------------------------------------------------");
+        System.out.println(" Snapshotting A Collection                                     ");
+        System.out.println("---------------------------------------------------------------");
+        System.out.println();
+
+        /*A snapshot writes the documents as raw BSON into memory-mapped
+         * segment files, with an index per segment. Restoring maps each
+         * segment and copies its documents straight into insert messages,
+         * several segments at a time, and rebuilds the indexes at the end.*/
+
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "mongodb-hello-world-snapshot");
+        SnapshotOptions options = SnapshotOptions.defaults();
+        try {
+            DBCollection coll = db.getCollection(TEST_COLLECTION);
+            SnapshotStats exported = new SnapshotExporter(options).export(coll, dir);
+            System.out.println(" Exportación...........: " + exported);
+
+            //The zero-copy restore needs the driver's own collection: through
+            //the instrumented one every document would be decoded and re-encoded
+            DBCollection restored = MongoConnectionManager.get(SETTINGS).getDB(DB_NAME)
+                    .getCollection(TEST_COLLECTION + "Restored");
+            restored.drop();
+            restored.setWriteConcern(DB.WriteConcern.STRICT);
+            SnapshotStats imported = new SnapshotImporter(options).restore(dir, restored);
+            System.out.println(" Restauración..........: " + imported);
+            System.out.println(" Documentos restaurados: " + restored.getCount());
+        } catch (MongoException | SnapshotException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Método que guarda documentos grandes con los campos más pesados
+     * comprimidos y los lee con una proyección por defecto.
+     */
+    public static void storingLargeDocuments() {
+
+        System.out.println();
+        System.out.println("---------------------------------------------------------------");
+        System.out.println(" Storing Large Documents                                       ");
+        System.out.println("---------------------------------------------------------------");
+        System.out.println();
+
+        /*Fields that are only ever read back, never queried, can be stored
+         * compressed: the payload collection deflates them on insert and
+         * inflates them on read, so they cross the network at a fraction of
+         * their size. Reads that don't ask for specific fields get the
+         * collection's default projection, leaving the heavy fields on the
+         * server.*/
+
+        try {
+            DBCollection coll = db.getCollection("largeDocuments");
+            coll.drop();
+            PayloadCollection large = new PayloadCollection(coll, PayloadOptions.defaults()
+                    .compress("description")
+                    .project("name", "type"));
+
+            StringBuilder description = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                description.append("MongoDB is a scalable, high-performance, open source, document-oriented database. ");
+            }
+            List<DBObject> docs = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                docs.add(new BasicDBObject("name", "MongoDB").append("type", "database").append("i", i)
+                        .append("description", description.toString()));
+            }
+            large.insert(docs);
+
+            // default projection: name and type only
+            System.out.println(" Proyección por defecto: " + large.findOne(new BasicDBObject("i", 0)).keySet());
+            // explicit projection: the description comes back inflated
+            DBObject full = large.findOne(new BasicDBObject("i", 0), new BasicDBObject("description", 1));
+            System.out.println(" Descripción...........: " + ((String) full.get("description")).length() + " caracteres");
+            System.out.println(" Bytes.................: " + large.getStats());
+        } catch (MongoException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Método que hace operaciones a través de la capa de resiliencia: con
+     * plazo, reintentos, circuit breaker y bulkhead.
+     */
+    public static void survivingFailures() {
+
+        System.out.println();
+        System.out.println("---------------------------------------------------------------");
+        System.out.println(" Surviving Failures                                            ");
+        System.out.println("---------------------------------------------------------------");
+        System.out.println();
+
+        /*Operations made through a resilient collection get a deadline, are
+         * retried with jittered backoff when the failure is transient and the
+         * operation can safely be repeated, and are rejected at once while
+         * the server's circuit is open or the collection already has too
+         * many operations in flight. To watch it work, run FaultProxy in
+         * front of mongod and point SETTINGS at the proxy's port.*/
+
+        try {
+            ResilientCollection coll = new ResilientCollection(RESILIENCE, SETTINGS.getClusterKey(),
+                    db.getCollection(TEST_COLLECTION));
+
+            // the _id is assigned before the first attempt, so a retry can't duplicate the document
+            DBObject doc = new BasicDBObject("name", "resilient").append("i", 1000);
+            coll.insert(doc);
+            DBObject byId = new BasicDBObject("_id", doc.get("_id"));
+            // $set can be repeated; an $inc would only be retried if it never reached the server
+            coll.update(byId, new BasicDBObject("$set", new BasicDBObject("checked", true)));
+            System.out.println(" Documento.............: " + coll.findOne(byId));
+            coll.remove(byId);
+
+            System.out.println(" Resiliencia...........: " + RESILIENCE.getMetrics());
+            System.out.println(" Circuitos.............: " + RESILIENCE.getMetrics().getCircuits());
+        } catch (MongoException ex) {
+            Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
     /**
      * Método en el que se muestran algunas funciones de administración.
      */
@@ -550,7 +1114,7 @@ public class Main {
              Getting A List of Databases
              You can get a list of the available databases:*/
 
-            Mongo m = new Mongo();
+            ManagedMongo m = MongoConnectionManager.get(SETTINGS);
 
             for (String s : m.getDatabaseNames()) {
                 System.out.println(" - " + s);
@@ -560,7 +1124,7 @@ public class Main {
              You can drop a database by name using the Mongo object:*/
 
             m.dropDatabase(DB_NAME);
-        } catch (UnknownHostException | MongoException ex) {
+        } catch (MongoException ex) {
             Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
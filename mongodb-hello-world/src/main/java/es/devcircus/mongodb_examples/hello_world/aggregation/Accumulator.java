@@ -0,0 +1,59 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.aggregation;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Acumuladores de la etapa $group.
+ */
+public enum Accumulator {
+
+    SUM("$sum"),
+    AVG("$avg"),
+    MIN("$min"),
+    MAX("$max"),
+    FIRST("$first"),
+    LAST("$last"),
+    PUSH("$push"),
+    ADD_TO_SET("$addToSet");
+
+    private final String operator;
+
+    Accumulator(String operator) {
+        this.operator = operator;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    /**
+     * Método que devuelve el acumulador de un operador.
+     *
+     * @param operator Operador, como "$sum".
+     * @return Acumulador; null si no es ninguno de los conocidos.
+     */
+    public static Accumulator of(String operator) {
+        for (Accumulator accumulator : values()) {
+            if (accumulator.operator.equals(operator)) {
+                return accumulator;
+            }
+        }
+        return null;
+    }
+}
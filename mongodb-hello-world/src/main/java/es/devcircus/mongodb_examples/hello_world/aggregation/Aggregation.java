@@ -0,0 +1,380 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.aggregation;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Constructor de agregaciones sobre una colección. Las etapas
+ * se añaden en orden y {@link #execute()} las envía al servidor, de forma
+ * que el filtrado, la agrupación y la ordenación se hacen junto a los datos
+ * y sólo viaja el resultado. Con servidores anteriores al comando aggregate
+ * se emplea el comando group y, si la agregación no agrupa o el servidor
+ * tampoco lo tiene, el $match inicial como consulta y el resto en el
+ * cliente (ver {@link AggregationMode}).
+ *
+ * <pre>
+ * Aggregation.on(coll)
+ *         .match(new BasicDBObject("status", "A"))
+ *         .group(Group.by("department").sum("total", "salary"))
+ *         .sort(Sort.descending("total"))
+ *         .limit(5)
+ *         .execute();
+ * </pre>
+ */
+public class Aggregation {
+
+    private static final Logger LOGGER = Logger.getLogger(Aggregation.class.getName());
+
+    private final DBCollection coll;
+    private final List<DBObject> pipeline = new ArrayList<>();
+    private boolean allowDiskUse;
+    private int batchSize;
+    private AggregationMode mode = AggregationMode.AUTO;
+
+    private Aggregation(DBCollection coll) {
+        this.coll = coll;
+    }
+
+    /**
+     * Método que empieza una agregación sobre una colección.
+     *
+     * @param coll Colección.
+     * @return Agregación sin etapas.
+     */
+    public static Aggregation on(DBCollection coll) {
+        return new Aggregation(coll);
+    }
+
+    /**
+     * Etapa $match. Conviene ponerla al principio: así puede usar índices y
+     * es la única que se resuelve en el servidor con cualquier versión.
+     *
+     * @param query Condición, con la sintaxis de find().
+     * @return La propia agregación.
+     */
+    public Aggregation match(DBObject query) {
+        return stage(new BasicDBObject("$match", query));
+    }
+
+    public Aggregation group(Group group) {
+        return stage(group.toStage());
+    }
+
+    public Aggregation sort(Sort sort) {
+        return stage(sort.toStage());
+    }
+
+    public Aggregation skip(int skip) {
+        return stage(new BasicDBObject("$skip", skip));
+    }
+
+    public Aggregation limit(int limit) {
+        return stage(new BasicDBObject("$limit", limit));
+    }
+
+    /**
+     * Etapa $project que deja sólo los campos indicados, además de _id.
+     *
+     * @param fields Campos.
+     * @return La propia agregación.
+     */
+    public Aggregation project(String... fields) {
+        BasicDBObject spec = new BasicDBObject();
+        for (String field : fields) {
+            spec.put(field, 1);
+        }
+        return stage(new BasicDBObject("$project", spec));
+    }
+
+    /**
+     * Etapa $project con una especificación completa. Fuera del comando
+     * aggregate sólo se admiten inclusiones, la exclusión de _id y campos
+     * renombrados ("nuevo": "$campo").
+     *
+     * @param spec Especificación.
+     * @return La propia agregación.
+     */
+    public Aggregation project(DBObject spec) {
+        return stage(new BasicDBObject("$project", spec));
+    }
+
+    /**
+     * Método que añade una etapa cualquiera, para las que no tienen método
+     * propio. Sólo se ejecutan con el comando aggregate.
+     *
+     * @param stage Etapa, como {"$unwind": "$tags"}.
+     * @return La propia agregación.
+     */
+    public Aggregation stage(DBObject stage) {
+        pipeline.add(stage);
+        return this;
+    }
+
+    /**
+     * Permite al servidor usar ficheros temporales en las etapas que superan
+     * el límite de memoria ($group y $sort grandes). Servidores 2.6 o
+     * posteriores.
+     *
+     * @param allowDiskUse true para permitirlo.
+     * @return La propia agregación.
+     */
+    public Aggregation allowDiskUse(boolean allowDiskUse) {
+        this.allowDiskUse = allowDiskUse;
+        return this;
+    }
+
+    /**
+     * Tamaño de los lotes del cursor del resultado.
+     *
+     * @param batchSize Documentos por lote; 0 para el del servidor.
+     * @return La propia agregación.
+     */
+    public Aggregation batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public Aggregation mode(AggregationMode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public List<DBObject> getPipeline() {
+        return Collections.unmodifiableList(pipeline);
+    }
+
+    /**
+     * Método que ejecuta la agregación.
+     *
+     * @return Cursor del resultado.
+     * @throws MongoException Si el servidor devuelve un error.
+     * @throws AggregationException Si la agregación no se puede ejecutar en
+     * el modo pedido.
+     */
+    public AggregationCursor execute() throws MongoException {
+        switch (mode) {
+            case AGGREGATE:
+                return aggregate();
+            case GROUP:
+                return group();
+            case CLIENT:
+                return client();
+            default:
+                try {
+                    return aggregate();
+                } catch (MongoException ex) {
+                    if (!isUnsupported(ex)) {
+                        throw ex;
+                    }
+                    LOGGER.log(Level.FINE, "{0}: sin comando aggregate", coll.getFullName());
+                }
+                if (groupStage() != null) {
+                    try {
+                        return group();
+                    } catch (MongoException ex) {
+                        if (!isUnsupported(ex)) {
+                            throw ex;
+                        }
+                        LOGGER.log(Level.FINE, "{0}: sin comando group", coll.getFullName());
+                    }
+                }
+                return client();
+        }
+    }
+
+    /**
+     * Método que ejecuta la agregación y devuelve el resultado completo.
+     *
+     * @return Documentos del resultado.
+     */
+    public List<DBObject> toList() throws MongoException {
+        try (AggregationCursor cursor = execute()) {
+            return cursor.toList();
+        }
+    }
+
+    private AggregationCursor aggregate() {
+        BasicDBList stages = new BasicDBList();
+        stages.addAll(pipeline);
+        BasicDBObject command = new BasicDBObject("aggregate", coll.getName()).append("pipeline", stages);
+        if (allowDiskUse) {
+            command.put("allowDiskUse", true);
+        }
+        command.put("cursor", batchSize > 0 ? new BasicDBObject("batchSize", batchSize) : new BasicDBObject());
+        DBObject response = coll.getDB().command(command);
+        if (isUnrecognizedField(response)) {
+            // 2.2 y 2.4 no conocen cursor ni allowDiskUse y devuelven el
+            // resultado completo en un único documento
+            LOGGER.log(Level.FINE, "{0}: aggregate sin cursor", coll.getFullName());
+            command.removeField("cursor");
+            command.removeField("allowDiskUse");
+            response = coll.getDB().command(command);
+        }
+        checkOk(response);
+        if (response.get("cursor") instanceof DBObject) {
+            return new AggregationCursor(coll.getDB(), (DBObject) response.get("cursor"), batchSize);
+        }
+        return new AggregationCursor(documents(response.get("result")));
+    }
+
+    private AggregationCursor group() {
+        DBObject group = groupStage();
+        if (group == null) {
+            throw new AggregationException("El comando group necesita un $group, detrás del $match si lo hay");
+        }
+        List<DBObject> groups = GroupCommand.run(coll, leadingMatch(), (DBObject) group.get("$group"));
+        int next = pipeline.indexOf(group) + 1;
+        return new AggregationCursor(ClientPipeline.apply(pipeline.subList(next, pipeline.size()),
+                groups.iterator()));
+    }
+
+    /**
+     * Resuelve el $match inicial en el servidor y el resto en el cliente.
+     * Si lo siguiente es un $group, sólo se piden los campos que usa.
+     */
+    private AggregationCursor client() {
+        DBObject match = leadingMatch();
+        List<DBObject> rest = pipeline.subList(match == null ? 0 : 1, pipeline.size());
+        DBObject group = groupStage();
+        DBObject fields = group == null ? null : referencedFields((DBObject) group.get("$group"));
+        DBCursor cur = coll.find(match == null ? new BasicDBObject() : match, fields);
+        if (batchSize > 0) {
+            cur.batchSize(batchSize);
+        }
+        return new AggregationCursor(ClientPipeline.apply(rest, cur));
+    }
+
+    private DBObject leadingMatch() {
+        if (!pipeline.isEmpty() && "$match".equals(ClientPipeline.operator(pipeline.get(0)))) {
+            return (DBObject) pipeline.get(0).get("$match");
+        }
+        return null;
+    }
+
+    /**
+     * El $group que va al principio o justo detrás del $match inicial.
+     */
+    private DBObject groupStage() {
+        int index = leadingMatch() == null ? 0 : 1;
+        if (index < pipeline.size() && "$group".equals(ClientPipeline.operator(pipeline.get(index)))) {
+            return pipeline.get(index);
+        }
+        return null;
+    }
+
+    /**
+     * Campos que lee un $group, para pedir sólo esos al servidor.
+     *
+     * @return Proyección; null si algún operando no es un campo o una
+     * constante.
+     */
+    private static DBObject referencedFields(DBObject spec) {
+        Set<String> paths = new LinkedHashSet<>();
+        List<Object> operands = new ArrayList<>();
+        Object id = spec.get("_id");
+        if (id instanceof DBObject) {
+            for (String field : ((DBObject) id).keySet()) {
+                operands.add(((DBObject) id).get(field));
+            }
+        } else {
+            operands.add(id);
+        }
+        for (String output : spec.keySet()) {
+            if (!"_id".equals(output) && spec.get(output) instanceof DBObject) {
+                DBObject acc = (DBObject) spec.get(output);
+                for (String op : acc.keySet()) {
+                    operands.add(acc.get(op));
+                }
+            }
+        }
+        for (Object operand : operands) {
+            if (operand instanceof String && ((String) operand).startsWith("$")) {
+                paths.add(((String) operand).substring(1));
+            } else if (operand != null && !(operand instanceof Number) && !(operand instanceof Boolean)) {
+                return null;
+            }
+        }
+        BasicDBObject fields = new BasicDBObject();
+        if (paths.isEmpty()) {
+            fields.put("_id", 1);
+        }
+        for (String path : paths) {
+            fields.put(path, 1);
+        }
+        return fields;
+    }
+
+    private static List<DBObject> documents(Object value) {
+        List<DBObject> docs = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                docs.add((DBObject) item);
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * Método que lanza el error de una respuesta de comando sin ok.
+     *
+     * @param response Respuesta.
+     * @throws MongoException Con el código y el mensaje del servidor.
+     */
+    static void checkOk(DBObject response) throws MongoException {
+        Object ok = response.get("ok");
+        if (ok instanceof Number && ((Number) ok).intValue() == 1) {
+            return;
+        }
+        Object code = response.get("code");
+        Object errmsg = response.get("errmsg");
+        throw new MongoException(code instanceof Number ? ((Number) code).intValue() : -1,
+                errmsg != null ? errmsg.toString() : "error del servidor: " + response);
+    }
+
+    /**
+     * Indica si el error es de un comando que el servidor no tiene. Los
+     * servidores 1.x responden "no such cmd" y los 3.x y posteriores el
+     * código 59.
+     */
+    private static boolean isUnsupported(MongoException ex) {
+        String message = String.valueOf(ex.getMessage()).toLowerCase();
+        return ex.getCode() == 59 || message.contains("no such cmd") || message.contains("no such command")
+                || message.contains("unrecognized command");
+    }
+
+    private static boolean isUnrecognizedField(DBObject response) {
+        Object ok = response.get("ok");
+        Object errmsg = response.get("errmsg");
+        return !(ok instanceof Number && ((Number) ok).intValue() == 1) && errmsg != null
+                && errmsg.toString().contains("unrecognized field");
+    }
+}
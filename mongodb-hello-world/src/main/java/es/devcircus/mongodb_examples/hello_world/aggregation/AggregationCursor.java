@@ -0,0 +1,189 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.aggregation;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.ByteDecoder;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.bson.CursorMessages;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Resultado de una agregación. Con el comando aggregate en
+ * forma de cursor (servidores 2.6 o posteriores) los lotes siguientes se
+ * piden al recorrerlo: con OP_GET_MORE si la base de datos es del driver,
+ * aunque esté instrumentada, y con el comando getMore (servidores 3.2 o
+ * posteriores) si no. El resto de formas de ejecutar la agregación
+ * devuelven el resultado completo de una vez. No es seguro entre
+ * hilos. Hay que cerrarlo si no se recorre entero, para liberar el cursor
+ * del servidor.
+ */
+public class AggregationCursor implements Iterator<DBObject>, Iterable<DBObject>, Closeable {
+
+    /**
+     * Cada ByteDecoder reserva un buffer de nombres de 4 MB al crearse, así
+     * que se reutiliza uno por hilo.
+     */
+    private static final ThreadLocal<ByteDecoder> DECODER = ThreadLocal.withInitial(
+            () -> new ByteDecoder(ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN)));
+
+    private final DB db;
+    private final String namespace;
+    private final int batchSize;
+    private Iterator<?> batch;
+    private long cursorId;
+
+    /**
+     * Constructor para un resultado completo.
+     *
+     * @param results Documentos.
+     */
+    AggregationCursor(List<DBObject> results) {
+        this.db = null;
+        this.namespace = null;
+        this.batchSize = 0;
+        this.batch = results.iterator();
+    }
+
+    /**
+     * Constructor para la respuesta en forma de cursor del comando
+     * aggregate.
+     *
+     * @param db Base de datos en la que se lanzó el comando.
+     * @param cursor Campo cursor de la respuesta: id, ns y firstBatch.
+     * @param batchSize Tamaño de los lotes siguientes; 0 para el del
+     * servidor.
+     */
+    AggregationCursor(DB db, DBObject cursor, int batchSize) {
+        this.db = db;
+        this.namespace = (String) cursor.get("ns");
+        this.batchSize = batchSize;
+        this.cursorId = ((Number) cursor.get("id")).longValue();
+        Object first = cursor.get("firstBatch");
+        this.batch = first instanceof List ? ((List<?>) first).iterator() : Collections.emptyIterator();
+    }
+
+    @Override
+    public Iterator<DBObject> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() throws MongoException {
+        while (!batch.hasNext() && cursorId != 0) {
+            getMore();
+        }
+        return batch.hasNext();
+    }
+
+    @Override
+    public DBObject next() throws MongoException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return (DBObject) batch.next();
+    }
+
+    /**
+     * Método que recorre lo que queda del cursor y lo devuelve en una lista.
+     *
+     * @return Documentos.
+     */
+    public List<DBObject> toList() {
+        List<DBObject> result = new ArrayList<>();
+        while (hasNext()) {
+            result.add(next());
+        }
+        return result;
+    }
+
+    /**
+     * Método que libera el cursor del servidor, si sigue abierto.
+     */
+    @Override
+    public void close() throws MongoException {
+        batch = Collections.emptyIterator();
+        if (cursorId == 0) {
+            return;
+        }
+        long id = cursorId;
+        cursorId = 0;
+        if (CursorMessages.isSupported(db)) {
+            CursorMessages.killCursor(db, id);
+        } else {
+            BasicDBList cursors = new BasicDBList();
+            cursors.add(id);
+            db.command(new BasicDBObject("killCursors", collectionName()).append("cursors", cursors));
+        }
+    }
+
+    private void getMore() throws MongoException {
+        if (CursorMessages.isSupported(db)) {
+            rawGetMore();
+            return;
+        }
+        BasicDBObject command = new BasicDBObject("getMore", cursorId).append("collection", collectionName());
+        if (batchSize > 0) {
+            command.put("batchSize", batchSize);
+        }
+        DBObject response = db.command(command);
+        try {
+            Aggregation.checkOk(response);
+        } catch (MongoException ex) {
+            cursorId = 0;
+            throw ex;
+        }
+        DBObject cursor = (DBObject) response.get("cursor");
+        cursorId = ((Number) cursor.get("id")).longValue();
+        batch = ((List<?>) cursor.get("nextBatch")).iterator();
+    }
+
+    private void rawGetMore() throws MongoException {
+        CursorMessages.Reply reply;
+        try {
+            reply = CursorMessages.getMore(db, namespace.getBytes(StandardCharsets.UTF_8), batchSize, cursorId);
+        } catch (MongoException ex) {
+            cursorId = 0;
+            throw ex;
+        }
+        ByteDecoder decoder = DECODER.get();
+        decoder.reset(reply.getDocuments());
+        List<DBObject> docs = new ArrayList<>(reply.getCount());
+        for (int i = 0; i < reply.getCount(); i++) {
+            docs.add(decoder.readObject());
+        }
+        cursorId = reply.getCursorId();
+        batch = docs.iterator();
+    }
+
+    private String collectionName() {
+        return namespace.substring(namespace.indexOf('.') + 1);
+    }
+}
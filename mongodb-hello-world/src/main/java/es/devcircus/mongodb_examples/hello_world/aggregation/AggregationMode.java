@@ -0,0 +1,48 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.aggregation;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Forma de ejecutar una agregación.
+ */
+public enum AggregationMode {
+
+    /**
+     * El comando aggregate si el servidor lo tiene (2.2 o posterior); si no,
+     * el comando group cuando la agregación agrupa, y si tampoco, la
+     * consulta en el servidor y el resto en el cliente.
+     */
+    AUTO,
+    /**
+     * Sólo el comando aggregate.
+     */
+    AGGREGATE,
+    /**
+     * El comando group de los servidores 1.x: el $match inicial y el $group
+     * se resuelven en el servidor con JavaScript; las etapas siguientes, que
+     * ya trabajan sobre los grupos, en el cliente.
+     */
+    GROUP,
+    /**
+     * El $match inicial como consulta en el servidor y el resto de etapas en
+     * el cliente. Es lo que hacían los recorridos a mano, y sólo se usa
+     * cuando el servidor no puede hacer nada mejor.
+     */
+    CLIENT
+}
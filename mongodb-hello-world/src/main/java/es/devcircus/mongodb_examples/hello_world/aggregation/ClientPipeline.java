@@ -0,0 +1,371 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.aggregation;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Ejecución en el cliente de las etapas $group, $sort, $skip,
+ * $limit y $project, para los servidores sin comando aggregate. Sólo admite
+ * campos con "$" y constantes como operandos; $match sólo al principio, y
+ * lo resuelve el servidor como consulta antes de llegar aquí.
+ */
+final class ClientPipeline {
+
+    private ClientPipeline() {
+    }
+
+    /**
+     * Método que aplica las etapas a los documentos.
+     *
+     * @param stages Etapas, sin el $match inicial.
+     * @param input Documentos.
+     * @return Resultado.
+     */
+    static List<DBObject> apply(List<DBObject> stages, Iterator<DBObject> input) {
+        List<DBObject> docs = null;
+        for (DBObject stage : stages) {
+            String operator = operator(stage);
+            Object spec = stage.get(operator);
+            if (docs == null && !"$group".equals(operator)) {
+                docs = drain(input);
+            }
+            switch (operator) {
+                case "$group":
+                    docs = group((DBObject) spec, docs == null ? input : docs.iterator());
+                    break;
+                case "$sort":
+                    docs.sort(comparator((DBObject) spec));
+                    break;
+                case "$skip":
+                    docs = new ArrayList<>(docs.subList(Math.min(docs.size(), number(spec)), docs.size()));
+                    break;
+                case "$limit":
+                    docs = new ArrayList<>(docs.subList(0, Math.min(docs.size(), number(spec))));
+                    break;
+                case "$project":
+                    docs = project((DBObject) spec, docs);
+                    break;
+                default:
+                    throw new AggregationException("La etapa " + operator
+                            + " sólo se puede ejecutar con el comando aggregate");
+            }
+        }
+        return docs == null ? drain(input) : docs;
+    }
+
+    static String operator(DBObject stage) {
+        if (stage.keySet().size() != 1) {
+            throw new AggregationException("Etapa incorrecta: " + stage);
+        }
+        return stage.keySet().iterator().next();
+    }
+
+    private static List<DBObject> drain(Iterator<DBObject> input) {
+        List<DBObject> docs = new ArrayList<>();
+        while (input.hasNext()) {
+            docs.add(input.next());
+        }
+        return docs;
+    }
+
+    private static int number(Object value) {
+        if (!(value instanceof Number)) {
+            throw new AggregationException("Se esperaba un número: " + value);
+        }
+        return ((Number) value).intValue();
+    }
+
+    private static List<DBObject> group(DBObject spec, Iterator<DBObject> input) {
+        Object id = spec.get("_id");
+        Map<Object, Object[]> groups = new LinkedHashMap<>();
+        Map<Object, Object> keys = new LinkedHashMap<>();
+        List<String> outputs = new ArrayList<>();
+        List<Accumulator> accumulators = new ArrayList<>();
+        List<Object> operands = new ArrayList<>();
+        for (String output : spec.keySet()) {
+            if ("_id".equals(output)) {
+                continue;
+            }
+            DBObject acc = (DBObject) spec.get(output);
+            String op = operator(acc);
+            Accumulator accumulator = Accumulator.of(op);
+            if (accumulator == null) {
+                throw new AggregationException("Acumulador desconocido: " + op);
+            }
+            outputs.add(output);
+            accumulators.add(accumulator);
+            operands.add(checkOperand(acc.get(op)));
+        }
+        while (input.hasNext()) {
+            DBObject doc = input.next();
+            Object key = evaluateId(id, doc);
+            Object normalized = normalize(key);
+            Object[] state = groups.get(normalized);
+            if (state == null) {
+                state = new Object[outputs.size()];
+                groups.put(normalized, state);
+                keys.put(normalized, key);
+            }
+            for (int i = 0; i < state.length; i++) {
+                state[i] = accumulate(accumulators.get(i), state[i], evaluate(operands.get(i), doc));
+            }
+        }
+        List<DBObject> result = new ArrayList<>(groups.size());
+        for (Map.Entry<Object, Object[]> entry : groups.entrySet()) {
+            BasicDBObject out = new BasicDBObject("_id", keys.get(entry.getKey()));
+            Object[] state = entry.getValue();
+            for (int i = 0; i < state.length; i++) {
+                out.put(outputs.get(i), finish(accumulators.get(i), state[i]));
+            }
+            result.add(out);
+        }
+        return result;
+    }
+
+    static Object checkOperand(Object operand) {
+        if (operand == null || operand instanceof Number || operand instanceof Boolean
+                || operand instanceof String && ((String) operand).startsWith("$")) {
+            return operand;
+        }
+        throw new AggregationException("Sólo el comando aggregate resuelve la expresión " + operand);
+    }
+
+    private static Object evaluateId(Object id, DBObject doc) {
+        if (!(id instanceof DBObject)) {
+            return evaluate(checkOperand(id), doc);
+        }
+        DBObject spec = (DBObject) id;
+        BasicDBObject key = new BasicDBObject();
+        for (String field : spec.keySet()) {
+            key.put(field, evaluate(checkOperand(spec.get(field)), doc));
+        }
+        return key;
+    }
+
+    private static Object evaluate(Object operand, DBObject doc) {
+        if (operand instanceof String) {
+            return resolve(doc, ((String) operand).substring(1));
+        }
+        return operand;
+    }
+
+    /**
+     * Clave de agrupación: los números enteros y decimales con el mismo
+     * valor caen en el mismo grupo, como en el servidor.
+     */
+    private static Object normalize(Object key) {
+        if (key instanceof Number) {
+            return ((Number) key).doubleValue();
+        }
+        if (key instanceof DBObject) {
+            List<Object> values = new ArrayList<>();
+            for (String field : ((DBObject) key).keySet()) {
+                values.add(normalize(((DBObject) key).get(field)));
+            }
+            return values;
+        }
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object accumulate(Accumulator accumulator, Object state, Object value) {
+        switch (accumulator) {
+            case SUM:
+                if (!(value instanceof Number)) {
+                    return state == null ? 0 : state;
+                }
+                return add(state == null ? 0 : (Number) state, (Number) value);
+            case AVG:
+                double[] avg = state == null ? new double[2] : (double[]) state;
+                if (value instanceof Number) {
+                    avg[0] += ((Number) value).doubleValue();
+                    avg[1]++;
+                }
+                return avg;
+            case MIN:
+                return value == null || state != null && compare(state, value) <= 0 ? state : value;
+            case MAX:
+                return value == null || state != null && compare(state, value) >= 0 ? state : value;
+            case FIRST:
+                return state == null ? new Object[]{value} : state;
+            case LAST:
+                return value;
+            case PUSH:
+                List<Object> list = state == null ? new ArrayList<>() : (List<Object>) state;
+                if (value != null) {
+                    list.add(value);
+                }
+                return list;
+            case ADD_TO_SET:
+                Set<Object> set = state == null ? new LinkedHashSet<>() : (Set<Object>) state;
+                if (value != null) {
+                    set.add(value);
+                }
+                return set;
+            default:
+                throw new AggregationException("Acumulador no soportado: " + accumulator);
+        }
+    }
+
+    private static Number add(Number a, Number b) {
+        if (a instanceof Integer && b instanceof Integer) {
+            long sum = a.longValue() + b.longValue();
+            if (sum == (int) sum) {
+                return (int) sum;
+            }
+            return sum;
+        }
+        if ((a instanceof Integer || a instanceof Long) && (b instanceof Integer || b instanceof Long)) {
+            return a.longValue() + b.longValue();
+        }
+        return a.doubleValue() + b.doubleValue();
+    }
+
+    private static Object finish(Accumulator accumulator, Object state) {
+        switch (accumulator) {
+            case SUM:
+                return state == null ? 0 : state;
+            case AVG:
+                double[] avg = (double[]) state;
+                return avg == null || avg[1] == 0 ? null : avg[0] / avg[1];
+            case FIRST:
+                return state == null ? null : ((Object[]) state)[0];
+            case PUSH:
+            case ADD_TO_SET:
+                BasicDBList list = new BasicDBList();
+                if (state != null) {
+                    list.addAll((Collection<?>) state);
+                }
+                return list;
+            default:
+                return state;
+        }
+    }
+
+    private static List<DBObject> project(DBObject spec, List<DBObject> docs) {
+        boolean includeId = !isFalse(spec.get("_id"));
+        List<DBObject> result = new ArrayList<>(docs.size());
+        for (DBObject doc : docs) {
+            BasicDBObject out = new BasicDBObject();
+            if (includeId && doc.containsField("_id")) {
+                out.put("_id", doc.get("_id"));
+            }
+            for (String field : spec.keySet()) {
+                if ("_id".equals(field)) {
+                    continue;
+                }
+                Object value = spec.get(field);
+                if (value instanceof String && ((String) value).startsWith("$")) {
+                    out.put(field, resolve(doc, ((String) value).substring(1)));
+                } else if (isFalse(value)) {
+                    throw new AggregationException("$project sólo admite exclusiones de _id fuera del servidor");
+                } else if (value instanceof Number || value instanceof Boolean) {
+                    Object resolved = resolve(doc, field);
+                    if (resolved != null) {
+                        out.put(field, resolved);
+                    }
+                } else {
+                    throw new AggregationException("Sólo el comando aggregate resuelve la expresión " + value);
+                }
+            }
+            result.add(out);
+        }
+        return result;
+    }
+
+    private static boolean isFalse(Object value) {
+        return Boolean.FALSE.equals(value) || value instanceof Number && ((Number) value).doubleValue() == 0;
+    }
+
+    static Object resolve(DBObject doc, String path) {
+        Object current = doc;
+        for (String part : path.split("\\.")) {
+            if (!(current instanceof DBObject)) {
+                return null;
+            }
+            current = ((DBObject) current).get(part);
+        }
+        return current;
+    }
+
+    private static Comparator<DBObject> comparator(DBObject sort) {
+        return (a, b) -> {
+            for (String field : sort.keySet()) {
+                int direction = ((Number) sort.get(field)).intValue() < 0 ? -1 : 1;
+                int result = compare(resolve(a, field), resolve(b, field));
+                if (result != 0) {
+                    return direction * result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Comparación de valores de distinto tipo: null primero, después los
+     * números, las cadenas y las fechas; el resto por su representación.
+     */
+    @SuppressWarnings("unchecked")
+    static int compare(Object a, Object b) {
+        int rankA = rank(a);
+        int rankB = rank(b);
+        if (rankA != rankB) {
+            return Integer.compare(rankA, rankB);
+        }
+        if (a == null) {
+            return 0;
+        }
+        if (a instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+        return String.valueOf(a).compareTo(String.valueOf(b));
+    }
+
+    private static int rank(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return 1;
+        }
+        if (value instanceof String) {
+            return 2;
+        }
+        if (value instanceof Date) {
+            return 4;
+        }
+        return 3;
+    }
+}
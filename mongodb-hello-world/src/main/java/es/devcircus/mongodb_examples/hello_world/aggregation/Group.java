@@ -0,0 +1,137 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.aggregation;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Etapa $group. Los campos se indican por su nombre, sin el
+ * prefijo "$".
+ *
+ * <pre>
+ * Group.by("department").count("employees").avg("salary", "salary")
+ * </pre>
+ */
+public class Group {
+
+    private final Object id;
+    private final BasicDBObject accumulators = new BasicDBObject();
+
+    private Group(Object id) {
+        this.id = id;
+    }
+
+    /**
+     * Método que agrupa todos los documentos en un único grupo.
+     *
+     * @return Etapa.
+     */
+    public static Group all() {
+        return new Group(null);
+    }
+
+    /**
+     * Método que agrupa por el valor de un campo.
+     *
+     * @param field Campo; admite notación con puntos.
+     * @return Etapa.
+     */
+    public static Group by(String field) {
+        return new Group("$" + field);
+    }
+
+    /**
+     * Método que agrupa por varios campos. El _id de cada grupo es un
+     * documento con un campo por cada uno, con el nombre del último tramo.
+     *
+     * @param fields Campos; admiten notación con puntos.
+     * @return Etapa.
+     */
+    public static Group by(String... fields) {
+        if (fields.length == 1) {
+            return by(fields[0]);
+        }
+        BasicDBObject id = new BasicDBObject();
+        for (String field : fields) {
+            id.put(field.substring(field.lastIndexOf('.') + 1), "$" + field);
+        }
+        return new Group(id);
+    }
+
+    public Group count(String output) {
+        return accumulate(output, Accumulator.SUM, 1);
+    }
+
+    public Group sum(String output, String field) {
+        return accumulate(output, Accumulator.SUM, "$" + field);
+    }
+
+    public Group avg(String output, String field) {
+        return accumulate(output, Accumulator.AVG, "$" + field);
+    }
+
+    public Group min(String output, String field) {
+        return accumulate(output, Accumulator.MIN, "$" + field);
+    }
+
+    public Group max(String output, String field) {
+        return accumulate(output, Accumulator.MAX, "$" + field);
+    }
+
+    public Group first(String output, String field) {
+        return accumulate(output, Accumulator.FIRST, "$" + field);
+    }
+
+    public Group last(String output, String field) {
+        return accumulate(output, Accumulator.LAST, "$" + field);
+    }
+
+    public Group push(String output, String field) {
+        return accumulate(output, Accumulator.PUSH, "$" + field);
+    }
+
+    public Group addToSet(String output, String field) {
+        return accumulate(output, Accumulator.ADD_TO_SET, "$" + field);
+    }
+
+    /**
+     * Método que añade un acumulador con un operando cualquiera: un campo
+     * con "$", una constante o una expresión del comando aggregate. Las
+     * expresiones sólo las resuelve el servidor.
+     *
+     * @param output Campo de salida.
+     * @param accumulator Acumulador.
+     * @param operand Operando.
+     * @return La propia etapa.
+     */
+    public Group accumulate(String output, Accumulator accumulator, Object operand) {
+        if ("_id".equals(output)) {
+            throw new IllegalArgumentException("_id es la clave del grupo");
+        }
+        accumulators.put(output, new BasicDBObject(accumulator.getOperator(), operand));
+        return this;
+    }
+
+    DBObject toStage() {
+        BasicDBObject spec = new BasicDBObject("_id", id);
+        spec.putAll((DBObject) accumulators);
+        return new BasicDBObject("$group", spec);
+    }
+}
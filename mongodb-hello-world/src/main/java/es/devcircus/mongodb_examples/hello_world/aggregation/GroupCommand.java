@@ -0,0 +1,194 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.aggregation;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Traducción de un $match y un $group al comando group de los
+ * servidores 1.x. La clave se calcula con una función $keyf, para admitir
+ * campos anidados, y cada acumulador se traduce a unas líneas de la función
+ * de reducción. El servidor devuelve todos los grupos en una única
+ * respuesta, así que el número de grupos está limitado (10.000 claves en
+ * los servidores 1.x). Las sumas vuelven como números decimales, que es lo
+ * que maneja JavaScript.
+ */
+final class GroupCommand {
+
+    /**
+     * Función que resuelve un campo con notación con puntos.
+     */
+    private static final String GET = "var g = function(o, p) { p = p.split('.');"
+            + " for (var i = 0; i < p.length && o != null; i++) { o = o[p[i]]; } return o; };";
+
+    private GroupCommand() {
+    }
+
+    /**
+     * Método que ejecuta el comando group.
+     *
+     * @param coll Colección.
+     * @param match Condición del $match inicial, o null.
+     * @param spec Especificación del $group.
+     * @return Grupos con la misma forma que los del comando aggregate.
+     */
+    static List<DBObject> run(DBCollection coll, DBObject match, DBObject spec) {
+        Object id = spec.get("_id");
+        List<String> keyNames = new ArrayList<>();
+        StringBuilder keyf = new StringBuilder("function(doc) { ").append(GET).append(" return {");
+        if (id instanceof DBObject) {
+            DBObject fields = (DBObject) id;
+            for (String field : fields.keySet()) {
+                appendKey(keyf, keyNames, fields.get(field));
+            }
+        } else if (id != null) {
+            appendKey(keyf, keyNames, id);
+        }
+        keyf.append("}; }");
+
+        BasicDBObject initial = new BasicDBObject();
+        StringBuilder reduce = new StringBuilder("function(doc, prev) { ").append(GET).append(" var v; ");
+        StringBuilder finalize = new StringBuilder("function(out) { ");
+        int temp = 0;
+        for (String output : spec.keySet()) {
+            if ("_id".equals(output)) {
+                continue;
+            }
+            DBObject acc = (DBObject) spec.get(output);
+            String op = ClientPipeline.operator(acc);
+            Accumulator accumulator = Accumulator.of(op);
+            if (accumulator == null) {
+                throw new AggregationException("Acumulador desconocido: " + op);
+            }
+            Object operand = ClientPipeline.checkOperand(acc.get(op));
+            String out = "prev[" + JSON.serialize(output) + "]";
+            String value = operand instanceof String
+                    ? "g(doc, " + JSON.serialize(((String) operand).substring(1)) + ")"
+                    : JSON.serialize(operand);
+            reduce.append("v = ").append(value).append("; ");
+            switch (accumulator) {
+                case SUM:
+                    initial.put(output, 0);
+                    reduce.append("if (typeof v == 'number') ").append(out).append(" += v; ");
+                    break;
+                case AVG:
+                    String sum = "__sum" + temp;
+                    String count = "__count" + temp++;
+                    initial.put(output, null);
+                    initial.put(sum, 0);
+                    initial.put(count, 0);
+                    reduce.append("if (typeof v == 'number') { prev.").append(sum).append(" += v; prev.")
+                            .append(count).append("++; } ");
+                    finalize.append("out[").append(JSON.serialize(output)).append("] = out.").append(count)
+                            .append(" > 0 ? out.").append(sum).append(" / out.").append(count)
+                            .append(" : null; delete out.").append(sum).append("; delete out.")
+                            .append(count).append("; ");
+                    break;
+                case MIN:
+                case MAX:
+                    initial.put(output, null);
+                    reduce.append("if (v != null && (").append(out).append(" == null || v ")
+                            .append(accumulator == Accumulator.MIN ? '<' : '>').append(' ').append(out)
+                            .append(")) ").append(out).append(" = v; ");
+                    break;
+                case FIRST:
+                    String seen = "__seen" + temp++;
+                    initial.put(output, null);
+                    initial.put(seen, false);
+                    reduce.append("if (!prev.").append(seen).append(") { ").append(out)
+                            .append(" = v === undefined ? null : v; prev.").append(seen).append(" = true; } ");
+                    finalize.append("delete out.").append(seen).append("; ");
+                    break;
+                case LAST:
+                    initial.put(output, null);
+                    reduce.append(out).append(" = v === undefined ? null : v; ");
+                    break;
+                case PUSH:
+                    initial.put(output, new BasicDBList());
+                    reduce.append("if (v != null) ").append(out).append(".push(v); ");
+                    break;
+                case ADD_TO_SET:
+                    initial.put(output, new BasicDBList());
+                    reduce.append("if (v != null && ").append(out).append(".indexOf(v) < 0) ")
+                            .append(out).append(".push(v); ");
+                    break;
+                default:
+                    throw new AggregationException("Acumulador no soportado: " + accumulator);
+            }
+        }
+        reduce.append('}');
+        finalize.append('}');
+
+        BasicDBObject group = new BasicDBObject("ns", coll.getName())
+                .append("$keyf", keyf.toString())
+                .append("initial", initial)
+                .append("$reduce", reduce.toString())
+                .append("finalize", finalize.toString());
+        if (match != null) {
+            group.put("cond", match);
+        }
+        DBObject response = coll.getDB().command(new BasicDBObject("group", group));
+        Aggregation.checkOk(response);
+
+        List<DBObject> result = new ArrayList<>();
+        for (Object item : (List<?>) response.get("retval")) {
+            DBObject row = (DBObject) item;
+            Object key;
+            if (id instanceof DBObject) {
+                BasicDBObject compound = new BasicDBObject();
+                int i = 0;
+                for (String field : ((DBObject) id).keySet()) {
+                    compound.put(field, row.get(keyNames.get(i++)));
+                }
+                key = compound;
+            } else {
+                key = id == null ? null : row.get(keyNames.get(0));
+            }
+            BasicDBObject out = new BasicDBObject("_id", key);
+            for (String output : spec.keySet()) {
+                if (!"_id".equals(output)) {
+                    out.put(output, row.get(output));
+                }
+            }
+            result.add(out);
+        }
+        return result;
+    }
+
+    private static void appendKey(StringBuilder keyf, List<String> keyNames, Object operand) {
+        Object checked = ClientPipeline.checkOperand(operand);
+        String name = "_k" + keyNames.size();
+        if (!keyNames.isEmpty()) {
+            keyf.append(", ");
+        }
+        keyf.append(name).append(": ");
+        if (checked instanceof String) {
+            keyf.append("g(doc, ").append(JSON.serialize(((String) checked).substring(1))).append(')');
+        } else {
+            keyf.append(JSON.serialize(checked));
+        }
+        keyNames.add(name);
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.aggregation;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Criterio de ordenación de la etapa $sort, en el orden en que
+ * se añaden los campos.
+ */
+public class Sort {
+
+    private final BasicDBObject fields = new BasicDBObject();
+
+    private Sort() {
+    }
+
+    public static Sort ascending(String field) {
+        return new Sort().thenAscending(field);
+    }
+
+    public static Sort descending(String field) {
+        return new Sort().thenDescending(field);
+    }
+
+    public Sort thenAscending(String field) {
+        fields.put(field, 1);
+        return this;
+    }
+
+    public Sort thenDescending(String field) {
+        fields.put(field, -1);
+        return this;
+    }
+
+    DBObject toStage() {
+        return new BasicDBObject("$sort", fields);
+    }
+}
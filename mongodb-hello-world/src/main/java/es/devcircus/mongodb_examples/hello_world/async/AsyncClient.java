@@ -0,0 +1,123 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.async;
+
+import com.mongodb.DB;
+import es.devcircus.mongodb_examples.hello_world.connection.ManagedMongo;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Fachada asíncrona sobre un {@link ManagedMongo}. El driver
+ * sólo ofrece llamadas bloqueantes, así que las operaciones se ejecutan en un
+ * pool fijo de hilos, del mismo tamaño que el límite de concurrencia. Las
+ * peticiones que superan ese límite esperan en la cola del
+ * {@link ConcurrencyLimiter} sin ocupar hilo, de forma que miles de
+ * consultas concurrentes se resuelven con tantos hilos como conexiones.
+ */
+public class AsyncClient implements Closeable {
+
+    public static final int DEFAULT_MAX_QUEUED = 10000;
+
+    private final ManagedMongo mongo;
+    private final ExecutorService executor;
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Constructor de la clase. El límite de concurrencia es el número de
+     * conexiones por host del cliente.
+     *
+     * @param mongo Cliente gestionado.
+     */
+    public AsyncClient(ManagedMongo mongo) {
+        this(mongo, mongo.getSettings().getConnectionsPerHost(), DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param mongo Cliente gestionado.
+     * @param maxConcurrent Operaciones en ejecución a la vez (y hilos).
+     * @param maxQueued Operaciones que pueden esperar turno antes de empezar
+     * a rechazarse.
+     */
+    public AsyncClient(ManagedMongo mongo, int maxConcurrent, int maxQueued) {
+        this.mongo = mongo;
+        this.executor = Executors.newFixedThreadPool(maxConcurrent, new DaemonThreadFactory("mongo-async"));
+        this.limiter = new ConcurrencyLimiter(task -> executor.execute(() -> runPinned(task)),
+                maxConcurrent, maxQueued);
+    }
+
+    public AsyncDB getDB(String name) {
+        return getDB(mongo.getDB(name));
+    }
+
+    /**
+     * Método que envuelve una base de datos ya obtenida, por ejemplo una
+     * instrumentada, para usarla con el límite de este cliente.
+     *
+     * @param db Base de datos.
+     * @return Base de datos asíncrona.
+     */
+    public AsyncDB getDB(DB db) {
+        return new AsyncDB(db, limiter);
+    }
+
+    public CompletableFuture<List<String>> getDatabaseNames() {
+        return limiter.submit(mongo::getDatabaseNames);
+    }
+
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Ejecuta una tarea con una conexión reservada a través del cliente, que
+     * registra la espera en sus {@link ManagedMongo#getPoolStats()}. Si no se
+     * puede reservar, la tarea se ejecuta igualmente y es ella la que
+     * completa su future con el error del driver.
+     */
+    private void runPinned(Runnable task) {
+        boolean[] ran = new boolean[1];
+        try {
+            mongo.execute(mongo.getDB("admin"), db -> {
+                ran[0] = true;
+                task.run();
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            if (!ran[0]) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Método que detiene el pool de hilos. No cierra el cliente gestionado,
+     * que pertenece al {@link es.devcircus.mongodb_examples.hello_world.connection.MongoConnectionManager}.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.async;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.cursor.ScanOptions;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Versión asíncrona de las operaciones de los ejemplos sobre una
+ * colección. Cada llamada devuelve inmediatamente un
+ * {@link CompletableFuture}; la operación del driver, que es bloqueante, se
+ * ejecuta en el executor del cliente bajo el límite de su
+ * {@link ConcurrencyLimiter}.
+ */
+public class AsyncCollection {
+
+    private final DBCollection coll;
+    private final ConcurrencyLimiter limiter;
+
+    AsyncCollection(DBCollection coll, ConcurrencyLimiter limiter) {
+        this.coll = coll;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Método que devuelve la colección síncrona sobre la que se trabaja.
+     *
+     * @return Colección del driver.
+     */
+    public DBCollection getCollection() {
+        return coll;
+    }
+
+    public CompletableFuture<Void> insert(DBObject doc) {
+        return limiter.submit(() -> {
+            coll.insert(doc);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> insert(List<DBObject> docs) {
+        return limiter.submit(() -> {
+            coll.insert(docs);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> update(DBObject query, DBObject update) {
+        return limiter.submit(() -> {
+            coll.update(query, update);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> remove(DBObject query) {
+        return limiter.submit(() -> {
+            coll.remove(query);
+            return null;
+        });
+    }
+
+    public CompletableFuture<DBObject> findOne() {
+        return limiter.submit(() -> coll.findOne());
+    }
+
+    public CompletableFuture<DBObject> findOne(DBObject query) {
+        return limiter.submit(() -> coll.findOne(query));
+    }
+
+    public CompletableFuture<DBObject> findOne(DBObject query, DBObject fields) {
+        return limiter.submit(() -> coll.findOne(query, fields));
+    }
+
+    /**
+     * Método que abre un cursor asíncrono. No se envía nada al servidor hasta
+     * pedir el primer lote.
+     *
+     * @param query Consulta; null para recorrer toda la colección.
+     * @param options Opciones de lectura; el tamaño de lote es el número de
+     * documentos que entrega cada {@link AsyncCursor#nextBatch()}.
+     * @return Cursor asíncrono.
+     */
+    public AsyncCursor find(DBObject query, ScanOptions options) {
+        return new AsyncCursor(coll, query, options, limiter);
+    }
+
+    public CompletableFuture<Long> getCount() {
+        return limiter.submit(() -> coll.getCount());
+    }
+
+    public CompletableFuture<Long> getCount(DBObject query) {
+        return limiter.submit(() -> coll.getCount(query));
+    }
+
+    public CompletableFuture<Void> createIndex(DBObject keys) {
+        return limiter.submit(() -> {
+            coll.createIndex(keys);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<DBObject>> getIndexInfo() {
+        return limiter.submit(() -> coll.getIndexInfo());
+    }
+}
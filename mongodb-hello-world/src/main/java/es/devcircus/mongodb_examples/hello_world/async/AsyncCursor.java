@@ -0,0 +1,169 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.async;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.cursor.ScanOptions;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Cursor asíncrono. Cada lote se lee en una tarea del
+ * {@link ConcurrencyLimiter}, así que ningún hilo queda parado esperando a
+ * que el consumidor procese los documentos. Las peticiones de lote se
+ * encadenan: aunque se pidan varias seguidas, el cursor del driver sólo lo
+ * usa una tarea cada vez.
+ */
+public class AsyncCursor implements Closeable {
+
+    private final DBCollection coll;
+    private final DBObject query;
+    private final ScanOptions options;
+    private final ConcurrencyLimiter limiter;
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+    private DBCursor cursor;
+    private volatile boolean closed;
+
+    AsyncCursor(DBCollection coll, DBObject query, ScanOptions options, ConcurrencyLimiter limiter) {
+        this.coll = coll;
+        this.query = query;
+        this.options = options.copy();
+        this.limiter = limiter;
+    }
+
+    /**
+     * Método que pide el siguiente lote de documentos.
+     *
+     * @return Future con el lote; una lista vacía indica que el cursor se ha
+     * agotado.
+     */
+    public synchronized CompletableFuture<List<DBObject>> nextBatch() {
+        CompletableFuture<List<DBObject>> batch = tail
+                .handle((result, ex) -> null)
+                .thenCompose(ignored -> limiter.submit(this::readBatch));
+        tail = batch;
+        return batch;
+    }
+
+    /**
+     * Método que recorre el cursor entero entregando cada documento al
+     * consumidor, lote a lote.
+     *
+     * @param action Consumidor de documentos. Se invoca desde los hilos del
+     * executor, nunca desde dos a la vez.
+     * @return Future con el número de documentos recorridos.
+     */
+    public CompletableFuture<Long> forEach(Consumer<? super DBObject> action) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        pump(action, result, new long[1]);
+        return result;
+    }
+
+    /**
+     * Pide lotes mientras lleguen ya resueltos y sólo se engancha al future
+     * cuando hay que esperar, para no anidar una llamada por lote.
+     */
+    private void pump(Consumer<? super DBObject> action, CompletableFuture<Long> result, long[] seen) {
+        while (true) {
+            CompletableFuture<List<DBObject>> batch = nextBatch();
+            if (!batch.isDone()) {
+                batch.whenComplete((docs, ex) -> {
+                    if (consume(docs, ex, action, result, seen)) {
+                        pump(action, result, seen);
+                    }
+                });
+                return;
+            }
+            List<DBObject> docs = null;
+            Throwable error = null;
+            try {
+                docs = batch.join();
+            } catch (CompletionException ex) {
+                error = ex.getCause();
+            }
+            if (!consume(docs, error, action, result, seen)) {
+                return;
+            }
+        }
+    }
+
+    private boolean consume(List<DBObject> docs, Throwable error, Consumer<? super DBObject> action,
+            CompletableFuture<Long> result, long[] seen) {
+        if (error != null) {
+            result.completeExceptionally(error);
+            return false;
+        }
+        if (docs.isEmpty()) {
+            result.complete(seen[0]);
+            return false;
+        }
+        try {
+            docs.forEach(action);
+        } catch (RuntimeException ex) {
+            close();
+            result.completeExceptionally(ex);
+            return false;
+        }
+        seen[0] += docs.size();
+        return true;
+    }
+
+    /**
+     * Método que lee todos los documentos que quedan en el cursor.
+     *
+     * @return Future con la lista de documentos.
+     */
+    public CompletableFuture<List<DBObject>> toList() {
+        List<DBObject> docs = new ArrayList<>();
+        return forEach(docs::add).thenApply(count -> docs);
+    }
+
+    /**
+     * Método que cierra el cursor. Los lotes pedidos a partir de ahora llegan
+     * vacíos.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private List<DBObject> readBatch() {
+        if (closed) {
+            return Collections.emptyList();
+        }
+        if (cursor == null) {
+            cursor = options.open(coll, query);
+        }
+        List<DBObject> batch = new ArrayList<>(options.getBatchSize());
+        while (batch.size() < options.getBatchSize() && cursor.hasNext()) {
+            batch.add(cursor.next());
+        }
+        if (batch.isEmpty()) {
+            closed = true;
+        }
+        return batch;
+    }
+}
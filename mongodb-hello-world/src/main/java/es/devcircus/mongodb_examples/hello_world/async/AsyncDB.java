@@ -0,0 +1,68 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.async;
+
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Versión asíncrona de una base de datos. Comparte el
+ * {@link ConcurrencyLimiter} del {@link AsyncClient} que la creó.
+ */
+public class AsyncDB {
+
+    private final DB db;
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Constructor de la clase. Normalmente se obtiene de
+     * {@link AsyncClient#getDB(String)}; este constructor permite emplear un
+     * executor y un limitador propios.
+     *
+     * @param db Base de datos síncrona.
+     * @param limiter Limitador en el que se ejecutan las operaciones.
+     */
+    public AsyncDB(DB db, ConcurrencyLimiter limiter) {
+        this.db = db;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Método que devuelve la base de datos síncrona sobre la que se trabaja.
+     *
+     * @return Base de datos del driver.
+     */
+    public DB getDB() {
+        return db;
+    }
+
+    public AsyncCollection getCollection(String name) {
+        return new AsyncCollection(db.getCollection(name), limiter);
+    }
+
+    public CompletableFuture<Set<String>> getCollectionNames() {
+        return limiter.submit(() -> db.getCollectionNames());
+    }
+
+    public CompletableFuture<DBObject> command(DBObject cmd) {
+        return limiter.submit(() -> db.command(cmd));
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.async;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Limitador de concurrencia no bloqueante. Como mucho
+ * {@code maxConcurrent} tareas se ejecutan a la vez en el executor; las
+ * siguientes esperan en una cola de hasta {@code maxQueued} entradas sin
+ * ocupar ningún hilo, y las que no caben se rechazan completando su future
+ * con una {@link RejectedExecutionException}. Quien envía la tarea nunca se
+ * bloquea, así que un reparto masivo de consultas no puede agotar ni los
+ * hilos ni las conexiones del pool.
+ */
+public class ConcurrencyLimiter {
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param executor Executor en el que se ejecutan las tareas.
+     * @param maxConcurrent Máximo de tareas en ejecución a la vez.
+     * @param maxQueued Máximo de tareas esperando turno.
+     */
+    public ConcurrencyLimiter(Executor executor, int maxConcurrent, int maxQueued) {
+        if (maxConcurrent <= 0 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxConcurrent debe ser positivo y maxQueued no negativo");
+        }
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Método que envía una tarea. Nunca bloquea al llamante.
+     *
+     * @param <T> Tipo del resultado.
+     * @param callable Tarea.
+     * @return Future con el resultado, con la excepción de la tarea o con una
+     * {@link RejectedExecutionException} si la cola estaba llena.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> callable) {
+        Task<T> task = new Task<>(callable);
+        if (permits.tryAcquire()) {
+            dispatch(task);
+        } else if (queued.incrementAndGet() <= maxQueued) {
+            queue.offer(task);
+            drain();
+        } else {
+            queued.decrementAndGet();
+            rejected.increment();
+            task.future.completeExceptionally(new RejectedExecutionException(
+                    "Cola del limitador llena (" + maxQueued + " tareas en espera)"));
+        }
+        return task.future;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Lanza tareas de la cola mientras haya permisos libres. Se llama al
+     * encolar y al terminar cada tarea, así que ninguna se queda olvidada.
+     */
+    private void drain() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Task<?> task = queue.poll();
+            if (task == null) {
+                permits.release();
+                return;
+            }
+            queued.decrementAndGet();
+            dispatch(task);
+        }
+    }
+
+    private void dispatch(Task<?> task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            task.future.completeExceptionally(ex);
+            permits.release();
+        }
+    }
+
+    private final class Task<T> implements Runnable {
+
+        private final Callable<T> callable;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Task(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        /**
+         * El permiso se devuelve antes de completar el future, para que las
+         * etapas encadenadas por el llamante no cuenten como tarea en
+         * ejecución.
+         */
+        @Override
+        public void run() {
+            T result;
+            try {
+                result = callable.call();
+            } catch (Throwable ex) {
+                release();
+                future.completeExceptionally(ex);
+                return;
+            }
+            release();
+            future.complete(result);
+        }
+
+        private void release() {
+            permits.release();
+            drain();
+        }
+    }
+}
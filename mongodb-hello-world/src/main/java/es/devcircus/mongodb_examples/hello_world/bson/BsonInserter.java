@@ -0,0 +1,279 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bson;
+
+import com.mongodb.ByteDecoder;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.RawBsonSupport;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInsertStats;
+import es.devcircus.mongodb_examples.hello_world.bulk.InsertListener;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Insertador de documentos codificados directamente en BSON. Los
+ * documentos se escriben con un {@link BsonWriter} sobre un buffer del pool,
+ * que ya contiene la cabecera del mensaje OP_INSERT; cuando el buffer se
+ * llena se envía tal cual por la conexión del driver y se devuelve al pool.
+ * No crea ningún {@code BasicDBObject}. No es seguro entre hilos: cada hilo
+ * debe usar su propio insertador (pueden compartir el pool).
+ * <p>
+ * Un documento que supera el tamaño máximo se rechaza con una
+ * {@link IllegalArgumentException}. Si la escritura de un documento falla,
+ * se descarta al abrir el siguiente o al cerrar el insertador, y nunca se
+ * envía un documento a medias.
+ *
+ * <pre>
+ * BsonWriter w = inserter.startDocument();
+ * w.putInt("i", i);
+ * inserter.endDocument();
+ * </pre>
+ */
+public class BsonInserter implements Closeable {
+
+    public static final int DEFAULT_MAX_DOCUMENT_BYTES = 64 * 1024;
+
+    private final DBCollection coll;
+    private final BufferPool pool;
+    private final int maxDocumentBytes;
+    private final byte[] namespace;
+    private final boolean raw;
+    private final BsonWriter writer = new BsonWriter(ByteBuffer.allocate(0));
+    private final BulkInsertStats stats = new BulkInsertStats();
+    private final List<InsertListener> listeners = new CopyOnWriteArrayList<>();
+    private ByteBuffer buffer;
+    private int documents;
+    /**
+     * Posición del documento abierto en el buffer; -1 si no hay ninguno.
+     */
+    private int documentStart = -1;
+    private ByteDecoder decoder;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección de destino.
+     * @param pool Pool de buffers. Cada buffer es un mensaje.
+     */
+    public BsonInserter(DBCollection coll, BufferPool pool) {
+        this(coll, pool, DEFAULT_MAX_DOCUMENT_BYTES);
+    }
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección de destino.
+     * @param pool Pool de buffers. Cada buffer es un mensaje.
+     * @param maxDocumentBytes Tamaño máximo de un documento. El mensaje se
+     * envía cuando queda menos espacio que éste en el buffer.
+     */
+    public BsonInserter(DBCollection coll, BufferPool pool, int maxDocumentBytes) {
+        if (maxDocumentBytes >= pool.getBufferSize()) {
+            throw new IllegalArgumentException("Los buffers del pool deben ser mayores que un documento");
+        }
+        this.coll = coll;
+        this.pool = pool;
+        this.maxDocumentBytes = maxDocumentBytes;
+        this.namespace = coll.getFullName().getBytes(StandardCharsets.UTF_8);
+        this.raw = RawBsonSupport.supportsRawMessages(coll.getDB());
+    }
+
+    /**
+     * Método que abre un nuevo documento de primer nivel. Si había otro a
+     * medias, porque falló su escritura, se descarta.
+     *
+     * @return Escritor sobre el que rellenar el documento. Rechaza con una
+     * {@link IllegalArgumentException} lo que supere el tamaño máximo.
+     */
+    public BsonWriter startDocument() {
+        if (documentStart >= 0) {
+            discardDocument();
+        }
+        if (buffer == null) {
+            open();
+        }
+        documentStart = buffer.position();
+        buffer.limit(Math.min(buffer.capacity(), documentStart + maxDocumentBytes));
+        try {
+            return writer.startDocument();
+        } catch (RuntimeException ex) {
+            discardDocument();
+            throw ex;
+        }
+    }
+
+    /**
+     * Método que cierra el documento abierto con {@link #startDocument()} y
+     * envía el mensaje si ya no cabe otro documento.
+     */
+    public void endDocument() {
+        if (documentStart < 0) {
+            throw new IllegalStateException("No hay ningún documento abierto");
+        }
+        try {
+            writer.endDocument();
+            if (writer.getDepth() != 0) {
+                throw new IllegalStateException("Quedan subdocumentos sin cerrar");
+            }
+        } catch (RuntimeException ex) {
+            discardDocument();
+            throw ex;
+        }
+        documentStart = -1;
+        buffer.limit(buffer.capacity());
+        documents++;
+        if (buffer.remaining() < maxDocumentBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Método que añade un documento ya codificado, como los que se leen de
+     * una instantánea. Se copia tal cual al mensaje, sin decodificarlo; si no
+     * cabe en el mensaje en curso, éste se envía antes.
+     *
+     * @param document Documento BSON completo entre la posición y el límite
+     * del buffer. Su posición no se modifica.
+     */
+    public void insertEncoded(ByteBuffer document) {
+        checkNoOpenDocument();
+        if (buffer != null && buffer.remaining() < document.remaining()) {
+            flush();
+        }
+        if (buffer == null) {
+            open();
+        }
+        if (buffer.remaining() < document.remaining()) {
+            throw new IllegalArgumentException("El documento no cabe en un buffer del pool");
+        }
+        buffer.put(document.duplicate());
+        documents++;
+        if (buffer.remaining() < maxDocumentBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Método que envía los documentos pendientes.
+     *
+     * @throws IllegalStateException Si hay un documento abierto.
+     */
+    public void flush() {
+        checkNoOpenDocument();
+        if (buffer == null) {
+            return;
+        }
+        if (documents == 0) {
+            pool.release(buffer);
+            buffer = null;
+            return;
+        }
+        ByteBuffer message = buffer;
+        int count = documents;
+        buffer = null;
+        documents = 0;
+        message.flip();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            if (raw) {
+                RawBsonSupport.insert(coll.getDB(), message, coll.getWriteConcern());
+            } else {
+                insertDecoded(message);
+            }
+            failed = false;
+        } finally {
+            stats.record(count, System.nanoTime() - start, failed);
+            pool.release(message);
+        }
+        for (InsertListener listener : listeners) {
+            listener.onRawInsert(coll, count);
+        }
+    }
+
+    /**
+     * Método que envía los documentos completos pendientes. Un documento
+     * abierto, por ejemplo porque falló su codificación, se descarta.
+     */
+    @Override
+    public void close() {
+        if (documentStart >= 0) {
+            discardDocument();
+        }
+        flush();
+    }
+
+    public void addListener(InsertListener listener) {
+        listeners.add(listener);
+    }
+
+    public BulkInsertStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Vuelve al final del último documento completo.
+     */
+    private void discardDocument() {
+        buffer.limit(buffer.capacity());
+        buffer.position(documentStart);
+        writer.reset(buffer);
+        documentStart = -1;
+    }
+
+    private void checkNoOpenDocument() {
+        if (documentStart >= 0) {
+            throw new IllegalStateException("Hay un documento abierto");
+        }
+    }
+
+    private void open() {
+        buffer = pool.acquire();
+        buffer.putInt(0);
+        buffer.put(namespace);
+        buffer.put((byte) 0);
+        writer.reset(buffer);
+    }
+
+    /**
+     * Camino alternativo para bases de datos que no son del driver (como la
+     * base de datos en memoria de los benchmarks): se decodifican los
+     * documentos y se insertan con el API normal.
+     */
+    private void insertDecoded(ByteBuffer message) {
+        message.position(4 + namespace.length + 1);
+        ByteBuffer docs = message.slice().order(message.order());
+        if (decoder == null) {
+            decoder = new ByteDecoder(docs);
+        } else {
+            decoder.reset(docs);
+        }
+        List<DBObject> decoded = new ArrayList<>();
+        DBObject doc;
+        while ((doc = decoder.readObject()) != null) {
+            decoded.add(doc);
+        }
+        coll.insert(decoded);
+    }
+}
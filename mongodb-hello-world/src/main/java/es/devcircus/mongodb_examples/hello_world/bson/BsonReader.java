@@ -0,0 +1,346 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bson;
+
+import com.mongodb.ObjectId;
+import com.mongodb.RawBsonSupport;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Lector BSON directo sobre un {@link ByteBuffer}, la
+ * contrapartida de {@link BsonWriter}. Recorre los campos en orden sin crear
+ * ningún mapa: {@link #readType()} devuelve el tipo del siguiente campo (o
+ * {@link #END} al terminar el documento), {@link #matchName(byte[][])}
+ * compara su nombre con los esperados sin construir un {@code String}, y
+ * después se lee el valor o se salta con {@link #skipValue(byte)}.
+ *
+ * <pre>
+ * reader.startDocument();
+ * byte type;
+ * while ((type = reader.readType()) != BsonReader.END) {
+ *     switch (reader.matchName(NAMES)) { ... }
+ * }
+ * </pre>
+ */
+public class BsonReader {
+
+    public static final byte END = 0x00;
+    public static final byte DOUBLE = 0x01;
+    public static final byte STRING = 0x02;
+    public static final byte DOCUMENT = 0x03;
+    public static final byte ARRAY = 0x04;
+    public static final byte BINARY = 0x05;
+    public static final byte UNDEFINED = 0x06;
+    public static final byte OBJECT_ID = 0x07;
+    public static final byte BOOLEAN = 0x08;
+    public static final byte DATE = 0x09;
+    public static final byte NULL = 0x0A;
+    public static final byte REGEX = 0x0B;
+    public static final byte DB_POINTER = 0x0C;
+    public static final byte CODE = 0x0D;
+    public static final byte SYMBOL = 0x0E;
+    public static final byte CODE_W_SCOPE = 0x0F;
+    public static final byte INT32 = 0x10;
+    public static final byte TIMESTAMP = 0x11;
+    public static final byte INT64 = 0x12;
+    public static final byte MIN_KEY = (byte) 0xFF;
+    public static final byte MAX_KEY = 0x7F;
+    private static final int MAX_DEPTH = 32;
+
+    private final int[] ends = new int[MAX_DEPTH];
+    private ByteBuffer buffer;
+    private int depth;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param buffer Buffer de origen, posicionado al comienzo de un
+     * documento.
+     */
+    public BsonReader(ByteBuffer buffer) {
+        reset(buffer);
+    }
+
+    /**
+     * Método que pasa a leer de otro buffer, descartando cualquier documento
+     * a medias.
+     *
+     * @param buffer Buffer de origen.
+     */
+    public final void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.depth = 0;
+    }
+
+    /**
+     * Método que entra en un documento de primer nivel, o en el valor del
+     * subdocumento cuyo tipo y nombre se acaban de leer.
+     *
+     * @return El propio lector.
+     */
+    public BsonReader startDocument() {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("Anidamiento máximo superado: " + MAX_DEPTH);
+        }
+        int start = buffer.position();
+        ends[depth++] = start + buffer.getInt();
+        return this;
+    }
+
+    /**
+     * Método que lee el tipo del siguiente campo. Al llegar al final del
+     * documento devuelve {@link #END} y sale de él.
+     *
+     * @return Tipo BSON del campo.
+     */
+    public byte readType() {
+        if (depth == 0) {
+            throw new IllegalStateException("No hay ningún documento abierto");
+        }
+        byte type = buffer.get();
+        if (type == END) {
+            if (buffer.position() != ends[--depth]) {
+                throw new IllegalStateException("La longitud del documento no coincide con su contenido");
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Método que lee el nombre del campo y lo busca entre los esperados,
+     * comparando directamente los bytes UTF-8.
+     *
+     * @param names Nombres esperados, codificados en UTF-8.
+     * @return Posición del nombre en el array, o -1 si no es ninguno.
+     */
+    public int matchName(byte[][] names) {
+        int start = buffer.position();
+        int end = start;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        buffer.position(end + 1);
+        int length = end - start;
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i];
+            if (name.length != length) {
+                continue;
+            }
+            int j = 0;
+            while (j < length && buffer.get(start + j) == name[j]) {
+                j++;
+            }
+            if (j == length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Método que lee el nombre del campo como cadena.
+     *
+     * @return Nombre del campo.
+     */
+    public String readName() {
+        int start = buffer.position();
+        int end = start;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        String name = utf8(end - start);
+        buffer.get();
+        return name;
+    }
+
+    /**
+     * Método que lee un valor numérico como int, sea cual sea su tipo BSON.
+     *
+     * @param type Tipo leído con {@link #readType()}.
+     * @return Valor.
+     */
+    public int readInt(byte type) {
+        switch (type) {
+            case INT32:
+                return buffer.getInt();
+            case INT64:
+                return (int) buffer.getLong();
+            case DOUBLE:
+                return (int) buffer.getDouble();
+            default:
+                throw unexpected(type, "numérico");
+        }
+    }
+
+    public long readLong(byte type) {
+        switch (type) {
+            case INT32:
+                return buffer.getInt();
+            case INT64:
+            case DATE:
+                return buffer.getLong();
+            case DOUBLE:
+                return (long) buffer.getDouble();
+            default:
+                throw unexpected(type, "numérico");
+        }
+    }
+
+    public double readDouble(byte type) {
+        switch (type) {
+            case INT32:
+                return buffer.getInt();
+            case INT64:
+                return buffer.getLong();
+            case DOUBLE:
+                return buffer.getDouble();
+            default:
+                throw unexpected(type, "numérico");
+        }
+    }
+
+    public boolean readBoolean(byte type) {
+        if (type != BOOLEAN) {
+            throw unexpected(type, "booleano");
+        }
+        return buffer.get() != 0;
+    }
+
+    /**
+     * Método que lee una fecha como milisegundos desde la época.
+     *
+     * @param type Tipo leído con {@link #readType()}.
+     * @return Milisegundos desde la época.
+     */
+    public long readDate(byte type) {
+        if (type != DATE) {
+            throw unexpected(type, "fecha");
+        }
+        return buffer.getLong();
+    }
+
+    public String readString(byte type) {
+        if (type != STRING && type != SYMBOL && type != CODE) {
+            throw unexpected(type, "cadena");
+        }
+        int length = buffer.getInt() - 1;
+        String value = utf8(length);
+        buffer.get();
+        return value;
+    }
+
+    public ObjectId readObjectId(byte type) {
+        if (type != OBJECT_ID) {
+            throw unexpected(type, "ObjectId");
+        }
+        return RawBsonSupport.getObjectId(buffer);
+    }
+
+    /**
+     * Método que salta el valor del campo actual.
+     *
+     * @param type Tipo leído con {@link #readType()}.
+     */
+    public void skipValue(byte type) {
+        switch (type) {
+            case UNDEFINED:
+            case NULL:
+            case MIN_KEY:
+            case MAX_KEY:
+                break;
+            case BOOLEAN:
+                skip(1);
+                break;
+            case INT32:
+                skip(4);
+                break;
+            case DOUBLE:
+            case DATE:
+            case TIMESTAMP:
+            case INT64:
+                skip(8);
+                break;
+            case OBJECT_ID:
+                skip(12);
+                break;
+            case STRING:
+            case CODE:
+            case SYMBOL:
+                skip(buffer.getInt());
+                break;
+            case DOCUMENT:
+            case ARRAY:
+            case CODE_W_SCOPE:
+                skip(buffer.getInt(buffer.position()));
+                break;
+            case BINARY:
+                skip(buffer.getInt() + 1);
+                break;
+            case REGEX:
+                skipCString();
+                skipCString();
+                break;
+            case DB_POINTER:
+                skip(buffer.getInt());
+                skip(12);
+                break;
+            default:
+                throw new IllegalStateException("Tipo BSON desconocido: " + type);
+        }
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    private void skip(int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    private void skipCString() {
+        while (buffer.get() != 0) {
+            // hasta el terminador
+        }
+    }
+
+    private String utf8(int length) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            skip(length);
+            return new String(buffer.array(), offset, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static IllegalStateException unexpected(byte type, String expected) {
+        return new IllegalStateException("Se esperaba un valor " + expected + " y el tipo BSON es " + type);
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bson;
+
+import com.mongodb.ObjectId;
+import com.mongodb.RawBsonSupport;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Codificador BSON directo sobre un {@link ByteBuffer}. Los
+ * valores primitivos se escriben sin pasar por objetos envoltorio y los
+ * nombres y cadenas se codifican en UTF-8 carácter a carácter, así que
+ * escribir un documento no reserva memoria. Los documentos anidados se
+ * abren con {@link #startDocument(String)} y se cierran con
+ * {@link #endDocument()}; la longitud se rellena al cerrarlos. Un documento
+ * que no cabe entre la posición y el límite del buffer se rechaza con una
+ * {@link IllegalArgumentException} y queda a medias; quien lo escribe debe
+ * descartarlo.
+ */
+public class BsonWriter {
+
+    private static final byte DOUBLE = 0x01;
+    private static final byte STRING = 0x02;
+    private static final byte DOCUMENT = 0x03;
+    private static final byte OBJECT_ID = 0x07;
+    private static final byte BOOLEAN = 0x08;
+    private static final byte DATE = 0x09;
+    private static final byte NULL = 0x0A;
+    private static final byte INT32 = 0x10;
+    private static final byte INT64 = 0x12;
+    private static final int MAX_DEPTH = 32;
+
+    private final int[] starts = new int[MAX_DEPTH];
+    private ByteBuffer buffer;
+    private int depth;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param buffer Buffer de destino.
+     */
+    public BsonWriter(ByteBuffer buffer) {
+        reset(buffer);
+    }
+
+    /**
+     * Método que pasa a escribir sobre otro buffer, descartando cualquier
+     * documento a medias.
+     *
+     * @param buffer Buffer de destino.
+     */
+    public final void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.depth = 0;
+    }
+
+    /**
+     * Método que abre un documento de primer nivel.
+     *
+     * @return El propio escritor.
+     */
+    public BsonWriter startDocument() {
+        push();
+        return this;
+    }
+
+    /**
+     * Método que abre un subdocumento.
+     *
+     * @param name Nombre del campo.
+     * @return El propio escritor.
+     */
+    public BsonWriter startDocument(String name) {
+        header(DOCUMENT, name);
+        push();
+        return this;
+    }
+
+    /**
+     * Método que cierra el documento abierto más reciente.
+     *
+     * @return El propio escritor.
+     */
+    public BsonWriter endDocument() {
+        if (depth == 0) {
+            throw new IllegalStateException("No hay ningún documento abierto");
+        }
+        need(1);
+        buffer.put((byte) 0);
+        int start = starts[--depth];
+        buffer.putInt(start, buffer.position() - start);
+        return this;
+    }
+
+    public BsonWriter putInt(String name, int value) {
+        header(INT32, name);
+        need(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    public BsonWriter putLong(String name, long value) {
+        header(INT64, name);
+        need(8);
+        buffer.putLong(value);
+        return this;
+    }
+
+    public BsonWriter putDouble(String name, double value) {
+        header(DOUBLE, name);
+        need(8);
+        buffer.putDouble(value);
+        return this;
+    }
+
+    public BsonWriter putBoolean(String name, boolean value) {
+        header(BOOLEAN, name);
+        need(1);
+        buffer.put(value ? (byte) 1 : (byte) 0);
+        return this;
+    }
+
+    /**
+     * Método que escribe una fecha como milisegundos desde la época.
+     *
+     * @param name Nombre del campo.
+     * @param millis Milisegundos desde la época.
+     * @return El propio escritor.
+     */
+    public BsonWriter putDate(String name, long millis) {
+        header(DATE, name);
+        need(8);
+        buffer.putLong(millis);
+        return this;
+    }
+
+    public BsonWriter putNull(String name) {
+        header(NULL, name);
+        return this;
+    }
+
+    public BsonWriter putString(String name, CharSequence value) {
+        if (value == null) {
+            return putNull(name);
+        }
+        header(STRING, name);
+        need(4);
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+        int start = buffer.position();
+        putUtf8(value);
+        need(1);
+        buffer.put((byte) 0);
+        buffer.putInt(lengthPosition, buffer.position() - start);
+        return this;
+    }
+
+    /**
+     * Método que escribe un ObjectId. Si no se escribe ningún _id, lo asigna
+     * el servidor al insertar.
+     *
+     * @param name Nombre del campo.
+     * @param id Identificador.
+     * @return El propio escritor.
+     */
+    public BsonWriter putObjectId(String name, ObjectId id) {
+        header(OBJECT_ID, name);
+        need(12);
+        RawBsonSupport.putObjectId(buffer, id);
+        return this;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    private void push() {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("Anidamiento máximo superado: " + MAX_DEPTH);
+        }
+        need(4);
+        starts[depth++] = buffer.position();
+        buffer.putInt(0);
+    }
+
+    private void header(byte type, String name) {
+        if (depth == 0) {
+            throw new IllegalStateException("No hay ningún documento abierto");
+        }
+        need(1);
+        buffer.put(type);
+        putUtf8(name);
+        need(1);
+        buffer.put((byte) 0);
+    }
+
+    private void need(int bytes) {
+        if (buffer.remaining() < bytes) {
+            throw new IllegalArgumentException("El documento supera el espacio disponible en el buffer");
+        }
+    }
+
+    private void putUtf8(CharSequence s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                need(1);
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                need(2);
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                need(4);
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                need(3);
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bson;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Pool de buffers de tamaño fijo para codificar BSON. Los
+ * buffers se reservan una vez al crear el pool y se reutilizan, de forma que
+ * el camino de inserción no genera basura por documento.
+ */
+public class BufferPool {
+
+    private final BlockingQueue<ByteBuffer> free;
+    private final int bufferSize;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param buffers Número de buffers del pool.
+     * @param bufferSize Tamaño de cada buffer en bytes.
+     * @param direct Si es true se reservan buffers directos, que el driver
+     * escribe en el socket sin copia intermedia.
+     */
+    public BufferPool(int buffers, int bufferSize, boolean direct) {
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.bufferSize = bufferSize;
+        for (int i = 0; i < buffers; i++) {
+            free.add(direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize));
+        }
+    }
+
+    /**
+     * Método que toma un buffer del pool, esperando si no hay ninguno libre.
+     *
+     * @return Buffer vacío, en orden little-endian.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer;
+        try {
+            buffer = free.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando un buffer", ex);
+        }
+        buffer.clear();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Método que devuelve un buffer al pool.
+     *
+     * @param buffer Buffer obtenido con {@link #acquire()}.
+     */
+    public void release(ByteBuffer buffer) {
+        free.offer(buffer);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int available() {
+        return free.size();
+    }
+}
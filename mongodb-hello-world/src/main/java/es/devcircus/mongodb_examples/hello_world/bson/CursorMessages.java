@@ -0,0 +1,218 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bson;
+
+import com.mongodb.Bytes;
+import com.mongodb.DB;
+import com.mongodb.MongoException;
+import com.mongodb.RawBsonSupport;
+import es.devcircus.mongodb_examples.hello_world.metrics.InstrumentedDB;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Mensajes de cursor del protocolo de cable: OP_QUERY,
+ * OP_GET_MORE y OP_KILL_CURSORS, codificados a mano y enviados por la
+ * conexión del driver a través de {@link RawBsonSupport}, junto con la
+ * lectura de la cabecera de OP_REPLY. Los cursores que leen las respuestas
+ * sin pasar por el cursor del driver (entidades, agregaciones) comparten
+ * este código. Las bases de datos instrumentadas se desenvuelven antes de
+ * enviar nada; con cualquier otra base de datos que no sea del driver no se
+ * puede emplear.
+ */
+public final class CursorMessages {
+
+    /**
+     * Tamaño del buffer de respuestas, el mismo que emplea el driver.
+     */
+    public static final int RESPONSE_BYTES = 8 * 1024 * 1024 + 1024;
+    private static final int CURSOR_NOT_FOUND = 1;
+    private static final int QUERY_FAILURE = 2;
+    private static final ThreadLocal<ByteBuffer> RESPONSES = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocate(RESPONSE_BYTES).order(ByteOrder.LITTLE_ENDIAN));
+
+    private CursorMessages() {
+    }
+
+    /**
+     * Método que indica si se pueden enviar mensajes de cursor a una base de
+     * datos, es decir, si es una base de datos del driver, directamente o
+     * bajo una instrumentada.
+     *
+     * @param db Base de datos.
+     * @return true si se pueden emplear los métodos de esta clase.
+     */
+    public static boolean isSupported(DB db) {
+        return RawBsonSupport.supportsRawMessages(driverDB(db));
+    }
+
+    /**
+     * Método que devuelve la base de datos del driver que hay bajo una
+     * instrumentada.
+     *
+     * @param db Base de datos, instrumentada o no.
+     * @return Base de datos sin instrumentar.
+     */
+    public static DB driverDB(DB db) {
+        while (db instanceof InstrumentedDB) {
+            db = ((InstrumentedDB) db).getDelegate();
+        }
+        return db;
+    }
+
+    /**
+     * Método que envía una consulta OP_QUERY.
+     *
+     * @param db Base de datos.
+     * @param namespace Espacio de nombres en UTF-8, sin el cero final.
+     * @param numToReturn Tamaño del primer lote; negativo para un único lote.
+     * @param query Consulta en BSON.
+     * @param fields Proyección en BSON, o null.
+     * @return Respuesta, válida hasta el siguiente mensaje del hilo.
+     * @throws MongoException Si el servidor devuelve un error.
+     */
+    public static Reply query(DB db, byte[] namespace, int numToReturn, byte[] query, byte[] fields)
+            throws MongoException {
+        ByteBuffer message = ByteBuffer.allocate(4 + namespace.length + 1 + 8 + query.length
+                + (fields == null ? 0 : fields.length)).order(ByteOrder.LITTLE_ENDIAN);
+        message.putInt(0);
+        message.put(namespace);
+        message.put((byte) 0);
+        message.putInt(0);
+        message.putInt(numToReturn);
+        message.put(query);
+        if (fields != null) {
+            message.put(fields);
+        }
+        message.flip();
+        ByteBuffer response = RESPONSES.get();
+        RawBsonSupport.query(driverDB(db), message, response);
+        return read(response);
+    }
+
+    /**
+     * Método que pide el siguiente lote de un cursor con OP_GET_MORE.
+     *
+     * @param db Base de datos.
+     * @param namespace Espacio de nombres en UTF-8, sin el cero final.
+     * @param batchSize Tamaño del lote; 0 para el del servidor.
+     * @param cursorId Id del cursor.
+     * @return Respuesta, válida hasta el siguiente mensaje del hilo.
+     * @throws MongoException Si el cursor ya no existe o el servidor
+     * devuelve un error.
+     */
+    public static Reply getMore(DB db, byte[] namespace, int batchSize, long cursorId) throws MongoException {
+        ByteBuffer message = ByteBuffer.allocate(4 + namespace.length + 1 + 4 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        message.putInt(0);
+        message.put(namespace);
+        message.put((byte) 0);
+        message.putInt(batchSize);
+        message.putLong(cursorId);
+        message.flip();
+        ByteBuffer response = RESPONSES.get();
+        RawBsonSupport.getMore(driverDB(db), message, response);
+        return read(response);
+    }
+
+    /**
+     * Método que cierra un cursor del servidor con OP_KILL_CURSORS.
+     *
+     * @param db Base de datos.
+     * @param cursorId Id del cursor.
+     */
+    public static void killCursor(DB db, long cursorId) {
+        ByteBuffer message = ByteBuffer.allocate(4 + 4 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        message.putInt(0);
+        message.putInt(1);
+        message.putLong(cursorId);
+        message.flip();
+        RawBsonSupport.killCursors(driverDB(db), message);
+    }
+
+    /**
+     * Lee la cabecera de OP_REPLY y deja el buffer al principio de los
+     * documentos.
+     */
+    private static Reply read(ByteBuffer response) throws MongoException {
+        int flags = response.getInt();
+        long id = response.getLong();
+        response.getInt();
+        int count = response.getInt();
+        if ((flags & CURSOR_NOT_FOUND) != 0) {
+            throw new MongoException("El cursor ya no existe en el servidor");
+        }
+        if ((flags & QUERY_FAILURE) != 0 || count == 1 && isError(response)) {
+            byte[] error = new byte[response.getInt(response.position())];
+            response.get(error);
+            throw new MongoException("db error [" + Bytes.decode(error).get("$err") + "]");
+        }
+        return new Reply(id, count, response);
+    }
+
+    /**
+     * Indica si el único documento de la respuesta es un error, como hacían
+     * los servidores antiguos sin el flag QueryFailure.
+     */
+    private static boolean isError(ByteBuffer response) {
+        int p = response.position() + 4;
+        return response.get(p) != 0 && response.get(p + 1) == '$' && response.get(p + 2) == 'e'
+                && response.get(p + 3) == 'r' && response.get(p + 4) == 'r' && response.get(p + 5) == 0;
+    }
+
+    /**
+     * Respuesta OP_REPLY sin decodificar. Los documentos están en el buffer
+     * de respuestas del hilo, así que hay que consumirlos o copiarlos antes
+     * de enviar el siguiente mensaje.
+     */
+    public static final class Reply {
+
+        private final long cursorId;
+        private final int count;
+        private final ByteBuffer documents;
+
+        private Reply(long cursorId, int count, ByteBuffer documents) {
+            this.cursorId = cursorId;
+            this.count = count;
+            this.documents = documents;
+        }
+
+        /**
+         * Método que devuelve el id del cursor; 0 si ya no quedan lotes.
+         *
+         * @return Id del cursor.
+         */
+        public long getCursorId() {
+            return cursorId;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Método que devuelve los documentos, uno detrás de otro, en un
+         * buffer little-endian preparado para lectura.
+         *
+         * @return Documentos en BSON.
+         */
+        public ByteBuffer getDocuments() {
+            return documents;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bulk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Estadísticas acumuladas de un {@link BulkInserter}: documentos
+ * por segundo y latencia de los lotes enviados.
+ */
+public class BulkInsertStats {
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Método que registra el resultado del envío de un lote.
+     *
+     * @param size Número de documentos del lote.
+     * @param latencyNanos Tiempo que ha tardado el envío.
+     * @param failed Indica si el envío ha fallado.
+     */
+    public void record(int size, long latencyNanos, boolean failed) {
+        if (failed) {
+            failedBatches.incrementAndGet();
+            return;
+        }
+        documents.addAndGet(size);
+        batches.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+        long max = maxLatencyNanos.get();
+        while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+            max = maxLatencyNanos.get();
+        }
+    }
+
+    public long getDocuments() {
+        return documents.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * Método que calcula el número de documentos insertados por segundo desde
+     * la creación del insertador.
+     *
+     * @return Documentos por segundo.
+     */
+    public double getDocumentsPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed == 0 ? 0 : documents.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * Método que calcula la latencia media de los lotes enviados.
+     *
+     * @return Latencia media en milisegundos.
+     */
+    public double getAverageBatchLatencyMillis() {
+        long count = batches.get();
+        return count == 0 ? 0 : totalLatencyNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Método que devuelve la mayor latencia observada en un lote.
+     *
+     * @return Latencia máxima en milisegundos.
+     */
+    public double getMaxBatchLatencyMillis() {
+        return maxLatencyNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d docs en %d lotes (%d fallidos), %.1f docs/s, latencia media %.2f ms, máxima %.2f ms",
+                getDocuments(), getBatches(), getFailedBatches(), getDocumentsPerSecond(),
+                getAverageBatchLatencyMillis(), getMaxBatchLatencyMillis());
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bulk;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Insertador por lotes. Acumula documentos en lotes acotados por
+ * número de documentos y por tamaño en bytes, y envía cada lote con una única
+ * llamada a {@link DBCollection#insert(java.util.List)}, de forma que el coste
+ * de ida y vuelta a la red se paga una vez por lote y no una vez por
+ * documento. Se permite tener varios lotes en vuelo a la vez; en ese caso no
+ * se garantiza el orden de inserción entre lotes distintos.
+ */
+public class BulkInserter implements Closeable {
+
+    public static final int DEFAULT_MAX_BATCH_DOCUMENTS = 1000;
+    public static final int DEFAULT_MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+
+    private final DBCollection collection;
+    private final int maxBatchDocuments;
+    private final int maxBatchBytes;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+    private final BulkInsertStats stats = new BulkInsertStats();
+    private final List<InsertListener> listeners = new CopyOnWriteArrayList<>();
+    private List<DBObject> batch;
+    private int batchBytes;
+    private volatile MongoException failure;
+    private boolean closed;
+
+    /**
+     * Constructor de la clase con los valores por defecto.
+     *
+     * @param collection Colección en la que se insertan los documentos.
+     */
+    public BulkInserter(DBCollection collection) {
+        this(collection, DEFAULT_MAX_BATCH_DOCUMENTS, DEFAULT_MAX_BATCH_BYTES, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param collection Colección en la que se insertan los documentos.
+     * @param maxBatchDocuments Número máximo de documentos por lote.
+     * @param maxBatchBytes Tamaño máximo (estimado) de un lote en bytes.
+     * @param maxInFlight Número máximo de lotes enviándose a la vez.
+     */
+    public BulkInserter(DBCollection collection, int maxBatchDocuments, int maxBatchBytes, int maxInFlight) {
+        if (maxBatchDocuments < 1 || maxBatchBytes < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Los límites del insertador deben ser positivos");
+        }
+        this.collection = collection;
+        this.maxBatchDocuments = maxBatchDocuments;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = Executors.newFixedThreadPool(maxInFlight,
+                new DaemonThreadFactory("bulk-inserter-" + collection.getName()));
+        this.batch = new ArrayList<>(maxBatchDocuments);
+    }
+
+    /**
+     * Método que añade un documento al lote actual. Si el lote alcanza alguno
+     * de sus límites se envía. Si ya hay {@code maxInFlight} lotes en vuelo,
+     * la llamada se bloquea hasta que termine alguno.
+     *
+     * @param doc Documento a insertar.
+     * @throws MongoException Si ha fallado el envío de algún lote anterior.
+     */
+    public synchronized void add(DBObject doc) {
+        checkState();
+        int size = DocumentSizeEstimator.estimate(doc);
+        if (!batch.isEmpty() && batchBytes + size > maxBatchBytes) {
+            dispatch();
+        }
+        batch.add(doc);
+        batchBytes += size;
+        if (batch.size() >= maxBatchDocuments || batchBytes >= maxBatchBytes) {
+            dispatch();
+        }
+    }
+
+    /**
+     * Método que añade todos los documentos indicados.
+     *
+     * @param docs Documentos a insertar.
+     */
+    public void addAll(Iterable<? extends DBObject> docs) {
+        for (DBObject doc : docs) {
+            add(doc);
+        }
+    }
+
+    /**
+     * Método que envía el lote pendiente y espera a que terminen todos los
+     * lotes en vuelo.
+     *
+     * @throws MongoException Si ha fallado el envío de algún lote.
+     */
+    public synchronized void flush() {
+        checkState();
+        if (!batch.isEmpty()) {
+            dispatch();
+        }
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+        rethrowFailure();
+    }
+
+    /**
+     * Método que envía lo pendiente y libera los hilos del insertador.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Método que registra un observador al que se avisa tras cada lote
+     * insertado con éxito.
+     *
+     * @param listener Observador.
+     */
+    public void addListener(InsertListener listener) {
+        listeners.add(listener);
+    }
+
+    public BulkInsertStats getStats() {
+        return stats;
+    }
+
+    public DBCollection getCollection() {
+        return collection;
+    }
+
+    private void dispatch() {
+        final List<DBObject> toSend = batch;
+        batch = new ArrayList<>(maxBatchDocuments);
+        batchBytes = 0;
+        inFlight.acquireUninterruptibly();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    send(toSend);
+                }
+            });
+        } catch (RuntimeException ex) {
+            inFlight.release();
+            throw ex;
+        }
+    }
+
+    private void send(List<DBObject> docs) {
+        long start = System.nanoTime();
+        try {
+            collection.insert(docs);
+            stats.record(docs.size(), System.nanoTime() - start, false);
+            notifyListeners(docs);
+        } catch (RuntimeException ex) {
+            stats.record(docs.size(), System.nanoTime() - start, true);
+            Logger.getLogger(BulkInserter.class.getName()).log(Level.SEVERE, null, ex);
+            if (failure == null) {
+                failure = ex instanceof MongoException
+                        ? (MongoException) ex
+                        : new MongoException("Error insertando un lote de " + docs.size() + " documentos", ex);
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void notifyListeners(List<DBObject> docs) {
+        for (InsertListener listener : listeners) {
+            try {
+                listener.onInsert(collection, docs);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(BulkInserter.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    private void checkState() {
+        if (closed) {
+            throw new IllegalStateException("El insertador está cerrado");
+        }
+        rethrowFailure();
+    }
+
+    private void rethrowFailure() {
+        MongoException ex = failure;
+        if (ex != null) {
+            failure = null;
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bulk;
+
+import com.mongodb.DBBinary;
+import com.mongodb.DBObject;
+import com.mongodb.ObjectId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Estimación barata del tamaño BSON de un documento. Evita tener
+ * que serializar cada documento dos veces (una para medirlo y otra para
+ * enviarlo) cuando sólo necesitamos acotar el tamaño de un lote.
+ */
+public final class DocumentSizeEstimator {
+
+    /**
+     * Tamaño fijo de un documento vacío: longitud (int32) + terminador.
+     */
+    private static final int DOCUMENT_OVERHEAD = 5;
+    /**
+     * Tamaño que asumimos para tipos que no sabemos medir.
+     */
+    private static final int UNKNOWN_VALUE_SIZE = 16;
+
+    private DocumentSizeEstimator() {
+    }
+
+    /**
+     * Método que estima el número de bytes que ocupará el documento una vez
+     * codificado en BSON.
+     *
+     * @param doc Documento a medir.
+     * @return Tamaño estimado en bytes.
+     */
+    public static int estimate(DBObject doc) {
+        int size = DOCUMENT_OVERHEAD;
+        for (String key : doc.keySet()) {
+            size += elementSize(key, doc.get(key));
+        }
+        return size;
+    }
+
+    private static int elementSize(String key, Object value) {
+        // tipo (1 byte) + nombre del campo como cstring
+        return 1 + key.length() + 1 + valueSize(value);
+    }
+
+    private static int valueSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return value == null ? 0 : 1;
+        }
+        if (value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            return 4;
+        }
+        if (value instanceof Number || value instanceof Date) {
+            return 8;
+        }
+        if (value instanceof String) {
+            // int32 + bytes (asumimos ASCII) + terminador
+            return 4 + ((String) value).length() + 1;
+        }
+        if (value instanceof ObjectId) {
+            return 12;
+        }
+        if (value instanceof byte[]) {
+            return 4 + 1 + ((byte[]) value).length;
+        }
+        if (value instanceof DBBinary) {
+            return 4 + 1 + ((DBBinary) value).getData().length;
+        }
+        if (value instanceof DBObject) {
+            return estimate((DBObject) value);
+        }
+        if (value instanceof List) {
+            int size = DOCUMENT_OVERHEAD;
+            int index = 0;
+            for (Object item : (List<?>) value) {
+                size += elementSize(Integer.toString(index++), item);
+            }
+            return size;
+        }
+        if (value instanceof Map) {
+            int size = DOCUMENT_OVERHEAD;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += elementSize(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            return size;
+        }
+        return UNKNOWN_VALUE_SIZE;
+    }
+}
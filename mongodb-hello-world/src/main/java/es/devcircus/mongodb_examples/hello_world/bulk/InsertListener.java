@@ -0,0 +1,49 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.bulk;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Observador de las inserciones que pasan por los caminos de
+ * escritura del proyecto. Permite, por ejemplo, invalidar cachés o ajustar
+ * contadores sin volver a consultar al servidor.
+ */
+public interface InsertListener {
+
+    /**
+     * Método al que se llama después de insertar con éxito un grupo de
+     * documentos.
+     *
+     * @param coll Colección en la que se ha insertado.
+     * @param docs Documentos insertados. No se deben modificar.
+     */
+    void onInsert(DBCollection coll, List<DBObject> docs);
+
+    /**
+     * Método al que se llama después de insertar con éxito documentos que ya
+     * venían codificados en BSON y de los que sólo se conoce el número.
+     *
+     * @param coll Colección en la que se ha insertado.
+     * @param count Número de documentos insertados.
+     */
+    void onRawInsert(DBCollection coll, int count);
+}
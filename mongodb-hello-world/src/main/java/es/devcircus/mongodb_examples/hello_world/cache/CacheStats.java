@@ -0,0 +1,100 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Contadores de una {@link QueryCache}.
+ */
+public class CacheStats {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    void eviction() {
+        evictions.incrementAndGet();
+    }
+
+    void expiration() {
+        expirations.incrementAndGet();
+    }
+
+    void invalidation() {
+        invalidations.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Entradas expulsadas por falta de espacio (LRU).
+     *
+     * @return Número de expulsiones.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Entradas descartadas por haber superado su tiempo de vida.
+     *
+     * @return Número de caducidades.
+     */
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    /**
+     * Invalidaciones de colección provocadas por escrituras.
+     *
+     * @return Número de invalidaciones.
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public double getHitRatio() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : getHits() / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d aciertos, %d fallos (%.1f%%), %d expulsiones, %d caducadas, %d invalidaciones",
+                getHits(), getMisses(), getHitRatio() * 100, getEvictions(), getExpirations(),
+                getInvalidations());
+    }
+}
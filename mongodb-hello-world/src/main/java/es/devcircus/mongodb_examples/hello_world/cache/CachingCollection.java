@@ -0,0 +1,215 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cache;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Fachada de lectura con caché delante de una colección. Está
+ * pensada para búsquedas pequeñas y repetidas, como {"i": 7}: los resultados
+ * de más de {@code maxResultDocuments} documentos se devuelven pero no se
+ * guardan. La caché guarda su propia copia de cada resultado y entrega copias,
+ * de forma que quien modifique un documento devuelto no altera lo que reciben
+ * las siguientes llamadas. Las inserciones hechas a través de esta fachada
+ * invalidan la caché de la colección.
+ */
+public class CachingCollection {
+
+    public static final int DEFAULT_MAX_RESULT_DOCUMENTS = 100;
+
+    /**
+     * Marca para poder cachear un findOne sin resultado.
+     */
+    private static final Object NOT_FOUND = new Object();
+
+    private final DBCollection coll;
+    private final QueryCache cache;
+    private final int maxResultDocuments;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección.
+     * @param cache Caché, que puede compartirse entre colecciones.
+     */
+    public CachingCollection(DBCollection coll, QueryCache cache) {
+        this(coll, cache, DEFAULT_MAX_RESULT_DOCUMENTS);
+    }
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección.
+     * @param cache Caché, que puede compartirse entre colecciones.
+     * @param maxResultDocuments Tamaño máximo de un resultado cacheable.
+     */
+    public CachingCollection(DBCollection coll, QueryCache cache, int maxResultDocuments) {
+        this.coll = coll;
+        this.cache = cache;
+        this.maxResultDocuments = maxResultDocuments;
+    }
+
+    public DBObject findOne() {
+        return findOne(new BasicDBObject(), null);
+    }
+
+    public DBObject findOne(DBObject query) {
+        return findOne(query, null);
+    }
+
+    /**
+     * Método equivalente a {@link DBCollection#findOne(DBObject, DBObject)}.
+     *
+     * @param query Consulta.
+     * @param projection Proyección, o null.
+     * @return Documento o null si no hay ninguno.
+     */
+    public DBObject findOne(DBObject query, DBObject projection) {
+        String key = QueryKey.of("findOne", query, projection);
+        Object cached = cache.get(coll, key);
+        if (cached != null) {
+            return cached == NOT_FOUND ? null : copy((DBObject) cached);
+        }
+        long generation = cache.currentGeneration(coll);
+        DBObject doc = coll.findOne(query, projection);
+        cache.put(coll, key, generation, doc == null ? NOT_FOUND : copy(doc));
+        return doc;
+    }
+
+    public List<DBObject> find(DBObject query) {
+        return find(query, null);
+    }
+
+    /**
+     * Método que devuelve todos los documentos que cumplen la consulta.
+     *
+     * @param query Consulta.
+     * @param projection Proyección, o null.
+     * @return Documentos encontrados.
+     */
+    @SuppressWarnings("unchecked")
+    public List<DBObject> find(DBObject query, DBObject projection) {
+        String key = QueryKey.of("find", query, projection);
+        Object cached = cache.get(coll, key);
+        if (cached != null) {
+            return copy((List<DBObject>) cached);
+        }
+        long generation = cache.currentGeneration(coll);
+        List<DBObject> result = new ArrayList<>();
+        DBCursor cur = coll.find(query, projection);
+        while (cur.hasNext()) {
+            result.add(cur.next());
+        }
+        if (result.size() <= maxResultDocuments) {
+            cache.put(coll, key, generation, Collections.unmodifiableList(copy(result)));
+        }
+        return result;
+    }
+
+    /**
+     * Método que inserta documentos e invalida la caché de la colección.
+     *
+     * @param docs Documentos a insertar.
+     */
+    public void insert(DBObject... docs) {
+        insert(Arrays.asList(docs));
+    }
+
+    /**
+     * Método que inserta documentos e invalida la caché de la colección.
+     *
+     * @param docs Documentos a insertar.
+     */
+    public void insert(List<DBObject> docs) {
+        try {
+            coll.insert(docs);
+        } finally {
+            cache.onInsert(coll, docs);
+        }
+    }
+
+    public DBCollection getCollection() {
+        return coll;
+    }
+
+    public QueryCache getCache() {
+        return cache;
+    }
+
+    private static List<DBObject> copy(List<DBObject> docs) {
+        List<DBObject> result = new ArrayList<>(docs.size());
+        for (DBObject doc : docs) {
+            result.add(copy(doc));
+        }
+        return result;
+    }
+
+    /**
+     * Copia profunda de un documento: los valores inmutables (cadenas,
+     * números, ObjectId, Pattern...) se comparten.
+     */
+    private static DBObject copy(DBObject doc) {
+        return (DBObject) copyValue(doc);
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof List) {
+            BasicDBList list = new BasicDBList();
+            for (Object item : (List<?>) value) {
+                list.add(copyValue(item));
+            }
+            return list;
+        }
+        if (value instanceof DBObject) {
+            DBObject source = (DBObject) value;
+            BasicDBObject result = new BasicDBObject();
+            for (String field : source.keySet()) {
+                result.put(field, copyValue(source.get(field)));
+            }
+            if (source.isPartialObject()) {
+                result.markAsPartialObject();
+            }
+            return result;
+        }
+        if (value instanceof Map) {
+            BasicDBObject result = new BasicDBObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                result.put(String.valueOf(entry.getKey()), copyValue(entry.getValue()));
+            }
+            return result;
+        }
+        if (value instanceof Date) {
+            return new Date(((Date) value).getTime());
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cache;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.bulk.InsertListener;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Caché de contadores por colección, modo y consulta. Sólo la
+ * primera petición de cada contador va al servidor; las siguientes se sirven
+ * de memoria. Un hilo en segundo plano recarga los contadores cada cierto
+ * intervalo, y las inserciones que pasan por los caminos de escritura del
+ * proyecto los ajustan al momento: las cuentas de toda la colección suman los
+ * documentos insertados y las filtradas se recargan en segundo plano, porque
+ * no se sabe si los documentos cumplen la consulta. Si un contador no se ha
+ * podido recargar dentro de la antigüedad máxima, la siguiente petición lo
+ * recarga antes de responder. Los contadores que nadie consulta durante
+ * {@value #IDLE_INTERVALS} intervalos se descartan.
+ */
+public class CountCache implements InsertListener {
+
+    private static final Logger LOGGER = Logger.getLogger(CountCache.class.getName());
+    private static final int IDLE_INTERVALS = 10;
+
+    private final long refreshNanos;
+    private final long maxStalenessNanos;
+    private final CacheStats stats = new CacheStats();
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> collections = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param refreshInterval Intervalo entre recargas en segundo plano.
+     * @param maxStaleness Antigüedad máxima de un contador respecto a su
+     * última carga desde el servidor. No puede ser menor que el intervalo de
+     * recarga.
+     * @param unit Unidad de los dos tiempos.
+     */
+    public CountCache(long refreshInterval, long maxStaleness, TimeUnit unit) {
+        if (refreshInterval <= 0 || maxStaleness < refreshInterval) {
+            throw new IllegalArgumentException("Intervalos no válidos: recarga " + refreshInterval
+                    + ", antigüedad máxima " + maxStaleness);
+        }
+        this.refreshNanos = unit.toNanos(refreshInterval);
+        this.maxStalenessNanos = unit.toNanos(maxStaleness);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("mongo-counts"));
+        this.refresher.scheduleWithFixedDelay(this::refreshAll, refreshInterval, refreshInterval, unit);
+    }
+
+    /**
+     * Método que devuelve el número de documentos de una colección.
+     *
+     * @param coll Colección.
+     * @param mode {@link CountMode#EXACT} o {@link CountMode#ESTIMATED}.
+     * @return Número de documentos.
+     */
+    public long count(DBCollection coll, CountMode mode) {
+        if (mode == CountMode.FILTERED) {
+            throw new IllegalArgumentException("El modo FILTERED necesita una consulta");
+        }
+        return count(coll, mode, null);
+    }
+
+    /**
+     * Método que devuelve el número de documentos que cumplen una consulta.
+     *
+     * @param coll Colección.
+     * @param query Consulta.
+     * @return Número de documentos.
+     */
+    public long count(DBCollection coll, DBObject query) {
+        if (query == null) {
+            throw new IllegalArgumentException("El modo FILTERED necesita una consulta");
+        }
+        return count(coll, CountMode.FILTERED, query);
+    }
+
+    /**
+     * Método que invalida los contadores de una colección, por ejemplo
+     * después de borrar documentos por un camino que la caché no observa.
+     *
+     * @param coll Colección modificada.
+     */
+    public void invalidate(DBCollection coll) {
+        collections.remove(coll.getFullName());
+        stats.invalidation();
+    }
+
+    /**
+     * Método que detiene las recargas en segundo plano.
+     */
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    @Override
+    public void onInsert(DBCollection coll, List<DBObject> docs) {
+        adjust(coll, docs.size());
+    }
+
+    @Override
+    public void onRawInsert(DBCollection coll, int count) {
+        adjust(coll, count);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, Entry> entries : collections.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    private long count(DBCollection coll, CountMode mode, DBObject query) {
+        ConcurrentMap<String, Entry> entries = collections.computeIfAbsent(coll.getFullName(),
+                ns -> new ConcurrentHashMap<>());
+        Entry entry = entries.computeIfAbsent(QueryKey.of(mode.name(), query, null),
+                key -> new Entry(coll, mode, query == null ? null : new BasicDBObject(query.toMap())));
+        long now = System.nanoTime();
+        entry.lastReadNanos = now;
+        if (!entry.isLoaded()) {
+            stats.miss();
+            entry.load();
+        } else if (now - entry.loadedNanos > maxStalenessNanos) {
+            stats.expiration();
+            entry.load();
+        } else {
+            stats.hit();
+        }
+        return entry.get();
+    }
+
+    private void adjust(DBCollection coll, int count) {
+        Map<String, Entry> entries = collections.get(coll.getFullName());
+        if (entries == null) {
+            return;
+        }
+        for (Entry entry : entries.values()) {
+            if (entry.mode == CountMode.FILTERED) {
+                scheduleLoad(entry);
+            } else {
+                entry.delta.addAndGet(count);
+            }
+        }
+    }
+
+    private void scheduleLoad(Entry entry) {
+        if (entry.pending.compareAndSet(false, true)) {
+            try {
+                refresher.execute(() -> {
+                    entry.pending.set(false);
+                    load(entry);
+                });
+            } catch (RejectedExecutionException ex) {
+                entry.pending.set(false);
+            }
+        }
+    }
+
+    private void refreshAll() {
+        long now = System.nanoTime();
+        for (Map<String, Entry> entries : collections.values()) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (now - entry.lastReadNanos > IDLE_INTERVALS * refreshNanos) {
+                    it.remove();
+                    stats.eviction();
+                } else {
+                    load(entry);
+                }
+            }
+        }
+    }
+
+    private static void load(Entry entry) {
+        try {
+            entry.load();
+        } catch (MongoException ex) {
+            // se conserva el valor anterior; si no se consigue recargar a
+            // tiempo, la siguiente petición lo hará antes de responder
+            LOGGER.log(Level.WARNING, null, ex);
+        }
+    }
+
+    /**
+     * Contador de una colección, modo y consulta. Su valor es la última cuenta
+     * del servidor más los documentos insertados desde entonces.
+     */
+    private static class Entry {
+
+        private final DBCollection coll;
+        private final CountMode mode;
+        private final DBObject query;
+        private final AtomicLong delta = new AtomicLong();
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile long base = -1;
+        private volatile long loadedNanos;
+        private volatile long lastReadNanos;
+
+        Entry(DBCollection coll, CountMode mode, DBObject query) {
+            this.coll = coll;
+            this.mode = mode;
+            this.query = query;
+        }
+
+        boolean isLoaded() {
+            return base >= 0;
+        }
+
+        long get() {
+            return base + delta.get();
+        }
+
+        synchronized void load() {
+            // los ajustes anteriores a la cuenta ya están incluidos en ella;
+            // los que lleguen durante la cuenta se conservan y pueden contar
+            // dos veces hasta la siguiente recarga
+            long applied = delta.get();
+            long started = System.nanoTime();
+            long count = mode.count(coll, query);
+            delta.addAndGet(-applied);
+            base = count;
+            loadedNanos = started;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cache;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Formas de contar los documentos de una colección que admite la
+ * {@link CountCache}.
+ */
+public enum CountMode {
+
+    /**
+     * Cuenta exacta de toda la colección con el comando count.
+     */
+    EXACT {
+        @Override
+        long count(DBCollection coll, DBObject query) {
+            return coll.getCount();
+        }
+    },
+    /**
+     * Estimación a partir de los metadatos de la colección (collstats), sin
+     * recorrer documentos ni índices. Si el servidor no responde al comando se
+     * hace la cuenta exacta.
+     */
+    ESTIMATED {
+        @Override
+        long count(DBCollection coll, DBObject query) {
+            DBObject stats = coll.getDB().command(new BasicDBObject("collstats", coll.getName()));
+            Object ok = stats.get("ok");
+            Object count = stats.get("count");
+            if (ok instanceof Number && ((Number) ok).intValue() == 1 && count instanceof Number) {
+                return ((Number) count).longValue();
+            }
+            return coll.getCount();
+        }
+    },
+    /**
+     * Cuenta exacta de los documentos que cumplen una consulta.
+     */
+    FILTERED {
+        @Override
+        long count(DBCollection coll, DBObject query) {
+            return coll.getCount(query);
+        }
+    };
+
+    /**
+     * Método que lanza la cuenta contra el servidor.
+     *
+     * @param coll Colección.
+     * @param query Consulta; sólo se usa en el modo {@link #FILTERED}.
+     * @return Número de documentos.
+     */
+    abstract long count(DBCollection coll, DBObject query);
+}
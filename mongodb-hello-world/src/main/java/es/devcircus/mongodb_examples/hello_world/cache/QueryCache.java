@@ -0,0 +1,183 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cache;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bulk.InsertListener;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Caché de resultados de consultas, acotada en número de
+ * entradas (LRU) y en tiempo de vida (TTL). Las escrituras invalidan todas las
+ * entradas de la colección afectada: cada colección tiene una generación que
+ * se incrementa al escribir, y las entradas de generaciones anteriores se
+ * tratan como fallos.
+ */
+public class QueryCache implements InsertListener {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final CacheStats stats = new CacheStats();
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param maxEntries Número máximo de entradas.
+     * @param ttl Tiempo de vida de cada entrada.
+     * @param unit Unidad del tiempo de vida.
+     */
+    public QueryCache(int maxEntries, long ttl, TimeUnit unit) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > QueryCache.this.maxEntries) {
+                    stats.eviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Método que busca un resultado en la caché.
+     *
+     * @param coll Colección consultada.
+     * @param key Clave normalizada de la consulta.
+     * @return Resultado, o null si no está o ya no es válido.
+     */
+    synchronized Object get(DBCollection coll, String key) {
+        Entry entry = entries.get(entryKey(coll, key));
+        if (entry == null) {
+            stats.miss();
+            return null;
+        }
+        if (entry.generation != generation(coll).get()) {
+            entries.remove(entryKey(coll, key));
+            stats.miss();
+            return null;
+        }
+        if (System.nanoTime() - entry.createdNanos > ttlNanos) {
+            entries.remove(entryKey(coll, key));
+            stats.expiration();
+            stats.miss();
+            return null;
+        }
+        stats.hit();
+        return entry.value;
+    }
+
+    /**
+     * Método que guarda un resultado. La generación se toma antes de lanzar
+     * la consulta, de forma que si hay una escritura mientras tanto el
+     * resultado nace ya invalidado.
+     *
+     * @param coll Colección consultada.
+     * @param key Clave normalizada de la consulta.
+     * @param generation Generación de la colección al lanzar la consulta.
+     * @param value Resultado.
+     */
+    synchronized void put(DBCollection coll, String key, long generation, Object value) {
+        entries.put(entryKey(coll, key), new Entry(value, generation, System.nanoTime()));
+    }
+
+    /**
+     * Método que devuelve la generación actual de una colección.
+     *
+     * @param coll Colección.
+     * @return Generación.
+     */
+    long currentGeneration(DBCollection coll) {
+        return generation(coll).get();
+    }
+
+    /**
+     * Método que invalida todas las entradas de una colección.
+     *
+     * @param coll Colección modificada.
+     */
+    public void invalidate(DBCollection coll) {
+        generation(coll).incrementAndGet();
+        stats.invalidation();
+    }
+
+    /**
+     * Método que vacía la caché.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void onInsert(DBCollection coll, List<DBObject> docs) {
+        invalidate(coll);
+    }
+
+    @Override
+    public void onRawInsert(DBCollection coll, int count) {
+        invalidate(coll);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    private AtomicLong generation(DBCollection coll) {
+        AtomicLong generation = generations.get(coll.getFullName());
+        if (generation == null) {
+            generations.putIfAbsent(coll.getFullName(), new AtomicLong());
+            generation = generations.get(coll.getFullName());
+        }
+        return generation;
+    }
+
+    private static String entryKey(DBCollection coll, String key) {
+        return coll.getFullName() + "#" + key;
+    }
+
+    /**
+     * Resultado almacenado.
+     */
+    private static class Entry {
+
+        private final Object value;
+        private final long generation;
+        private final long createdNanos;
+
+        Entry(Object value, long generation, long createdNanos) {
+            this.value = value;
+            this.generation = generation;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
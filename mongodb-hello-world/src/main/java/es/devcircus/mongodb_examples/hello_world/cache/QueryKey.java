@@ -0,0 +1,173 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cache;
+
+import com.mongodb.DBObject;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Clave normalizada de una consulta. Dos consultas equivalentes
+ * que sólo difieren en el orden de sus campos o de sus operadores, o en el
+ * tipo numérico de sus valores ({"i": 7} y {"i": 7L}), producen la misma
+ * clave. Dentro de los valores se respeta el orden: MongoDB compara los
+ * documentos embebidos campo a campo y en orden, así que {x:1,y:2} y
+ * {y:2,x:1} son valores distintos, igual que los elementos de las listas.
+ */
+final class QueryKey {
+
+    private QueryKey() {
+    }
+
+    /**
+     * Método que construye la clave de una consulta.
+     *
+     * @param kind Tipo de operación (find, findOne...).
+     * @param query Consulta, o null.
+     * @param projection Proyección, o null.
+     * @return Clave normalizada.
+     */
+    static String of(String kind, DBObject query, DBObject projection) {
+        StringBuilder sb = new StringBuilder(kind).append('|');
+        appendQuery(sb, query);
+        sb.append('|');
+        appendQuery(sb, projection);
+        return sb.toString();
+    }
+
+    /**
+     * Consulta, proyección o documento de operadores: el orden de sus claves
+     * no cambia el resultado, así que se ordenan.
+     */
+    private static void appendQuery(StringBuilder sb, Object value) {
+        Map<?, ?> doc = asDocument(value);
+        if (doc == null) {
+            append(sb, value);
+            return;
+        }
+        sb.append('{');
+        for (Object key : new TreeSet<>(doc.keySet())) {
+            Object item = doc.get(key);
+            quote(sb, String.valueOf(key)).append(':');
+            if (isLogical(key) && item instanceof Collection) {
+                // $and, $or y $nor llevan una lista de consultas
+                sb.append('[');
+                for (Object clause : (Collection<?>) item) {
+                    appendQuery(sb, clause);
+                    sb.append(',');
+                }
+                sb.append(']');
+            } else if ("$elemMatch".equals(key) || isOperatorDocument(item)) {
+                appendQuery(sb, item);
+            } else {
+                append(sb, item);
+            }
+            sb.append(',');
+        }
+        sb.append('}');
+    }
+
+    /**
+     * Valor literal: se conserva el orden de los campos de los documentos
+     * embebidos y de los elementos de las listas.
+     */
+    private static void append(StringBuilder sb, Object value) {
+        Map<?, ?> doc = asDocument(value);
+        if (value == null) {
+            sb.append("null");
+        } else if (doc != null) {
+            sb.append('{');
+            for (Map.Entry<?, ?> entry : doc.entrySet()) {
+                quote(sb, String.valueOf(entry.getKey())).append(':');
+                append(sb, entry.getValue());
+                sb.append(',');
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            for (Object item : (Collection<?>) value) {
+                append(sb, item);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else if (value instanceof Number) {
+            Number n = (Number) value;
+            double d = n.doubleValue();
+            // longValue() satura fuera del rango de long
+            if (d == Math.rint(d) && Math.abs(d) < 0x1p63) {
+                sb.append('n').append(n.longValue());
+            } else {
+                sb.append('n').append(d);
+            }
+        } else if (value instanceof String) {
+            quote(sb, (String) value);
+        } else if (value instanceof Date) {
+            sb.append("Date:").append(((Date) value).getTime());
+        } else if (value instanceof Pattern) {
+            Pattern pattern = (Pattern) value;
+            quote(sb.append("Pattern:").append(pattern.flags()).append(':'), pattern.pattern());
+        } else {
+            quote(sb.append(value.getClass().getSimpleName()).append(':'), value.toString());
+        }
+    }
+
+    /**
+     * Cadena entre comillas, escapando las comillas y las barras invertidas
+     * para que su contenido no pueda confundirse con la estructura de la
+     * clave.
+     */
+    private static StringBuilder quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private static Map<?, ?> asDocument(Object value) {
+        if (value instanceof DBObject && !(value instanceof Collection)) {
+            return ((DBObject) value).toMap();
+        }
+        return value instanceof Map ? (Map<?, ?>) value : null;
+    }
+
+    private static boolean isOperatorDocument(Object value) {
+        Map<?, ?> doc = asDocument(value);
+        if (doc == null || doc.isEmpty()) {
+            return false;
+        }
+        for (Object key : doc.keySet()) {
+            if (!String.valueOf(key).startsWith("$")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLogical(Object key) {
+        return "$and".equals(key) || "$or".equals(key) || "$nor".equals(key);
+    }
+}
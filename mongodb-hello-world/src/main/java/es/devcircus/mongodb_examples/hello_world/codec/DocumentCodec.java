@@ -0,0 +1,73 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.codec;
+
+import es.devcircus.mongodb_examples.hello_world.bson.BsonReader;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonWriter;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Codificador de una entidad a BSON y de vuelta. No se
+ * implementa a mano: el procesador de anotaciones del módulo
+ * mongodb-codec-processor genera uno por cada clase anotada con
+ * {@code @Document}, con el nombre de la clase más el sufijo Codec. El código
+ * generado llama directamente a los campos o a los getters y setters, sin
+ * reflexión y sin mapas intermedios.
+ *
+ * @param <T> Tipo de la entidad.
+ */
+public interface DocumentCodec<T> {
+
+    Class<T> getEntityClass();
+
+    /**
+     * Nombre de la colección indicado en la anotación {@code @Document}.
+     *
+     * @return Nombre de la colección.
+     */
+    String getCollectionName();
+
+    /**
+     * Nombres BSON de los campos de la entidad. La posición de cada nombre
+     * es su bit en las máscaras de {@link Projection}.
+     *
+     * @return Lista inmutable de nombres.
+     */
+    List<String> getFieldNames();
+
+    /**
+     * Método que escribe los campos de la entidad en el documento abierto del
+     * escritor. No abre ni cierra el documento.
+     *
+     * @param writer Escritor con un documento abierto.
+     * @param value Entidad.
+     */
+    void encode(BsonWriter writer, T value);
+
+    /**
+     * Método que lee un documento completo y crea la entidad. Los campos que
+     * no están en la máscara, los desconocidos y los nulos se saltan sin
+     * decodificarlos, y la entidad conserva sus valores por defecto.
+     *
+     * @param reader Lector posicionado al comienzo del documento.
+     * @param fields Máscara de los campos a leer (ver {@link Projection}).
+     * @return Entidad.
+     */
+    T decode(BsonReader reader, long fields);
+}
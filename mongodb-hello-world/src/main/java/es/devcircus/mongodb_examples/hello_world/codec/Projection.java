@@ -0,0 +1,91 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.codec;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Selección de campos de una entidad. Se envía al servidor como
+ * proyección, para que no devuelva el resto, y se pasa al codificador como
+ * máscara, para que sólo decodifique los campos pedidos (el servidor siempre
+ * añade el _id).
+ */
+public final class Projection {
+
+    private static final Projection ALL = new Projection(-1L, null);
+
+    private final long mask;
+    private final DBObject fields;
+
+    private Projection(long mask, DBObject fields) {
+        this.mask = mask;
+        this.fields = fields;
+    }
+
+    /**
+     * Método que devuelve la proyección con todos los campos.
+     *
+     * @return Proyección completa.
+     */
+    public static Projection all() {
+        return ALL;
+    }
+
+    /**
+     * Método que crea una proyección con algunos campos de una entidad.
+     *
+     * @param codec Codificador de la entidad.
+     * @param names Nombres BSON de los campos.
+     * @return Proyección.
+     * @throws IllegalArgumentException Si algún campo no es de la entidad.
+     */
+    public static Projection of(DocumentCodec<?> codec, String... names) {
+        long mask = 0;
+        DBObject fields = new BasicDBObject();
+        for (String name : names) {
+            int field = codec.getFieldNames().indexOf(name);
+            if (field < 0) {
+                throw new IllegalArgumentException(codec.getEntityClass().getSimpleName()
+                        + " no tiene el campo " + name);
+            }
+            mask |= 1L << field;
+            fields.put(name, 1);
+        }
+        return new Projection(mask, fields);
+    }
+
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * Proyección para el servidor.
+     *
+     * @return Campos pedidos, o null si son todos.
+     */
+    public DBObject getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return fields == null ? "{ }" : fields.toString();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.codec;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.RawBsonSupport;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonInserter;
+import es.devcircus.mongodb_examples.hello_world.bson.BufferPool;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Colección de entidades de un tipo. Las inserciones escriben
+ * cada entidad con su {@link DocumentCodec} directamente en los mensajes de
+ * un {@link BsonInserter}, y las consultas devuelven un {@link TypedCursor}
+ * que decodifica las respuestas del servidor a entidades. Ninguno de los dos
+ * caminos crea un {@code DBObject} por documento. Es segura entre hilos.
+ *
+ * <pre>
+ * TypedCollection&lt;Employee&gt; employees = new TypedCollection&lt;&gt;(db, new EmployeeCodec());
+ * employees.insert(employee);
+ * for (Employee e : employees.find(query, Projection.of(codec, "lastname"))) { ... }
+ * </pre>
+ *
+ * @param <T> Tipo de la entidad.
+ */
+public class TypedCollection<T> {
+
+    private static final int MESSAGE_BYTES = 1024 * 1024;
+
+    private final DBCollection coll;
+    private final DocumentCodec<T> codec;
+    private final byte[] namespace;
+    private final boolean raw;
+    private final BufferPool pool;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección de la entidad.
+     * @param codec Codificador generado de la entidad.
+     */
+    public TypedCollection(DBCollection coll, DocumentCodec<T> codec) {
+        this.coll = coll;
+        this.codec = codec;
+        this.namespace = coll.getFullName().getBytes(StandardCharsets.UTF_8);
+        this.raw = RawBsonSupport.supportsRawMessages(coll.getDB());
+        this.pool = new BufferPool(Runtime.getRuntime().availableProcessors(), MESSAGE_BYTES, true);
+    }
+
+    /**
+     * Constructor de la clase que toma la colección indicada en la anotación
+     * {@code @Document} de la entidad.
+     *
+     * @param db Base de datos.
+     * @param codec Codificador generado de la entidad.
+     */
+    public TypedCollection(DB db, DocumentCodec<T> codec) {
+        this(db.getCollection(codec.getCollectionName()), codec);
+    }
+
+    public void insert(T value) throws MongoException {
+        insert(Collections.singletonList(value));
+    }
+
+    /**
+     * Método que inserta varias entidades, en tantos mensajes como haga
+     * falta. Se emplea el nivel de confirmación de la colección.
+     *
+     * @param values Entidades.
+     * @throws MongoException Si falla alguna inserción.
+     */
+    public void insert(Collection<? extends T> values) throws MongoException {
+        try (BsonInserter inserter = new BsonInserter(coll, pool)) {
+            for (T value : values) {
+                codec.encode(inserter.startDocument(), value);
+                inserter.endDocument();
+            }
+        }
+    }
+
+    public TypedCursor<T> find() throws MongoException {
+        return find(new BasicDBObject(), Projection.all());
+    }
+
+    public TypedCursor<T> find(DBObject query) throws MongoException {
+        return find(query, Projection.all());
+    }
+
+    /**
+     * Método que consulta la colección.
+     *
+     * @param query Consulta.
+     * @param projection Campos que se leen.
+     * @return Cursor de entidades.
+     * @throws MongoException Si falla la consulta.
+     */
+    public TypedCursor<T> find(DBObject query, Projection projection) throws MongoException {
+        if (!raw) {
+            return new TypedCursor<>(coll.find(query, projection.getFields()), codec, projection);
+        }
+        return new TypedCursor<>(coll.getDB(), namespace, codec, query, projection, 0);
+    }
+
+    public T findOne(DBObject query) throws MongoException {
+        return findOne(query, Projection.all());
+    }
+
+    /**
+     * Método que devuelve la primera entidad que cumple una consulta.
+     *
+     * @param query Consulta.
+     * @param projection Campos que se leen.
+     * @return Entidad, o null si no hay ninguna.
+     * @throws MongoException Si falla la consulta.
+     */
+    public T findOne(DBObject query, Projection projection) throws MongoException {
+        TypedCursor<T> cursor = raw
+                ? new TypedCursor<>(coll.getDB(), namespace, codec, query, projection, -1)
+                : new TypedCursor<>(coll.find(query, projection.getFields()).limit(1), codec, projection);
+        try {
+            return cursor.hasNext() ? cursor.next() : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public DBCollection getCollection() {
+        return coll;
+    }
+
+    public DocumentCodec<T> getCodec() {
+        return codec;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.codec;
+
+import com.mongodb.Bytes;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonReader;
+import es.devcircus.mongodb_examples.hello_world.bson.CursorMessages;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Cursor de entidades. Con una base de datos del driver envía
+ * los mensajes OP_QUERY y OP_GET_MORE directamente, con
+ * {@link CursorMessages}, y decodifica las respuestas con el
+ * {@link DocumentCodec}, sin pasar por {@link DBObject}.
+ * Cada respuesta se recibe en un buffer por hilo y se copia de una vez al
+ * lote del cursor. Con cualquier otra base de datos (como la de los
+ * benchmarks) se recorre el cursor normal y cada documento se vuelve a
+ * codificar para decodificarlo igual. No es seguro entre hilos. Hay que cerrarlo si no se
+ * recorre entero, para liberar el cursor del servidor.
+ *
+ * @param <T> Tipo de la entidad.
+ */
+public class TypedCursor<T> implements Iterator<T>, Iterable<T>, Closeable {
+
+    private final DB db;
+    private final byte[] namespace;
+    private final DocumentCodec<T> codec;
+    private final long mask;
+    private final int batchSize;
+    private final Iterator<DBObject> documents;
+    private final BsonReader reader = new BsonReader(ByteBuffer.allocate(0));
+    private ByteBuffer batch;
+    private int remaining;
+    private long cursorId;
+
+    TypedCursor(DB db, byte[] namespace, DocumentCodec<T> codec, DBObject query, Projection projection,
+            int numToReturn) throws MongoException {
+        this.db = db;
+        this.namespace = namespace;
+        this.codec = codec;
+        this.mask = projection.getMask();
+        this.batchSize = Math.max(numToReturn, 0);
+        this.documents = null;
+        byte[] fields = projection.getFields() == null ? null : Bytes.encode(projection.getFields());
+        read(CursorMessages.query(db, namespace, numToReturn, Bytes.encode(query), fields));
+    }
+
+    TypedCursor(Iterator<DBObject> documents, DocumentCodec<T> codec, Projection projection) {
+        this.db = null;
+        this.namespace = null;
+        this.codec = codec;
+        this.mask = projection.getMask();
+        this.batchSize = 0;
+        this.documents = documents;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() throws MongoException {
+        if (documents != null) {
+            return documents.hasNext();
+        }
+        if (remaining == 0 && cursorId != 0) {
+            getMore();
+        }
+        return remaining > 0;
+    }
+
+    @Override
+    public T next() throws MongoException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (documents != null) {
+            reader.reset(ByteBuffer.wrap(Bytes.encode(documents.next())));
+            return codec.decode(reader, mask);
+        }
+        reader.reset(batch);
+        T value = codec.decode(reader, mask);
+        if (--remaining == 0) {
+            batch = null;
+        }
+        return value;
+    }
+
+    /**
+     * Método que libera el cursor del servidor, si sigue abierto.
+     */
+    @Override
+    public void close() throws MongoException {
+        remaining = 0;
+        batch = null;
+        if (cursorId == 0) {
+            return;
+        }
+        long id = cursorId;
+        cursorId = 0;
+        CursorMessages.killCursor(db, id);
+    }
+
+    private void getMore() throws MongoException {
+        CursorMessages.Reply reply;
+        try {
+            reply = CursorMessages.getMore(db, namespace, batchSize, cursorId);
+        } catch (MongoException ex) {
+            cursorId = 0;
+            throw ex;
+        }
+        read(reply);
+    }
+
+    /**
+     * Copia los documentos de la respuesta, que está en el buffer del hilo,
+     * al lote del cursor.
+     */
+    private void read(CursorMessages.Reply reply) {
+        ByteBuffer documents = reply.getDocuments();
+        cursorId = reply.getCursorId();
+        remaining = reply.getCount();
+        batch = ByteBuffer.allocate(documents.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+        batch.put(documents);
+        batch.flip();
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.connection;
+
+import com.mongodb.DBAddress;
+import com.mongodb.MongoOptions;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Parámetros de conexión y de dimensionamiento del pool de un
+ * cliente gestionado por {@link MongoConnectionManager}.
+ */
+public class ConnectionSettings {
+
+    private String host = DBAddress.defaultHost();
+    private int port = DBAddress.defaultPort();
+    private int connectionsPerHost = 10;
+    private int waitQueueMultiplier = 5;
+    private int connectTimeout = 10000;
+    private int socketTimeout = 0;
+    private boolean autoConnectRetry = false;
+
+    /**
+     * Método que crea una configuración por defecto contra la máquina local.
+     *
+     * @return Configuración por defecto.
+     */
+    public static ConnectionSettings defaults() {
+        return new ConnectionSettings();
+    }
+
+    public ConnectionSettings host(String host) {
+        this.host = host;
+        return this;
+    }
+
+    public ConnectionSettings port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * Tamaño máximo del pool de conexiones por servidor.
+     *
+     * @param connectionsPerHost Número de conexiones.
+     * @return La propia configuración.
+     */
+    public ConnectionSettings connectionsPerHost(int connectionsPerHost) {
+        this.connectionsPerHost = connectionsPerHost;
+        return this;
+    }
+
+    /**
+     * Longitud de la cola de espera del pool, expresada como múltiplo del
+     * tamaño del pool. Con 10 conexiones y un multiplicador de 5 pueden
+     * quedar bloqueados como mucho 50 hilos esperando conexión.
+     *
+     * @param waitQueueMultiplier Multiplicador de la cola de espera.
+     * @return La propia configuración.
+     */
+    public ConnectionSettings waitQueueMultiplier(int waitQueueMultiplier) {
+        this.waitQueueMultiplier = waitQueueMultiplier;
+        return this;
+    }
+
+    public ConnectionSettings connectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public ConnectionSettings socketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+        return this;
+    }
+
+    public ConnectionSettings autoConnectRetry(boolean autoConnectRetry) {
+        this.autoConnectRetry = autoConnectRetry;
+        return this;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getConnectionsPerHost() {
+        return connectionsPerHost;
+    }
+
+    public int getWaitQueueMultiplier() {
+        return waitQueueMultiplier;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public boolean isAutoConnectRetry() {
+        return autoConnectRetry;
+    }
+
+    /**
+     * Clave que identifica al cluster. Sólo se crea un cliente por clave.
+     *
+     * @return Clave del cluster, de la forma host:puerto.
+     */
+    public String getClusterKey() {
+        return host + ":" + port;
+    }
+
+    /**
+     * Método que traduce la configuración a las opciones del driver.
+     *
+     * @return Opciones del driver.
+     */
+    MongoOptions toMongoOptions() {
+        MongoOptions options = new MongoOptions();
+        options.connectionsPerHost = connectionsPerHost;
+        options.threadsAllowedToBlockForConnectionMultiplier = waitQueueMultiplier;
+        options.connectTimeout = connectTimeout;
+        options.socketTimeout = socketTimeout;
+        options.autoConnectRetry = autoConnectRetry;
+        return options;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.connection;
+
+import com.mongodb.DB;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Operación que se ejecuta con una conexión del pool reservada
+ * para el hilo actual.
+ * @param <T> Tipo del resultado de la operación.
+ */
+public interface DBCallback<T> {
+
+    /**
+     * Método que ejecuta la operación.
+     *
+     * @param db Base de datos sobre la que se trabaja.
+     * @return Resultado de la operación.
+     */
+    T doInDB(DB db);
+}
@@ -0,0 +1,168 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.connection;
+
+import com.mongodb.DB;
+import com.mongodb.DBAddress;
+import com.mongodb.DBCollection;
+import com.mongodb.Mongo;
+import com.mongodb.MongoException;
+import java.net.UnknownHostException;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Cliente de MongoDB con ciclo de vida gestionado. Envuelve una
+ * única instancia de {@link Mongo} (que ya es un pool de conexiones) y mide el
+ * tiempo que tardan los hilos en obtener una conexión del pool.
+ */
+public class ManagedMongo {
+
+    private final ConnectionSettings settings;
+    private final Mongo mongo;
+    private final PoolStats poolStats = new PoolStats();
+    /**
+     * Operaciones de {@link #execute(DB, DBCallback)} anidadas en cada hilo.
+     * El driver no admite un requestStart() dentro de otro: sólo la más
+     * externa reserva y libera la conexión.
+     */
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+    private volatile boolean closed;
+
+    ManagedMongo(ConnectionSettings settings) throws UnknownHostException {
+        this.settings = settings;
+        DBAddress address = new DBAddress(settings.getHost(), settings.getPort(), "admin");
+        this.mongo = new Mongo(address, settings.toMongoOptions());
+    }
+
+    /**
+     * Método que devuelve la base de datos indicada.
+     *
+     * @param name Nombre de la base de datos.
+     * @return Base de datos.
+     */
+    public DB getDB(String name) {
+        checkOpen();
+        return mongo.getDB(name);
+    }
+
+    /**
+     * Método que devuelve una colección de la base de datos indicada.
+     *
+     * @param dbName Nombre de la base de datos.
+     * @param collectionName Nombre de la colección.
+     * @return Colección.
+     */
+    public DBCollection getCollection(String dbName, String collectionName) {
+        return getDB(dbName).getCollection(collectionName);
+    }
+
+    /**
+     * Método que ejecuta una operación con una conexión del pool reservada
+     * para el hilo actual durante toda la operación. El tiempo que se tarda
+     * en conseguir la conexión queda registrado en {@link #getPoolStats()}.
+     *
+     * @param <T> Tipo del resultado.
+     * @param dbName Nombre de la base de datos.
+     * @param callback Operación a ejecutar.
+     * @return Resultado de la operación.
+     */
+    public <T> T execute(String dbName, DBCallback<T> callback) {
+        return execute(getDB(dbName), callback);
+    }
+
+    /**
+     * Método equivalente a {@link #execute(String, DBCallback)} para una base
+     * de datos ya obtenida de este cliente, que puede estar envuelta
+     * (instrumentada, con slaveOk...) siempre que delegue requestStart() y
+     * requestDone(). La conexión se reserva para el hilo en todo el cliente,
+     * así que durante la operación la comparten todas sus bases de datos. Se
+     * puede anidar: una operación dentro de otra en el mismo hilo usa la
+     * conexión ya reservada.
+     *
+     * @param <T> Tipo del resultado.
+     * @param db Base de datos de este cliente.
+     * @param callback Operación a ejecutar.
+     * @return Resultado de la operación.
+     */
+    public <T> T execute(DB db, DBCallback<T> callback) {
+        checkOpen();
+        int[] nested = depth.get();
+        if (nested[0] > 0) {
+            nested[0]++;
+            try {
+                return callback.doInDB(db);
+            } finally {
+                nested[0]--;
+            }
+        }
+        long start = System.nanoTime();
+        db.requestStart();
+        nested[0] = 1;
+        try {
+            db.requestEnsureConnection();
+            poolStats.checkedOut(System.nanoTime() - start);
+            try {
+                return callback.doInDB(db);
+            } finally {
+                poolStats.checkedIn();
+            }
+        } finally {
+            nested[0] = 0;
+            db.requestDone();
+        }
+    }
+
+    public List<String> getDatabaseNames() {
+        checkOpen();
+        return mongo.getDatabaseNames();
+    }
+
+    public void dropDatabase(String name) {
+        checkOpen();
+        mongo.dropDatabase(name);
+    }
+
+    public ConnectionSettings getSettings() {
+        return settings;
+    }
+
+    public PoolStats getPoolStats() {
+        return poolStats;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Método que cierra el cliente. La versión del driver que empleamos no
+     * ofrece {@code Mongo.close()}; a partir de aquí el cliente rechaza
+     * cualquier operación y, al dejar de estar referenciado, los sockets del
+     * pool se liberan con la finalización de los puertos del driver.
+     */
+    void close() {
+        closed = true;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new MongoException("El cliente de " + settings.getClusterKey() + " está cerrado");
+        }
+    }
+}
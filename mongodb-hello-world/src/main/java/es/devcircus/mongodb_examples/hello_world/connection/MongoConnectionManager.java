@@ -0,0 +1,113 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.connection;
+
+import com.mongodb.MongoException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Registro de clientes compartidos. Mantiene un único
+ * {@link ManagedMongo} por cluster, de forma que todos los ejemplos comparten
+ * el mismo pool de conexiones en lugar de crear instancias de {@code Mongo}
+ * que nunca se cierran. Los clientes se cierran al apagar la JVM.
+ */
+public final class MongoConnectionManager {
+
+    private static final Map<String, ManagedMongo> CLIENTS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("mongo-connection-manager-shutdown") {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        });
+    }
+
+    private MongoConnectionManager() {
+    }
+
+    /**
+     * Método que devuelve el cliente compartido contra la máquina local con
+     * la configuración por defecto.
+     *
+     * @return Cliente compartido.
+     */
+    public static ManagedMongo getDefault() {
+        return get(ConnectionSettings.defaults());
+    }
+
+    /**
+     * Método que devuelve el cliente compartido del cluster indicado en la
+     * configuración, creándolo si todavía no existe. Si el cliente ya existía
+     * se conserva la configuración con la que se creó.
+     *
+     * @param settings Configuración de la conexión.
+     * @return Cliente compartido.
+     */
+    public static ManagedMongo get(ConnectionSettings settings) {
+        String key = settings.getClusterKey();
+        ManagedMongo client = CLIENTS.get(key);
+        if (client != null) {
+            return client;
+        }
+        synchronized (CLIENTS) {
+            client = CLIENTS.get(key);
+            if (client == null) {
+                try {
+                    client = new ManagedMongo(settings);
+                } catch (UnknownHostException ex) {
+                    throw new MongoException("No se puede resolver " + key, ex);
+                }
+                CLIENTS.put(key, client);
+            }
+            return client;
+        }
+    }
+
+    /**
+     * Método que cierra el cliente de un cluster y lo elimina del registro.
+     *
+     * @param settings Configuración que identifica al cluster.
+     */
+    public static void close(ConnectionSettings settings) {
+        ManagedMongo client = CLIENTS.remove(settings.getClusterKey());
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    /**
+     * Método que cierra todos los clientes registrados.
+     */
+    public static void shutdown() {
+        for (String key : CLIENTS.keySet()) {
+            ManagedMongo client = CLIENTS.remove(key);
+            if (client != null) {
+                Logger.getLogger(MongoConnectionManager.class.getName()).log(Level.FINE,
+                        "Cerrando cliente de {0}: {1}", new Object[]{key, client.getPoolStats()});
+                client.close();
+            }
+        }
+    }
+}
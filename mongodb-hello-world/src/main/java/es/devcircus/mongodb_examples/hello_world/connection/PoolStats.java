@@ -0,0 +1,92 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.connection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Estadísticas de uso del pool de un cliente gestionado. El
+ * tiempo de espera de checkout es el dato que permite dimensionar el pool:
+ * si crece con la carga, faltan conexiones.
+ */
+public class PoolStats {
+
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger maxInUse = new AtomicInteger();
+
+    void checkedOut(long waitNanos) {
+        checkouts.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+        int current = inUse.incrementAndGet();
+        int peak = maxInUse.get();
+        while (current > peak && !maxInUse.compareAndSet(peak, current)) {
+            peak = maxInUse.get();
+        }
+    }
+
+    void checkedIn() {
+        inUse.decrementAndGet();
+    }
+
+    public long getCheckouts() {
+        return checkouts.get();
+    }
+
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public int getMaxInUse() {
+        return maxInUse.get();
+    }
+
+    /**
+     * Método que calcula el tiempo medio de espera para obtener una conexión.
+     *
+     * @return Tiempo medio de espera en milisegundos.
+     */
+    public double getAverageWaitMillis() {
+        long count = checkouts.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Método que devuelve el mayor tiempo de espera observado.
+     *
+     * @return Tiempo máximo de espera en milisegundos.
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d checkouts, en uso %d (pico %d), espera media %.3f ms, máxima %.3f ms",
+                getCheckouts(), getInUse(), getMaxInUse(), getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
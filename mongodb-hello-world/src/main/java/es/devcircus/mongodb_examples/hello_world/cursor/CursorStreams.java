@@ -0,0 +1,94 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cursor;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import org.reactivestreams.Publisher;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Punto de entrada del API de lectura en streaming. Permite
+ * recorrer una consulta como iterador con prefetch, como {@link Stream} o
+ * como {@link Publisher} con control de demanda.
+ */
+public final class CursorStreams {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("cursor-stream"));
+
+    private CursorStreams() {
+    }
+
+    /**
+     * Método que abre un recorrido con prefetch en segundo plano.
+     *
+     * @param coll Colección.
+     * @param query Consulta; null para recorrer toda la colección.
+     * @param options Opciones de lectura.
+     * @return Iterador que hay que cerrar si no se consume entero.
+     */
+    public static DocumentStream open(DBCollection coll, DBObject query, ScanOptions options) {
+        return open(coll, query, options, EXECUTOR);
+    }
+
+    /**
+     * Método que abre un recorrido con prefetch cuyo hilo de lectura se toma
+     * del executor indicado, para poder acotar cuántos recorridos leen a la
+     * vez.
+     *
+     * @param coll Colección.
+     * @param query Consulta; null para recorrer toda la colección.
+     * @param options Opciones de lectura.
+     * @param executor Executor del que se toma el hilo de lectura.
+     * @return Iterador que hay que cerrar si no se consume entero.
+     */
+    public static DocumentStream open(DBCollection coll, DBObject query, ScanOptions options,
+            ExecutorService executor) {
+        return new DocumentStream(options.open(coll, query), options.getPrefetch(), executor);
+    }
+
+    /**
+     * Método que abre un recorrido con prefetch como {@link Stream}. Conviene
+     * usarlo dentro de un try-with-resources.
+     *
+     * @param coll Colección.
+     * @param query Consulta; null para recorrer toda la colección.
+     * @param options Opciones de lectura.
+     * @return Stream de documentos.
+     */
+    public static Stream<DBObject> stream(DBCollection coll, DBObject query, ScanOptions options) {
+        return open(coll, query, options).stream();
+    }
+
+    /**
+     * Método que crea un {@link Publisher} sobre la consulta.
+     *
+     * @param coll Colección.
+     * @param query Consulta; null para recorrer toda la colección.
+     * @param options Opciones de lectura.
+     * @return Publisher de documentos.
+     */
+    public static Publisher<DBObject> publisher(DBCollection coll, DBObject query, ScanOptions options) {
+        return new DocumentPublisher(coll, query, options, EXECUTOR);
+    }
+}
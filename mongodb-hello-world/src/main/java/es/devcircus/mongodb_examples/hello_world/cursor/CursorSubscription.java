@@ -0,0 +1,152 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cursor;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Suscripción de un {@link DocumentPublisher}. El cursor sólo se
+ * avanza mientras el suscriptor tiene demanda pendiente, así que el driver no
+ * pide un lote nuevo al servidor hasta que el suscriptor ha consumido el
+ * anterior. Todas las señales al suscriptor salen de {@link #run()}, de una
+ * en una, incluido el error por una demanda no positiva.
+ */
+class CursorSubscription implements Subscription, Runnable {
+
+    private final Subscriber<? super DBObject> subscriber;
+    private final DBCollection coll;
+    private final DBObject query;
+    private final ScanOptions options;
+    private final Executor executor;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicReference<IllegalArgumentException> invalidRequest = new AtomicReference<>();
+    private volatile boolean cancelled;
+    private DBCursor cursor;
+    private boolean done;
+
+    CursorSubscription(Subscriber<? super DBObject> subscriber, DBCollection coll, DBObject query,
+            ScanOptions options, Executor executor) {
+        this.subscriber = subscriber;
+        this.coll = coll;
+        this.query = query;
+        this.options = options;
+        this.executor = executor;
+    }
+
+    @Override
+    public void request(long n) {
+        if (cancelled) {
+            return;
+        }
+        if (n <= 0) {
+            // el error se entrega desde drain(), para no solaparse con un onNext en curso
+            invalidRequest.compareAndSet(null, new IllegalArgumentException("La demanda debe ser positiva: " + n));
+            schedule();
+            return;
+        }
+        long current;
+        long updated;
+        do {
+            current = demand.get();
+            updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!demand.compareAndSet(current, updated));
+        schedule();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void schedule() {
+        if (pending.getAndIncrement() == 0) {
+            executor.execute(this);
+        }
+    }
+
+    /**
+     * Vacía la demanda pendiente. Sólo hay una ejecución activa a la vez;
+     * las peticiones que llegan mientras tanto se atienden en la misma.
+     */
+    @Override
+    public void run() {
+        int missed = 1;
+        do {
+            drain();
+            missed = pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drain() {
+        if (done || signalInvalidRequest()) {
+            return;
+        }
+        try {
+            if (cursor == null) {
+                cursor = options.open(coll, query);
+            }
+            while (!cancelled && invalidRequest.get() == null && demand.get() > 0) {
+                if (!cursor.hasNext()) {
+                    done = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                DBObject doc = cursor.next();
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(doc);
+            }
+        } catch (RuntimeException ex) {
+            done = true;
+            if (!cancelled) {
+                subscriber.onError(ex);
+            }
+        }
+        if (!signalInvalidRequest() && cancelled) {
+            done = true;
+        }
+    }
+
+    /**
+     * Entrega, como mucho una vez y sólo si no hay ya una señal final, el
+     * error de una demanda no positiva, y cancela la suscripción.
+     *
+     * @return true si se ha entregado.
+     */
+    private boolean signalInvalidRequest() {
+        IllegalArgumentException error = invalidRequest.get();
+        if (error == null || done) {
+            return false;
+        }
+        done = true;
+        cancelled = true;
+        subscriber.onError(error);
+        return true;
+    }
+}
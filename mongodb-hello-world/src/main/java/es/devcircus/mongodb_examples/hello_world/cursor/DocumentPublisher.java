@@ -0,0 +1,53 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cursor;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import java.util.concurrent.Executor;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Cara reactiva de un recorrido de colección. Cada suscripción
+ * abre su propio cursor y lo lee al ritmo que marca la demanda del
+ * suscriptor.
+ */
+public class DocumentPublisher implements Publisher<DBObject> {
+
+    private final DBCollection coll;
+    private final DBObject query;
+    private final ScanOptions options;
+    private final Executor executor;
+
+    DocumentPublisher(DBCollection coll, DBObject query, ScanOptions options, Executor executor) {
+        this.coll = coll;
+        this.query = query;
+        this.options = options;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super DBObject> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("El suscriptor no puede ser null");
+        }
+        subscriber.onSubscribe(new CursorSubscription(subscriber, coll, query, options, executor));
+    }
+}
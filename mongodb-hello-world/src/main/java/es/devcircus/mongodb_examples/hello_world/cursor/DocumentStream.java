@@ -0,0 +1,147 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cursor;
+
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Iterador con prefetch sobre un {@link DBCursor}. Un hilo en
+ * segundo plano va leyendo del cursor y deja los documentos en un buffer
+ * acotado; si el consumidor va más lento, el hilo se bloquea y deja de pedir
+ * lotes al servidor. Hay que cerrarlo si no se consume hasta el final.
+ */
+public class DocumentStream implements Iterator<DBObject>, Closeable {
+
+    /**
+     * Marca de fin de datos dentro del buffer.
+     */
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> buffer;
+    private final Future<?> reader;
+    private volatile boolean closed;
+    private Object next;
+
+    DocumentStream(DBCursor cursor, int capacity, ExecutorService executor) {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.reader = executor.submit(() -> fill(cursor));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            if (closed) {
+                return false;
+            }
+            try {
+                next = buffer.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new MongoException("Lectura del cursor interrumpida", ex);
+            }
+        }
+        if (next instanceof Failure) {
+            RuntimeException ex = ((Failure) next).exception;
+            next = END;
+            throw ex;
+        }
+        return next != END;
+    }
+
+    @Override
+    public DBObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DBObject doc = (DBObject) next;
+        next = null;
+        return doc;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Método que detiene el hilo de lectura y descarta lo que haya en el
+     * buffer. El driver no permite cerrar explícitamente un cursor de
+     * servidor; éste se libera cuando expira en el servidor.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        reader.cancel(true);
+        buffer.clear();
+        next = END;
+    }
+
+    /**
+     * Método que expone el recorrido como un {@link Stream} secuencial. Al
+     * cerrar el stream se cierra también este iterador.
+     *
+     * @return Stream de documentos.
+     */
+    public Stream<DBObject> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    private void fill(DBCursor cursor) {
+        try {
+            while (!closed && cursor.hasNext()) {
+                buffer.put(cursor.next());
+            }
+            buffer.put(END);
+        } catch (InterruptedException ex) {
+            // cerrado por el consumidor
+        } catch (RuntimeException ex) {
+            try {
+                buffer.put(new Failure(ex));
+            } catch (InterruptedException ignored) {
+                // cerrado por el consumidor
+            }
+        }
+    }
+
+    /**
+     * Error de lectura que se entrega al consumidor a través del buffer.
+     */
+    private static class Failure {
+
+        private final RuntimeException exception;
+
+        Failure(RuntimeException exception) {
+            this.exception = exception;
+        }
+    }
+}
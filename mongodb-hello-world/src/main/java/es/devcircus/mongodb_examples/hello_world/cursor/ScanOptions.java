@@ -0,0 +1,154 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.cursor;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de lectura de un recorrido en streaming: tamaño de
+ * lote, límite, proyección, ordenación y tamaño del buffer de prefetch.
+ */
+public class ScanOptions {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int limit;
+    private int prefetch = -1;
+    private DBObject projection;
+    private DBObject sort;
+
+    /**
+     * Método que crea unas opciones por defecto: lotes de
+     * {@value #DEFAULT_BATCH_SIZE} documentos, sin límite ni proyección.
+     *
+     * @return Opciones por defecto.
+     */
+    public static ScanOptions defaults() {
+        return new ScanOptions();
+    }
+
+    /**
+     * Número de documentos que se piden al servidor en cada lote.
+     *
+     * @param batchSize Tamaño del lote.
+     * @return Las propias opciones.
+     */
+    public ScanOptions batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Número máximo de documentos a leer. Cero indica sin límite.
+     *
+     * @param limit Límite.
+     * @return Las propias opciones.
+     */
+    public ScanOptions limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Campos a recuperar. Sólo viajan por la red los campos indicados.
+     *
+     * @param projection Proyección, del tipo {campo: 1}.
+     * @return Las propias opciones.
+     */
+    public ScanOptions projection(DBObject projection) {
+        this.projection = projection;
+        return this;
+    }
+
+    public ScanOptions sort(DBObject sort) {
+        this.sort = sort;
+        return this;
+    }
+
+    /**
+     * Número de documentos que el hilo de lectura puede adelantar al
+     * consumidor. Por defecto es la mitad de un lote, de forma que nunca hay
+     * en memoria mucho más de un lote completo.
+     *
+     * @param prefetch Capacidad del buffer de prefetch.
+     * @return Las propias opciones.
+     */
+    public ScanOptions prefetch(int prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * Método que devuelve una copia independiente de las opciones.
+     *
+     * @return Copia de las opciones.
+     */
+    public ScanOptions copy() {
+        ScanOptions copy = new ScanOptions();
+        copy.batchSize = batchSize;
+        copy.limit = limit;
+        copy.prefetch = prefetch;
+        copy.projection = projection;
+        copy.sort = sort;
+        return copy;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getPrefetch() {
+        return prefetch > 0 ? prefetch : Math.max(1, batchSize / 2);
+    }
+
+    public DBObject getProjection() {
+        return projection;
+    }
+
+    public DBObject getSort() {
+        return sort;
+    }
+
+    /**
+     * Método que abre un cursor sobre la colección aplicando las opciones.
+     *
+     * @param coll Colección.
+     * @param query Consulta; null para recorrer toda la colección.
+     * @return Cursor configurado.
+     */
+    public DBCursor open(DBCollection coll, DBObject query) {
+        DBCursor cur = coll.find(query == null ? new BasicDBObject() : query, projection)
+                .batchSize(batchSize);
+        if (limit > 0) {
+            cur.limit(limit);
+        }
+        if (sort != null) {
+            cur.sort(sort);
+        }
+        return cur;
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.metrics.QueryListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Asesor de índices. Registrado como {@link QueryListener} en el
+ * registro de métricas, recoge la forma de cada consulta que pasa por las
+ * colecciones instrumentadas. {@link #analyze()} lanza explain() con una
+ * consulta de muestra de cada forma, señala los recorridos completos y las
+ * consultas poco selectivas, y propone para ellas índices compuestos con los
+ * campos de igualdad primero, después los de ordenación y al final los de
+ * rango. Las propuestas que ya cubre algún índice de getIndexInfo(), o que
+ * son prefijo de otra propuesta, se descartan. {@link #apply(List)} las crea
+ * en segundo plano.
+ */
+public class IndexAdvisor implements QueryListener {
+
+    public static final double DEFAULT_MAX_SCAN_RATIO = 10;
+
+    private static final Logger LOGGER = Logger.getLogger(IndexAdvisor.class.getName());
+
+    private final ConcurrentMap<String, QueryShape> shapes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DBCollection> collections = new ConcurrentHashMap<>();
+    private final double maxScanRatio;
+
+    /**
+     * Constructor de la clase, con una relación máxima de
+     * {@value #DEFAULT_MAX_SCAN_RATIO} documentos examinados por cada uno
+     * devuelto.
+     */
+    public IndexAdvisor() {
+        this(DEFAULT_MAX_SCAN_RATIO);
+    }
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param maxScanRatio Documentos examinados por cada uno devuelto a
+     * partir de los cuales una consulta se considera poco selectiva.
+     */
+    public IndexAdvisor(double maxScanRatio) {
+        this.maxScanRatio = maxScanRatio;
+    }
+
+    @Override
+    public void onQuery(DBCollection coll, DBObject query, DBObject fields) {
+        QueryShape shape = QueryShape.of(coll.getFullName(), query);
+        QueryShape existing = shapes.putIfAbsent(shape.getKey(), shape);
+        (existing != null ? existing : shape).seen();
+        collections.putIfAbsent(coll.getFullName(), coll);
+    }
+
+    public Collection<QueryShape> getShapes() {
+        return shapes.values();
+    }
+
+    /**
+     * Método que analiza las formas recogidas hasta ahora.
+     *
+     * @return Índices recomendados, como mucho uno por cada grupo de formas
+     * que puede servir el mismo índice.
+     */
+    public List<IndexRecommendation> analyze() {
+        Map<String, List<QueryShape>> byCollection = new LinkedHashMap<>();
+        for (QueryShape shape : shapes.values()) {
+            byCollection.computeIfAbsent(shape.getNamespace(), ns -> new ArrayList<>()).add(shape);
+        }
+        List<IndexRecommendation> recommendations = new ArrayList<>();
+        for (Map.Entry<String, List<QueryShape>> entry : byCollection.entrySet()) {
+            recommendations.addAll(analyze(collections.get(entry.getKey()), entry.getValue()));
+        }
+        return recommendations;
+    }
+
+    /**
+     * Método que crea en segundo plano los índices recomendados. Un fallo en
+     * uno no impide crear los demás.
+     *
+     * @param recommendations Índices a crear.
+     * @return Número de índices creados.
+     */
+    public int apply(List<IndexRecommendation> recommendations) {
+        int created = 0;
+        for (IndexRecommendation recommendation : recommendations) {
+            DBCollection coll = collections.get(recommendation.getNamespace());
+            try {
+                coll.ensureIndex(recommendation.getKeys(), new BasicDBObject("background", true));
+                created++;
+                LOGGER.log(Level.INFO, "Índice creado: {0}", recommendation);
+            } catch (MongoException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
+        }
+        return created;
+    }
+
+    private List<IndexRecommendation> analyze(DBCollection coll, List<QueryShape> collectionShapes) {
+        List<DBObject> existing = new ArrayList<>();
+        for (DBObject index : coll.getIndexInfo()) {
+            existing.add(index);
+        }
+        List<IndexRecommendation> candidates = new ArrayList<>();
+        for (QueryShape shape : collectionShapes) {
+            DBObject keys = shape.proposeIndex();
+            if (keys.keySet().isEmpty()) {
+                continue;
+            }
+            int equalityFields = shape.getEqualityFields().size();
+            QueryPlan plan = explain(coll, shape);
+            if (plan == null) {
+                // sin plan no hay pruebas de que falte un índice
+                LOGGER.log(Level.WARNING, "{0}: explain() no devolvió un plan; no se propone ningún índice", shape);
+                continue;
+            }
+            String reason = problem(plan);
+            if (reason == null) {
+                continue;
+            }
+            DBObject coveredBy = find(existing, keys, equalityFields);
+            if (coveredBy != null) {
+                LOGGER.log(Level.INFO, "{0}: {1}, pero ya existe el índice {2}",
+                        new Object[]{shape, reason, coveredBy.get("name")});
+                continue;
+            }
+            merge(candidates, coll.getFullName(), shape, keys, equalityFields, reason);
+        }
+        for (IndexRecommendation candidate : candidates) {
+            for (DBObject index : existing) {
+                DBObject indexKeys = (DBObject) index.get("key");
+                if (covers(candidate.getKeys(), indexKeys, 0) && !"_id_".equals(index.get("name"))) {
+                    candidate.setReplaces((String) index.get("name"));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private void merge(List<IndexRecommendation> candidates, String namespace, QueryShape shape, DBObject keys,
+            int equalityFields, String reason) {
+        for (IndexRecommendation candidate : candidates) {
+            if (covers(candidate.getKeys(), keys, equalityFields)) {
+                candidate.add(shape, reason);
+                return;
+            }
+            if (covers(keys, candidate.getKeys(), candidate.getEqualityFields())) {
+                candidate.widen(keys, equalityFields);
+                candidate.add(shape, reason);
+                return;
+            }
+        }
+        IndexRecommendation recommendation = new IndexRecommendation(namespace, keys, equalityFields);
+        recommendation.add(shape, reason);
+        candidates.add(recommendation);
+    }
+
+    private QueryPlan explain(DBCollection coll, QueryShape shape) {
+        try {
+            DBCursor cur = coll.find(shape.getSampleQuery());
+            if (shape.getSampleSort() != null) {
+                cur.sort(shape.getSampleSort());
+            }
+            return QueryPlan.from(cur.explain());
+        } catch (MongoException ex) {
+            LOGGER.log(Level.WARNING, null, ex);
+            return null;
+        }
+    }
+
+    private String problem(QueryPlan plan) {
+        if (plan.isCollectionScan()) {
+            return "recorrido completo de la colección (" + plan.getExamined() + " examinados para "
+                    + plan.getReturned() + " devueltos)";
+        }
+        if (plan.getScanRatio() > maxScanRatio) {
+            return String.format("poco selectiva con el índice %s (%.1f examinados por cada devuelto)",
+                    plan.getIndex(), plan.getScanRatio());
+        }
+        return null;
+    }
+
+    private static DBObject find(List<DBObject> indexes, DBObject keys, int equalityFields) {
+        for (DBObject index : indexes) {
+            if (covers((DBObject) index.get("key"), keys, equalityFields)) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indica si un índice sirve para una propuesta: la propuesta es prefijo
+     * suyo, salvo que los primeros campos (los de igualdad) pueden ir en
+     * cualquier orden y que el resto puede ir con todas las direcciones
+     * invertidas.
+     */
+    static boolean covers(DBObject index, DBObject wanted, int equalityFields) {
+        List<String> indexFields = new ArrayList<>(index.keySet());
+        List<String> wantedFields = new ArrayList<>(wanted.keySet());
+        if (indexFields.size() < wantedFields.size()) {
+            return false;
+        }
+        if (!new HashSet<>(indexFields.subList(0, equalityFields))
+                .equals(new HashSet<>(wantedFields.subList(0, equalityFields)))) {
+            return false;
+        }
+        Boolean inverted = null;
+        for (int i = equalityFields; i < wantedFields.size(); i++) {
+            String field = wantedFields.get(i);
+            if (!field.equals(indexFields.get(i))) {
+                return false;
+            }
+            boolean same = direction(index.get(field)) == direction(wanted.get(field));
+            if (inverted == null) {
+                inverted = !same;
+            } else if (inverted == same) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int direction(Object value) {
+        return value instanceof Number && ((Number) value).doubleValue() < 0 ? -1 : 1;
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Estado y progreso de la construcción de un índice. El
+ * progreso es el que informa el servidor en currentOp para la fase en curso
+ * (recorrido de la colección, ordenación de claves...) y la estimación de
+ * tiempo restante se calcula con el ritmo de avance desde que empezó esa
+ * fase.
+ */
+public class IndexBuild {
+
+    private final String namespace;
+    private final IndexSpec spec;
+    private final long createdAt = System.currentTimeMillis();
+    private IndexBuildState state = IndexBuildState.PENDING;
+    private String phase;
+    private long done;
+    private long total;
+    private long phaseStartedAt;
+    private long phaseStartDone;
+    private long startedAt;
+    private long finishedAt;
+    private String error;
+
+    IndexBuild(String namespace, IndexSpec spec) {
+        this.namespace = namespace;
+        this.spec = spec;
+    }
+
+    synchronized void waitingForLoad() {
+        state = IndexBuildState.WAITING_FOR_LOAD;
+    }
+
+    synchronized void started() {
+        state = IndexBuildState.BUILDING;
+        startedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Método que registra un sondeo de currentOp. Un cambio de mensaje o un
+     * avance menor que el anterior indican una fase nueva.
+     *
+     * @param phase Mensaje de la operación.
+     * @param done Elementos procesados en la fase.
+     * @param total Elementos totales de la fase.
+     */
+    synchronized void progress(String phase, long done, long total) {
+        long now = System.currentTimeMillis();
+        if (this.phase == null || !this.phase.equals(phase) || done < this.done) {
+            this.phase = phase;
+            this.phaseStartedAt = now;
+            this.phaseStartDone = done;
+        }
+        this.done = done;
+        this.total = total;
+    }
+
+    synchronized void replicating() {
+        state = IndexBuildState.REPLICATING;
+        phase = null;
+    }
+
+    synchronized void finished() {
+        state = IndexBuildState.DONE;
+        finishedAt = System.currentTimeMillis();
+        phase = null;
+    }
+
+    synchronized void failed(String error) {
+        state = IndexBuildState.FAILED;
+        finishedAt = System.currentTimeMillis();
+        this.error = error;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public IndexSpec getSpec() {
+        return spec;
+    }
+
+    public synchronized IndexBuildState getState() {
+        return state;
+    }
+
+    public synchronized String getPhase() {
+        return phase;
+    }
+
+    public synchronized long getDone() {
+        return done;
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+
+    /**
+     * Porcentaje completado de la fase en curso.
+     *
+     * @return Porcentaje; -1 si el servidor no informa del progreso.
+     */
+    public synchronized double getPercent() {
+        return total > 0 ? 100.0 * done / total : -1;
+    }
+
+    /**
+     * Tiempo estimado para terminar la fase en curso.
+     *
+     * @return Milisegundos; -1 si todavía no se puede estimar.
+     */
+    public synchronized long getEtaMillis() {
+        long elapsed = System.currentTimeMillis() - phaseStartedAt;
+        long advanced = done - phaseStartDone;
+        if (state != IndexBuildState.BUILDING || total <= 0 || advanced <= 0 || elapsed <= 0) {
+            return -1;
+        }
+        return (long) ((double) (total - done) * elapsed / advanced);
+    }
+
+    /**
+     * Tiempo que lleva, o que llevó, la construcción desde que se lanzó en
+     * el servidor. No incluye la espera en cola ni por carga.
+     *
+     * @return Milisegundos; 0 si no ha empezado.
+     */
+    public synchronized long getElapsedMillis() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+
+    /**
+     * Tiempo total desde que se planificó la construcción, incluidas las
+     * esperas.
+     *
+     * @return Milisegundos.
+     */
+    public synchronized long getTotalMillis() {
+        return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - createdAt;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(namespace).append(' ').append(spec.getName())
+                .append(' ').append(state);
+        if (phase != null) {
+            sb.append(" (").append(phase);
+            if (total > 0) {
+                sb.append(' ').append(done).append('/').append(total)
+                        .append(String.format(" %.1f%%", getPercent()));
+            }
+            long eta = getEtaMillis();
+            if (eta >= 0) {
+                sb.append(", quedan ").append(eta / 1000).append(" s");
+            }
+            sb.append(')');
+        }
+        if (state == IndexBuildState.DONE) {
+            sb.append(" en ").append(getElapsedMillis()).append(" ms");
+        }
+        if (error != null) {
+            sb.append(": ").append(error);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de {@link IndexOrchestrator}: modo de construcción,
+ * intervalos de sondeo y de informe, umbrales de carga por encima de los
+ * cuales no se empieza ninguna construcción y esperas máximas.
+ */
+public class IndexBuildOptions {
+
+    private boolean background = true;
+    private boolean rolling = false;
+    private long pollIntervalMillis = 1000;
+    private long progressIntervalMillis = 10000;
+    private int maxQueuedOperations = 10;
+    private long maxOpsPerSecond = 0;
+    private long maxReplicationLagMillis = 10000;
+    private long maxLoadWaitMillis = 600000;
+    private long replicationTimeoutMillis = 600000;
+
+    /**
+     * Método que crea unas opciones por defecto: construcción en segundo
+     * plano, sondeo cada segundo, informe de progreso cada diez, espera
+     * mientras haya más de 10 operaciones en cola en el servidor, hasta diez
+     * minutos, y sin límite de operaciones por segundo.
+     *
+     * @return Opciones por defecto.
+     */
+    public static IndexBuildOptions defaults() {
+        return new IndexBuildOptions();
+    }
+
+    /**
+     * Construcción en segundo plano (background:true). Es más lenta, pero
+     * no bloquea la base de datos mientras dura.
+     *
+     * @param background true para construir en segundo plano.
+     * @return Las propias opciones.
+     */
+    public IndexBuildOptions background(boolean background) {
+        this.background = background;
+        return this;
+    }
+
+    /**
+     * Construcción escalonada en un replica set: los índices se construyen
+     * de uno en uno y no se empieza el siguiente hasta que el anterior
+     * aparece en todos los secundarios activos y su retraso de replicación
+     * baja de {@link #maxReplicationLagMillis(long)}; mientras no se conoce
+     * el retraso de algún secundario, se espera. Requiere un
+     * {@link es.devcircus.mongodb_examples.hello_world.routing.ReplicaRouter}.
+     *
+     * @param rolling true para construir de forma escalonada.
+     * @return Las propias opciones.
+     */
+    public IndexBuildOptions rolling(boolean rolling) {
+        this.rolling = rolling;
+        return this;
+    }
+
+    public IndexBuildOptions pollIntervalMillis(long pollIntervalMillis) {
+        this.pollIntervalMillis = pollIntervalMillis;
+        return this;
+    }
+
+    public IndexBuildOptions progressIntervalMillis(long progressIntervalMillis) {
+        this.progressIntervalMillis = progressIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Operaciones en cola en el servidor (globalLock.currentQueue.total de
+     * serverStatus) a partir de las cuales no se empieza una construcción.
+     *
+     * @param maxQueuedOperations Operaciones en cola; 0 para no comprobarlo.
+     * @return Las propias opciones.
+     */
+    public IndexBuildOptions maxQueuedOperations(int maxQueuedOperations) {
+        this.maxQueuedOperations = maxQueuedOperations;
+        return this;
+    }
+
+    /**
+     * Operaciones por segundo (suma de opcounters entre dos sondeos) a
+     * partir de las cuales no se empieza una construcción.
+     *
+     * @param maxOpsPerSecond Operaciones por segundo; 0 para no comprobarlo.
+     * @return Las propias opciones.
+     */
+    public IndexBuildOptions maxOpsPerSecond(long maxOpsPerSecond) {
+        this.maxOpsPerSecond = maxOpsPerSecond;
+        return this;
+    }
+
+    public IndexBuildOptions maxReplicationLagMillis(long maxReplicationLagMillis) {
+        this.maxReplicationLagMillis = maxReplicationLagMillis;
+        return this;
+    }
+
+    /**
+     * Tiempo máximo que una construcción espera a que baje la carga. Pasado
+     * ese tiempo la construcción falla y se pasa a la siguiente.
+     *
+     * @param maxLoadWaitMillis Espera en milisegundos; 0 para esperar
+     * indefinidamente.
+     * @return Las propias opciones.
+     */
+    public IndexBuildOptions maxLoadWaitMillis(long maxLoadWaitMillis) {
+        this.maxLoadWaitMillis = maxLoadWaitMillis;
+        return this;
+    }
+
+    public IndexBuildOptions replicationTimeoutMillis(long replicationTimeoutMillis) {
+        this.replicationTimeoutMillis = replicationTimeoutMillis;
+        return this;
+    }
+
+    public boolean isBackground() {
+        return background;
+    }
+
+    public boolean isRolling() {
+        return rolling;
+    }
+
+    public long getPollIntervalMillis() {
+        return pollIntervalMillis;
+    }
+
+    public long getProgressIntervalMillis() {
+        return progressIntervalMillis;
+    }
+
+    public int getMaxQueuedOperations() {
+        return maxQueuedOperations;
+    }
+
+    public long getMaxOpsPerSecond() {
+        return maxOpsPerSecond;
+    }
+
+    public long getMaxReplicationLagMillis() {
+        return maxReplicationLagMillis;
+    }
+
+    public long getMaxLoadWaitMillis() {
+        return maxLoadWaitMillis;
+    }
+
+    public long getReplicationTimeoutMillis() {
+        return replicationTimeoutMillis;
+    }
+}
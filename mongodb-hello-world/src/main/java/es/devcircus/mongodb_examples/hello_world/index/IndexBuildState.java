@@ -0,0 +1,45 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Estados por los que pasa la construcción de un índice.
+ */
+public enum IndexBuildState {
+
+    /**
+     * En cola, detrás de otras construcciones.
+     */
+    PENDING,
+    /**
+     * Retenido porque la carga del servidor o el retraso de los secundarios
+     * superan los límites.
+     */
+    WAITING_FOR_LOAD,
+    /**
+     * Construyéndose en el primario.
+     */
+    BUILDING,
+    /**
+     * Terminado en el primario, esperando a que aparezca en los secundarios.
+     */
+    REPLICATING,
+    DONE,
+    FAILED
+}
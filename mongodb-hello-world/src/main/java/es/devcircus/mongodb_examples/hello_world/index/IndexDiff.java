@@ -0,0 +1,108 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Diferencia entre los índices declarados de una colección y
+ * los que devuelve getIndexInfo(): los que faltan, los que existen con los
+ * mismos campos o el mismo nombre pero otra definición (que no se tocan
+ * automáticamente) y los que existen sin estar declarados.
+ */
+public class IndexDiff {
+
+    private final String namespace;
+    private final List<IndexSpec> missing = new ArrayList<>();
+    private final List<IndexSpec> conflicting = new ArrayList<>();
+    private final List<DBObject> unexpected = new ArrayList<>();
+
+    IndexDiff(String namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * Método que compara los índices declarados con los existentes.
+     *
+     * @param namespace Espacio de nombres de la colección.
+     * @param desired Índices declarados.
+     * @param existing Resultado de getIndexInfo().
+     * @return Diferencia.
+     */
+    static IndexDiff compute(String namespace, List<IndexSpec> desired, List<DBObject> existing) {
+        IndexDiff diff = new IndexDiff(namespace);
+        List<DBObject> unmatched = new ArrayList<>(existing);
+        for (IndexSpec spec : desired) {
+            DBObject found = null;
+            for (DBObject index : existing) {
+                if (spec.sameKeys(index) || spec.getName().equals(index.get("name"))) {
+                    found = index;
+                    break;
+                }
+            }
+            if (found == null) {
+                diff.missing.add(spec);
+            } else {
+                unmatched.remove(found);
+                if (!spec.sameKeys(found) || !spec.sameOptions(found)) {
+                    diff.conflicting.add(spec);
+                }
+            }
+        }
+        for (DBObject index : unmatched) {
+            if (!"_id_".equals(index.get("name"))) {
+                diff.unexpected.add(index);
+            }
+        }
+        return diff;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public List<IndexSpec> getMissing() {
+        return Collections.unmodifiableList(missing);
+    }
+
+    public List<IndexSpec> getConflicting() {
+        return Collections.unmodifiableList(conflicting);
+    }
+
+    public List<DBObject> getUnexpected() {
+        return Collections.unmodifiableList(unexpected);
+    }
+
+    /**
+     * Indica si la colección ya tiene exactamente los índices declarados.
+     *
+     * @return true si no hay diferencias.
+     */
+    public boolean isEmpty() {
+        return missing.isEmpty() && conflicting.isEmpty() && unexpected.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return namespace + ": faltan " + missing + ", distintos " + conflicting + ", sobran " + unexpected.size();
+    }
+}
@@ -0,0 +1,482 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.routing.ReplicaMember;
+import es.devcircus.mongodb_examples.hello_world.routing.ReplicaRouter;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Orquestador de índices. Se declaran los índices que debe
+ * tener cada colección y {@link #plan()} los compara con getIndexInfo().
+ * {@link #apply()} construye los que faltan de uno en uno: antes de cada
+ * construcción espera a que la carga del servidor (serverStatus) baje de los
+ * umbrales de {@link IndexBuildOptions}, y mientras dura sondea currentOp
+ * para informar del progreso y del tiempo restante. Los índices que existen
+ * con otra definición sólo se señalan: cambiarlos exige borrarlos, y eso se
+ * deja en manos de quien lo administra.
+ *
+ * <p>En modo escalonado, con un {@link ReplicaRouter}, después de cada
+ * construcción en el primario se espera a que el índice aparezca en todos
+ * los secundarios activos antes de empezar la siguiente, y tampoco se empieza
+ * mientras algún secundario lleve más retraso del admitido. Así nunca hay
+ * más de un índice construyéndose a la vez en el replica set.</p>
+ */
+public class IndexOrchestrator implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexOrchestrator.class.getName());
+
+    private static final Pattern PROGRESS = Pattern.compile("(\\d+)/(\\d+)");
+
+    /**
+     * Sondeos que se espera a que un índice terminado aparezca en
+     * getIndexInfo() antes de darlo por fallido.
+     */
+    private static final int VISIBILITY_POLLS = 5;
+
+    private final DB db;
+    private final IndexBuildOptions options;
+    private final ReplicaRouter router;
+    private final Map<String, List<IndexSpec>> declared = new LinkedHashMap<>();
+    private final List<IndexBuild> builds = new CopyOnWriteArrayList<>();
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("mongo-index-build"));
+    /**
+     * Serializa las llamadas a {@link #apply()} sin bloquear
+     * {@link #declare(String, IndexSpec...)} ni {@link #plan()} mientras se
+     * espera a la carga o a una construcción.
+     */
+    private final Object applying = new Object();
+    private ServerLoad lastSample;
+    private boolean loadUnavailable;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param db Base de datos.
+     * @param options Opciones de construcción.
+     */
+    public IndexOrchestrator(DB db, IndexBuildOptions options) {
+        this(db, options, null);
+    }
+
+    /**
+     * Constructor de la clase para un replica set.
+     *
+     * @param db Base de datos en el primario.
+     * @param options Opciones de construcción.
+     * @param router Enrutador del replica set, del que se toman los
+     * secundarios y su retraso; null si no hay replica set.
+     */
+    public IndexOrchestrator(DB db, IndexBuildOptions options, ReplicaRouter router) {
+        if (options.isRolling() && router == null) {
+            throw new IllegalArgumentException("La construcción escalonada necesita un ReplicaRouter");
+        }
+        this.db = db;
+        this.options = options;
+        this.router = router;
+    }
+
+    /**
+     * Método que declara índices de una colección. Se pueden hacer varias
+     * llamadas para la misma colección.
+     *
+     * @param collection Nombre de la colección.
+     * @param specs Índices.
+     * @return El propio orquestador.
+     */
+    public synchronized IndexOrchestrator declare(String collection, IndexSpec... specs) {
+        declared.computeIfAbsent(collection, c -> new ArrayList<>()).addAll(Arrays.asList(specs));
+        return this;
+    }
+
+    /**
+     * Método que compara los índices declarados con los que tiene cada
+     * colección.
+     *
+     * @return Una diferencia por colección declarada.
+     */
+    public synchronized List<IndexDiff> plan() {
+        List<IndexDiff> diffs = new ArrayList<>();
+        for (Map.Entry<String, List<IndexSpec>> entry : declared.entrySet()) {
+            DBCollection coll = db.getCollection(entry.getKey());
+            diffs.add(IndexDiff.compute(coll.getFullName(), entry.getValue(), coll.getIndexInfo()));
+        }
+        return diffs;
+    }
+
+    /**
+     * Método que construye los índices que faltan, de uno en uno. Vuelve
+     * cuando han terminado todas las construcciones, con éxito o no. Si se
+     * llama desde varios hilos, las llamadas se hacen una detrás de otra.
+     *
+     * @return Construcciones lanzadas.
+     */
+    public List<IndexBuild> apply() {
+        synchronized (applying) {
+            return applyPlan();
+        }
+    }
+
+    private List<IndexBuild> applyPlan() {
+        List<IndexBuild> planned = new ArrayList<>();
+        for (IndexDiff diff : plan()) {
+            for (IndexSpec spec : diff.getConflicting()) {
+                LOGGER.log(Level.WARNING, "{0}: el índice {1} existe con otra definición",
+                        new Object[]{diff.getNamespace(), spec});
+            }
+            for (IndexSpec spec : diff.getMissing()) {
+                planned.add(new IndexBuild(diff.getNamespace(), spec));
+            }
+        }
+        builds.addAll(planned);
+        for (IndexBuild build : planned) {
+            try {
+                if (awaitLoad(build)) {
+                    build(build);
+                }
+            } catch (MongoException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+                build.failed(ex.getMessage());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                build.failed("interrumpido");
+            }
+            LOGGER.log(build.getState() == IndexBuildState.DONE ? Level.INFO : Level.WARNING, "{0}", build);
+        }
+        return planned;
+    }
+
+    /**
+     * Método que devuelve todas las construcciones lanzadas por este
+     * orquestador. Se puede consultar desde otro hilo mientras
+     * {@link #apply()} está en marcha.
+     *
+     * @return Construcciones.
+     */
+    public List<IndexBuild> getBuilds() {
+        return Collections.unmodifiableList(builds);
+    }
+
+    @Override
+    public void close() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Espera a que la carga permita empezar una construcción.
+     *
+     * @return false si se ha superado la espera máxima.
+     */
+    private boolean awaitLoad(IndexBuild build) throws InterruptedException {
+        long deadline = options.getMaxLoadWaitMillis() > 0
+                ? System.currentTimeMillis() + options.getMaxLoadWaitMillis() : Long.MAX_VALUE;
+        ServerLoad previous = null;
+        long lastReport = 0;
+        while (true) {
+            String reason = overloaded(previous);
+            if (reason == null) {
+                return true;
+            }
+            if (!reason.isEmpty()) {
+                build.waitingForLoad();
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= options.getProgressIntervalMillis()) {
+                    LOGGER.log(Level.INFO, "{0}: esperando, {1}", new Object[]{build, reason});
+                    lastReport = now;
+                }
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                build.failed("la carga no ha bajado en " + options.getMaxLoadWaitMillis() + " ms (" + reason + ")");
+                return false;
+            }
+            previous = lastSample;
+            Thread.sleep(options.getPollIntervalMillis());
+        }
+    }
+
+    /**
+     * Comprueba los umbrales de carga.
+     *
+     * @return null si se puede empezar; el motivo si no; una cadena vacía si
+     * hace falta otra muestra para calcular las operaciones por segundo.
+     */
+    private String overloaded(ServerLoad previous) {
+        if (options.isRolling()) {
+            for (ReplicaMember member : router.getMembers()) {
+                if (!member.isUp() || !member.isSecondary()) {
+                    continue;
+                }
+                if (member.getStalenessMillis() < 0) {
+                    // sin primario o sin replSetGetStatus no se sabe el retraso
+                    return "no se conoce el retraso de " + member.getAddress();
+                }
+                if (member.getStalenessMillis() > options.getMaxReplicationLagMillis()) {
+                    return member.getAddress() + " lleva " + member.getStalenessMillis() + " ms de retraso";
+                }
+            }
+        }
+        if (loadUnavailable || (options.getMaxQueuedOperations() <= 0 && options.getMaxOpsPerSecond() <= 0)) {
+            return null;
+        }
+        ServerLoad load = ServerLoad.sample(db);
+        lastSample = load;
+        if (load == null) {
+            LOGGER.log(Level.WARNING, "El servidor no responde a serverStatus; se construye sin comprobar la carga");
+            loadUnavailable = true;
+            return null;
+        }
+        if (options.getMaxQueuedOperations() > 0 && load.getQueued() > options.getMaxQueuedOperations()) {
+            return load.getQueued() + " operaciones en cola";
+        }
+        if (options.getMaxOpsPerSecond() > 0) {
+            long ops = load.opsPerSecond(previous);
+            if (ops < 0) {
+                return "";
+            }
+            if (ops > options.getMaxOpsPerSecond()) {
+                return ops + " operaciones por segundo";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Construye un índice en el primario y, en modo escalonado, espera a que
+     * llegue a los secundarios.
+     */
+    private void build(IndexBuild build) throws InterruptedException {
+        String collection = build.getNamespace().substring(db.getName().length() + 1);
+        DBCollection coll = db.getCollection(collection);
+        IndexSpec spec = build.getSpec();
+        build.started();
+        LOGGER.log(Level.INFO, "{0}", build);
+        Future<?> task = builder.submit(() -> {
+            // ensureIndex es un insert en system.indexes; getLastError en la
+            // misma conexión espera a que la construcción termine y devuelve
+            // sus errores (claves duplicadas en un índice único, por ejemplo)
+            db.requestStart();
+            try {
+                coll.resetIndexCache();
+                coll.ensureIndex(spec.getKeys(), spec.toOptions(options.isBackground()));
+                Object err = db.getLastError().get("err");
+                if (err != null) {
+                    throw new MongoException(err.toString());
+                }
+            } finally {
+                db.requestDone();
+            }
+            return null;
+        });
+        long lastReport = System.currentTimeMillis();
+        while (true) {
+            try {
+                task.get(options.getPollIntervalMillis(), TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException ex) {
+                pollProgress(build);
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= options.getProgressIntervalMillis()) {
+                    LOGGER.log(Level.INFO, "{0}", build);
+                    lastReport = now;
+                }
+            } catch (ExecutionException ex) {
+                build.failed(String.valueOf(ex.getCause().getMessage()));
+                return;
+            } catch (InterruptedException ex) {
+                task.cancel(true);
+                throw ex;
+            }
+        }
+        if (!awaitIndex(coll, spec.getName(), VISIBILITY_POLLS)) {
+            build.failed("el índice no aparece en getIndexInfo()");
+            return;
+        }
+        if (options.isRolling()) {
+            build.replicating();
+            if (!awaitSecondaries(build, collection)) {
+                build.failed("el índice no ha llegado a todos los secundarios en "
+                        + options.getReplicationTimeoutMillis() + " ms");
+                return;
+            }
+        }
+        build.finished();
+    }
+
+    private boolean awaitIndex(DBCollection coll, String name, int polls) throws InterruptedException {
+        for (int i = 0; i < polls; i++) {
+            if (hasIndex(coll, name)) {
+                return true;
+            }
+            Thread.sleep(options.getPollIntervalMillis());
+        }
+        return hasIndex(coll, name);
+    }
+
+    private boolean awaitSecondaries(IndexBuild build, String collection) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + options.getReplicationTimeoutMillis();
+        long lastReport = System.currentTimeMillis();
+        while (true) {
+            List<String> pending = new ArrayList<>();
+            for (ReplicaMember member : router.getMembers()) {
+                if (!member.isUp() || !member.isSecondary()) {
+                    continue;
+                }
+                try {
+                    DBCollection replica = member.getReadDB(db.getName()).getCollection(collection);
+                    if (!hasIndex(replica, build.getSpec().getName())) {
+                        pending.add(member.getAddress());
+                    }
+                } catch (MongoException ex) {
+                    LOGGER.log(Level.FINE, null, ex);
+                    pending.add(member.getAddress());
+                }
+            }
+            if (pending.isEmpty()) {
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            if (now >= deadline) {
+                return false;
+            }
+            if (now - lastReport >= options.getProgressIntervalMillis()) {
+                LOGGER.log(Level.INFO, "{0}: pendiente en {1}", new Object[]{build, pending});
+                lastReport = now;
+            }
+            Thread.sleep(options.getPollIntervalMillis());
+        }
+    }
+
+    private static boolean hasIndex(DBCollection coll, String name) {
+        for (DBObject index : coll.getIndexInfo()) {
+            if (name.equals(index.get("name"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Busca la construcción en currentOp y actualiza su progreso. Si el
+     * servidor no informa de la operación no se hace nada.
+     */
+    private void pollProgress(IndexBuild build) {
+        List<?> inprog;
+        try {
+            inprog = currentOp();
+        } catch (MongoException ex) {
+            LOGGER.log(Level.FINE, null, ex);
+            return;
+        }
+        for (Object item : inprog) {
+            if (!(item instanceof DBObject) || !isBuildOf((DBObject) item, build)) {
+                continue;
+            }
+            DBObject op = (DBObject) item;
+            String msg = op.get("msg") != null ? op.get("msg").toString() : "construyendo";
+            if (op.get("progress") instanceof DBObject) {
+                DBObject progress = (DBObject) op.get("progress");
+                if (progress.get("done") instanceof Number && progress.get("total") instanceof Number) {
+                    build.progress(msg, ((Number) progress.get("done")).longValue(),
+                            ((Number) progress.get("total")).longValue());
+                    return;
+                }
+            }
+            // los servidores antiguos sólo informan en el mensaje:
+            // "bg index build 51200/100000 51%"
+            Matcher matcher = PROGRESS.matcher(msg);
+            long done = 0;
+            long total = 0;
+            while (matcher.find()) {
+                done = Long.parseLong(matcher.group(1));
+                total = Long.parseLong(matcher.group(2));
+            }
+            build.progress(msg, done, total);
+            return;
+        }
+    }
+
+    /**
+     * Operaciones en curso del servidor: el comando currentOp o, en los
+     * servidores que no lo tienen, la pseudo-colección $cmd.sys.inprog.
+     */
+    private List<?> currentOp() {
+        DB admin = db.getSisterDB("admin");
+        DBObject result = admin.command(new BasicDBObject("currentOp", 1));
+        if (!(result.get("inprog") instanceof List)) {
+            result = admin.getCollection("$cmd.sys.inprog").findOne();
+        }
+        if (result == null || !(result.get("inprog") instanceof List)) {
+            return Collections.emptyList();
+        }
+        return (List<?>) result.get("inprog");
+    }
+
+    /**
+     * Indica si una operación de currentOp es la construcción de un índice:
+     * el insert en system.indexes de los servidores antiguos, el comando
+     * createIndexes de los nuevos o, si no se reconoce ninguno de los dos,
+     * una operación sobre la colección cuyo mensaje habla de índices.
+     */
+    private static boolean isBuildOf(DBObject op, IndexBuild build) {
+        String name = build.getSpec().getName();
+        Object insert = op.get("insert");
+        if (insert == null) {
+            insert = op.get("command") != null ? op.get("command") : op.get("query");
+        }
+        if (insert instanceof DBObject) {
+            DBObject spec = (DBObject) insert;
+            if (name.equals(spec.get("name")) && build.getNamespace().equals(spec.get("ns"))) {
+                return true;
+            }
+            if (spec.get("indexes") instanceof List) {
+                for (Object index : (List<?>) spec.get("indexes")) {
+                    if (index instanceof DBObject && name.equals(((DBObject) index).get("name"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        Object msg = op.get("msg");
+        return build.getNamespace().equals(op.get("ns")) && msg != null && msg.toString().contains("ndex");
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Índice recomendado por el {@link IndexAdvisor}: los campos,
+ * las formas de consulta a las que da servicio y por qué hace falta.
+ */
+public class IndexRecommendation {
+
+    private final String namespace;
+    private DBObject keys;
+    private int equalityFields;
+    private String replaces;
+    private final List<QueryShape> shapes = new ArrayList<>();
+    private final List<String> reasons = new ArrayList<>();
+
+    IndexRecommendation(String namespace, DBObject keys, int equalityFields) {
+        this.namespace = namespace;
+        this.keys = keys;
+        this.equalityFields = equalityFields;
+    }
+
+    void add(QueryShape shape, String reason) {
+        shapes.add(shape);
+        reasons.add(reason);
+    }
+
+    void widen(DBObject keys, int equalityFields) {
+        this.keys = keys;
+        this.equalityFields = equalityFields;
+    }
+
+    void setReplaces(String replaces) {
+        this.replaces = replaces;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public DBObject getKeys() {
+        return keys;
+    }
+
+    /**
+     * Número de campos iniciales que se filtran por igualdad; su orden
+     * dentro del índice es indiferente.
+     *
+     * @return Campos de igualdad.
+     */
+    public int getEqualityFields() {
+        return equalityFields;
+    }
+
+    /**
+     * Índice existente que queda cubierto por el recomendado, porque es un
+     * prefijo suyo, y que se podría eliminar después de crearlo.
+     *
+     * @return Nombre del índice; null si no hay ninguno.
+     */
+    public String getReplaces() {
+        return replaces;
+    }
+
+    public List<QueryShape> getShapes() {
+        return Collections.unmodifiableList(shapes);
+    }
+
+    public List<String> getReasons() {
+        return Collections.unmodifiableList(reasons);
+    }
+
+    @Override
+    public String toString() {
+        long queries = 0;
+        for (QueryShape shape : shapes) {
+            queries += shape.getCount();
+        }
+        return namespace + " " + keys + ": " + String.join("; ", reasons) + " (" + shapes.size()
+                + " formas, " + queries + " consultas" + (replaces != null ? ", cubre " + replaces : "") + ")";
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Índice deseado en una colección: sus campos, en orden, y las
+ * opciones que cambian su significado (unique y sparse). El nombre, si no se
+ * indica, es el que genera el driver.
+ *
+ * <pre>
+ * IndexSpec.on("lastname", 1).and("firstname", 1).unique()
+ * </pre>
+ */
+public class IndexSpec {
+
+    private final BasicDBObject keys = new BasicDBObject();
+    private String name;
+    private boolean unique;
+    private boolean sparse;
+
+    private IndexSpec() {
+    }
+
+    /**
+     * Método que crea un índice sobre un campo.
+     *
+     * @param field Campo.
+     * @param direction 1 ascendente, -1 descendente.
+     * @return Índice.
+     */
+    public static IndexSpec on(String field, int direction) {
+        return new IndexSpec().and(field, direction);
+    }
+
+    /**
+     * Método que añade un campo al final del índice.
+     *
+     * @param field Campo.
+     * @param direction 1 ascendente, -1 descendente.
+     * @return El propio índice.
+     */
+    public IndexSpec and(String field, int direction) {
+        keys.put(field, direction);
+        return this;
+    }
+
+    public IndexSpec named(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public IndexSpec unique() {
+        this.unique = true;
+        return this;
+    }
+
+    public IndexSpec sparse() {
+        this.sparse = true;
+        return this;
+    }
+
+    public DBObject getKeys() {
+        return keys;
+    }
+
+    public String getName() {
+        return name != null ? name : DBCollection.genIndexName(keys);
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Método que construye las opciones de ensureIndex.
+     *
+     * @param background Si es true el índice se construye en segundo plano.
+     * @return Opciones.
+     */
+    DBObject toOptions(boolean background) {
+        BasicDBObject options = new BasicDBObject("name", getName());
+        if (unique) {
+            options.put("unique", true);
+        }
+        if (sparse) {
+            options.put("sparse", true);
+        }
+        if (background) {
+            options.put("background", true);
+        }
+        return options;
+    }
+
+    /**
+     * Indica si un índice de getIndexInfo() tiene los mismos campos, en el
+     * mismo orden y con la misma dirección.
+     */
+    boolean sameKeys(DBObject index) {
+        DBObject other = (DBObject) index.get("key");
+        if (other == null) {
+            return false;
+        }
+        List<String> fields = new ArrayList<>(keys.keySet());
+        List<String> otherFields = new ArrayList<>(other.keySet());
+        if (!fields.equals(otherFields)) {
+            return false;
+        }
+        for (String field : fields) {
+            Object a = keys.get(field);
+            Object b = other.get(field);
+            boolean equal = a instanceof Number && b instanceof Number
+                    ? ((Number) a).doubleValue() == ((Number) b).doubleValue()
+                    : a.equals(b);
+            if (!equal) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica si un índice de getIndexInfo() con los mismos campos tiene
+     * también las mismas opciones.
+     */
+    boolean sameOptions(DBObject index) {
+        return unique == Boolean.TRUE.equals(index.get("unique"))
+                && sparse == Boolean.TRUE.equals(index.get("sparse"));
+    }
+
+    @Override
+    public String toString() {
+        return getName() + " " + keys + (unique ? " unique" : "") + (sparse ? " sparse" : "");
+    }
+}
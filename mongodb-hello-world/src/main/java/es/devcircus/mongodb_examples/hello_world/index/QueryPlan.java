@@ -0,0 +1,147 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+import com.mongodb.DBObject;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Lo que interesa del resultado de explain(): si se recorre la
+ * colección entera, qué índice se usa y cuántos documentos se examinan por
+ * cada uno devuelto. Entiende el formato de los servidores 1.x/2.x (cursor,
+ * nscanned, n) y el de los posteriores (queryPlanner y executionStats).
+ */
+public class QueryPlan {
+
+    private final boolean collectionScan;
+    private final String index;
+    private final long examined;
+    private final long returned;
+
+    private QueryPlan(boolean collectionScan, String index, long examined, long returned) {
+        this.collectionScan = collectionScan;
+        this.index = index;
+        this.examined = examined;
+        this.returned = returned;
+    }
+
+    /**
+     * Método que interpreta la respuesta de explain().
+     *
+     * @param explain Respuesta del servidor.
+     * @return Plan, o null si la respuesta no tiene ninguno de los formatos
+     * conocidos.
+     */
+    public static QueryPlan from(DBObject explain) {
+        if (explain == null) {
+            return null;
+        }
+        Object cursor = explain.get("cursor");
+        if (cursor instanceof String) {
+            String name = (String) cursor;
+            boolean scan = name.startsWith("BasicCursor");
+            return new QueryPlan(scan, scan ? null : name.replaceFirst("^BtreeCursor ", ""),
+                    number(explain.get("nscanned")), number(explain.get("n")));
+        }
+        DBObject planner = (DBObject) explain.get("queryPlanner");
+        if (planner == null) {
+            return null;
+        }
+        DBObject winning = (DBObject) planner.get("winningPlan");
+        DBObject stats = (DBObject) explain.get("executionStats");
+        return new QueryPlan(hasStage(winning, "COLLSCAN"), findIndexName(winning),
+                stats == null ? -1 : number(stats.get("totalDocsExamined")),
+                stats == null ? -1 : number(stats.get("nReturned")));
+    }
+
+    private static boolean hasStage(DBObject stage, String name) {
+        if (stage == null) {
+            return false;
+        }
+        if (name.equals(stage.get("stage"))) {
+            return true;
+        }
+        if (hasStage((DBObject) stage.get("inputStage"), name)) {
+            return true;
+        }
+        Object inputs = stage.get("inputStages");
+        if (inputs instanceof List) {
+            for (Object input : (List<?>) inputs) {
+                if (hasStage((DBObject) input, name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String findIndexName(DBObject stage) {
+        while (stage != null) {
+            if (stage.get("indexName") != null) {
+                return stage.get("indexName").toString();
+            }
+            stage = (DBObject) stage.get("inputStage");
+        }
+        return null;
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : -1;
+    }
+
+    public boolean isCollectionScan() {
+        return collectionScan;
+    }
+
+    /**
+     * Índice usado por el plan ganador.
+     *
+     * @return Nombre del índice; null si no se usa ninguno.
+     */
+    public String getIndex() {
+        return index;
+    }
+
+    public long getExamined() {
+        return examined;
+    }
+
+    public long getReturned() {
+        return returned;
+    }
+
+    /**
+     * Documentos examinados por cada documento devuelto. Una consulta bien
+     * indexada se queda cerca de 1.
+     *
+     * @return Relación examinados/devueltos; -1 si el servidor no la informa.
+     */
+    public double getScanRatio() {
+        if (examined < 0 || returned < 0) {
+            return -1;
+        }
+        return examined / (double) Math.max(1, returned);
+    }
+
+    @Override
+    public String toString() {
+        return (collectionScan ? "recorrido completo" : "índice " + index)
+                + ", " + examined + " examinados, " + returned + " devueltos";
+    }
+}
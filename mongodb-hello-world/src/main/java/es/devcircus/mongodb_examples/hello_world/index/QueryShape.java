@@ -0,0 +1,214 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Forma de una consulta: qué campos se filtran por igualdad,
+ * cuáles por rango y por cuáles se ordena, sin los valores concretos. Dos
+ * consultas con la misma forma se benefician del mismo índice. Guarda la
+ * primera consulta vista como muestra para lanzar explain().
+ */
+public class QueryShape {
+
+    private final String namespace;
+    private final Set<String> equality;
+    private final Set<String> range;
+    private final Map<String, Integer> sort;
+    private final boolean partial;
+    private final DBObject sampleQuery;
+    private final DBObject sampleSort;
+    private final LongAdder count = new LongAdder();
+
+    private QueryShape(String namespace, Set<String> equality, Set<String> range, Map<String, Integer> sort,
+            boolean partial, DBObject sampleQuery, DBObject sampleSort) {
+        this.namespace = namespace;
+        this.equality = Collections.unmodifiableSet(equality);
+        this.range = Collections.unmodifiableSet(range);
+        this.sort = Collections.unmodifiableMap(sort);
+        this.partial = partial;
+        this.sampleQuery = sampleQuery;
+        this.sampleSort = sampleSort;
+    }
+
+    /**
+     * Método que obtiene la forma de una consulta tal y como la envía el
+     * cursor del driver, desenvolviendo {query, orderby} si hace falta.
+     *
+     * @param namespace Nombre completo de la colección.
+     * @param ref Consulta.
+     * @return Forma de la consulta.
+     */
+    public static QueryShape of(String namespace, DBObject ref) {
+        DBObject query = ref;
+        DBObject orderBy = null;
+        if (ref.containsField("query") && ref.get("query") instanceof DBObject) {
+            query = (DBObject) ref.get("query");
+            orderBy = (DBObject) ref.get("orderby");
+        }
+        Set<String> equality = new LinkedHashSet<>();
+        Set<String> range = new LinkedHashSet<>();
+        boolean partial = classify(query, equality, range);
+        range.removeAll(equality);
+        Map<String, Integer> sort = new LinkedHashMap<>();
+        if (orderBy != null) {
+            for (String field : orderBy.keySet()) {
+                Object direction = orderBy.get(field);
+                sort.put(field, direction instanceof Number && ((Number) direction).intValue() < 0 ? -1 : 1);
+            }
+        }
+        return new QueryShape(namespace, equality, range, sort, partial, query, orderBy);
+    }
+
+    /**
+     * Reparte los campos entre igualdad y rango. $in cuenta como igualdad,
+     * los demás operadores y las expresiones regulares como rango. Las
+     * cláusulas de $and se aplanan; $or, $where y similares no se pueden
+     * cubrir con un único índice y sólo marcan la forma como parcial.
+     */
+    private static boolean classify(DBObject query, Set<String> equality, Set<String> range) {
+        boolean partial = false;
+        for (String field : query.keySet()) {
+            Object value = query.get(field);
+            if ("$and".equals(field) && value instanceof List) {
+                for (Object clause : (List<?>) value) {
+                    if (clause instanceof DBObject) {
+                        partial |= classify((DBObject) clause, equality, range);
+                    }
+                }
+            } else if (field.startsWith("$")) {
+                partial = true;
+            } else if (value instanceof Pattern) {
+                range.add(field);
+            } else if (isOperatorDocument(value)) {
+                DBObject operators = (DBObject) value;
+                if (operators.keySet().size() == 1 && operators.containsField("$in")) {
+                    equality.add(field);
+                } else {
+                    range.add(field);
+                }
+            } else {
+                equality.add(field);
+            }
+        }
+        return partial;
+    }
+
+    private static boolean isOperatorDocument(Object value) {
+        if (!(value instanceof DBObject) || value instanceof List) {
+            return false;
+        }
+        Set<String> keys = ((DBObject) value).keySet();
+        return !keys.isEmpty() && keys.iterator().next().startsWith("$");
+    }
+
+    /**
+     * Clave que identifica la forma dentro de su colección.
+     *
+     * @return Clave de la forma.
+     */
+    public String getKey() {
+        return namespace + " eq" + equality + " sort" + sort + " range" + range;
+    }
+
+    /**
+     * Método que construye el índice ideal para la forma: primero los campos
+     * de igualdad, después los de ordenación y por último los de rango.
+     *
+     * @return Campos del índice; vacío si la consulta no filtra ni ordena
+     * por ningún campo, o sólo por _id.
+     */
+    public DBObject proposeIndex() {
+        BasicDBObject keys = new BasicDBObject();
+        for (String field : equality) {
+            keys.put(field, 1);
+        }
+        for (Map.Entry<String, Integer> entry : sort.entrySet()) {
+            if (!keys.containsField(entry.getKey())) {
+                keys.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String field : range) {
+            if (!keys.containsField(field)) {
+                keys.put(field, 1);
+            }
+        }
+        if (keys.keySet().size() == 1 && keys.containsField("_id")) {
+            return new BasicDBObject();
+        }
+        return keys;
+    }
+
+    void seen() {
+        count.increment();
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public Set<String> getEqualityFields() {
+        return equality;
+    }
+
+    public Set<String> getRangeFields() {
+        return range;
+    }
+
+    public Map<String, Integer> getSortFields() {
+        return sort;
+    }
+
+    /**
+     * Indica si la consulta tiene partes ($or, $where...) que el índice
+     * propuesto no cubre.
+     *
+     * @return true si la forma es parcial.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public DBObject getSampleQuery() {
+        return sampleQuery;
+    }
+
+    public DBObject getSampleSort() {
+        return sampleSort;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return getKey() + " x" + getCount();
+    }
+}
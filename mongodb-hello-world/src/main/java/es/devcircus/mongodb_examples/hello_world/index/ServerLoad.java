@@ -0,0 +1,116 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.index;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Muestra de la carga de un servidor tomada de serverStatus:
+ * operaciones en cola esperando el bloqueo global, clientes activos y el
+ * total acumulado de opcounters, con el que dos muestras dan las
+ * operaciones por segundo.
+ */
+public class ServerLoad {
+
+    private final long timestamp;
+    private final int queued;
+    private final int activeClients;
+    private final long operations;
+
+    ServerLoad(long timestamp, int queued, int activeClients, long operations) {
+        this.timestamp = timestamp;
+        this.queued = queued;
+        this.activeClients = activeClients;
+        this.operations = operations;
+    }
+
+    /**
+     * Método que toma una muestra de la carga del servidor.
+     *
+     * @param db Cualquier base de datos del servidor; el comando se lanza
+     * sobre admin.
+     * @return Muestra; null si el servidor no responde a serverStatus.
+     */
+    public static ServerLoad sample(DB db) {
+        DBObject status;
+        try {
+            status = db.getSisterDB("admin").command(new BasicDBObject("serverStatus", 1));
+        } catch (MongoException ex) {
+            return null;
+        }
+        Object ok = status.get("ok");
+        if (!(ok instanceof Number) || ((Number) ok).intValue() != 1) {
+            return null;
+        }
+        int queued = 0;
+        int activeClients = 0;
+        DBObject globalLock = (DBObject) status.get("globalLock");
+        if (globalLock != null) {
+            queued = intValue(globalLock.get("currentQueue"), "total");
+            activeClients = intValue(globalLock.get("activeClients"), "total");
+        }
+        long operations = 0;
+        DBObject opcounters = (DBObject) status.get("opcounters");
+        if (opcounters != null) {
+            for (String key : opcounters.keySet()) {
+                Object value = opcounters.get(key);
+                if (value instanceof Number) {
+                    operations += ((Number) value).longValue();
+                }
+            }
+        }
+        return new ServerLoad(System.currentTimeMillis(), queued, activeClients, operations);
+    }
+
+    private static int intValue(Object section, String key) {
+        if (section instanceof DBObject && ((DBObject) section).get(key) instanceof Number) {
+            return ((Number) ((DBObject) section).get(key)).intValue();
+        }
+        return 0;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getActiveClients() {
+        return activeClients;
+    }
+
+    /**
+     * Operaciones por segundo entre una muestra anterior y ésta.
+     *
+     * @param previous Muestra anterior; puede ser null.
+     * @return Operaciones por segundo; -1 si no hay muestra anterior.
+     */
+    public long opsPerSecond(ServerLoad previous) {
+        if (previous == null || timestamp <= previous.timestamp) {
+            return -1;
+        }
+        return (operations - previous.operations) * 1000 / (timestamp - previous.timestamp);
+    }
+
+    @Override
+    public String toString() {
+        return "en cola " + queued + ", clientes activos " + activeClients;
+    }
+}
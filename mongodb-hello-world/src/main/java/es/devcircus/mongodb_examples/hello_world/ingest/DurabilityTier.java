@@ -0,0 +1,99 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.ingest;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Nivel de durabilidad de una escritura, de más rápido a más
+ * seguro. Cada lote se envía con un insert y, salvo en
+ * {@link #FIRE_AND_FORGET}, se confirma con un getlasterror en la misma
+ * conexión con las opciones del nivel. Un lote con documentos de varios
+ * niveles se confirma con el más exigente.
+ * <p>
+ * Además de lo que se indica en cada nivel, los documentos que aún están en
+ * la cola en memoria de {@link TieredInserter} se pierden si se cae el
+ * proceso; los que están en el spill log sobreviven y se reenvían al volver a
+ * abrirlo, aunque pueden llegar dos veces (se descarta el segundo por _id).
+ */
+public enum DurabilityTier {
+
+    /**
+     * Sin confirmación: el lote se da por escrito al dejarlo en el socket.
+     * Sólo se detectan los errores de red al enviar. Se pierde lo que el
+     * servidor rechace (claves duplicadas, documentos inválidos), lo que quede
+     * en los buffers si la conexión se corta y lo que no haya llegado al
+     * disco si se cae el primario.
+     */
+    FIRE_AND_FORGET(null),
+    /**
+     * Confirmado por el primario: está aplicado en memoria. Se pierde si el
+     * primario se cae antes de escribir en el journal, o si se cae antes de
+     * replicarlo y se deshace al elegirse otro.
+     */
+    ACKNOWLEDGED(new BasicDBObject("getlasterror", 1)),
+    /**
+     * Confirmado en el journal del primario: sobrevive a su caída, pero aún
+     * puede deshacerse si se elige otro primario que no lo tenía. Si el
+     * servidor no tiene journal, los lotes se escriben pero no se confirman:
+     * cuentan en {@link IngestStats#getUnconfirmed()}.
+     */
+    JOURNALED(new BasicDBObject("getlasterror", 1).append("j", true)),
+    /**
+     * Confirmado por la mayoría del replica set: sobrevive a la caída del
+     * primario y a la elección de otro. Si la mayoría no confirma dentro del
+     * plazo (wtimeout) el lote se trata como un fallo transitorio y se
+     * reintenta.
+     */
+    MAJORITY(new BasicDBObject("getlasterror", 1).append("w", "majority"));
+
+    private final DBObject lastError;
+
+    private DurabilityTier(DBObject lastError) {
+        this.lastError = lastError;
+    }
+
+    /**
+     * Método que construye la orden getlasterror del nivel.
+     *
+     * @param timeoutMillis Plazo de la confirmación por mayoría.
+     * @return Orden, o null si el nivel no espera confirmación.
+     */
+    public DBObject getLastErrorCommand(long timeoutMillis) {
+        if (lastError == null) {
+            return null;
+        }
+        BasicDBObject command = new BasicDBObject(lastError.toMap());
+        if (this == MAJORITY) {
+            command.append("wtimeout", timeoutMillis);
+        }
+        return command;
+    }
+
+    /**
+     * Método que devuelve el más exigente de dos niveles.
+     *
+     * @param other Otro nivel.
+     * @return El más exigente.
+     */
+    public DurabilityTier max(DurabilityTier other) {
+        return other != null && other.ordinal() > ordinal() ? other : this;
+    }
+}
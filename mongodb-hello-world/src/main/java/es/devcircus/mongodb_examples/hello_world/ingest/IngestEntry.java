@@ -0,0 +1,38 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.ingest;
+
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Documento pendiente de enviar, con su nivel de durabilidad y
+ * su tamaño (estimado en la cola, exacto en el spill log).
+ */
+class IngestEntry {
+
+    final DBObject doc;
+    final DurabilityTier tier;
+    final int size;
+
+    IngestEntry(DBObject doc, DurabilityTier tier, int size) {
+        this.doc = doc;
+        this.tier = tier;
+        this.size = size;
+    }
+}
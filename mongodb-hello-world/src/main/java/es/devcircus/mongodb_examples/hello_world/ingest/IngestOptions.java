@@ -0,0 +1,220 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.ingest;
+
+import java.nio.file.Path;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de {@link TieredInserter}: nivel de durabilidad por
+ * defecto, tamaño de los lotes, cola en memoria y spill log en disco.
+ */
+public class IngestOptions {
+
+    private DurabilityTier tier = DurabilityTier.ACKNOWLEDGED;
+    private int maxBatchDocuments = 500;
+    private int maxBatchBytes = 1024 * 1024;
+    private long lingerMillis = 5;
+    private int queueDocuments = 10000;
+    private Path spillDirectory;
+    private long maxSpillBytes = 256L * 1024 * 1024;
+    private int segmentBytes = 16 * 1024 * 1024;
+    private boolean syncSpill;
+    private long majorityTimeoutMillis = 10000;
+    private long retryIntervalMillis = 1000;
+    private long closeTimeoutMillis = 30000;
+
+    /**
+     * Método que crea unas opciones por defecto: nivel ACKNOWLEDGED, lotes
+     * de hasta 500 documentos o 1 MB reunidos durante 5 ms, cola de 10000
+     * documentos y sin spill log.
+     *
+     * @return Opciones por defecto.
+     */
+    public static IngestOptions defaults() {
+        return new IngestOptions();
+    }
+
+    public IngestOptions tier(DurabilityTier tier) {
+        this.tier = tier;
+        return this;
+    }
+
+    public IngestOptions maxBatchDocuments(int maxBatchDocuments) {
+        this.maxBatchDocuments = maxBatchDocuments;
+        return this;
+    }
+
+    public IngestOptions maxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    /**
+     * Tiempo que se espera a que lleguen más documentos antes de enviar un
+     * lote incompleto. Con cero cada lote sale con lo que haya en la cola.
+     *
+     * @param lingerMillis Espera en milisegundos.
+     * @return Las propias opciones.
+     */
+    public IngestOptions lingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+        return this;
+    }
+
+    /**
+     * Documentos que caben en la cola en memoria. Con la cola llena, los
+     * documentos nuevos van al spill log o, si no lo hay, se rechazan.
+     *
+     * @param queueDocuments Número de documentos.
+     * @return Las propias opciones.
+     */
+    public IngestOptions queueDocuments(int queueDocuments) {
+        this.queueDocuments = queueDocuments;
+        return this;
+    }
+
+    /**
+     * Directorio del spill log. Cada colección usa un subdirectorio con su
+     * nombre completo. Lo que quede pendiente al cerrar, o al caerse el
+     * proceso, se reenvía la próxima vez que se abra un insertador sobre la
+     * misma colección y el mismo directorio.
+     *
+     * @param spillDirectory Directorio, o null para no usar spill log.
+     * @return Las propias opciones.
+     */
+    public IngestOptions spillDirectory(Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+        return this;
+    }
+
+    /**
+     * Espacio máximo del spill log. Si se llena, los documentos se rechazan
+     * con una {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param maxSpillBytes Bytes en disco.
+     * @return Las propias opciones.
+     */
+    public IngestOptions maxSpillBytes(long maxSpillBytes) {
+        this.maxSpillBytes = maxSpillBytes;
+        return this;
+    }
+
+    /**
+     * Tamaño a partir del cual el spill log pasa a un segmento nuevo. Un lote
+     * no se reparte entre segmentos, así que uno puede pasarse de este
+     * tamaño en lo que ocupe el último lote.
+     *
+     * @param segmentBytes Bytes por segmento.
+     * @return Las propias opciones.
+     */
+    public IngestOptions segmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+        return this;
+    }
+
+    /**
+     * Fuerza el spill log a disco (fsync) en cada escritura. Sin ello lo
+     * escrito sobrevive a la caída del proceso pero no a la del sistema
+     * operativo.
+     *
+     * @param syncSpill true para hacer fsync.
+     * @return Las propias opciones.
+     */
+    public IngestOptions syncSpill(boolean syncSpill) {
+        this.syncSpill = syncSpill;
+        return this;
+    }
+
+    public IngestOptions majorityTimeoutMillis(long majorityTimeoutMillis) {
+        this.majorityTimeoutMillis = majorityTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Espera entre intentos mientras el servidor no responde. La espera real
+     * es aleatoria entre la mitad y el valor indicado.
+     *
+     * @param retryIntervalMillis Espera en milisegundos.
+     * @return Las propias opciones.
+     */
+    public IngestOptions retryIntervalMillis(long retryIntervalMillis) {
+        this.retryIntervalMillis = retryIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Tiempo que espera close() a que se vacíen la cola y el spill log. Lo
+     * que quede se pasa al spill log o, si no lo hay, se pierde.
+     *
+     * @param closeTimeoutMillis Espera en milisegundos.
+     * @return Las propias opciones.
+     */
+    public IngestOptions closeTimeoutMillis(long closeTimeoutMillis) {
+        this.closeTimeoutMillis = closeTimeoutMillis;
+        return this;
+    }
+
+    public DurabilityTier getTier() {
+        return tier;
+    }
+
+    public int getMaxBatchDocuments() {
+        return maxBatchDocuments;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public int getQueueDocuments() {
+        return queueDocuments;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public long getMaxSpillBytes() {
+        return maxSpillBytes;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public boolean isSyncSpill() {
+        return syncSpill;
+    }
+
+    public long getMajorityTimeoutMillis() {
+        return majorityTimeoutMillis;
+    }
+
+    public long getRetryIntervalMillis() {
+        return retryIntervalMillis;
+    }
+
+    public long getCloseTimeoutMillis() {
+        return closeTimeoutMillis;
+    }
+}
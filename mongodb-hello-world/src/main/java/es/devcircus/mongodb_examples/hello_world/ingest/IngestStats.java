@@ -0,0 +1,163 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.ingest;
+
+import es.devcircus.mongodb_examples.hello_world.metrics.LatencyHistogram;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Estadísticas de un {@link TieredInserter}: documentos
+ * recibidos, escritos directamente o reenviados desde el spill log, pasados
+ * al spill log, rechazados, descartados por error del servidor o por clave
+ * duplicada al reenviar, escritos sin la durabilidad pedida por la
+ * configuración del servidor y perdidos al cerrar sin spill log; además,
+ * latencia de los lotes confirmados.
+ */
+public class IngestStats {
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder unconfirmed = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    void submitted() {
+        submitted.increment();
+    }
+
+    void written(int documents, long latencyNanos, boolean replay) {
+        (replay ? replayed : written).add(documents);
+        batchLatency.record(latencyNanos);
+    }
+
+    void spilled(int documents) {
+        spilled.add(documents);
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    void failed(int documents) {
+        failed.add(documents);
+    }
+
+    void duplicate() {
+        duplicates.increment();
+    }
+
+    void unconfirmed(int documents) {
+        unconfirmed.add(documents);
+    }
+
+    void lost(int documents) {
+        lost.add(documents);
+    }
+
+    void retry() {
+        retries.increment();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getReplayed() {
+        return replayed.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Documentos escritos pero sin la durabilidad pedida, como JOURNALED en
+     * un servidor sin journal.
+     *
+     * @return Documentos.
+     */
+    public long getUnconfirmed() {
+        return unconfirmed.sum();
+    }
+
+    public long getLost() {
+        return lost.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getBatches() {
+        return batchLatency.getCount();
+    }
+
+    /**
+     * Método que calcula los documentos confirmados por segundo, directos y
+     * reenviados, desde la creación del insertador.
+     *
+     * @return Documentos por segundo.
+     */
+    public double getDocumentsPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed == 0 ? 0 : (getWritten() + getReplayed()) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    public double getMeanBatchMillis() {
+        return batchLatency.getMeanNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getP99BatchMillis() {
+        return batchLatency.getValueAtPercentile(99) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d recibidos, %d escritos, %d reenviados, %d al spill, %d rechazados, "
+                + "%d fallidos, %d duplicados, %d sin confirmar, %d perdidos, %d reintentos; %d lotes, %.1f docs/s, "
+                + "media %.2f ms, p99 %.2f ms",
+                getSubmitted(), getWritten(), getReplayed(), getSpilled(), getRejected(), getFailed(),
+                getDuplicates(), getUnconfirmed(), getLost(), getRetries(), getBatches(), getDocumentsPerSecond(),
+                getMeanBatchMillis(), getP99BatchMillis());
+    }
+}
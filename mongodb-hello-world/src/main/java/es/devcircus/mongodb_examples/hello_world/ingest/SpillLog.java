@@ -0,0 +1,461 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.ingest;
+
+import com.mongodb.ByteDecoder;
+import com.mongodb.Bytes;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Registro en disco, de solo añadir, de los documentos que
+ * {@link TieredInserter} no ha podido enviar todavía. Se reparte en
+ * segmentos (spill-&lt;n&gt;.log) y cada registro lleva su longitud, un
+ * CRC32 y el nivel de durabilidad, seguidos del documento en BSON. La
+ * posición de lectura se guarda en spill.pos, sustituyéndolo de forma
+ * atómica tras cada lote confirmado, y los segmentos ya leídos se borran.
+ * Al abrirlo se recorre lo pendiente y se descarta la cola de un registro
+ * que quedara a medias por una caída. La entrega es al menos una vez: un
+ * lote enviado cuya confirmación no llegue a guardarse se vuelve a leer.
+ */
+final class SpillLog implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(SpillLog.class.getName());
+
+    static final String CHECKPOINT = "spill.pos";
+    private static final String PREFIX = "spill-";
+    private static final String SUFFIX = ".log";
+    /**
+     * Longitud, CRC32 y nivel de durabilidad.
+     */
+    private static final int HEADER = 9;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final int segmentBytes;
+    private final boolean sync;
+    /**
+     * Segmentos vivos, con su tamaño.
+     */
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+    private final ByteDecoder decoder = new ByteDecoder(ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN));
+    private FileChannel writer;
+    private long writeSegment;
+    private long readSegment;
+    private long readOffset;
+    private FileChannel reader;
+    private long readerSegment = -1;
+    private long pendingBytes;
+    private long pendingRecords;
+    private long peekSegment;
+    private long peekOffset;
+    private long peekBytes;
+    private int peekRecords;
+
+    /**
+     * Constructor de la clase. Abre el registro que haya en el directorio o
+     * crea uno vacío.
+     *
+     * @param dir Directorio del registro.
+     * @param maxBytes Bytes pendientes como máximo.
+     * @param segmentBytes Tamaño máximo de cada segmento.
+     * @param sync Indica si se hace fsync en cada escritura.
+     * @throws SpillException Si no se puede abrir.
+     */
+    SpillLog(Path dir, long maxBytes, int segmentBytes, boolean sync) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+        this.sync = sync;
+        try {
+            Files.createDirectories(dir);
+            open();
+        } catch (IOException ex) {
+            throw new SpillException("No se puede abrir el spill log de " + dir, ex);
+        }
+    }
+
+    private void open() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())),
+                        Files.size(file));
+            }
+        }
+        Path checkpoint = dir.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            ByteBuffer pos = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+            readSegment = pos.getLong();
+            readOffset = pos.getLong();
+        } else if (!segments.isEmpty()) {
+            readSegment = segments.firstKey();
+        }
+        // segmentos ya leídos cuyo borrado no llegó a hacerse
+        while (!segments.isEmpty() && segments.firstKey() < readSegment) {
+            Files.deleteIfExists(segment(segments.pollFirstEntry().getKey()));
+        }
+        if (segments.isEmpty() || segments.firstKey() > readSegment) {
+            readOffset = 0;
+            readSegment = segments.isEmpty() ? readSegment : segments.firstKey();
+        }
+        for (Map.Entry<Long, Long> entry : new ArrayList<>(segments.entrySet())) {
+            long from = entry.getKey() == readSegment ? Math.min(readOffset, entry.getValue()) : 0;
+            long end = scan(entry.getKey(), from, entry.getValue());
+            if (end < entry.getValue()) {
+                LOGGER.log(entry.getKey().equals(segments.lastKey()) ? Level.WARNING : Level.SEVERE,
+                        "Descartados {0} bytes ilegibles al final de {1}",
+                        new Object[]{entry.getValue() - end, segment(entry.getKey())});
+                try (FileChannel channel = FileChannel.open(segment(entry.getKey()), StandardOpenOption.WRITE)) {
+                    channel.truncate(end);
+                }
+                segments.put(entry.getKey(), end);
+            }
+        }
+        readOffset = Math.min(readOffset, segments.isEmpty() ? 0 : segments.firstEntry().getValue());
+        if (segments.isEmpty()) {
+            segments.put(readSegment, 0L);
+        }
+        writeSegment = segments.lastKey();
+        writer = FileChannel.open(segment(writeSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        writer.position(segments.get(writeSegment));
+        if (pendingRecords > 0) {
+            LOGGER.log(Level.INFO, "Spill log {0}: {1} documentos pendientes de reenviar",
+                    new Object[]{dir, pendingRecords});
+        }
+    }
+
+    /**
+     * Recorre los registros de un segmento desde la posición indicada,
+     * sumándolos a lo pendiente, y devuelve dónde termina el último completo.
+     */
+    private long scan(long id, long from, long size) throws IOException {
+        long offset = from;
+        try (FileChannel channel = FileChannel.open(segment(id), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (offset + HEADER <= size) {
+                header.clear();
+                readFully(channel, header, offset);
+                int length = header.getInt(0);
+                if (length < 5 || offset + HEADER + length > size) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.allocate(length + 1);
+                record.put(header.get(8));
+                readFully(channel, record, offset + HEADER);
+                if (crc(record.array()) != header.getInt(4)) {
+                    break;
+                }
+                offset += HEADER + length;
+                pendingBytes += HEADER + length;
+                pendingRecords++;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Método que añade documentos al final del registro. Se añaden todos o
+     * ninguno: el lote se escribe de una vez en un único segmento y, si
+     * falla, el segmento se recorta a donde estaba. Así un lote que vuelve a
+     * intentarse no deja copias de los documentos que ya habían entrado.
+     *
+     * @param entries Documentos con su nivel de durabilidad.
+     * @throws RejectedExecutionException Si no caben.
+     * @throws SpillException Si falla la escritura.
+     */
+    synchronized void append(List<IngestEntry> entries) {
+        List<byte[]> encoded = new ArrayList<>(entries.size());
+        long bytes = 0;
+        for (IngestEntry entry : entries) {
+            byte[] doc = Bytes.encode(entry.doc);
+            encoded.add(doc);
+            bytes += HEADER + doc.length;
+        }
+        if (pendingBytes + bytes > maxBytes) {
+            throw new RejectedExecutionException("Spill log lleno en " + dir + ": " + pendingBytes + " bytes pendientes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < entries.size(); i++) {
+            byte[] doc = encoded.get(i);
+            byte[] record = new byte[doc.length + 1];
+            record[0] = (byte) entries.get(i).tier.ordinal();
+            System.arraycopy(doc, 0, record, 1, doc.length);
+            buffer.putInt(doc.length).putInt(crc(record)).put(record);
+        }
+        buffer.flip();
+        long offset = segments.get(writeSegment);
+        try {
+            // un lote no se reparte entre segmentos
+            if (offset > 0 && offset + bytes > segmentBytes) {
+                roll();
+                offset = 0;
+            }
+            // escritura posicional en el final registrado: si falla a medias,
+            // la siguiente sobrescribe los bytes sueltos
+            while (buffer.hasRemaining()) {
+                writer.write(buffer, offset + buffer.position());
+            }
+            if (sync) {
+                writer.force(false);
+            }
+        } catch (IOException ex) {
+            discardTail(offset);
+            throw new SpillException("No se puede escribir en el spill log de " + dir, ex);
+        }
+        segments.put(writeSegment, offset + bytes);
+        pendingBytes += bytes;
+        pendingRecords += entries.size();
+    }
+
+    /**
+     * Recorta el segmento de escritura al principio del lote fallido. Si
+     * tampoco se puede, los bytes sueltos se sobrescriben con la siguiente
+     * escritura o se descartan como cola rota al reabrir el registro.
+     */
+    private void discardTail(long offset) {
+        try {
+            writer.truncate(offset);
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, null, ex);
+        }
+    }
+
+    /**
+     * Método que lee los siguientes documentos pendientes sin darlos por
+     * enviados; hasta que se llame a {@link #commit()}, la siguiente lectura
+     * vuelve a empezar en el mismo sitio.
+     *
+     * @param maxRecords Número máximo de documentos.
+     * @param maxBatchBytes Tamaño máximo del lote, salvo que el primer
+     * documento ya lo supere.
+     * @return Documentos leídos, quizá ninguno.
+     */
+    synchronized List<IngestEntry> peek(int maxRecords, int maxBatchBytes) {
+        List<IngestEntry> result = new ArrayList<>();
+        long id = readSegment;
+        long offset = readOffset;
+        long bytes = 0;
+        try {
+            ByteBuffer chunk = null;
+            long chunkStart = 0;
+            while (result.size() < maxRecords) {
+                long size = segments.get(id);
+                if (offset >= size) {
+                    Long next = segments.higherKey(id);
+                    if (next == null) {
+                        break;
+                    }
+                    id = next;
+                    offset = 0;
+                    chunk = null;
+                    continue;
+                }
+                if (chunk == null || offset + HEADER > chunkStart + chunk.limit()
+                        || offset + HEADER + chunk.getInt((int) (offset - chunkStart)) > chunkStart + chunk.limit()) {
+                    // un lote entero de una sola lectura, o al menos el registro siguiente
+                    int length = (int) Math.min(size - offset, Math.max(maxBatchBytes, HEADER) + HEADER);
+                    chunk = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                    readFully(reader(id), chunk, offset);
+                    chunkStart = offset;
+                    int recordLength = chunk.getInt(0);
+                    if (recordLength > 0 && HEADER + recordLength > length && offset + HEADER + recordLength <= size) {
+                        chunk = ByteBuffer.allocate(HEADER + recordLength).order(ByteOrder.LITTLE_ENDIAN);
+                        readFully(reader(id), chunk, offset);
+                    }
+                }
+                int position = (int) (offset - chunkStart);
+                int length = chunk.getInt(position);
+                if (!result.isEmpty() && bytes + length > maxBatchBytes) {
+                    break;
+                }
+                byte[] record = new byte[length + 1];
+                chunk.position(position + HEADER - 1);
+                chunk.get(record);
+                if (crc(record) != chunk.getInt(position + 4)) {
+                    throw new SpillException("Registro corrupto en " + segment(id) + " en la posición " + offset);
+                }
+                decoder.reset(ByteBuffer.wrap(record, 1, length).slice().order(ByteOrder.LITTLE_ENDIAN));
+                result.add(new IngestEntry(decoder.readObject(), DurabilityTier.values()[record[0]], length));
+                offset += HEADER + length;
+                bytes += HEADER + length;
+            }
+        } catch (IOException ex) {
+            throw new SpillException("No se puede leer el spill log de " + dir, ex);
+        }
+        peekSegment = id;
+        peekOffset = offset;
+        peekBytes = bytes;
+        peekRecords = result.size();
+        return result;
+    }
+
+    /**
+     * Método que da por enviados los documentos de la última lectura, guarda
+     * la posición y borra los segmentos ya leídos.
+     *
+     * @throws SpillException Si no se puede guardar la posición.
+     */
+    synchronized void commit() {
+        readSegment = peekSegment;
+        readOffset = peekOffset;
+        pendingBytes -= peekBytes;
+        pendingRecords -= peekRecords;
+        peekBytes = 0;
+        peekRecords = 0;
+        try {
+            if (readSegment == writeSegment && readOffset == segments.get(writeSegment) && readOffset > 0) {
+                // todo leído: se empieza un segmento nuevo para liberar el espacio
+                roll();
+                readSegment = writeSegment;
+                readOffset = 0;
+            }
+            writeCheckpoint();
+            while (segments.firstKey() < readSegment) {
+                long id = segments.pollFirstEntry().getKey();
+                if (id == readerSegment) {
+                    reader.close();
+                    reader = null;
+                    readerSegment = -1;
+                }
+                Files.deleteIfExists(segment(id));
+            }
+        } catch (IOException ex) {
+            throw new SpillException("No se puede guardar la posición del spill log de " + dir, ex);
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return pendingRecords == 0;
+    }
+
+    synchronized long getPendingRecords() {
+        return pendingRecords;
+    }
+
+    synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    Path getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Pasa al segmento siguiente. El nuevo se abre antes de cerrar el
+     * actual, para que un fallo deje el registro escribiendo donde estaba;
+     * puede existir de un intento anterior fallido, y entonces se vacía.
+     */
+    private void roll() throws IOException {
+        FileChannel next = FileChannel.open(segment(writeSegment + 1), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            if (sync) {
+                writer.force(false);
+            }
+            writer.close();
+        } catch (IOException ex) {
+            next.close();
+            throw ex;
+        }
+        writer = next;
+        writeSegment++;
+        segments.put(writeSegment, 0L);
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer pos = ByteBuffer.allocate(16).putLong(readSegment).putLong(readOffset);
+            pos.flip();
+            while (pos.hasRemaining()) {
+                channel.write(pos);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private FileChannel reader(long id) throws IOException {
+        if (readerSegment != id) {
+            if (reader != null) {
+                reader.close();
+            }
+            reader = FileChannel.open(segment(id), StandardOpenOption.READ);
+            readerSegment = id;
+        }
+        return reader;
+    }
+
+    private Path segment(long id) {
+        return dir.resolve(String.format("%s%016d%s", PREFIX, id, SUFFIX));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Fin de fichero inesperado en la posición " + offset);
+            }
+            offset += read;
+        }
+    }
+
+    private static int crc(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (sync) {
+                writer.force(false);
+            }
+            writer.close();
+            if (reader != null) {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, null, ex);
+        }
+    }
+}
@@ -0,0 +1,614 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.ingest;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.ObjectId;
+import es.devcircus.mongodb_examples.hello_world.bulk.DocumentSizeEstimator;
+import es.devcircus.mongodb_examples.hello_world.bulk.InsertListener;
+import es.devcircus.mongodb_examples.hello_world.resilience.ResilientExecutor;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Insertador con niveles de durabilidad. Quien produce los
+ * documentos nunca espera al servidor: {@link #submit(DBObject)} los deja en
+ * una cola acotada en memoria y vuelve, y un hilo propio los envía por lotes
+ * y los confirma según su {@link DurabilityTier}. Si la cola se llena porque
+ * el servidor va lento, o el servidor no responde, los documentos van a un
+ * spill log en disco, también acotado, que el mismo hilo vacía en cuanto el
+ * servidor se recupera. Si no hay spill log, con la cola llena se rechazan.
+ * <p>
+ * El _id se asigna en el cliente al recibir cada documento, de forma que un
+ * lote reenviado tras un fallo (o tras reabrir el spill log) no duplica nada:
+ * los documentos que ya estaban se descartan por clave duplicada. No se
+ * garantiza el orden entre documentos de la cola y del spill log.
+ */
+public class TieredInserter implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(TieredInserter.class.getName());
+    private static final long POLL_MILLIS = 100;
+
+    private final DBCollection coll;
+    private final IngestOptions options;
+    private final BlockingQueue<IngestEntry> queue;
+    private final SpillLog spill;
+    private final ExecutorService writer;
+    private final IngestStats stats = new IngestStats();
+    private final List<InsertListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object idle = new Object();
+    /**
+     * Documentos que han entrado por la cola y aún no se han confirmado,
+     * descartado ni pasado al spill log.
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+    /**
+     * Lote sacado de la cola que no se ha podido enviar ni pasar al spill
+     * log. Sólo lo usa el hilo de envío, y close() cuando ya ha terminado.
+     */
+    private List<IngestEntry> held;
+    /**
+     * El servidor no responde: todo va al spill log hasta que se vacíe.
+     */
+    private volatile boolean degraded;
+    private volatile boolean closed;
+    private volatile boolean warnedStandalone;
+
+    public TieredInserter(DBCollection coll) {
+        this(coll, IngestOptions.defaults());
+    }
+
+    /**
+     * Constructor de la clase. Si el spill log de la colección tiene
+     * documentos pendientes de una ejecución anterior, se empiezan a reenviar
+     * enseguida.
+     *
+     * @param coll Colección en la que se insertan los documentos.
+     * @param options Opciones del insertador.
+     * @throws SpillException Si no se puede abrir el spill log.
+     */
+    public TieredInserter(DBCollection coll, IngestOptions options) {
+        if (options.getMaxBatchDocuments() < 1 || options.getMaxBatchBytes() < 1 || options.getQueueDocuments() < 1) {
+            throw new IllegalArgumentException("Los límites del insertador deben ser positivos");
+        }
+        this.coll = coll;
+        this.options = options;
+        this.queue = new ArrayBlockingQueue<>(options.getQueueDocuments());
+        this.spill = options.getSpillDirectory() == null ? null
+                : new SpillLog(options.getSpillDirectory().resolve(coll.getFullName()), options.getMaxSpillBytes(),
+                        options.getSegmentBytes(), options.isSyncSpill());
+        this.writer = Executors.newSingleThreadExecutor(new DaemonThreadFactory("mongo-ingest-" + coll.getName()));
+        this.writer.execute(this::run);
+    }
+
+    /**
+     * Método que recibe un documento con el nivel de durabilidad por defecto.
+     *
+     * @param doc Documento.
+     * @throws RejectedExecutionException Si no cabe ni en la cola ni en el
+     * spill log.
+     */
+    public void submit(DBObject doc) {
+        submit(doc, options.getTier());
+    }
+
+    /**
+     * Método que recibe un documento con el nivel de durabilidad indicado. No
+     * espera al servidor; como mucho escribe en el spill log.
+     *
+     * @param doc Documento. Si no tiene _id se le asigna uno.
+     * @param tier Nivel de durabilidad.
+     * @throws RejectedExecutionException Si no cabe ni en la cola ni en el
+     * spill log.
+     * @throws SpillException Si falla la escritura en el spill log.
+     */
+    public void submit(DBObject doc, DurabilityTier tier) {
+        if (closed) {
+            throw new IllegalStateException("El insertador está cerrado");
+        }
+        if (doc.get("_id") == null) {
+            doc.put("_id", new ObjectId());
+        }
+        stats.submitted();
+        IngestEntry entry = new IngestEntry(doc, tier, DocumentSizeEstimator.estimate(doc));
+        queued.incrementAndGet();
+        if (!degraded && queue.offer(entry)) {
+            return;
+        }
+        queued.decrementAndGet();
+        if (spill == null) {
+            stats.rejected();
+            throw new RejectedExecutionException("Cola de " + coll.getFullName() + " llena: "
+                    + queue.size() + " documentos");
+        }
+        try {
+            spill.append(Collections.singletonList(entry));
+            stats.spilled(1);
+        } catch (RejectedExecutionException ex) {
+            stats.rejected();
+            throw ex;
+        }
+    }
+
+    /**
+     * Método que espera a que se envíen y confirmen todos los documentos
+     * recibidos, incluidos los del spill log.
+     *
+     * @param timeout Tiempo máximo de espera.
+     * @param unit Unidad del tiempo de espera.
+     * @return true si no queda nada pendiente.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitIdle(System.nanoTime() + unit.toNanos(timeout), false);
+    }
+
+    private boolean awaitIdle(long deadline, boolean untilDegraded) throws InterruptedException {
+        synchronized (idle) {
+            while (getBacklog() > 0) {
+                if (untilDegraded && degraded && spill != null) {
+                    // el servidor no responde: lo pendiente se queda en disco
+                    return false;
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                idle.wait(Math.min(remaining, POLL_MILLIS));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Método que deja de aceptar documentos y espera, como mucho
+     * closeTimeoutMillis, a que se envíe lo pendiente. Lo que quede se pasa
+     * al spill log para la próxima vez o, si no lo hay, se pierde.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            awaitIdle(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getCloseTimeoutMillis()), true);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        writer.shutdownNow();
+        try {
+            while (!writer.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOGGER.log(Level.FINE, "Esperando al envío en curso en {0}", coll.getFullName());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        List<IngestEntry> left = new ArrayList<>();
+        if (held != null) {
+            left.addAll(held);
+            held = null;
+        }
+        queue.drainTo(left);
+        queued.addAndGet(-left.size());
+        if (!left.isEmpty()) {
+            if (spill != null) {
+                spill.append(left);
+                stats.spilled(left.size());
+                LOGGER.log(Level.INFO, "{0} documentos de {1} quedan en el spill log",
+                        new Object[]{left.size(), coll.getFullName()});
+            } else {
+                stats.lost(left.size());
+                LOGGER.log(Level.SEVERE, "Se pierden {0} documentos de {1} sin enviar",
+                        new Object[]{left.size(), coll.getFullName()});
+            }
+        }
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
+    /**
+     * Método que registra un observador al que se avisa tras cada lote
+     * confirmado.
+     *
+     * @param listener Observador.
+     */
+    public void addListener(InsertListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Método que devuelve los documentos pendientes: en la cola, en el lote
+     * en curso y en el spill log.
+     *
+     * @return Número de documentos.
+     */
+    public long getBacklog() {
+        return queued.get() + (spill == null ? 0 : spill.getPendingRecords());
+    }
+
+    public IngestStats getStats() {
+        return stats;
+    }
+
+    public DBCollection getCollection() {
+        return coll;
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    step();
+                } catch (SpillException | RejectedExecutionException ex) {
+                    // lo que no ha entrado en el spill log sigue en held
+                    LOGGER.log(Level.SEVERE, null, ex);
+                    pause();
+                } finally {
+                    signal();
+                }
+            }
+        } catch (InterruptedException ex) {
+            // close()
+        }
+    }
+
+    private void step() throws InterruptedException {
+        if (held != null) {
+            // sin spill log, un lote que falló se reintenta hasta que entre
+            if (!send(held, false)) {
+                pause();
+                return;
+            }
+            queued.addAndGet(-held.size());
+            held = null;
+            signal();
+        }
+        if (spill != null && (degraded || !spill.isEmpty())) {
+            if (degraded) {
+                spillQueue();
+            }
+            List<IngestEntry> replay = spill.peek(options.getMaxBatchDocuments(), options.getMaxBatchBytes());
+            if (!replay.isEmpty()) {
+                if (!send(replay, true)) {
+                    degrade();
+                    pause();
+                    return;
+                }
+                spill.commit();
+                signal();
+            }
+            if (degraded) {
+                degraded = !spill.isEmpty();
+                if (degraded) {
+                    return;
+                }
+                LOGGER.log(Level.INFO, "Servidor recuperado; spill log de {0} vacío", coll.getFullName());
+            }
+        }
+        // con documentos en el spill log no se espera a la cola
+        List<IngestEntry> batch = nextBatch(spill == null || spill.isEmpty());
+        if (batch.isEmpty()) {
+            return;
+        }
+        held = batch;
+        if (send(batch, false)) {
+            queued.addAndGet(-batch.size());
+            held = null;
+            signal();
+        } else if (spill != null) {
+            degrade();
+            toSpill(batch);
+        }
+    }
+
+    /**
+     * Despierta a quien espera en flush().
+     */
+    private void signal() {
+        synchronized (idle) {
+            idle.notifyAll();
+        }
+    }
+
+    private void degrade() {
+        if (!degraded) {
+            degraded = true;
+            LOGGER.log(Level.WARNING, "Servidor sin respuesta; {0} pasa al spill log {1}",
+                    new Object[]{coll.getFullName(), spill.getDirectory()});
+        }
+    }
+
+    /**
+     * Pasa al spill log lo que haya en la cola.
+     */
+    private void spillQueue() {
+        List<IngestEntry> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        if (!pending.isEmpty()) {
+            held = pending;
+            toSpill(pending);
+        }
+    }
+
+    /**
+     * Pasa al spill log el lote retenido. Si no cabe, sigue retenido y se
+     * reintentará contra el servidor.
+     */
+    private void toSpill(List<IngestEntry> batch) {
+        spill.append(batch);
+        stats.spilled(batch.size());
+        queued.addAndGet(-batch.size());
+        held = null;
+    }
+
+    private List<IngestEntry> nextBatch(boolean wait) throws InterruptedException {
+        List<IngestEntry> batch = new ArrayList<>();
+        IngestEntry entry = wait ? queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS) : queue.poll();
+        if (entry == null) {
+            return batch;
+        }
+        long bytes = 0;
+        long linger = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getLingerMillis());
+        while (entry != null) {
+            batch.add(entry);
+            bytes += entry.size;
+            if (batch.size() >= options.getMaxBatchDocuments() || bytes >= options.getMaxBatchBytes()) {
+                break;
+            }
+            entry = queue.poll();
+            if (entry == null) {
+                long remaining = linger - System.nanoTime();
+                if (remaining > 0) {
+                    entry = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Envía un lote y lo confirma con el nivel más exigente de sus
+     * documentos.
+     *
+     * @return false si ha fallado por un error transitorio y hay que
+     * reintentarlo; true si se ha escrito o si el servidor lo ha rechazado.
+     */
+    private boolean send(List<IngestEntry> batch, boolean replay) {
+        DurabilityTier tier = batch.get(0).tier;
+        List<DBObject> docs = new ArrayList<>(batch.size());
+        for (IngestEntry entry : batch) {
+            tier = tier.max(entry.tier);
+            docs.add(entry.doc);
+        }
+        long start = System.nanoTime();
+        try {
+            insert(docs, tier);
+            stats.written(docs.size(), System.nanoTime() - start, replay);
+            notifyListeners(docs);
+            return true;
+        } catch (JournalUnavailableException ex) {
+            unconfirmed(docs, ex);
+            return true;
+        } catch (RuntimeException ex) {
+            if (isDuplicateKey(ex)) {
+                // el servidor se detiene en el primer duplicado: uno a uno
+                return sendOneByOne(batch, replay);
+            }
+            if (isRetryable(ex)) {
+                stats.retry();
+                LOGGER.log(degraded ? Level.FINE : Level.WARNING, "Lote de {0} documentos sin confirmar en {1}: {2}",
+                        new Object[]{docs.size(), coll.getFullName(), ex.getMessage()});
+                return false;
+            }
+            stats.failed(docs.size());
+            LOGGER.log(Level.SEVERE, "Lote de " + docs.size() + " documentos rechazado en " + coll.getFullName(), ex);
+            return true;
+        }
+    }
+
+    private boolean sendOneByOne(List<IngestEntry> batch, boolean replay) {
+        List<DBObject> inserted = new ArrayList<>(batch.size());
+        for (IngestEntry entry : batch) {
+            long start = System.nanoTime();
+            try {
+                insert(Collections.singletonList(entry.doc), entry.tier);
+                stats.written(1, System.nanoTime() - start, replay);
+                inserted.add(entry.doc);
+            } catch (JournalUnavailableException ex) {
+                unconfirmed(Collections.singletonList(entry.doc), ex);
+            } catch (RuntimeException ex) {
+                if (isDuplicateKey(ex)) {
+                    stats.duplicate();
+                } else if (isRetryable(ex)) {
+                    // se repite el lote entero; lo ya escrito saldrá como duplicado
+                    stats.retry();
+                    notifyListeners(inserted);
+                    return false;
+                } else {
+                    stats.failed(1);
+                    LOGGER.log(Level.SEVERE, "Documento " + entry.doc.get("_id") + " rechazado en "
+                            + coll.getFullName(), ex);
+                }
+            }
+        }
+        notifyListeners(inserted);
+        return true;
+    }
+
+    private void insert(List<DBObject> docs, DurabilityTier tier) {
+        DB db = coll.getDB();
+        // getlasterror informa de la última operación de la conexión
+        db.requestStart();
+        try {
+            coll.insert(docs);
+            DBObject command = tier.getLastErrorCommand(options.getMajorityTimeoutMillis());
+            if (command != null) {
+                DBObject reply = db.command(command);
+                if (tier == DurabilityTier.JOURNALED && isNoJournal(reply)) {
+                    // error de configuración, no del insert: se pregunta
+                    // otra vez sin j por el resultado del propio insert
+                    checkLastError(db.command(DurabilityTier.ACKNOWLEDGED.getLastErrorCommand(
+                            options.getMajorityTimeoutMillis())), DurabilityTier.ACKNOWLEDGED);
+                    throw new JournalUnavailableException(coll.getFullName()
+                            + ": el servidor no tiene journal y no puede confirmar JOURNALED");
+                }
+                checkLastError(reply, tier);
+            }
+        } finally {
+            db.requestDone();
+        }
+    }
+
+    private void checkLastError(DBObject reply, DurabilityTier tier) {
+        Object ok = reply.get("ok");
+        if (!(ok instanceof Number) || ((Number) ok).intValue() != 1) {
+            throw new MongoException("getlasterror: " + reply.get("errmsg"));
+        }
+        if (Boolean.TRUE.equals(reply.get("wtimeout"))) {
+            throw new WriteTimeoutException("La mayoría no ha confirmado en "
+                    + options.getMajorityTimeoutMillis() + " ms: " + reply);
+        }
+        Object err = reply.get("err");
+        if (err == null) {
+            return;
+        }
+        String message = err.toString();
+        if (tier == DurabilityTier.MAJORITY && (message.startsWith("norepl") || message.contains("standalone"))) {
+            // servidor sin replica set: basta con la confirmación del propio servidor
+            if (!warnedStandalone) {
+                warnedStandalone = true;
+                LOGGER.log(Level.WARNING, "{0} no es un replica set; MAJORITY equivale a ACKNOWLEDGED",
+                        coll.getFullName());
+            }
+            return;
+        }
+        Object code = reply.get("code");
+        throw new MongoException(code instanceof Number ? ((Number) code).intValue() : -1, message);
+    }
+
+    /**
+     * Indica si getlasterror ha fallado por pedir j sin journal en el
+     * servidor. Hasta la 2.4 sólo lo avisa en jnote; desde la 2.6 responde
+     * con un error.
+     */
+    private static boolean isNoJournal(DBObject reply) {
+        for (String field : new String[]{"jnote", "err", "errmsg"}) {
+            Object message = reply.get(field);
+            if (message != null && (message.toString().contains("journaling not enabled")
+                    || message.toString().contains("does not have journaling enabled"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Documentos escritos sin la durabilidad pedida por un error de
+     * configuración del servidor. No se reintentan: reenviarlos no cambia
+     * nada.
+     */
+    private void unconfirmed(List<DBObject> docs, JournalUnavailableException ex) {
+        stats.unconfirmed(docs.size());
+        LOGGER.log(Level.SEVERE, "Lote de {0} documentos escrito sin confirmar: {1}",
+                new Object[]{docs.size(), ex.getMessage()});
+        notifyListeners(docs);
+    }
+
+    private static boolean isRetryable(RuntimeException ex) {
+        return ex instanceof WriteTimeoutException || ResilientExecutor.isTransient(ex);
+    }
+
+    private static boolean isDuplicateKey(RuntimeException ex) {
+        if (ex instanceof MongoException.DuplicateKey) {
+            return true;
+        }
+        if (ex instanceof MongoException) {
+            int code = ((MongoException) ex).getCode();
+            if (code == 11000 || code == 11001) {
+                return true;
+            }
+        }
+        return ex.getMessage() != null && ex.getMessage().startsWith("E11000");
+    }
+
+    private void pause() throws InterruptedException {
+        long interval = options.getRetryIntervalMillis();
+        Thread.sleep(interval / 2 + ThreadLocalRandom.current().nextLong(interval / 2 + 1));
+    }
+
+    private void notifyListeners(List<DBObject> docs) {
+        if (docs.isEmpty()) {
+            return;
+        }
+        for (InsertListener listener : listeners) {
+            try {
+                listener.onInsert(coll, docs);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    /**
+     * La mayoría no ha confirmado a tiempo: el lote está en el primario y
+     * reenviarlo no lo duplica.
+     */
+    private static class WriteTimeoutException extends MongoException {
+
+        WriteTimeoutException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Se ha pedido JOURNALED a un servidor sin journal: el lote está escrito,
+     * pero sin la durabilidad pedida.
+     */
+    private static class JournalUnavailableException extends MongoException {
+
+        JournalUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Medidas de una colección (o de la base de datos, para las
+ * operaciones que no pertenecen a ninguna): una entrada por operación más los
+ * bytes enviados y recibidos y los lotes de cursor leídos. Los bytes
+ * recibidos por cursores del driver son los reales; el resto son
+ * estimaciones del tamaño BSON.
+ */
+public class CollectionMetrics implements CollectionMetricsMXBean {
+
+    private final String namespace;
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder cursorBatches = new LongAdder();
+
+    CollectionMetrics(String namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * Método que devuelve las medidas de una operación, creándolas la
+     * primera vez.
+     *
+     * @param operation Nombre de la operación.
+     * @return Medidas de la operación.
+     */
+    public OperationMetrics operation(String operation) {
+        OperationMetrics metrics = operations.get(operation);
+        return metrics != null ? metrics
+                : operations.computeIfAbsent(operation, OperationMetrics::new);
+    }
+
+    public void addBytesSent(long bytes) {
+        bytesSent.add(bytes);
+    }
+
+    public void addBytesReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    public void addCursorBatches(int batches) {
+        cursorBatches.add(batches);
+    }
+
+    @Override
+    public String getNamespace() {
+        return namespace;
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getCursorBatches() {
+        return cursorBatches.sum();
+    }
+
+    @Override
+    public Map<String, OperationSnapshot> getOperations() {
+        Map<String, OperationSnapshot> snapshots = new TreeMap<>();
+        for (OperationMetrics metrics : operations.values()) {
+            snapshots.put(metrics.getOperation(), metrics.snapshot());
+        }
+        return snapshots;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d bytes enviados, %d bytes recibidos, %d lotes de cursor",
+                namespace, getBytesSent(), getBytesReceived(), getCursorBatches());
+    }
+}
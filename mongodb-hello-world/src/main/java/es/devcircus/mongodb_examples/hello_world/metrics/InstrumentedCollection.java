@@ -0,0 +1,302 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.InstrumentationSupport;
+import com.mongodb.MapReduceOutput;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.bulk.DocumentSizeEstimator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Colección que delega en una colección del driver y mide cada
+ * operación en el {@link MetricsRegistry}: latencia, errores, documentos y
+ * bytes. Al heredar de {@link DBCollection}, los métodos finales del driver
+ * (findOne, find, createIndex, ensureIndex...) pasan por aquí sin cambios en
+ * el código que la usa. Se obtiene a través de
+ * {@link InstrumentedDB#getCollection(String)}.
+ */
+public class InstrumentedCollection extends DBCollection {
+
+    private final DBCollection delegate;
+    private final MetricsRegistry registry;
+    private final CollectionMetrics metrics;
+
+    InstrumentedCollection(InstrumentedDB db, DBCollection delegate, MetricsRegistry registry) {
+        super(db, delegate.getName());
+        this.delegate = delegate;
+        this.registry = registry;
+        this.metrics = registry.collection(delegate.getFullName());
+    }
+
+    /**
+     * Método que devuelve la colección del driver envuelta.
+     *
+     * @return Colección sin instrumentar.
+     */
+    public DBCollection getDelegate() {
+        return delegate;
+    }
+
+    public CollectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void insert(DBObject doc) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.insert(doc);
+            failed = false;
+        } finally {
+            record("insert", start, 1, failed);
+            metrics.addBytesSent(DocumentSizeEstimator.estimate(doc));
+        }
+    }
+
+    @Override
+    public void insert(DBObject[] docs) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.insert(docs);
+            failed = false;
+        } finally {
+            record("insert", start, docs.length, failed);
+            for (DBObject doc : docs) {
+                metrics.addBytesSent(DocumentSizeEstimator.estimate(doc));
+            }
+        }
+    }
+
+    @Override
+    public void insert(List<DBObject> docs) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.insert(docs);
+            failed = false;
+        } finally {
+            record("insert", start, docs.size(), failed);
+            for (DBObject doc : docs) {
+                metrics.addBytesSent(DocumentSizeEstimator.estimate(doc));
+            }
+        }
+    }
+
+    @Override
+    public void update(DBObject q, DBObject o, boolean upsert, boolean multi) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.update(q, o, upsert, multi);
+            failed = false;
+        } finally {
+            record("update", start, 0, failed);
+            metrics.addBytesSent(DocumentSizeEstimator.estimate(q) + DocumentSizeEstimator.estimate(o));
+        }
+    }
+
+    @Override
+    public void remove(DBObject o) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.remove(o);
+            failed = false;
+        } finally {
+            record("remove", start, 0, failed);
+            metrics.addBytesSent(DocumentSizeEstimator.estimate(o));
+        }
+    }
+
+    /**
+     * Punto por el que pasan todas las consultas, incluidos findOne y los
+     * cursores. Un numToReturn de -1 es un findOne; el resto se registra
+     * como find. La latencia medida es la de la primera respuesta; los lotes
+     * siguientes se cuentan según se recorre el cursor.
+     */
+    @Override
+    public Iterator<DBObject> find(DBObject ref, DBObject fields, int numToSkip, int batchSize,
+            int options) throws MongoException {
+        String name = batchSize == -1 ? "findOne" : "find";
+        if (ref != null && !ref.containsField("$explain")) {
+            registry.fireQuery(this, ref, fields);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Iterator<DBObject> it = delegate.find(ref, fields, numToSkip, batchSize, options);
+            failed = false;
+            if (it == null) {
+                metrics.addCursorBatches(1);
+                return null;
+            }
+            return new InstrumentedIterator(it, metrics, metrics.operation(name));
+        } finally {
+            record(name, start, 0, failed);
+            metrics.addBytesSent(DocumentSizeEstimator.estimate(ref));
+        }
+    }
+
+    @Override
+    protected void createIndex(DBObject keys, DBObject options) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            InstrumentationSupport.createIndex(delegate, keys, options);
+            failed = false;
+        } finally {
+            record("createIndex", start, 0, failed);
+        }
+    }
+
+    @Override
+    protected void doapply(DBObject o) {
+        InstrumentationSupport.apply(delegate, o);
+    }
+
+    @Override
+    public long getCount(DBObject query, DBObject fields) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            long count = delegate.getCount(query, fields);
+            failed = false;
+            return count;
+        } finally {
+            record("getCount", start, 0, failed);
+        }
+    }
+
+    @Override
+    public List<DBObject> getIndexInfo() {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<DBObject> indexes = delegate.getIndexInfo();
+            failed = false;
+            return indexes;
+        } finally {
+            record("getIndexInfo", start, 0, failed);
+        }
+    }
+
+    @Override
+    public void dropIndexes(String name) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.dropIndexes(name);
+            resetIndexCache();
+            failed = false;
+        } finally {
+            record("dropIndexes", start, 0, failed);
+        }
+    }
+
+    @Override
+    public void drop() throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.drop();
+            resetIndexCache();
+            failed = false;
+        } finally {
+            record("drop", start, 0, failed);
+        }
+    }
+
+    @Override
+    public List distinct(String key, DBObject query) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List values = delegate.distinct(key, query);
+            failed = false;
+            return values;
+        } finally {
+            record("distinct", start, 0, failed);
+        }
+    }
+
+    @Override
+    public DBObject group(DBObject key, DBObject cond, DBObject initial, String reduce) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            DBObject result = delegate.group(key, cond, initial, reduce);
+            failed = false;
+            return result;
+        } finally {
+            record("group", start, 0, failed);
+        }
+    }
+
+    @Override
+    public MapReduceOutput mapReduce(DBObject command) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            MapReduceOutput output = delegate.mapReduce(command);
+            failed = false;
+            return output;
+        } finally {
+            record("mapReduce", start, 0, failed);
+        }
+    }
+
+    @Override
+    public void rename(String newName) throws MongoException {
+        delegate.rename(newName);
+    }
+
+    @Override
+    public void setWriteConcern(DB.WriteConcern concern) {
+        super.setWriteConcern(concern);
+        delegate.setWriteConcern(concern);
+    }
+
+    @Override
+    public DB.WriteConcern getWriteConcern() {
+        return delegate.getWriteConcern();
+    }
+
+    @Override
+    public void setObjectClass(Class c) {
+        super.setObjectClass(c);
+        delegate.setObjectClass(c);
+    }
+
+    @Override
+    public void setInternalClass(String path, Class c) {
+        super.setInternalClass(path, c);
+        delegate.setInternalClass(path, c);
+    }
+
+    private void record(String operation, long start, int documents, boolean failed) {
+        metrics.operation(operation).record(System.nanoTime() - start, documents, failed);
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Base de datos que delega en una base de datos del driver y
+ * entrega colecciones instrumentadas. Las operaciones propias de la base de
+ * datos (command, getCollectionNames, dropDatabase) se miden bajo el nombre
+ * de la base de datos.
+ */
+public class InstrumentedDB extends DB {
+
+    private final DB delegate;
+    private final MetricsRegistry registry;
+    private final CollectionMetrics metrics;
+    private final ConcurrentMap<String, InstrumentedCollection> collections = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param delegate Base de datos del driver.
+     * @param registry Registro en el que se acumulan las medidas.
+     */
+    public InstrumentedDB(DB delegate, MetricsRegistry registry) {
+        super(delegate.getName());
+        this.delegate = delegate;
+        this.registry = registry;
+        this.metrics = registry.collection(delegate.getName());
+    }
+
+    /**
+     * Método que devuelve la base de datos del driver envuelta.
+     *
+     * @return Base de datos sin instrumentar.
+     */
+    public DB getDelegate() {
+        return delegate;
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    protected DBCollection doGetCollection(String name) {
+        InstrumentedCollection coll = collections.get(name);
+        if (coll == null) {
+            coll = new InstrumentedCollection(this, delegate.getCollection(name), registry);
+            InstrumentedCollection previous = collections.putIfAbsent(name, coll);
+            if (previous != null) {
+                coll = previous;
+            }
+        }
+        return coll;
+    }
+
+    @Override
+    public DBCollection getCollectionFromFull(String fullNameSpace) {
+        int dot = fullNameSpace.indexOf('.');
+        if (dot < 0) {
+            return getCollection(fullNameSpace);
+        }
+        String dbName = fullNameSpace.substring(0, dot);
+        String collName = fullNameSpace.substring(dot + 1);
+        return getName().equals(dbName) ? getCollection(collName) : getSisterDB(dbName).getCollection(collName);
+    }
+
+    @Override
+    public DB getSisterDB(String name) {
+        return new InstrumentedDB(delegate.getSisterDB(name), registry);
+    }
+
+    @Override
+    public DBObject command(DBObject cmd) throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            DBObject result = delegate.command(cmd);
+            failed = false;
+            return result;
+        } finally {
+            record("command", start, failed);
+        }
+    }
+
+    @Override
+    public Set<String> getCollectionNames() throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Set<String> names = delegate.getCollectionNames();
+            failed = false;
+            return names;
+        } finally {
+            record("getCollectionNames", start, failed);
+        }
+    }
+
+    @Override
+    public void dropDatabase() throws MongoException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.dropDatabase();
+            failed = false;
+        } finally {
+            record("dropDatabase", start, failed);
+        }
+    }
+
+    @Override
+    public void requestStart() {
+        delegate.requestStart();
+    }
+
+    @Override
+    public void requestDone() {
+        delegate.requestDone();
+    }
+
+    @Override
+    public void requestEnsureConnection() {
+        delegate.requestEnsureConnection();
+    }
+
+    @Override
+    public boolean authenticate(String username, char[] passwd) throws MongoException {
+        return delegate.authenticate(username, passwd);
+    }
+
+    @Override
+    public void setWriteConcern(WriteConcern concern) {
+        super.setWriteConcern(concern);
+        delegate.setWriteConcern(concern);
+    }
+
+    @Override
+    public WriteConcern getWriteConcern() {
+        return delegate.getWriteConcern();
+    }
+
+    @Override
+    public void setReadOnly(Boolean readOnly) {
+        super.setReadOnly(readOnly);
+        delegate.setReadOnly(readOnly);
+    }
+
+    private void record(String operation, long start, boolean failed) {
+        metrics.operation(operation).record(System.nanoTime() - start, 0, failed);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import com.mongodb.DBObject;
+import com.mongodb.InstrumentationSupport;
+import es.devcircus.mongodb_examples.hello_world.bulk.DocumentSizeEstimator;
+import java.util.Iterator;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Iterador que envuelve el resultado de un find y va sumando
+ * los documentos leídos, los bytes recibidos y los lotes (la respuesta
+ * inicial más cada getMore). Con cursores del driver los bytes y los lotes se
+ * leen del propio cursor; con otras implementaciones se cuenta un único lote
+ * y se estiman los bytes.
+ */
+class InstrumentedIterator implements Iterator<DBObject> {
+
+    private final Iterator<DBObject> delegate;
+    private final CollectionMetrics metrics;
+    private final OperationMetrics operation;
+    private final boolean driverCursor;
+    private long bytes;
+    private int getMores;
+
+    InstrumentedIterator(Iterator<DBObject> delegate, CollectionMetrics metrics, OperationMetrics operation) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.operation = operation;
+        this.driverCursor = InstrumentationSupport.isDriverCursor(delegate);
+        metrics.addCursorBatches(1);
+        if (driverCursor) {
+            bytes = InstrumentationSupport.totalBytes(delegate);
+            metrics.addBytesReceived(bytes);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return delegate.hasNext();
+    }
+
+    @Override
+    public DBObject next() {
+        DBObject doc = delegate.next();
+        operation.addDocuments(1);
+        if (driverCursor) {
+            int currentGetMores = InstrumentationSupport.numGetMores(delegate);
+            if (currentGetMores != getMores) {
+                metrics.addCursorBatches(currentGetMores - getMores);
+                getMores = currentGetMores;
+                long currentBytes = InstrumentationSupport.totalBytes(delegate);
+                metrics.addBytesReceived(currentBytes - bytes);
+                bytes = currentBytes;
+            }
+        } else {
+            metrics.addBytesReceived(DocumentSizeEstimator.estimate(doc));
+        }
+        return doc;
+    }
+
+    @Override
+    public void remove() {
+        delegate.remove();
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import java.util.Collection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Publicador que escribe las medidas en el log, una línea por
+ * colección y otra por cada operación.
+ */
+public class LoggingReporter implements MetricsReporter {
+
+    private static final Logger LOGGER = Logger.getLogger(LoggingReporter.class.getName());
+
+    @Override
+    public void report(Collection<CollectionMetrics> metrics) {
+        if (!LOGGER.isLoggable(Level.INFO)) {
+            return;
+        }
+        for (CollectionMetrics collection : metrics) {
+            LOGGER.info(collection.toString());
+            for (OperationSnapshot operation : collection.getOperations().values()) {
+                LOGGER.log(Level.INFO, "  {0}", operation);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Registro de las medidas de todas las colecciones
+ * instrumentadas. Opcionalmente publica cada colección como MXBean, bajo
+ * {@code es.devcircus.mongodb_examples:type=CollectionMetrics,name=<ns>}, y
+ * envía periódicamente las medidas a uno o varios {@link MetricsReporter}.
+ * También reparte las consultas entre los {@link QueryListener} registrados.
+ */
+public class MetricsRegistry {
+
+    public static final String JMX_DOMAIN = "es.devcircus.mongodb_examples";
+
+    private final ConcurrentMap<String, CollectionMetrics> collections = new ConcurrentHashMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private final List<QueryListener> queryListeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean jmxEnabled;
+
+    /**
+     * Método que devuelve las medidas de una colección, creándolas (y
+     * publicándolas por JMX si está activo) la primera vez.
+     *
+     * @param namespace Nombre completo de la colección (base.colección).
+     * @return Medidas de la colección.
+     */
+    public CollectionMetrics collection(String namespace) {
+        CollectionMetrics metrics = collections.get(namespace);
+        if (metrics != null) {
+            return metrics;
+        }
+        CollectionMetrics created = new CollectionMetrics(namespace);
+        metrics = collections.putIfAbsent(namespace, created);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (jmxEnabled) {
+            register(created);
+        }
+        return created;
+    }
+
+    public Collection<CollectionMetrics> getCollections() {
+        return collections.values();
+    }
+
+    /**
+     * Método que registra un observador de las consultas de todas las
+     * colecciones instrumentadas con este registro.
+     *
+     * @param listener Observador.
+     */
+    public void addQueryListener(QueryListener listener) {
+        queryListeners.add(listener);
+    }
+
+    void fireQuery(DBCollection coll, DBObject query, DBObject fields) {
+        for (QueryListener listener : queryListeners) {
+            try {
+                listener.onQuery(coll, query, fields);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(MetricsRegistry.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Método que publica por JMX las colecciones ya registradas y las que se
+     * registren a partir de ahora.
+     */
+    public synchronized void enableJmx() {
+        jmxEnabled = true;
+        for (CollectionMetrics metrics : collections.values()) {
+            register(metrics);
+        }
+    }
+
+    /**
+     * Método que programa la publicación periódica de las medidas.
+     *
+     * @param reporter Destino de las medidas.
+     * @param period Periodo entre publicaciones.
+     * @param unit Unidad del periodo.
+     */
+    public synchronized void startReporting(final MetricsReporter reporter, long period, TimeUnit unit) {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("metrics-reporter"));
+        }
+        scheduler.scheduleAtFixedRate(() -> report(reporter), period, period, unit);
+    }
+
+    /**
+     * Método que publica las medidas actuales en el destino indicado.
+     *
+     * @param reporter Destino de las medidas.
+     */
+    public void report(MetricsReporter reporter) {
+        try {
+            reporter.report(getCollections());
+        } catch (RuntimeException ex) {
+            Logger.getLogger(MetricsRegistry.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+
+    /**
+     * Método que detiene las publicaciones periódicas y retira los MXBean.
+     */
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        jmxEnabled = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ex) {
+                Logger.getLogger(MetricsRegistry.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+        registered.clear();
+    }
+
+    private synchronized void register(CollectionMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=CollectionMetrics,name="
+                    + ObjectName.quote(metrics.getNamespace()));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+                registered.add(name);
+            }
+        } catch (JMException ex) {
+            Logger.getLogger(MetricsRegistry.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import java.util.Collection;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Destino de las medidas recogidas por un
+ * {@link MetricsRegistry}: un log, un sistema de monitorización, un fichero...
+ */
+public interface MetricsReporter {
+
+    /**
+     * Método que publica las medidas actuales. Se invoca periódicamente
+     * desde un hilo del registro.
+     *
+     * @param metrics Medidas de todas las colecciones instrumentadas.
+     */
+    void report(Collection<CollectionMetrics> metrics);
+}
@@ -0,0 +1,96 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Medidas de un tipo de operación (insert, find, getCount...)
+ * sobre una colección: histograma de latencias, errores y documentos
+ * afectados.
+ */
+public class OperationMetrics {
+
+    private final String operation;
+    private final long createdNanos = System.nanoTime();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+
+    OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Método que registra una ejecución de la operación.
+     *
+     * @param nanos Duración en nanosegundos.
+     * @param documents Documentos enviados o devueltos.
+     * @param failed true si la operación lanzó una excepción.
+     */
+    public void record(long nanos, int documents, boolean failed) {
+        latency.record(nanos);
+        if (documents > 0) {
+            this.documents.add(documents);
+        }
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Método que suma documentos a la operación sin registrar una nueva
+     * ejecución, por ejemplo los que va devolviendo un cursor.
+     *
+     * @param count Número de documentos.
+     */
+    public void addDocuments(int count) {
+        documents.add(count);
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Método que toma una foto de las medidas actuales.
+     *
+     * @return Foto inmutable de la operación.
+     */
+    public OperationSnapshot snapshot() {
+        long count = latency.getCount();
+        double seconds = (System.nanoTime() - createdNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        return new OperationSnapshot(operation, count, errors.sum(), documents.sum(),
+                seconds > 0 ? count / seconds : 0,
+                toMillis(latency.getMeanNanos()),
+                toMillis(latency.getValueAtPercentile(50)),
+                toMillis(latency.getValueAtPercentile(99)),
+                toMillis(latency.getValueAtPercentile(99.9)),
+                toMillis(latency.getMaxNanos()));
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Foto inmutable de las medidas de una operación. Las
+ * latencias van en milisegundos y el ritmo en operaciones por segundo desde
+ * que se registró la primera. Se publica tal cual por JMX.
+ */
+public class OperationSnapshot {
+
+    private final String operation;
+    private final long count;
+    private final long errors;
+    private final long documents;
+    private final double throughput;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+
+    @ConstructorProperties({"operation", "count", "errors", "documents", "throughput",
+        "meanMillis", "p50Millis", "p99Millis", "p999Millis", "maxMillis"})
+    public OperationSnapshot(String operation, long count, long errors, long documents,
+            double throughput, double meanMillis, double p50Millis, double p99Millis,
+            double p999Millis, double maxMillis) {
+        this.operation = operation;
+        this.count = count;
+        this.errors = errors;
+        this.documents = documents;
+        this.throughput = throughput;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d ops (%d errores, %d docs, %.1f ops/s), "
+                + "media %.3f ms, p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, máxima %.3f ms",
+                operation, count, errors, documents, throughput, meanMillis, p50Millis,
+                p99Millis, p999Millis, maxMillis);
+    }
+}
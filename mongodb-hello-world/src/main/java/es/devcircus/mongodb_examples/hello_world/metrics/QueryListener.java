@@ -0,0 +1,41 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.metrics;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Observador de las consultas que pasan por una colección
+ * instrumentada. Se registra en el {@link MetricsRegistry} y se invoca en el
+ * hilo de la consulta, antes de enviarla, así que debe ser rápido y no lanzar
+ * excepciones. Las consultas de explain() no se notifican.
+ */
+public interface QueryListener {
+
+    /**
+     * Método que recibe una consulta.
+     *
+     * @param coll Colección instrumentada sobre la que se lanza.
+     * @param query Consulta tal y como la envía el cursor: la condición sola
+     * o envuelta en {query, orderby, $hint...}.
+     * @param fields Proyección; puede ser null.
+     */
+    void onQuery(DBCollection coll, DBObject query, DBObject fields);
+}
@@ -0,0 +1,53 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Almacén de los puntos de control de una migración, por
+ * nombre de trabajo.
+ */
+public interface CheckpointStore {
+
+    /**
+     * Método que recupera las particiones guardadas de un trabajo.
+     *
+     * @param job Nombre del trabajo.
+     * @return Particiones ordenadas por índice; vacía si el trabajo no ha
+     * empezado nunca.
+     */
+    List<PartitionCheckpoint> load(String job);
+
+    /**
+     * Método que guarda el estado de una partición.
+     *
+     * @param job Nombre del trabajo.
+     * @param checkpoint Estado de la partición.
+     */
+    void save(String job, PartitionCheckpoint checkpoint);
+
+    /**
+     * Método que borra todos los puntos de control de un trabajo, para
+     * volver a empezarlo desde cero.
+     *
+     * @param job Nombre del trabajo.
+     */
+    void clear(String job);
+}
@@ -0,0 +1,78 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.connection.ConnectionSettings;
+import es.devcircus.mongodb_examples.hello_world.connection.ManagedMongo;
+import es.devcircus.mongodb_examples.hello_world.connection.MongoConnectionManager;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Migración de la tabla employee de db/model.sql a la colección
+ * employee de MongoDB. Se configura con propiedades del sistema:
+ * migration.jdbc.url, migration.jdbc.user, migration.jdbc.password,
+ * migration.mongo.host, migration.mongo.port, migration.mongo.db,
+ * migration.partitions, migration.workers y migration.restart (true para
+ * descartar los puntos de control y empezar de cero).
+ */
+public class EmployeeMigration {
+
+    public static final String JOB = "employee";
+
+    /**
+     * Método main.
+     *
+     * @param args Array de argumentos del programa.
+     */
+    public static void main(String[] args) {
+        JdbcConnectionFactory connections = JdbcConnectionFactory.of(
+                System.getProperty("migration.jdbc.url", "jdbc:mysql://localhost:3306/mongodb_hello_world"),
+                System.getProperty("migration.jdbc.user", "root"),
+                System.getProperty("migration.jdbc.password", ""));
+        MigrationOptions options = MigrationOptions.defaults()
+                .partitions(Integer.getInteger("migration.partitions", 16))
+                .workers(Integer.getInteger("migration.workers", 4));
+        try {
+            ManagedMongo m = MongoConnectionManager.get(ConnectionSettings.defaults()
+                    .host(System.getProperty("migration.mongo.host", "localhost"))
+                    .port(Integer.getInteger("migration.mongo.port", 27017))
+                    .connectionsPerHost(options.getWorkers() * options.getMaxInFlight() + 1));
+            DB db = m.getDB(System.getProperty("migration.mongo.db", "mydb"));
+            DBCollection target = db.getCollection(EmployeeRowMapper.TABLE);
+            target.setWriteConcern(DB.WriteConcern.STRICT);
+            CheckpointStore checkpoints = new MongoCheckpointStore(
+                    db.getCollection(MongoCheckpointStore.DEFAULT_COLLECTION));
+            if (Boolean.getBoolean("migration.restart")) {
+                checkpoints.clear(JOB);
+                target.drop();
+            }
+            MigrationStats stats = new TableMigration(JOB, connections, EmployeeRowMapper.TABLE,
+                    EmployeeRowMapper.ID_COLUMN, new EmployeeRowMapper(), target, checkpoints, options).run();
+            System.out.println(" Migración terminada..: " + stats);
+        } catch (MongoException | MigrationException ex) {
+            Logger.getLogger(EmployeeMigration.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            MongoConnectionManager.shutdown();
+        }
+    }
+}
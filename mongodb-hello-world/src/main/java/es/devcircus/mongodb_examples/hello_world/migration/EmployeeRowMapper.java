@@ -0,0 +1,49 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Transformación de una fila de la tabla employee definida en
+ * db/model.sql. El id de MySQL pasa a ser el _id del documento, así que
+ * volver a insertar las filas posteriores al último punto de control tras
+ * una interrupción no duplica empleados.
+ */
+public class EmployeeRowMapper implements RowMapper {
+
+    public static final String TABLE = "employee";
+    public static final String ID_COLUMN = "id";
+
+    @Override
+    public DBObject map(ResultSet rs) throws SQLException {
+        BasicDBObject doc = new BasicDBObject();
+        doc.put("_id", rs.getLong("id"));
+        doc.put("firstname", rs.getString("firstname"));
+        doc.put("lastname", rs.getString("lastname"));
+        Date birthDate = rs.getDate("birth_date");
+        doc.put("birthDate", birthDate == null ? null : new java.util.Date(birthDate.getTime()));
+        doc.put("cellPhone", rs.getString("cell_phone"));
+        return doc;
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Origen de las conexiones JDBC de una migración. Cada
+ * partición abre la suya y la cierra al terminar.
+ */
+public interface JdbcConnectionFactory {
+
+    /**
+     * Método que abre una conexión nueva.
+     *
+     * @return Conexión.
+     * @throws SQLException Si no se puede abrir.
+     */
+    Connection open() throws SQLException;
+
+    /**
+     * Método que crea una factoría basada en {@link DriverManager}.
+     *
+     * @param url URL JDBC.
+     * @param user Usuario.
+     * @param password Contraseña.
+     * @return Factoría de conexiones.
+     */
+    static JdbcConnectionFactory of(String url, String user, String password) {
+        return () -> DriverManager.getConnection(url, user, password);
+    }
+}
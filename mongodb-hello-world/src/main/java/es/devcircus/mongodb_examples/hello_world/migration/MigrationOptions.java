@@ -0,0 +1,156 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de una migración: en cuántas particiones se divide
+ * el rango de ids, cuántas se migran a la vez, cuántas filas trae el driver
+ * JDBC en cada viaje, el tamaño de los lotes de inserción y cada cuántas
+ * filas se guarda un punto de control.
+ */
+public class MigrationOptions {
+
+    private int partitions = 16;
+    private int workers = 4;
+    private int fetchSize = 1000;
+    private int batchSize = BulkInserter.DEFAULT_MAX_BATCH_DOCUMENTS;
+    private int maxInFlight = BulkInserter.DEFAULT_MAX_IN_FLIGHT;
+    private int checkpointInterval = 10000;
+    private int progressSeconds = 10;
+
+    /**
+     * Método que crea unas opciones por defecto: 16 particiones, 4 hilos,
+     * 1000 filas por viaje y por lote, y un punto de control cada 10000
+     * filas.
+     *
+     * @return Opciones por defecto.
+     */
+    public static MigrationOptions defaults() {
+        return new MigrationOptions();
+    }
+
+    /**
+     * Número de rangos de id en que se divide la tabla. Conviene que sean
+     * más que los hilos, para que una partición lenta no deje al resto
+     * esperando.
+     *
+     * @param partitions Número de particiones.
+     * @return Las propias opciones.
+     */
+    public MigrationOptions partitions(int partitions) {
+        this.partitions = partitions;
+        return this;
+    }
+
+    /**
+     * Número de particiones que se migran a la vez, cada una con su propia
+     * conexión JDBC.
+     *
+     * @param workers Número de hilos.
+     * @return Las propias opciones.
+     */
+    public MigrationOptions workers(int workers) {
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * Filas que trae el driver JDBC en cada viaje. Con MySQL sólo se
+     * respeta si la URL lleva useCursorFetch=true; si no, las filas se leen
+     * de una en una en streaming.
+     *
+     * @param fetchSize Filas por viaje.
+     * @return Las propias opciones.
+     */
+    public MigrationOptions fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public MigrationOptions batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Lotes de inserción que cada partición puede tener en vuelo mientras
+     * sigue leyendo de la base de datos SQL.
+     *
+     * @param maxInFlight Número de lotes.
+     * @return Las propias opciones.
+     */
+    public MigrationOptions maxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Filas entre dos puntos de control de una partición. Cada punto de
+     * control espera a que se hayan enviado todos los lotes pendientes.
+     *
+     * @param checkpointInterval Número de filas.
+     * @return Las propias opciones.
+     */
+    public MigrationOptions checkpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    /**
+     * Segundos entre dos mensajes de progreso en el log; cero para no
+     * mostrarlos.
+     *
+     * @param progressSeconds Periodo en segundos.
+     * @return Las propias opciones.
+     */
+    public MigrationOptions progressSeconds(int progressSeconds) {
+        this.progressSeconds = progressSeconds;
+        return this;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public int getProgressSeconds() {
+        return progressSeconds;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Progreso de una migración: filas leídas, filas confirmadas en
+ * algún punto de control y particiones terminadas.
+ */
+public class MigrationStats {
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsCheckpointed = new LongAdder();
+    private final AtomicInteger partitionsDone = new AtomicInteger();
+    private final int partitions;
+    private volatile long endNanos;
+
+    MigrationStats(int partitions) {
+        this.partitions = partitions;
+    }
+
+    void rowRead() {
+        rowsRead.increment();
+    }
+
+    void checkpointed(long rows) {
+        rowsCheckpointed.add(rows);
+    }
+
+    void partitionDone() {
+        partitionsDone.incrementAndGet();
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    public long getRowsCheckpointed() {
+        return rowsCheckpointed.sum();
+    }
+
+    public int getPartitionsDone() {
+        return partitionsDone.get();
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public double getElapsedSeconds() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public double getRowsPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds == 0 ? 0 : getRowsRead() / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d filas leídas, %d confirmadas, %d/%d particiones, %.1f s, %.1f filas/s",
+                getRowsRead(), getRowsCheckpointed(), getPartitionsDone(), getPartitions(),
+                getElapsedSeconds(), getRowsPerSecond());
+    }
+}
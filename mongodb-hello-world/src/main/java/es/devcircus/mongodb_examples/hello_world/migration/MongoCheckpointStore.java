@@ -0,0 +1,86 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Puntos de control guardados en una colección de MongoDB, un
+ * documento por partición con _id "trabajo:índice". Conviene que la
+ * colección esté en la misma base de datos que el destino de la migración.
+ * Las escrituras se confirman (WriteConcern.STRICT): un punto de control que
+ * se pierde obliga a repetir filas, pero uno que no llegó a guardarse no debe
+ * darse por bueno.
+ */
+public class MongoCheckpointStore implements CheckpointStore {
+
+    public static final String DEFAULT_COLLECTION = "migration.checkpoints";
+
+    private final DBCollection coll;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección en la que se guardan los puntos de control.
+     */
+    public MongoCheckpointStore(DBCollection coll) {
+        this.coll = coll;
+        this.coll.setWriteConcern(DB.WriteConcern.STRICT);
+    }
+
+    @Override
+    public List<PartitionCheckpoint> load(String job) {
+        List<PartitionCheckpoint> checkpoints = new ArrayList<>();
+        DBCursor cur = coll.find(new BasicDBObject("job", job)).sort(new BasicDBObject("index", 1));
+        while (cur.hasNext()) {
+            DBObject doc = cur.next();
+            checkpoints.add(new PartitionCheckpoint(
+                    ((Number) doc.get("index")).intValue(),
+                    ((Number) doc.get("lowerId")).longValue(),
+                    ((Number) doc.get("upperId")).longValue(),
+                    ((Number) doc.get("lastId")).longValue(),
+                    Boolean.TRUE.equals(doc.get("done"))));
+        }
+        return checkpoints;
+    }
+
+    @Override
+    public void save(String job, PartitionCheckpoint checkpoint) {
+        BasicDBObject id = new BasicDBObject("_id", job + ":" + checkpoint.getIndex());
+        BasicDBObject doc = new BasicDBObject("_id", id.get("_id"));
+        doc.put("job", job);
+        doc.put("index", checkpoint.getIndex());
+        doc.put("lowerId", checkpoint.getLowerId());
+        doc.put("upperId", checkpoint.getUpperId());
+        doc.put("lastId", checkpoint.getLastId());
+        doc.put("done", checkpoint.isDone());
+        coll.update(id, doc, true, false);
+    }
+
+    @Override
+    public void clear(String job) {
+        coll.remove(new BasicDBObject("job", job));
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Estado de una partición de la migración: el rango de ids que
+ * le corresponde, con el inferior excluido y el superior incluido, y el
+ * último id confirmado en MongoDB. Es lo que se guarda en cada punto de
+ * control, de modo que al reanudar se vuelve a partir exactamente igual.
+ */
+public class PartitionCheckpoint {
+
+    private final int index;
+    private final long lowerId;
+    private final long upperId;
+    private final long lastId;
+    private final boolean done;
+
+    public PartitionCheckpoint(int index, long lowerId, long upperId, long lastId, boolean done) {
+        this.index = index;
+        this.lowerId = lowerId;
+        this.upperId = upperId;
+        this.lastId = lastId;
+        this.done = done;
+    }
+
+    /**
+     * Método que devuelve el estado tras confirmar las filas hasta el id
+     * indicado.
+     *
+     * @param id Último id confirmado.
+     * @return Nuevo estado de la partición.
+     */
+    public PartitionCheckpoint advance(long id) {
+        return new PartitionCheckpoint(index, lowerId, upperId, id, done);
+    }
+
+    /**
+     * Método que devuelve el estado de la partición terminada.
+     *
+     * @return Nuevo estado de la partición.
+     */
+    public PartitionCheckpoint finish() {
+        return new PartitionCheckpoint(index, lowerId, upperId, upperId, true);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getLowerId() {
+        return lowerId;
+    }
+
+    public long getUpperId() {
+        return upperId;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public String toString() {
+        return "partición " + index + " (" + lowerId + ", " + upperId + "], último id " + lastId
+                + (done ? ", terminada" : "");
+    }
+}
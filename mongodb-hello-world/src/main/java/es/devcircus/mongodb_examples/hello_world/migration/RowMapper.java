@@ -0,0 +1,40 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import com.mongodb.DBObject;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Transformación de la fila actual de un {@link ResultSet} en
+ * el documento que se inserta en MongoDB.
+ */
+public interface RowMapper {
+
+    /**
+     * Método que construye el documento de la fila actual. No debe mover el
+     * cursor del ResultSet.
+     *
+     * @param rs ResultSet posicionado en la fila.
+     * @return Documento.
+     * @throws SQLException Si falla la lectura de alguna columna.
+     */
+    DBObject map(ResultSet rs) throws SQLException;
+}
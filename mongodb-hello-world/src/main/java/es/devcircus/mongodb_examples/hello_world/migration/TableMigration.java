@@ -0,0 +1,253 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.migration;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Migración en streaming de una tabla SQL a una colección de
+ * MongoDB. El rango de ids se divide en particiones que se migran en
+ * paralelo, cada una con su conexión JDBC leyendo en streaming (nunca se
+ * carga la tabla en memoria) y su {@link BulkInserter} enviando lotes
+ * mientras se sigue leyendo. Cada partición guarda periódicamente el último
+ * id enviado en un {@link CheckpointStore}; si el trabajo se interrumpe,
+ * volver a lanzarlo con el mismo nombre retoma cada partición donde se
+ * quedó.
+ * <p>
+ * El {@link RowMapper} debe guardar el id de la fila como _id del documento:
+ * al reanudar se borran de la colección los documentos posteriores al
+ * último punto de control de cada partición antes de volver a leerlos. Para
+ * que un punto de control implique filas ya escritas, la colección destino
+ * debe usar WriteConcern.STRICT.
+ */
+public class TableMigration {
+
+    private static final Logger LOGGER = Logger.getLogger(TableMigration.class.getName());
+
+    private final String job;
+    private final JdbcConnectionFactory connections;
+    private final String table;
+    private final String idColumn;
+    private final RowMapper mapper;
+    private final DBCollection target;
+    private final CheckpointStore checkpoints;
+    private final MigrationOptions options;
+    private volatile MigrationStats stats;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param job Nombre del trabajo, clave de sus puntos de control.
+     * @param connections Origen de las conexiones JDBC.
+     * @param table Tabla de origen.
+     * @param idColumn Columna numérica por la que se particiona.
+     * @param mapper Transformación de fila a documento.
+     * @param target Colección destino.
+     * @param checkpoints Almacén de puntos de control.
+     * @param options Opciones de la migración.
+     */
+    public TableMigration(String job, JdbcConnectionFactory connections, String table, String idColumn,
+            RowMapper mapper, DBCollection target, CheckpointStore checkpoints, MigrationOptions options) {
+        this.job = job;
+        this.connections = connections;
+        this.table = table;
+        this.idColumn = idColumn;
+        this.mapper = mapper;
+        this.target = target;
+        this.checkpoints = checkpoints;
+        this.options = options;
+    }
+
+    /**
+     * Método que ejecuta (o reanuda) la migración y espera a que termine.
+     *
+     * @return Estadísticas de la ejecución.
+     * @throws MigrationException Si falla alguna partición; las demás se
+     * detienen y sus puntos de control quedan guardados.
+     */
+    public MigrationStats run() {
+        List<PartitionCheckpoint> plan = checkpoints.load(job);
+        boolean resumed = !plan.isEmpty();
+        if (resumed) {
+            LOGGER.log(Level.INFO, "Reanudando la migración {0} ({1} particiones)",
+                    new Object[]{job, plan.size()});
+        } else {
+            plan = plan();
+            for (PartitionCheckpoint checkpoint : plan) {
+                checkpoints.save(job, checkpoint);
+            }
+        }
+        MigrationStats current = new MigrationStats(plan.size());
+        stats = current;
+        ExecutorService workers = Executors.newFixedThreadPool(options.getWorkers(),
+                new DaemonThreadFactory("migration-" + job));
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(
+                new DaemonThreadFactory("migration-progress"));
+        if (options.getProgressSeconds() > 0) {
+            progress.scheduleAtFixedRate(() -> LOGGER.log(Level.INFO, "{0}: {1}", new Object[]{job, current}),
+                    options.getProgressSeconds(), options.getProgressSeconds(), TimeUnit.SECONDS);
+        }
+        try {
+            CompletionService<Void> partitions = new ExecutorCompletionService<>(workers);
+            int submitted = 0;
+            for (PartitionCheckpoint checkpoint : plan) {
+                if (checkpoint.isDone()) {
+                    current.partitionDone();
+                } else {
+                    partitions.submit(() -> {
+                        migrate(checkpoint, resumed, current);
+                        return null;
+                    });
+                    submitted++;
+                }
+            }
+            for (int i = 0; i < submitted; i++) {
+                partitions.take().get();
+            }
+        } catch (ExecutionException ex) {
+            throw new MigrationException("Falló la migración " + job, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Migración " + job + " interrumpida", ex);
+        } finally {
+            workers.shutdownNow();
+            progress.shutdownNow();
+            current.finish();
+        }
+        LOGGER.log(Level.INFO, "Migración {0} terminada: {1}", new Object[]{job, current});
+        return current;
+    }
+
+    /**
+     * Estadísticas de la ejecución en curso o de la última.
+     *
+     * @return Estadísticas; null si no se ha ejecutado nunca.
+     */
+    public MigrationStats getStats() {
+        return stats;
+    }
+
+    private List<PartitionCheckpoint> plan() {
+        long min;
+        long max;
+        try (Connection conn = connections.open();
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("SELECT MIN(" + idColumn + "), MAX(" + idColumn + ") FROM " + table)) {
+            rs.next();
+            min = rs.getLong(1);
+            max = rs.getLong(2);
+            if (rs.wasNull()) {
+                return new ArrayList<>();
+            }
+        } catch (SQLException ex) {
+            throw new MigrationException("No se pudo calcular el rango de ids de " + table, ex);
+        }
+        long span = max - min + 1;
+        int count = (int) Math.max(1, Math.min(options.getPartitions(), span));
+        long base = span / count;
+        long remainder = span % count;
+        List<PartitionCheckpoint> plan = new ArrayList<>(count);
+        long lower = min - 1;
+        for (int i = 0; i < count; i++) {
+            long upper = lower + base + (i < remainder ? 1 : 0);
+            plan.add(new PartitionCheckpoint(i, lower, upper, lower, false));
+            lower = upper;
+        }
+        return plan;
+    }
+
+    private void migrate(PartitionCheckpoint start, boolean resumed, MigrationStats current) throws SQLException {
+        if (resumed) {
+            target.remove(new BasicDBObject("_id", new BasicDBObject("$gt", start.getLastId())
+                    .append("$lte", start.getUpperId())));
+        }
+        PartitionCheckpoint checkpoint = start;
+        BulkInserter inserter = new BulkInserter(target, options.getBatchSize(),
+                BulkInserter.DEFAULT_MAX_BATCH_BYTES, options.getMaxInFlight());
+        String sql = "SELECT * FROM " + table + " WHERE " + idColumn + " > ? AND " + idColumn
+                + " <= ? ORDER BY " + idColumn;
+        try (Connection conn = connections.open()) {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize(conn));
+                ps.setLong(1, checkpoint.getLastId());
+                ps.setLong(2, checkpoint.getUpperId());
+                try (ResultSet rs = ps.executeQuery()) {
+                    int pending = 0;
+                    while (rs.next()) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        inserter.add(mapper.map(rs));
+                        current.rowRead();
+                        if (++pending == options.getCheckpointInterval()) {
+                            inserter.flush();
+                            checkpoint = checkpoint.advance(rs.getLong(idColumn));
+                            checkpoints.save(job, checkpoint);
+                            current.checkpointed(pending);
+                            pending = 0;
+                        }
+                    }
+                    inserter.flush();
+                    checkpoints.save(job, checkpoint.finish());
+                    current.checkpointed(pending);
+                    current.partitionDone();
+                }
+            }
+        } finally {
+            inserter.close();
+        }
+    }
+
+    /**
+     * Connector/J carga el resultado entero en memoria salvo que se pida
+     * cursor en servidor (useCursorFetch=true) o streaming fila a fila con
+     * un fetch size de Integer.MIN_VALUE.
+     */
+    private int fetchSize(Connection conn) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        if ("MySQL".equals(metaData.getDatabaseProductName())
+                && !metaData.getURL().contains("useCursorFetch=true")) {
+            return Integer.MIN_VALUE;
+        }
+        return options.getFetchSize();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.model;
+
+import es.devcircus.mongodb_examples.codec.Document;
+import es.devcircus.mongodb_examples.codec.Id;
+import java.util.Date;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Empleado de la tabla employee de db/model.sql, con los mismos
+ * nombres de campo que los documentos que escribe la migración
+ * (EmployeeRowMapper). Al compilar se genera EmployeeCodec.
+ */
+@Document("employee")
+public class Employee {
+
+    @Id
+    private long id;
+    private String firstname;
+    private String lastname;
+    private Date birthDate;
+    private String cellPhone;
+
+    /**
+     * Constructor de la clase.
+     */
+    public Employee() {
+    }
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param id Identificador del empleado.
+     * @param firstname Nombre.
+     * @param lastname Apellidos.
+     * @param birthDate Fecha de nacimiento.
+     * @param cellPhone Teléfono móvil.
+     */
+    public Employee(long id, String firstname, String lastname, Date birthDate, String cellPhone) {
+        this.id = id;
+        this.firstname = firstname;
+        this.lastname = lastname;
+        this.birthDate = birthDate;
+        this.cellPhone = cellPhone;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getFirstname() {
+        return firstname;
+    }
+
+    public void setFirstname(String firstname) {
+        this.firstname = firstname;
+    }
+
+    public String getLastname() {
+        return lastname;
+    }
+
+    public void setLastname(String lastname) {
+        this.lastname = lastname;
+    }
+
+    public Date getBirthDate() {
+        return birthDate;
+    }
+
+    public void setBirthDate(Date birthDate) {
+        this.birthDate = birthDate;
+    }
+
+    public String getCellPhone() {
+        return cellPhone;
+    }
+
+    public void setCellPhone(String cellPhone) {
+        this.cellPhone = cellPhone;
+    }
+
+    @Override
+    public String toString() {
+        return "Employee{" + "id=" + id + ", firstname=" + firstname + ", lastname=" + lastname
+                + ", birthDate=" + birthDate + ", cellPhone=" + cellPhone + '}';
+    }
+}
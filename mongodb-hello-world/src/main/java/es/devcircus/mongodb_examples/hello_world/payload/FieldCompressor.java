@@ -0,0 +1,185 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.payload;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.ByteDecoder;
+import com.mongodb.Bytes;
+import com.mongodb.DBBinary;
+import com.mongodb.DBObject;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Compresión de campos. Cada valor comprimido se guarda como un
+ * binario de subtipo {@value #SUBTYPE} (reservado a los usuarios por la
+ * especificación BSON) con un byte de algoritmo, la longitud original en
+ * cuatro bytes little-endian y el valor codificado en BSON y comprimido. Al
+ * llevar el algoritmo en cada valor, el lector no necesita saber con qué
+ * opciones se escribió: descomprime cualquier campo con ese subtipo.
+ */
+public final class FieldCompressor {
+
+    public static final byte SUBTYPE = (byte) 0x80;
+
+    /**
+     * Algoritmo zlib (java.util.zip), el único disponible sin dependencias.
+     */
+    static final byte ZLIB = 1;
+
+    private static final int HEADER = 5;
+    private static final String VALUE = "v";
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    /**
+     * Cada ByteDecoder reserva un buffer de nombres de 4 MB al crearse, así
+     * que se reutiliza uno por hilo.
+     */
+    private static final ThreadLocal<ByteDecoder> DECODER = ThreadLocal.withInitial(
+            () -> new ByteDecoder(ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN)));
+
+    private final PayloadOptions options;
+    private final PayloadStats stats;
+    private final ThreadLocal<Deflater> deflater;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param options Campos a comprimir, umbral y nivel.
+     * @param stats Contadores donde se anotan los valores comprimidos.
+     */
+    public FieldCompressor(PayloadOptions options, PayloadStats stats) {
+        this.options = options;
+        this.stats = stats;
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(options.getLevel()));
+    }
+
+    /**
+     * Método que devuelve una copia del documento con los campos
+     * comprimibles comprimidos. El original no se modifica, de forma que la
+     * aplicación puede seguir usándolo.
+     *
+     * @param doc Documento.
+     * @return Copia con los campos comprimidos, o el propio documento si no
+     * hay nada que comprimir.
+     */
+    public DBObject compress(DBObject doc) {
+        DBObject result = null;
+        for (String field : options.getCompressedFields()) {
+            Object value = doc.get(field);
+            if (value == null || value instanceof DBBinary) {
+                continue;
+            }
+            byte[] compressed = compressValue(value);
+            if (compressed == null) {
+                stats.skipped();
+                continue;
+            }
+            stats.compressed();
+            if (result == null) {
+                result = new BasicDBObject(doc.toMap());
+            }
+            result.put(field, new DBBinary(SUBTYPE, compressed));
+        }
+        return result != null ? result : doc;
+    }
+
+    private byte[] compressValue(Object value) {
+        byte[] raw = Bytes.encode(new BasicDBObject(VALUE, value));
+        if (raw.length < options.getMinCompressBytes()) {
+            return null;
+        }
+        Deflater deflate = deflater.get();
+        deflate.reset();
+        deflate.setInput(raw);
+        deflate.finish();
+        // sólo se acepta si el resultado, con cabecera, ocupa menos que el
+        // original; el buffer no deja escribir más
+        byte[] out = new byte[raw.length];
+        int length = HEADER;
+        while (!deflate.finished() && length < out.length) {
+            length += deflate.deflate(out, length, out.length - length);
+        }
+        if (!deflate.finished()) {
+            return null;
+        }
+        out[0] = ZLIB;
+        ByteBuffer.wrap(out, 1, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(raw.length);
+        return Arrays.copyOf(out, length);
+    }
+
+    /**
+     * Método que descomprime todos los campos de primer nivel guardados por
+     * esta clase, sean o no de los configurados. Como en
+     * {@link #compress(DBObject)}, el documento recibido no se modifica.
+     *
+     * @param doc Documento leído de la base de datos.
+     * @return Copia con los campos descomprimidos, o el propio documento si
+     * no tiene ninguno comprimido.
+     */
+    public static DBObject decompress(DBObject doc) {
+        DBObject result = null;
+        for (String field : doc.keySet()) {
+            Object value = doc.get(field);
+            if (value instanceof DBBinary && ((DBBinary) value).getType() == SUBTYPE) {
+                if (result == null) {
+                    result = new BasicDBObject(doc.toMap());
+                    if (doc.isPartialObject()) {
+                        result.markAsPartialObject();
+                    }
+                }
+                result.put(field, decompressValue(field, ((DBBinary) value).getData()));
+            }
+        }
+        return result != null ? result : doc;
+    }
+
+    private static Object decompressValue(String field, byte[] data) {
+        if (data.length < HEADER || data[0] != ZLIB) {
+            throw new IllegalStateException("Algoritmo de compresión desconocido en el campo " + field);
+        }
+        int rawLength = ByteBuffer.wrap(data, 1, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        byte[] raw = new byte[rawLength];
+        Inflater inflate = INFLATER.get();
+        inflate.reset();
+        inflate.setInput(data, HEADER, data.length - HEADER);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflate.finished()) {
+                int read = inflate.inflate(raw, length, rawLength - length);
+                if (read == 0 && (inflate.needsInput() || inflate.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawLength) {
+                throw new IllegalStateException("Valor comprimido truncado en el campo " + field);
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Valor comprimido corrupto en el campo " + field, ex);
+        }
+        ByteDecoder decoder = DECODER.get();
+        decoder.reset(ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN));
+        return decoder.readObject().get(VALUE);
+    }
+}
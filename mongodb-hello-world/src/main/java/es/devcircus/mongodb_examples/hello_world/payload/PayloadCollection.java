@@ -0,0 +1,168 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.payload;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.bulk.DocumentSizeEstimator;
+import es.devcircus.mongodb_examples.hello_world.cursor.CursorStreams;
+import es.devcircus.mongodb_examples.hello_world.cursor.ScanOptions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Fachada de una colección que reduce los bytes que viajan por
+ * la red con documentos grandes. Las escrituras comprimen los campos
+ * indicados en {@link PayloadOptions}; las lecturas aplican la proyección
+ * por defecto cuando no se indica otra y descomprimen lo que reciben. Los
+ * documentos que devuelve son iguales a los insertados; las consultas,
+ * actualizaciones e índices sólo pueden usar los campos sin comprimir.
+ */
+public class PayloadCollection {
+
+    private final DBCollection coll;
+    private final PayloadOptions options;
+    private final PayloadStats stats = new PayloadStats();
+    private final FieldCompressor compressor;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección.
+     * @param options Campos comprimidos y proyección por defecto.
+     */
+    public PayloadCollection(DBCollection coll, PayloadOptions options) {
+        this.coll = coll;
+        this.options = options;
+        this.compressor = new FieldCompressor(options, stats);
+    }
+
+    public void insert(DBObject... docs) {
+        insert(Arrays.asList(docs));
+    }
+
+    /**
+     * Método que inserta documentos con los campos configurados comprimidos.
+     * Los documentos originales no se modifican, salvo por el _id que les
+     * asigna el driver.
+     *
+     * @param docs Documentos a insertar.
+     */
+    public void insert(List<DBObject> docs) {
+        List<DBObject> encoded = new ArrayList<>(docs.size());
+        for (DBObject doc : docs) {
+            DBObject stored = compressor.compress(doc);
+            stats.sent(DocumentSizeEstimator.estimate(doc), DocumentSizeEstimator.estimate(stored));
+            encoded.add(stored);
+        }
+        coll.insert(encoded);
+        for (int i = 0; i < docs.size(); i++) {
+            if (docs.get(i) != encoded.get(i)) {
+                docs.get(i).put("_id", encoded.get(i).get("_id"));
+            }
+        }
+    }
+
+    public DBObject findOne(DBObject query) {
+        return findOne(query, null);
+    }
+
+    /**
+     * Método equivalente a {@link DBCollection#findOne(DBObject, DBObject)}.
+     *
+     * @param query Consulta.
+     * @param projection Proyección; null para la proyección por defecto.
+     * @return Documento descomprimido o null si no hay ninguno.
+     */
+    public DBObject findOne(DBObject query, DBObject projection) {
+        DBObject doc = coll.findOne(query, projection(projection));
+        return doc == null ? null : decode(doc);
+    }
+
+    public Iterator<DBObject> find(DBObject query) {
+        return find(query, null);
+    }
+
+    /**
+     * Método que recorre los documentos que cumplen la consulta,
+     * descomprimiéndolos según se leen.
+     *
+     * @param query Consulta.
+     * @param projection Proyección; null para la proyección por defecto.
+     * @return Iterador de documentos.
+     */
+    public Iterator<DBObject> find(DBObject query, DBObject projection) {
+        DBCursor cur = coll.find(query == null ? new BasicDBObject() : query, projection(projection));
+        return new Iterator<DBObject>() {
+            @Override
+            public boolean hasNext() {
+                return cur.hasNext();
+            }
+
+            @Override
+            public DBObject next() {
+                return decode(cur.next());
+            }
+        };
+    }
+
+    /**
+     * Método que abre un recorrido con prefetch en segundo plano, con la
+     * proyección por defecto si las opciones no indican otra. Conviene
+     * usarlo dentro de un try-with-resources.
+     *
+     * @param query Consulta; null para recorrer toda la colección.
+     * @param scan Opciones de lectura.
+     * @return Stream de documentos descomprimidos.
+     */
+    public Stream<DBObject> scan(DBObject query, ScanOptions scan) {
+        ScanOptions effective = scan;
+        if (scan.getProjection() == null && options.getProjection() != null) {
+            effective = scan.copy().projection(options.getProjection());
+        }
+        return CursorStreams.stream(coll, query, effective).map(this::decode);
+    }
+
+    private DBObject projection(DBObject projection) {
+        return projection != null ? projection : options.getProjection();
+    }
+
+    private DBObject decode(DBObject doc) {
+        DBObject decoded = FieldCompressor.decompress(doc);
+        stats.received(DocumentSizeEstimator.estimate(doc), DocumentSizeEstimator.estimate(decoded));
+        return decoded;
+    }
+
+    public DBCollection getCollection() {
+        return coll;
+    }
+
+    public PayloadOptions getOptions() {
+        return options;
+    }
+
+    public PayloadStats getStats() {
+        return stats;
+    }
+}
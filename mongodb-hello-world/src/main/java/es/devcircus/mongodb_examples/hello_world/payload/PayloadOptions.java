@@ -0,0 +1,122 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.payload;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de carga útil de una colección: qué campos se
+ * guardan comprimidos, a partir de qué tamaño merece la pena comprimirlos,
+ * el nivel de compresión y la proyección que se aplica por defecto a las
+ * lecturas que no indican una.
+ */
+public class PayloadOptions {
+
+    public static final int DEFAULT_MIN_COMPRESS_BYTES = 512;
+
+    private final Set<String> compressedFields = new LinkedHashSet<>();
+    private int minCompressBytes = DEFAULT_MIN_COMPRESS_BYTES;
+    private int level = Deflater.BEST_SPEED;
+    private DBObject projection;
+
+    /**
+     * Método que crea unas opciones por defecto: ningún campo comprimido,
+     * umbral de {@value #DEFAULT_MIN_COMPRESS_BYTES} bytes, el nivel de
+     * compresión más rápido y sin proyección.
+     *
+     * @return Opciones por defecto.
+     */
+    public static PayloadOptions defaults() {
+        return new PayloadOptions();
+    }
+
+    /**
+     * Campos de primer nivel que se guardan comprimidos. El servidor no
+     * puede consultar ni indexar su contenido, así que sólo se deben indicar
+     * campos que únicamente se leen: textos largos, historiales, adjuntos...
+     *
+     * @param fields Nombres de los campos.
+     * @return Las propias opciones.
+     */
+    public PayloadOptions compress(String... fields) {
+        compressedFields.addAll(Arrays.asList(fields));
+        return this;
+    }
+
+    /**
+     * Tamaño en BSON a partir del cual se comprime un valor. Por debajo, la
+     * cabecera de zlib y el coste de CPU no compensan.
+     *
+     * @param minCompressBytes Tamaño en bytes.
+     * @return Las propias opciones.
+     */
+    public PayloadOptions minCompressBytes(int minCompressBytes) {
+        this.minCompressBytes = minCompressBytes;
+        return this;
+    }
+
+    /**
+     * Nivel de compresión de {@link Deflater}, de 1 (más rápido) a 9 (más
+     * pequeño).
+     *
+     * @param level Nivel.
+     * @return Las propias opciones.
+     */
+    public PayloadOptions level(int level) {
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * Campos que devuelven por defecto las lecturas, además de _id.
+     *
+     * @param fields Nombres de los campos.
+     * @return Las propias opciones.
+     */
+    public PayloadOptions project(String... fields) {
+        BasicDBObject fieldsObject = new BasicDBObject();
+        for (String field : fields) {
+            fieldsObject.put(field, 1);
+        }
+        this.projection = fieldsObject;
+        return this;
+    }
+
+    public Set<String> getCompressedFields() {
+        return Collections.unmodifiableSet(compressedFields);
+    }
+
+    public int getMinCompressBytes() {
+        return minCompressBytes;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public DBObject getProjection() {
+        return projection;
+    }
+}
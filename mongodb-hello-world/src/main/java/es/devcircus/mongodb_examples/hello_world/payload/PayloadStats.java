@@ -0,0 +1,103 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.payload;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Contadores de una {@link PayloadCollection}: bytes de los
+ * documentos tal como los ve la aplicación y tal como viajan por la red, en
+ * cada sentido, y valores comprimidos o dejados sin comprimir. Los tamaños
+ * son los que estima DocumentSizeEstimator para la codificación BSON.
+ */
+public class PayloadStats {
+
+    private final LongAdder logicalBytesSent = new LongAdder();
+    private final LongAdder wireBytesSent = new LongAdder();
+    private final LongAdder logicalBytesReceived = new LongAdder();
+    private final LongAdder wireBytesReceived = new LongAdder();
+    private final LongAdder compressedValues = new LongAdder();
+    private final LongAdder skippedValues = new LongAdder();
+
+    void sent(long logical, long wire) {
+        logicalBytesSent.add(logical);
+        wireBytesSent.add(wire);
+    }
+
+    void received(long wire, long logical) {
+        wireBytesReceived.add(wire);
+        logicalBytesReceived.add(logical);
+    }
+
+    void compressed() {
+        compressedValues.increment();
+    }
+
+    void skipped() {
+        skippedValues.increment();
+    }
+
+    public long getLogicalBytesSent() {
+        return logicalBytesSent.sum();
+    }
+
+    public long getWireBytesSent() {
+        return wireBytesSent.sum();
+    }
+
+    public long getLogicalBytesReceived() {
+        return logicalBytesReceived.sum();
+    }
+
+    public long getWireBytesReceived() {
+        return wireBytesReceived.sum();
+    }
+
+    public long getCompressedValues() {
+        return compressedValues.sum();
+    }
+
+    /**
+     * Valores de campos comprimibles que se han guardado tal cual, por no
+     * llegar al tamaño mínimo o porque comprimidos no ocupaban menos.
+     *
+     * @return Número de valores.
+     */
+    public long getSkippedValues() {
+        return skippedValues.sum();
+    }
+
+    /**
+     * Fracción de bytes ahorrados en la red en ambos sentidos.
+     *
+     * @return Valor entre 0 y 1; 0 si todavía no hay tráfico.
+     */
+    public double getSavings() {
+        long logical = getLogicalBytesSent() + getLogicalBytesReceived();
+        long wire = getWireBytesSent() + getWireBytesReceived();
+        return logical == 0 ? 0 : 1 - (double) wire / logical;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("enviados %d/%d bytes, recibidos %d/%d bytes, %d valores comprimidos, %d sin comprimir, ahorro %.1f%%",
+                getWireBytesSent(), getLogicalBytesSent(), getWireBytesReceived(), getLogicalBytesReceived(),
+                getCompressedValues(), getSkippedValues(), 100 * getSavings());
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Bulkhead de una colección: limita las operaciones en curso
+ * sobre ella, de forma que una colección lenta no se quede con todos los
+ * hilos y conexiones de la aplicación. El permiso se devuelve cuando el
+ * intento termina de verdad, no cuando se abandona por plazo, así que los
+ * intentos que siguen bloqueados en el socket cuentan contra el límite.
+ */
+public class Bulkhead {
+
+    private final String namespace;
+    private final int limit;
+    private final Semaphore permits;
+
+    public Bulkhead(String namespace, int limit) {
+        this.namespace = namespace;
+        this.limit = limit;
+        this.permits = new Semaphore(limit);
+    }
+
+    /**
+     * Método que reserva un hueco, esperando como mucho el tiempo indicado.
+     *
+     * @param timeout Tiempo máximo de espera.
+     * @param unit Unidad del tiempo de espera.
+     * @return true si se ha reservado el hueco.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        return permits.tryAcquire(timeout, unit);
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return limit - permits.availablePermits();
+    }
+
+    @Override
+    public String toString() {
+        return namespace + " " + getInFlight() + "/" + limit;
+    }
+}
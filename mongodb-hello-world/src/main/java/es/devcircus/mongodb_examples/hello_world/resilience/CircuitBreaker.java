@@ -0,0 +1,170 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Circuit breaker de un servidor. Guarda el resultado de las
+ * últimas llamadas y, cuando la proporción de fallos transitorios supera el
+ * umbral, abre el circuito: durante un tiempo las llamadas se rechazan sin
+ * tocar la red, en vez de acumular hilos esperando a un servidor caído.
+ * Pasado ese tiempo deja pasar una única llamada de prueba (HALF_OPEN); si
+ * va bien se cierra y, si no, vuelve a abrirse.
+ */
+public class CircuitBreaker {
+
+    /**
+     * Estado del circuito.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final double failureRate;
+    private final long openNanos;
+    private final boolean[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing;
+    private long opened;
+
+    public CircuitBreaker(String host, ResilienceOptions options) {
+        this.host = host;
+        this.failureRate = options.getBreakerFailureRate();
+        this.openNanos = options.getBreakerOpenMillis() * 1000000L;
+        this.outcomes = new boolean[Math.max(1, options.getBreakerWindow())];
+    }
+
+    /**
+     * Método que pide paso para una llamada. Con el circuito abierto sólo lo
+     * concede, una vez pasado el tiempo de espera, a la llamada de prueba.
+     *
+     * @return true si la llamada puede hacerse.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probing) {
+                return false;
+            }
+            probing = true;
+        }
+        return true;
+    }
+
+    /**
+     * Método que devuelve el paso concedido por {@link #tryAcquire()} a una
+     * llamada que al final no se ha hecho.
+     */
+    public synchronized void release() {
+        probing = false;
+    }
+
+    /**
+     * Método que anota una llamada en la que el servidor ha respondido,
+     * aunque sea con un error propio de la operación.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+        } else {
+            record(false);
+        }
+    }
+
+    /**
+     * Método que anota un fallo transitorio: error de red, servidor que ha
+     * dejado de ser primario o plazo agotado.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded == outcomes.length
+                && failures >= failureRate * outcomes.length) {
+            open();
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Método que devuelve cuántas veces se ha abierto el circuito.
+     *
+     * @return Número de aperturas.
+     */
+    public synchronized long getOpenCount() {
+        return opened;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        probing = false;
+        opened++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        probing = false;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return host + " " + getState() + " (" + failures + "/" + recorded + " fallos)";
+    }
+}
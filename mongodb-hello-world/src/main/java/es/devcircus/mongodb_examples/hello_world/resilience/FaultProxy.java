@@ -0,0 +1,259 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Proxy TCP para probar la capa de resiliencia contra un mongod
+ * local. Reenvía las conexiones al servidor de destino e introduce fallos:
+ * latencia en cada bloque, conexiones cortadas con RST, bloqueos largos que
+ * simulan un primario colgado y, con {@link #down(boolean)}, la caída
+ * completa del servidor. Se ejecuta con
+ * {@code java -cp mongodb-hello-world-<versión>.jar
+ * es.devcircus.mongodb_examples.hello_world.resilience.FaultProxy} y se
+ * configura con propiedades del sistema: faultproxy.port (27018),
+ * faultproxy.target (localhost:27017), faultproxy.latencyMillis,
+ * faultproxy.resetRate, faultproxy.stallRate y faultproxy.stallMillis.
+ */
+public class FaultProxy implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(FaultProxy.class.getName());
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final int port;
+    private final String targetHost;
+    private final int targetPort;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final ExecutorService pumps = Executors.newCachedThreadPool(new DaemonThreadFactory("fault-proxy"));
+    private volatile long latencyMillis;
+    private volatile double resetRate;
+    private volatile double stallRate;
+    private volatile long stallMillis = 30000;
+    private volatile boolean down;
+    private ServerSocket server;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param port Puerto en el que escucha el proxy; 0 para uno libre.
+     * @param targetHost Servidor de destino.
+     * @param targetPort Puerto del servidor de destino.
+     */
+    public FaultProxy(int port, String targetHost, int targetPort) {
+        this.port = port;
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+    }
+
+    public FaultProxy latencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * Probabilidad de cortar la conexión con un RST en cada bloque
+     * reenviado.
+     *
+     * @param resetRate Probabilidad entre 0 y 1.
+     * @return El propio proxy.
+     */
+    public FaultProxy resetRate(double resetRate) {
+        this.resetRate = resetRate;
+        return this;
+    }
+
+    /**
+     * Probabilidad de dejar de reenviar un bloque durante
+     * {@link #stallMillis(long)}, como un servidor que no responde.
+     *
+     * @param stallRate Probabilidad entre 0 y 1.
+     * @return El propio proxy.
+     */
+    public FaultProxy stallRate(double stallRate) {
+        this.stallRate = stallRate;
+        return this;
+    }
+
+    public FaultProxy stallMillis(long stallMillis) {
+        this.stallMillis = stallMillis;
+        return this;
+    }
+
+    /**
+     * Método que simula la caída del servidor: corta las conexiones abiertas
+     * y cierra las nuevas nada más aceptarlas. Con false vuelve a reenviar.
+     *
+     * @param down true para simular la caída.
+     * @return El propio proxy.
+     */
+    public FaultProxy down(boolean down) {
+        this.down = down;
+        if (down) {
+            for (Socket socket : sockets) {
+                reset(socket);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Método que abre el puerto y empieza a aceptar conexiones.
+     *
+     * @return El propio proxy.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public synchronized FaultProxy start() throws IOException {
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(port));
+        pumps.execute(this::accept);
+        return this;
+    }
+
+    public synchronized int getPort() {
+        return server == null ? port : server.getLocalPort();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            Socket client;
+            try {
+                client = server.accept();
+            } catch (IOException ex) {
+                if (!server.isClosed()) {
+                    LOGGER.log(Level.WARNING, null, ex);
+                }
+                return;
+            }
+            if (down) {
+                reset(client);
+                continue;
+            }
+            try {
+                Socket target = new Socket(targetHost, targetPort);
+                client.setTcpNoDelay(true);
+                target.setTcpNoDelay(true);
+                sockets.add(client);
+                sockets.add(target);
+                pumps.execute(() -> pump(client, target));
+                pumps.execute(() -> pump(target, client));
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "No se puede conectar con {0}:{1}: {2}",
+                        new Object[]{targetHost, String.valueOf(targetPort), ex.getMessage()});
+                reset(client);
+            }
+        }
+    }
+
+    private void pump(Socket from, Socket to) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            InputStream in = from.getInputStream();
+            OutputStream out = to.getOutputStream();
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                if (down || random.nextDouble() < resetRate) {
+                    break;
+                }
+                if (random.nextDouble() < stallRate) {
+                    Thread.sleep(stallMillis);
+                } else if (latencyMillis > 0) {
+                    Thread.sleep(latencyMillis);
+                }
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (SocketException ex) {
+            // la otra mitad ya ha cerrado la conexión
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, null, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            reset(from);
+            reset(to);
+        }
+    }
+
+    /**
+     * Cierra el socket con un RST en vez de un FIN, como una conexión que se
+     * cae.
+     */
+    private void reset(Socket socket) {
+        sockets.remove(socket);
+        try {
+            socket.setSoLinger(true, 0);
+            socket.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, null, ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, null, ex);
+        }
+        for (Socket socket : sockets) {
+            reset(socket);
+        }
+        pumps.shutdownNow();
+    }
+
+    /**
+     * Método main.
+     *
+     * @param args Array de argumentos del programa.
+     * @throws IOException Si no se puede abrir el puerto.
+     * @throws InterruptedException Si se interrumpe la espera.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String[] target = System.getProperty("faultproxy.target", "localhost:27017").split(":");
+        FaultProxy proxy = new FaultProxy(Integer.getInteger("faultproxy.port", 27018),
+                target[0], target.length > 1 ? Integer.parseInt(target[1]) : 27017)
+                .latencyMillis(Long.getLong("faultproxy.latencyMillis", 0))
+                .resetRate(Double.parseDouble(System.getProperty("faultproxy.resetRate", "0")))
+                .stallRate(Double.parseDouble(System.getProperty("faultproxy.stallRate", "0")))
+                .stallMillis(Long.getLong("faultproxy.stallMillis", 30000))
+                .start();
+        System.out.println(" Proxy escuchando.....: " + proxy.getPort());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Qué se puede reintentar de una operación cuando falla sin
+ * saber si llegó a aplicarse en el servidor.
+ */
+public enum Idempotency {
+
+    /**
+     * Repetirla no cambia el resultado: lecturas, borrados y
+     * actualizaciones con $set o de sustitución completa.
+     */
+    IDEMPOTENT,
+    /**
+     * Inserción con el _id asignado en el cliente: si el primer intento sí
+     * llegó, el reintento falla por clave duplicada en el _id, y eso se toma
+     * como éxito.
+     */
+    INSERT,
+    /**
+     * Repetirla puede aplicar el cambio dos veces ($inc, $push...). Sólo se
+     * reintenta cuando la operación no llegó a enviarse.
+     */
+    NON_IDEMPOTENT
+}
@@ -0,0 +1,63 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+import com.mongodb.MongoException;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Excepción de una operación que la capa de resiliencia no ha
+ * dejado pasar o ha abandonado. Hereda de {@link MongoException} para que el
+ * código que ya trata los errores del driver la trate igual.
+ */
+public class ResilienceException extends MongoException {
+
+    /**
+     * Motivo del rechazo.
+     */
+    public enum Reason {
+        /**
+         * Se ha agotado el plazo de la operación.
+         */
+        DEADLINE_EXCEEDED,
+        /**
+         * El circuito del servidor está abierto.
+         */
+        CIRCUIT_OPEN,
+        /**
+         * La colección ya tiene el máximo de operaciones en curso.
+         */
+        BULKHEAD_FULL
+    }
+
+    private final Reason reason;
+
+    public ResilienceException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public ResilienceException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
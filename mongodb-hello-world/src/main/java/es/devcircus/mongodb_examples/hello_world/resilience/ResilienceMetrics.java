@@ -0,0 +1,162 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+import es.devcircus.mongodb_examples.hello_world.metrics.LatencyHistogram;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Medidas de un {@link ResilientExecutor}: llamadas, reintentos,
+ * rechazos de cada tipo y latencia de las llamadas completas, con sus
+ * reintentos y esperas. Incluye el estado actual de cada circuito y las
+ * operaciones en curso de cada colección. Los rechazos rápidos también
+ * entran en la latencia, que es lo que ve quien llama.
+ */
+public class ResilienceMetrics implements ResilienceMetricsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder circuitRejections = new LongAdder();
+    private final LongAdder bulkheadRejections = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final Map<String, CircuitBreaker> breakers;
+    private final Map<String, Bulkhead> bulkheads;
+
+    ResilienceMetrics(Map<String, CircuitBreaker> breakers, Map<String, Bulkhead> bulkheads) {
+        this.breakers = breakers;
+        this.bulkheads = bulkheads;
+    }
+
+    void call() {
+        calls.increment();
+    }
+
+    void retry() {
+        retries.increment();
+    }
+
+    void success(long nanos) {
+        successes.increment();
+        latency.record(nanos);
+    }
+
+    void failure(long nanos, ResilienceException.Reason reason) {
+        failures.increment();
+        latency.record(nanos);
+        if (reason == null) {
+            return;
+        }
+        switch (reason) {
+            case DEADLINE_EXCEEDED:
+                timeouts.increment();
+                break;
+            case CIRCUIT_OPEN:
+                circuitRejections.increment();
+                break;
+            case BULKHEAD_FULL:
+                bulkheadRejections.increment();
+                break;
+            default:
+        }
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getCircuitRejections() {
+        return circuitRejections.sum();
+    }
+
+    @Override
+    public long getBulkheadRejections() {
+        return bulkheadRejections.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public Map<String, String> getCircuits() {
+        Map<String, String> result = new TreeMap<>();
+        for (CircuitBreaker breaker : breakers.values()) {
+            result.put(breaker.getHost(), breaker.getState().name());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Integer> getInFlight() {
+        Map<String, Integer> result = new TreeMap<>();
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            result.put(bulkhead.getNamespace(), bulkhead.getInFlight());
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("llamadas=%d correctas=%d fallidas=%d reintentos=%d plazos=%d "
+                + "circuito=%d bulkhead=%d media=%.2fms p99=%.2fms max=%.2fms",
+                getCalls(), getSuccesses(), getFailures(), getRetries(), getTimeouts(),
+                getCircuitRejections(), getBulkheadRejections(), getMeanMillis(), getP99Millis(),
+                getMaxMillis());
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de {@link ResilientExecutor}: plazo de cada
+ * operación, reintentos con espera exponencial y aleatoria, umbrales del
+ * circuit breaker de cada servidor y tamaño del bulkhead de cada colección.
+ */
+public class ResilienceOptions {
+
+    private long deadlineMillis = 5000;
+    private int maxAttempts = 4;
+    private long initialBackoffMillis = 50;
+    private long maxBackoffMillis = 2000;
+    private int breakerWindow = 20;
+    private double breakerFailureRate = 0.5;
+    private long breakerOpenMillis = 5000;
+    private int maxConcurrentPerCollection = 16;
+    private long maxBulkheadWaitMillis = 100;
+
+    /**
+     * Método que crea unas opciones por defecto: 5 segundos por operación,
+     * hasta 4 intentos con esperas de entre 50 ms y 2 s, el circuito se abre
+     * 5 segundos cuando fallan la mitad de las últimas 20 llamadas, y como
+     * mucho 16 operaciones a la vez por colección, esperando 100 ms por un
+     * hueco.
+     *
+     * @return Opciones por defecto.
+     */
+    public static ResilienceOptions defaults() {
+        return new ResilienceOptions();
+    }
+
+    /**
+     * Tiempo máximo de una operación, con todos sus reintentos y esperas.
+     * Un intento que no ha respondido al llegar el plazo se abandona, aunque
+     * el hilo que lo ejecuta sigue bloqueado en el socket hasta que el
+     * driver vuelve; por eso conviene configurar también un socketTimeout en
+     * la conexión.
+     *
+     * @param deadlineMillis Plazo en milisegundos.
+     * @return Las propias opciones.
+     */
+    public ResilienceOptions deadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+        return this;
+    }
+
+    public ResilienceOptions maxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Espera antes del primer reintento. Cada reintento dobla el límite, sin
+     * pasar de {@link #maxBackoffMillis(long)}, y la espera real es un valor
+     * aleatorio entre cero y ese límite, para que los clientes que fallaron
+     * a la vez no vuelvan a la vez.
+     *
+     * @param initialBackoffMillis Espera en milisegundos.
+     * @return Las propias opciones.
+     */
+    public ResilienceOptions initialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+        return this;
+    }
+
+    public ResilienceOptions maxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    /**
+     * Llamadas recientes que mira el circuit breaker. Hasta tener ese número
+     * de llamadas no se abre.
+     *
+     * @param breakerWindow Número de llamadas.
+     * @return Las propias opciones.
+     */
+    public ResilienceOptions breakerWindow(int breakerWindow) {
+        this.breakerWindow = breakerWindow;
+        return this;
+    }
+
+    public ResilienceOptions breakerFailureRate(double breakerFailureRate) {
+        this.breakerFailureRate = breakerFailureRate;
+        return this;
+    }
+
+    /**
+     * Tiempo que el circuito permanece abierto antes de dejar pasar una
+     * llamada de prueba.
+     *
+     * @param breakerOpenMillis Tiempo en milisegundos.
+     * @return Las propias opciones.
+     */
+    public ResilienceOptions breakerOpenMillis(long breakerOpenMillis) {
+        this.breakerOpenMillis = breakerOpenMillis;
+        return this;
+    }
+
+    public ResilienceOptions maxConcurrentPerCollection(int maxConcurrentPerCollection) {
+        this.maxConcurrentPerCollection = maxConcurrentPerCollection;
+        return this;
+    }
+
+    public ResilienceOptions maxBulkheadWaitMillis(long maxBulkheadWaitMillis) {
+        this.maxBulkheadWaitMillis = maxBulkheadWaitMillis;
+        return this;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public int getBreakerWindow() {
+        return breakerWindow;
+    }
+
+    public double getBreakerFailureRate() {
+        return breakerFailureRate;
+    }
+
+    public long getBreakerOpenMillis() {
+        return breakerOpenMillis;
+    }
+
+    public int getMaxConcurrentPerCollection() {
+        return maxConcurrentPerCollection;
+    }
+
+    public long getMaxBulkheadWaitMillis() {
+        return maxBulkheadWaitMillis;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.ObjectId;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Fachada de una colección que pasa cada operación por un
+ * {@link ResilientExecutor}. Las búsquedas se leen enteras dentro de la
+ * operación protegida, para que el plazo cubra también los getMore, así que
+ * sólo sirven para resultados acotados. Las inserciones asignan el _id en el
+ * cliente antes del primer intento, lo que permite reintentarlas sin
+ * duplicar documentos. Las actualizaciones se reintentan sólo cuando el
+ * cambio es idempotente ($set, $unset o sustitución sin upsert). Cada
+ * escritura se confirma dentro del intento con un getlasterror en la misma
+ * conexión, sea cual sea el WriteConcern de la colección: sin él, con el
+ * NORMAL por defecto del driver, los errores del servidor (clave duplicada,
+ * "not master"...) no llegarían nunca al ejecutor ni al circuit breaker.
+ */
+public class ResilientCollection {
+
+    private static final DBObject GET_LAST_ERROR = new BasicDBObject("getlasterror", 1);
+
+    private final ResilientExecutor executor;
+    private final String host;
+    private final DBCollection coll;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param executor Ejecutor, que puede compartirse entre colecciones.
+     * @param host Servidor de la colección (host:puerto), que identifica su
+     * circuit breaker.
+     * @param coll Colección.
+     */
+    public ResilientCollection(ResilientExecutor executor, String host, DBCollection coll) {
+        this.executor = executor;
+        this.host = host;
+        this.coll = coll;
+    }
+
+    public DBObject findOne(DBObject query) {
+        return findOne(query, null);
+    }
+
+    public DBObject findOne(final DBObject query, final DBObject projection) {
+        return call(Idempotency.IDEMPOTENT, () -> coll.findOne(query, projection));
+    }
+
+    public List<DBObject> find(final DBObject query) {
+        return find(query, null);
+    }
+
+    public List<DBObject> find(final DBObject query, final DBObject projection) {
+        return call(Idempotency.IDEMPOTENT, () -> coll.find(query, projection).toArray());
+    }
+
+    public long getCount(final DBObject query) {
+        return call(Idempotency.IDEMPOTENT, () -> coll.getCount(query));
+    }
+
+    /**
+     * Método que inserta un documento, asignándole antes un _id si no lo
+     * tiene. Un documento por llamada: en un lote, una clave duplicada en
+     * el reintento no diría cuántos documentos llegaron en el intento
+     * anterior.
+     *
+     * @param doc Documento.
+     */
+    public void insert(final DBObject doc) {
+        if (doc.get("_id") == null) {
+            doc.put("_id", new ObjectId());
+        }
+        write(Idempotency.INSERT, () -> coll.insert(doc));
+    }
+
+    public void update(DBObject query, DBObject update) {
+        update(query, update, false, false);
+    }
+
+    public void update(final DBObject query, final DBObject update, final boolean upsert, final boolean multi) {
+        write(idempotencyOf(update, upsert), () -> coll.update(query, update, upsert, multi));
+    }
+
+    public void remove(final DBObject query) {
+        write(Idempotency.IDEMPOTENT, () -> coll.remove(query));
+    }
+
+    /**
+     * Método que ejecuta sobre la colección una operación cualquiera.
+     *
+     * @param <T> Tipo del resultado.
+     * @param idempotency Qué se puede repetir de la operación.
+     * @param operation Operación.
+     * @return Resultado de la operación.
+     */
+    public <T> T call(Idempotency idempotency, Callable<T> operation) {
+        return executor.execute(host, coll.getFullName(), idempotency, operation);
+    }
+
+    /**
+     * Método que ejecuta una escritura y espera la respuesta del servidor en
+     * la misma conexión, convirtiendo su error en una MongoException con el
+     * código que devuelve, de forma que el ejecutor pueda clasificarlo.
+     */
+    private void write(Idempotency idempotency, final Runnable operation) {
+        call(idempotency, () -> {
+            DB db = coll.getDB();
+            db.requestStart();
+            try {
+                operation.run();
+                checkLastError(db.command(GET_LAST_ERROR));
+            } finally {
+                db.requestDone();
+            }
+            return null;
+        });
+    }
+
+    private static void checkLastError(DBObject reply) {
+        Object err = reply.get("err");
+        if (err == null) {
+            Object ok = reply.get("ok");
+            if (ok instanceof Number && ((Number) ok).intValue() == 1) {
+                return;
+            }
+            err = "getlasterror: " + reply.get("errmsg");
+        }
+        Object code = reply.get("code");
+        throw new MongoException(code instanceof Number ? ((Number) code).intValue() : -1, err.toString());
+    }
+
+    public DBCollection getCollection() {
+        return coll;
+    }
+
+    /**
+     * Método que decide si una actualización se puede repetir. Un upsert
+     * nunca: si el primer intento creó el documento y la consulta no lo
+     * encuentra, el reintento crearía otro.
+     */
+    static Idempotency idempotencyOf(DBObject update, boolean upsert) {
+        if (upsert) {
+            return Idempotency.NON_IDEMPOTENT;
+        }
+        for (String key : update.keySet()) {
+            if (key.startsWith("$") && !key.equals("$set") && !key.equals("$unset")) {
+                return Idempotency.NON_IDEMPOTENT;
+            }
+        }
+        return Idempotency.IDEMPOTENT;
+    }
+
+    @Override
+    public String toString() {
+        return host + "/" + coll.getFullName();
+    }
+}
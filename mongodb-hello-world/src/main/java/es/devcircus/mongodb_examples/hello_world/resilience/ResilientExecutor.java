@@ -0,0 +1,346 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.resilience;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoInternalException;
+import es.devcircus.mongodb_examples.hello_world.metrics.MetricsRegistry;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Ejecutor de operaciones contra MongoDB con plazo, reintentos,
+ * circuit breaker por servidor y bulkhead por colección. Cada intento se
+ * ejecuta en un hilo propio para poder abandonarlo al agotarse el plazo: el
+ * driver no permite interrumpir una lectura bloqueada en el socket. Sólo se
+ * reintentan los fallos transitorios (red, pool de conexiones agotado,
+ * servidor que ha dejado de ser primario), con esperas exponenciales y
+ * aleatorias, y sólo si la operación admite repetirse según su
+ * {@link Idempotency}. Los rechazos se señalan con una
+ * {@link ResilienceException}.
+ */
+public class ResilientExecutor implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(ResilientExecutor.class.getName());
+    private static final long NANOS_PER_MILLI = 1000000L;
+    /**
+     * Índice del _id en el mensaje de clave duplicada: "index: db.coll.$_id_"
+     * hasta la 2.6 y "index: _id_" después.
+     */
+    private static final Pattern ID_INDEX = Pattern.compile("index: (\\S*\\$)?_id_(\\s|$)");
+
+    private final ResilienceOptions options;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final ResilienceMetrics metrics = new ResilienceMetrics(breakers, bulkheads);
+    private final ExecutorService pool = Executors.newCachedThreadPool(new DaemonThreadFactory("mongo-resilient"));
+    private ObjectName registered;
+
+    public ResilientExecutor() {
+        this(ResilienceOptions.defaults());
+    }
+
+    public ResilientExecutor(ResilienceOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Método que ejecuta una operación. Si es una inserción
+     * ({@link Idempotency#INSERT}) y un reintento falla por clave duplicada
+     * en el _id, se da por hecha y se devuelve null. Un duplicado en otro
+     * índice único es de otro documento y se propaga.
+     *
+     * @param <T> Tipo del resultado.
+     * @param host Servidor contra el que va la operación (host:puerto).
+     * @param namespace Colección sobre la que va la operación.
+     * @param idempotency Qué se puede repetir de la operación.
+     * @param operation Operación.
+     * @return Resultado de la operación.
+     */
+    public <T> T execute(String host, String namespace, Idempotency idempotency, Callable<T> operation) {
+        long start = System.nanoTime();
+        long deadline = start + options.getDeadlineMillis() * NANOS_PER_MILLI;
+        metrics.call();
+        try {
+            T result = attempt(breaker(host), bulkhead(namespace), deadline, idempotency, operation);
+            metrics.success(System.nanoTime() - start);
+            return result;
+        } catch (ResilienceException ex) {
+            metrics.failure(System.nanoTime() - start, ex.getReason());
+            throw ex;
+        } catch (RuntimeException | Error ex) {
+            metrics.failure(System.nanoTime() - start, null);
+            throw ex;
+        }
+    }
+
+    private <T> T attempt(final CircuitBreaker breaker, final Bulkhead bulkhead, long deadline,
+            Idempotency idempotency, final Callable<T> operation) {
+        RuntimeException last = null;
+        for (int attempt = 1;; attempt++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new ResilienceException(ResilienceException.Reason.DEADLINE_EXCEEDED,
+                        "Plazo agotado en " + bulkhead.getNamespace(), last);
+            }
+            if (!breaker.tryAcquire()) {
+                throw new ResilienceException(ResilienceException.Reason.CIRCUIT_OPEN,
+                        "Circuito abierto para " + breaker.getHost(), last);
+            }
+            Future<T> future;
+            try {
+                long wait = Math.min(options.getMaxBulkheadWaitMillis() * NANOS_PER_MILLI, remaining);
+                if (!bulkhead.tryAcquire(wait, TimeUnit.NANOSECONDS)) {
+                    breaker.release();
+                    throw new ResilienceException(ResilienceException.Reason.BULKHEAD_FULL,
+                            "Demasiadas operaciones en curso sobre " + bulkhead, last);
+                }
+                future = submit(bulkhead, operation);
+            } catch (InterruptedException ex) {
+                breaker.release();
+                Thread.currentThread().interrupt();
+                throw new MongoException("Operación interrumpida", ex);
+            } catch (RejectedExecutionException ex) {
+                bulkhead.release();
+                breaker.release();
+                throw new MongoException("Ejecutor cerrado", ex);
+            }
+            Throwable cause;
+            try {
+                T result = future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                breaker.onSuccess();
+                return result;
+            } catch (TimeoutException ex) {
+                // el intento sigue en su hilo, con su hueco del bulkhead, hasta que el driver vuelva
+                future.cancel(true);
+                breaker.onFailure();
+                throw new ResilienceException(ResilienceException.Reason.DEADLINE_EXCEEDED,
+                        "Plazo de " + options.getDeadlineMillis() + " ms agotado en "
+                        + bulkhead.getNamespace(), last);
+            } catch (InterruptedException ex) {
+                future.cancel(true);
+                breaker.onFailure();
+                Thread.currentThread().interrupt();
+                throw new MongoException("Operación interrumpida", ex);
+            } catch (ExecutionException ex) {
+                cause = ex.getCause();
+            }
+            if (idempotency == Idempotency.INSERT && attempt > 1 && isDuplicateId(cause)) {
+                // el intento anterior llegó al servidor aunque no recibiéramos la respuesta
+                breaker.onSuccess();
+                return null;
+            }
+            if (!isTransient(cause)) {
+                // el servidor ha respondido: para el circuito es un éxito
+                breaker.onSuccess();
+                throw propagate(cause);
+            }
+            breaker.onFailure();
+            last = propagate(cause);
+            if (attempt >= options.getMaxAttempts()
+                    || (idempotency == Idempotency.NON_IDEMPOTENT && !isNotApplied(cause))) {
+                throw last;
+            }
+            long backoff = backoff(attempt);
+            if (backoff >= deadline - System.nanoTime()) {
+                throw new ResilienceException(ResilienceException.Reason.DEADLINE_EXCEEDED,
+                        "Plazo agotado en " + bulkhead.getNamespace(), last);
+            }
+            LOGGER.log(Level.FINE, "Reintento {0} en {1}: {2}",
+                    new Object[]{attempt, bulkhead.getNamespace(), cause});
+            metrics.retry();
+            try {
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new MongoException("Operación interrumpida", ex);
+            }
+        }
+    }
+
+    private <T> Future<T> submit(final Bulkhead bulkhead, final Callable<T> operation) {
+        return pool.submit(() -> {
+            try {
+                return operation.call();
+            } finally {
+                bulkhead.release();
+            }
+        });
+    }
+
+    /**
+     * Espera antes del reintento indicado: un valor aleatorio entre cero y
+     * un límite que se dobla en cada intento ("full jitter").
+     */
+    private long backoff(int attempt) {
+        long cap = options.getInitialBackoffMillis() << Math.min(attempt - 1, 30);
+        cap = Math.min(Math.max(0, cap), options.getMaxBackoffMillis());
+        return ThreadLocalRandom.current().nextLong(cap + 1) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * Método que indica si un error es transitorio, es decir, si cabe
+     * esperar que un reintento, quizá contra otro primario, salga bien.
+     *
+     * @param error Error de la operación.
+     * @return true si es transitorio.
+     */
+    public static boolean isTransient(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof MongoException.Network || t instanceof IOException
+                    || isPoolExhausted(t) || isNotMaster(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Método que indica si un error transitorio garantiza que la operación
+     * no se ha aplicado: no se pudo conectar, no quedaban conexiones en el
+     * pool o el servidor la rechazó por no ser primario.
+     */
+    private static boolean isNotApplied(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ConnectException || isPoolExhausted(t) || isNotMaster(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPoolExhausted(Throwable t) {
+        return t instanceof MongoInternalException && String.valueOf(t.getMessage()).contains("No more DB Connections");
+    }
+
+    private static boolean isNotMaster(Throwable t) {
+        String message = t.getMessage();
+        return message != null && (message.contains("not master") || message.contains("not talking to master"));
+    }
+
+    private static boolean isDuplicateId(Throwable error) {
+        boolean duplicate = error instanceof MongoException.DuplicateKey
+                || (error instanceof MongoException
+                && (((MongoException) error).getCode() == 11000 || ((MongoException) error).getCode() == 11001));
+        return duplicate && error.getMessage() != null && ID_INDEX.matcher(error.getMessage()).find();
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new MongoException(String.valueOf(cause.getMessage()), cause);
+    }
+
+    private CircuitBreaker breaker(String host) {
+        CircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            breaker = breakers.computeIfAbsent(host, h -> new CircuitBreaker(h, options));
+        }
+        return breaker;
+    }
+
+    private Bulkhead bulkhead(String namespace) {
+        Bulkhead bulkhead = bulkheads.get(namespace);
+        if (bulkhead == null) {
+            bulkhead = bulkheads.computeIfAbsent(namespace,
+                    ns -> new Bulkhead(ns, options.getMaxConcurrentPerCollection()));
+        }
+        return bulkhead;
+    }
+
+    public CircuitBreaker getCircuitBreaker(String host) {
+        return breaker(host);
+    }
+
+    public Bulkhead getBulkhead(String namespace) {
+        return bulkhead(namespace);
+    }
+
+    public ResilienceMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ResilienceOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Método que publica las medidas como MXBean, bajo
+     * {@code es.devcircus.mongodb_examples:type=Resilience,name=<nombre>}.
+     *
+     * @param name Nombre del ejecutor.
+     */
+    public synchronized void enableJmx(String name) {
+        if (registered != null) {
+            return;
+        }
+        try {
+            ObjectName objectName = new ObjectName(MetricsRegistry.JMX_DOMAIN + ":type=Resilience,name="
+                    + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metrics, objectName);
+                registered = objectName;
+            }
+        } catch (JMException ex) {
+            LOGGER.log(Level.WARNING, null, ex);
+        }
+    }
+
+    /**
+     * Método que retira el MXBean y detiene los hilos. Los intentos que
+     * sigan en curso se interrumpen.
+     */
+    @Override
+    public synchronized void close() {
+        pool.shutdownNow();
+        if (registered != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+            } catch (JMException ex) {
+                LOGGER.log(Level.WARNING, null, ex);
+            }
+            registered = null;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.routing;
+
+import com.mongodb.DB;
+import es.devcircus.mongodb_examples.hello_world.connection.ManagedMongo;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Estado de un miembro del replica set tal y como lo ve el
+ * {@link ReplicaRouter}: su papel, si responde, su retraso de replicación y
+ * una media móvil exponencial de su latencia, alimentada por los sondeos y
+ * por las lecturas reales.
+ */
+public class ReplicaMember {
+
+    private final String address;
+    private final ManagedMongo client;
+    private final double smoothing;
+    private final ConcurrentMap<String, DB> readDBs = new ConcurrentHashMap<>();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private volatile boolean up;
+    private volatile boolean primary;
+    private volatile boolean secondary;
+    private volatile String name;
+    private volatile long stalenessMillis = -1;
+    private volatile double latencyNanos = -1;
+
+    ReplicaMember(String address, ManagedMongo client, double smoothing) {
+        this.address = address;
+        this.client = client;
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Método que devuelve la base de datos de lectura del miembro, con
+     * slaveOk en todas las consultas.
+     *
+     * @param name Nombre de la base de datos.
+     * @return Base de datos de sólo lectura.
+     */
+    public DB getReadDB(String name) {
+        return readDBs.computeIfAbsent(name, n -> new SlaveOkDB(client.getDB(n)));
+    }
+
+    ManagedMongo getClient() {
+        return client;
+    }
+
+    synchronized void recordLatency(long nanos) {
+        latencyNanos = latencyNanos < 0 ? nanos : smoothing * nanos + (1 - smoothing) * latencyNanos;
+    }
+
+    void update(boolean primary, boolean secondary, String name) {
+        this.primary = primary;
+        this.secondary = secondary;
+        if (name != null) {
+            this.name = name;
+        }
+        this.up = true;
+    }
+
+    void markDown() {
+        up = false;
+    }
+
+    void setStalenessMillis(long stalenessMillis) {
+        this.stalenessMillis = stalenessMillis;
+    }
+
+    void read() {
+        reads.incrementAndGet();
+    }
+
+    void hedged() {
+        hedges.incrementAndGet();
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Nombre del miembro en la configuración del replica set (el campo "me"
+     * de ismaster), que es el que usa replSetGetStatus y puede no coincidir
+     * con la dirección a la que nos conectamos (localhost, una IP...).
+     *
+     * @return Nombre host:puerto, o null si el servidor no lo ha indicado.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isUp() {
+        return up;
+    }
+
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    public boolean isSecondary() {
+        return secondary;
+    }
+
+    /**
+     * Retraso de replicación respecto al miembro más adelantado, según el
+     * último replSetGetStatus. Un secundario con el retraso desconocido no
+     * recibe lecturas.
+     *
+     * @return Retraso en milisegundos; -1 si no se conoce.
+     */
+    public long getStalenessMillis() {
+        return stalenessMillis;
+    }
+
+    /**
+     * Latencia media móvil.
+     *
+     * @return Latencia en milisegundos; -1 si todavía no hay medidas.
+     */
+    public double getLatencyMillis() {
+        double nanos = latencyNanos;
+        return nanos < 0 ? -1 : nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    /**
+     * Lecturas de cobertura lanzadas contra este miembro porque el elegido
+     * en primer lugar tardaba demasiado.
+     *
+     * @return Número de lecturas de cobertura.
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    @Override
+    public String toString() {
+        String role = !up ? "caído" : primary ? "primario" : secondary ? "secundario" : "otro";
+        long staleness = stalenessMillis;
+        return String.format("%s (%s): latencia %.3f ms, retraso %s, %d lecturas, %d de cobertura",
+                address, role, getLatencyMillis(), staleness < 0 ? "desconocido" : staleness + " ms",
+                getReads(), getHedges());
+    }
+}
@@ -0,0 +1,352 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.routing;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.connection.ConnectionSettings;
+import es.devcircus.mongodb_examples.hello_world.connection.DBCallback;
+import es.devcircus.mongodb_examples.hello_world.connection.MongoConnectionManager;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Enrutado de lecturas entre los miembros de un replica set. Un
+ * hilo en segundo plano sondea cada miembro con isMaster, para conocer su
+ * papel y su latencia, y pide replSetGetStatus al primario para conocer el
+ * retraso de cada secundario. Cada lectura va al miembro más rápido entre
+ * los que responden y no superan el retraso admitido; los que quedan dentro
+ * del margen de latencia del más rápido se eligen al azar. Las lecturas con
+ * cobertura lanzan la misma lectura contra un segundo miembro si la primera
+ * no ha respondido tras un retraso dado, y se quedan con la primera
+ * respuesta. Las escrituras van siempre al primario.
+ */
+public class ReplicaRouter {
+
+    private static final Logger LOGGER = Logger.getLogger(ReplicaRouter.class.getName());
+
+    private final RoutingOptions options;
+    private final List<ReplicaMember> members = new ArrayList<>();
+    private final ScheduledExecutorService prober;
+    private final ExecutorService readers;
+
+    /**
+     * Constructor de la clase. Sondea los miembros antes de volver, de forma
+     * que las primeras lecturas ya se pueden enrutar.
+     *
+     * @param members Configuración de conexión de cada miembro.
+     * @param options Opciones del enrutado.
+     */
+    public ReplicaRouter(List<ConnectionSettings> members, RoutingOptions options) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("No se ha indicado ningún miembro");
+        }
+        this.options = options;
+        for (ConnectionSettings settings : members) {
+            this.members.add(new ReplicaMember(settings.getClusterKey(), MongoConnectionManager.get(settings),
+                    options.getSmoothing()));
+        }
+        this.readers = Executors.newCachedThreadPool(new DaemonThreadFactory("replica-read"));
+        this.prober = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("replica-probe"));
+        probe();
+        this.prober.scheduleWithFixedDelay(this::probe, options.getProbeIntervalMillis(),
+                options.getProbeIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Método que crea un enrutador a partir de una lista de direcciones
+     * "host:puerto" separadas por comas, con la configuración de conexión
+     * por defecto para cada una.
+     *
+     * @param hosts Direcciones de los miembros.
+     * @param options Opciones del enrutado.
+     * @return Enrutador.
+     */
+    public static ReplicaRouter forHosts(String hosts, RoutingOptions options) {
+        List<ConnectionSettings> members = new ArrayList<>();
+        for (String host : hosts.split(",")) {
+            String[] parts = host.trim().split(":");
+            ConnectionSettings settings = ConnectionSettings.defaults().host(parts[0]);
+            if (parts.length > 1) {
+                settings.port(Integer.parseInt(parts[1]));
+            }
+            members.add(settings);
+        }
+        return new ReplicaRouter(members, options);
+    }
+
+    /**
+     * Método que ejecuta una lectura en el miembro elegido. La base de datos
+     * que recibe la operación es de sólo lectura.
+     *
+     * @param <T> Tipo del resultado.
+     * @param dbName Nombre de la base de datos.
+     * @param callback Lectura a ejecutar.
+     * @return Resultado de la lectura.
+     */
+    public <T> T read(String dbName, DBCallback<T> callback) {
+        return execute(select(null), dbName, callback);
+    }
+
+    /**
+     * Método que ejecuta una lectura con cobertura: si el miembro elegido no
+     * responde dentro del retraso configurado, se lanza la misma lectura
+     * contra el siguiente mejor miembro y se devuelve la primera respuesta
+     * correcta. La lectura perdedora no se puede cancelar en el servidor;
+     * termina en segundo plano y su latencia sigue contando en la media de
+     * su miembro. Sin retraso configurado equivale a {@link #read}.
+     *
+     * @param <T> Tipo del resultado.
+     * @param dbName Nombre de la base de datos.
+     * @param callback Lectura a ejecutar; debe poder ejecutarse dos veces.
+     * @return Resultado de la lectura.
+     */
+    public <T> T hedgedRead(String dbName, DBCallback<T> callback) {
+        if (options.getHedgeDelayMillis() <= 0) {
+            return read(dbName, callback);
+        }
+        ReplicaMember first = select(null);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        CompletableFuture<T> firstRead = submit(first, dbName, callback);
+        try {
+            return firstRead.get(options.getHedgeDelayMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // el primer miembro va lento: se lanza la cobertura
+        } catch (ExecutionException ex) {
+            throw unwrap(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MongoException("Lectura interrumpida");
+        }
+        ReplicaMember second = select(first);
+        if (second != null) {
+            second.hedged();
+            pending.incrementAndGet();
+            complete(submit(second, dbName, callback), result, pending);
+        }
+        complete(firstRead, result, pending);
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            throw unwrap(ex.getCause());
+        }
+    }
+
+    /**
+     * Método que devuelve la base de datos del primario, para escribir.
+     *
+     * @param dbName Nombre de la base de datos.
+     * @return Base de datos del primario.
+     */
+    public DB getPrimaryDB(String dbName) {
+        for (ReplicaMember member : members) {
+            if (member.isUp() && member.isPrimary()) {
+                return member.getClient().getDB(dbName);
+            }
+        }
+        throw new MongoException("No hay ningún primario disponible");
+    }
+
+    public List<ReplicaMember> getMembers() {
+        return Collections.unmodifiableList(members);
+    }
+
+    /**
+     * Método que detiene los sondeos. Las conexiones de los miembros son del
+     * {@link MongoConnectionManager} y se cierran con él.
+     */
+    public void close() {
+        prober.shutdownNow();
+        readers.shutdown();
+    }
+
+    /**
+     * Método que sondea todos los miembros y actualiza su estado.
+     */
+    void probe() {
+        for (ReplicaMember member : members) {
+            long start = System.nanoTime();
+            try {
+                DBObject isMaster = member.getClient().getDB("admin").command(new BasicDBObject("ismaster", 1));
+                member.recordLatency(System.nanoTime() - start);
+                Object me = isMaster.get("me");
+                member.update(isTrue(isMaster.get("ismaster")), isTrue(isMaster.get("secondary")),
+                        me instanceof String ? (String) me : null);
+            } catch (MongoException ex) {
+                member.markDown();
+                LOGGER.log(Level.FINE, null, ex);
+            }
+        }
+        updateStaleness();
+    }
+
+    /**
+     * Método que actualiza el retraso de cada miembro. Los miembros se
+     * buscan en replSetGetStatus por el nombre que el replica set les da
+     * (el "me" de su ismaster) y, si no lo han indicado, por la dirección
+     * configurada. Si no hay primario, si el comando falla o si un miembro
+     * no aparece, su retraso pasa a ser desconocido.
+     */
+    private void updateStaleness() {
+        ReplicaMember primary = null;
+        for (ReplicaMember member : members) {
+            if (member.isUp() && member.isPrimary()) {
+                primary = member;
+            }
+        }
+        if (primary == null) {
+            unknownStaleness();
+            return;
+        }
+        DBObject status;
+        try {
+            status = primary.getClient().getDB("admin").command(new BasicDBObject("replSetGetStatus", 1));
+        } catch (MongoException ex) {
+            LOGGER.log(Level.FINE, null, ex);
+            unknownStaleness();
+            return;
+        }
+        if (!(status.get("members") instanceof List)) {
+            // servidor independiente, sin replicación ni secundarios
+            unknownStaleness();
+            return;
+        }
+        Map<String, Long> optimes = new HashMap<>();
+        long newest = 0;
+        for (Object item : (List<?>) status.get("members")) {
+            DBObject state = (DBObject) item;
+            if (state.get("optimeDate") instanceof Date) {
+                long optime = ((Date) state.get("optimeDate")).getTime();
+                optimes.put((String) state.get("name"), optime);
+                newest = Math.max(newest, optime);
+            }
+        }
+        for (ReplicaMember member : members) {
+            Long optime = optimes.get(member.getName() != null ? member.getName() : member.getAddress());
+            member.setStalenessMillis(optime == null ? -1 : newest - optime);
+        }
+    }
+
+    private void unknownStaleness() {
+        for (ReplicaMember member : members) {
+            member.setStalenessMillis(-1);
+        }
+    }
+
+    /**
+     * Método que elige el miembro al que enviar una lectura.
+     *
+     * @param excluded Miembro que no se debe elegir, o null.
+     * @return Miembro elegido; null si se excluye uno y no queda otro.
+     */
+    ReplicaMember select(ReplicaMember excluded) {
+        List<ReplicaMember> eligible = new ArrayList<>();
+        double fastest = Double.MAX_VALUE;
+        for (ReplicaMember member : members) {
+            if (member == excluded || !member.isUp() || !(member.isPrimary() || member.isSecondary())) {
+                continue;
+            }
+            if (member.isSecondary() && (member.getStalenessMillis() < 0
+                    || member.getStalenessMillis() > options.getMaxStalenessMillis())) {
+                // un secundario con el retraso desconocido no se da por fresco
+                continue;
+            }
+            eligible.add(member);
+            fastest = Math.min(fastest, member.getLatencyMillis());
+        }
+        if (eligible.isEmpty()) {
+            if (excluded != null) {
+                return null;
+            }
+            throw new MongoException("No hay ningún miembro disponible para leer");
+        }
+        List<ReplicaMember> candidates = new ArrayList<>();
+        for (ReplicaMember member : eligible) {
+            if (member.getLatencyMillis() <= fastest + options.getLatencyWindowMillis()) {
+                candidates.add(member);
+            }
+        }
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    private <T> T execute(ReplicaMember member, String dbName, DBCallback<T> callback) {
+        long start = System.nanoTime();
+        try {
+            // a través del cliente, para que la espera por conexión quede en sus PoolStats
+            T result = member.getClient().execute(member.getReadDB(dbName), callback);
+            member.recordLatency(System.nanoTime() - start);
+            member.read();
+            return result;
+        } catch (MongoException.Network ex) {
+            // deja de recibir lecturas hasta que vuelva a responder a un sondeo
+            member.markDown();
+            throw ex;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(ReplicaMember member, String dbName, DBCallback<T> callback) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        readers.execute(() -> {
+            try {
+                future.complete(execute(member, dbName, callback));
+            } catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    private static <T> void complete(CompletableFuture<T> read, CompletableFuture<T> result, AtomicInteger pending) {
+        read.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new MongoException(cause.toString());
+    }
+
+    private static boolean isTrue(Object value) {
+        return Boolean.TRUE.equals(value) || value instanceof Number && ((Number) value).intValue() != 0;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.routing;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones del enrutado de lecturas: retraso máximo admitido en
+ * un secundario, margen de latencia dentro del cual los miembros se
+ * consideran igual de rápidos, retraso de las lecturas de cobertura y
+ * frecuencia de sondeo.
+ */
+public class RoutingOptions {
+
+    private int maxStalenessMillis = 10000;
+    private int latencyWindowMillis = 15;
+    private int hedgeDelayMillis = 0;
+    private int probeIntervalMillis = 1000;
+    private double smoothing = 0.2;
+
+    /**
+     * Método que crea unas opciones por defecto: secundarios con hasta 10
+     * segundos de retraso, margen de 15 ms, sin lecturas de cobertura y un
+     * sondeo por segundo.
+     *
+     * @return Opciones por defecto.
+     */
+    public static RoutingOptions defaults() {
+        return new RoutingOptions();
+    }
+
+    /**
+     * Retraso máximo de replicación de un secundario para poder leer de él.
+     * Mientras no se conoce su retraso (sin primario, o sin aparecer en
+     * replSetGetStatus), un secundario no recibe lecturas.
+     *
+     * @param maxStalenessMillis Retraso en milisegundos.
+     * @return Las propias opciones.
+     */
+    public RoutingOptions maxStalenessMillis(int maxStalenessMillis) {
+        this.maxStalenessMillis = maxStalenessMillis;
+        return this;
+    }
+
+    /**
+     * Los miembros cuya latencia media no supera la del más rápido en más de
+     * este margen se eligen al azar, para repartir la carga en lugar de
+     * cargar siempre el mismo.
+     *
+     * @param latencyWindowMillis Margen en milisegundos.
+     * @return Las propias opciones.
+     */
+    public RoutingOptions latencyWindowMillis(int latencyWindowMillis) {
+        this.latencyWindowMillis = latencyWindowMillis;
+        return this;
+    }
+
+    /**
+     * Tiempo que espera una lectura con cobertura antes de lanzar la misma
+     * lectura contra otro miembro; cero para no lanzarla nunca. Conviene que
+     * esté cerca del p95 de las lecturas, para duplicar sólo las lentas.
+     *
+     * @param hedgeDelayMillis Retraso en milisegundos.
+     * @return Las propias opciones.
+     */
+    public RoutingOptions hedgeDelayMillis(int hedgeDelayMillis) {
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        return this;
+    }
+
+    public RoutingOptions probeIntervalMillis(int probeIntervalMillis) {
+        this.probeIntervalMillis = probeIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Peso de cada medida nueva en la media móvil exponencial de latencia.
+     *
+     * @param smoothing Valor entre 0 y 1.
+     * @return Las propias opciones.
+     */
+    public RoutingOptions smoothing(double smoothing) {
+        this.smoothing = smoothing;
+        return this;
+    }
+
+    public int getMaxStalenessMillis() {
+        return maxStalenessMillis;
+    }
+
+    public int getLatencyWindowMillis() {
+        return latencyWindowMillis;
+    }
+
+    public int getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    public int getProbeIntervalMillis() {
+        return probeIntervalMillis;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.routing;
+
+import com.mongodb.Bytes;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Colección de sólo lectura de un {@link SlaveOkDB}. Las
+ * escrituras deben ir al primario y aquí se rechazan.
+ */
+class SlaveOkCollection extends DBCollection {
+
+    private final DBCollection delegate;
+
+    SlaveOkCollection(SlaveOkDB db, DBCollection delegate) {
+        super(db, delegate.getName());
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Iterator<DBObject> find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int options)
+            throws MongoException {
+        return delegate.find(ref, fields, numToSkip, batchSize, options | Bytes.QUERYOPTION_SLAVEOK);
+    }
+
+    @Override
+    public void insert(DBObject doc) throws MongoException {
+        throw readOnly();
+    }
+
+    @Override
+    public void insert(DBObject[] docs) throws MongoException {
+        throw readOnly();
+    }
+
+    @Override
+    public void insert(List<DBObject> docs) throws MongoException {
+        throw readOnly();
+    }
+
+    @Override
+    public void update(DBObject q, DBObject o, boolean upsert, boolean multi) throws MongoException {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(DBObject o) throws MongoException {
+        throw readOnly();
+    }
+
+    @Override
+    protected void createIndex(DBObject keys, DBObject options) throws MongoException {
+        throw readOnly();
+    }
+
+    @Override
+    protected void doapply(DBObject o) {
+    }
+
+    private MongoException readOnly() {
+        return new MongoException("Colección de sólo lectura: " + getFullName() + "; las escrituras van al primario");
+    }
+}
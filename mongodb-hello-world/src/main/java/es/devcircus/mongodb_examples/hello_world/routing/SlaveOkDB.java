@@ -0,0 +1,85 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.routing;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Base de datos de sólo lectura sobre un miembro concreto del
+ * replica set. Sus colecciones marcan todas las consultas con slaveOk, de
+ * forma que también se pueden leer de un secundario; los comandos (count,
+ * distinct...) pasan por la colección $cmd y llevan la misma marca.
+ */
+class SlaveOkDB extends DB {
+
+    private final DB delegate;
+    private final ConcurrentMap<String, SlaveOkCollection> collections = new ConcurrentHashMap<>();
+
+    SlaveOkDB(DB delegate) {
+        super(delegate.getName());
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected DBCollection doGetCollection(String name) {
+        SlaveOkCollection coll = collections.get(name);
+        if (coll == null) {
+            coll = new SlaveOkCollection(this, delegate.getCollection(name));
+            SlaveOkCollection previous = collections.putIfAbsent(name, coll);
+            if (previous != null) {
+                coll = previous;
+            }
+        }
+        return coll;
+    }
+
+    @Override
+    public DBCollection getCollectionFromFull(String fullNameSpace) {
+        int dot = fullNameSpace.indexOf('.');
+        if (dot < 0) {
+            return getCollection(fullNameSpace);
+        }
+        String dbName = fullNameSpace.substring(0, dot);
+        String collName = fullNameSpace.substring(dot + 1);
+        return getName().equals(dbName) ? getCollection(collName) : getSisterDB(dbName).getCollection(collName);
+    }
+
+    @Override
+    public DB getSisterDB(String name) {
+        return new SlaveOkDB(delegate.getSisterDB(name));
+    }
+
+    @Override
+    public void requestStart() {
+        delegate.requestStart();
+    }
+
+    @Override
+    public void requestDone() {
+        delegate.requestDone();
+    }
+
+    @Override
+    public void requestEnsureConnection() {
+        delegate.requestEnsureConnection();
+    }
+}
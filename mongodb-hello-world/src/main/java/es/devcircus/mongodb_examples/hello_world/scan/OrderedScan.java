@@ -0,0 +1,67 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.scan;
+
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.cursor.DocumentStream;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Recorrido paralelo ordenado. Cada rango se lee ordenado por el
+ * campo y, como los rangos son disjuntos y consecutivos, basta con
+ * concatenarlos. Todos los rangos leen en paralelo, pero cada uno sólo puede
+ * adelantarse lo que le permite su buffer de prefetch.
+ */
+class OrderedScan implements ParallelScan {
+
+    private final List<DocumentStream> streams;
+    private int current;
+
+    OrderedScan(List<DocumentStream> streams) {
+        this.streams = streams;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current < streams.size()) {
+            if (streams.get(current).hasNext()) {
+                return true;
+            }
+            current++;
+        }
+        return false;
+    }
+
+    @Override
+    public DBObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return streams.get(current).next();
+    }
+
+    @Override
+    public void close() {
+        for (DocumentStream stream : streams) {
+            stream.close();
+        }
+        current = streams.size();
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.scan;
+
+import com.mongodb.DBObject;
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Resultado de un recorrido paralelo: los documentos de todos
+ * los rangos fusionados en un único iterador. Hay que cerrarlo si no se
+ * consume hasta el final.
+ */
+public interface ParallelScan extends Iterator<DBObject>, Closeable {
+
+    /**
+     * Método que detiene las lecturas pendientes.
+     */
+    @Override
+    void close();
+
+    /**
+     * Método que expone el recorrido como un {@link Stream} secuencial. Al
+     * cerrar el stream se cierra también el recorrido.
+     *
+     * @return Stream de documentos.
+     */
+    default Stream<DBObject> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.scan;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import es.devcircus.mongodb_examples.hello_world.cursor.CursorStreams;
+import es.devcircus.mongodb_examples.hello_world.cursor.DocumentStream;
+import es.devcircus.mongodb_examples.hello_world.cursor.ScanOptions;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Motor de recorridos paralelos. Parte la colección en rangos de
+ * un campo indexado, lanza una consulta $gt/$lte por rango en un pool de
+ * hilos propio y fusiona los resultados en un único iterador, ordenado o no.
+ * Cada hilo ocupa una conexión del pool mientras lee, así que el paralelismo
+ * no debería superar el tamaño del pool de conexiones.
+ */
+public class ParallelScanner implements Closeable {
+
+    /**
+     * Forma de calcular los puntos de corte.
+     */
+    public enum Strategy {
+
+        /**
+         * Rangos de igual amplitud entre el mínimo y el máximo del campo.
+         */
+        MIN_MAX,
+        /**
+         * Rangos con el mismo número de documentos, tomados del índice.
+         */
+        SAMPLED
+    }
+
+    private final DBCollection coll;
+    private final String field;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección a recorrer.
+     * @param field Campo indexado sobre el que se parte la colección.
+     * @param parallelism Número de rangos que se leen a la vez.
+     */
+    public ParallelScanner(DBCollection coll, String field, int parallelism) {
+        this.coll = coll;
+        this.field = field;
+        this.parallelism = parallelism;
+        this.executor = Executors.newFixedThreadPool(parallelism,
+                new DaemonThreadFactory("parallel-scan-" + coll.getName()));
+    }
+
+    /**
+     * Método que recorre en paralelo los documentos que cumplen la consulta,
+     * partiendo en tantos rangos como hilos tiene el escáner.
+     *
+     * @param query Consulta base, o null. No puede restringir el campo
+     * partido.
+     * @param strategy Forma de calcular los puntos de corte.
+     * @param options Opciones de lectura de cada rango.
+     * @param ordered Si es true, los documentos salen ordenados por el campo.
+     * @return Recorrido fusionado.
+     */
+    public ParallelScan scan(DBObject query, Strategy strategy, ScanOptions options, boolean ordered) {
+        List<RangeSplit> splits = strategy == Strategy.MIN_MAX
+                ? SplitPlanner.minMax(coll, field, query, parallelism)
+                : SplitPlanner.sampled(coll, field, query, parallelism);
+        return scan(query, splits, options, ordered);
+    }
+
+    /**
+     * Método que recorre en paralelo los rangos indicados. Sólo se leen los
+     * documentos que tienen informado el campo partido.
+     *
+     * @param query Consulta base, o null.
+     * @param splits Rangos a recorrer.
+     * @param options Opciones de lectura de cada rango.
+     * @param ordered Si es true, los documentos salen ordenados por el campo.
+     * @return Recorrido fusionado.
+     */
+    public ParallelScan scan(DBObject query, List<RangeSplit> splits, ScanOptions options, boolean ordered) {
+        List<DBObject> queries = new ArrayList<>(splits.size());
+        for (RangeSplit split : splits) {
+            queries.add(split.toQuery(field, query));
+        }
+        if (!ordered) {
+            return new UnorderedScan(coll, queries, options, executor);
+        }
+        ScanOptions sorted = options.copy().sort(new BasicDBObject(field, 1));
+        List<DocumentStream> streams = new ArrayList<>(queries.size());
+        for (DBObject rangeQuery : queries) {
+            streams.add(CursorStreams.open(coll, rangeQuery, sorted, executor));
+        }
+        return new OrderedScan(streams);
+    }
+
+    /**
+     * Método que libera los hilos del escáner.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.scan;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Rango de valores de un campo indexado, con la misma forma que
+ * las consultas de los ejemplos: lower &lt; campo &lt;= upper. Un extremo
+ * null indica que el rango no está acotado por ese lado.
+ */
+public class RangeSplit {
+
+    private final Object lower;
+    private final Object upper;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param lower Extremo inferior (excluido), o null.
+     * @param upper Extremo superior (incluido), o null.
+     */
+    public RangeSplit(Object lower, Object upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    public Object getLower() {
+        return lower;
+    }
+
+    public Object getUpper() {
+        return upper;
+    }
+
+    /**
+     * Método que construye la consulta del rango, combinada con una consulta
+     * base que no puede restringir el mismo campo.
+     *
+     * @param field Campo sobre el que se parte la colección.
+     * @param base Consulta base, o null.
+     * @return Consulta del rango.
+     */
+    public DBObject toQuery(String field, DBObject base) {
+        BasicDBObject query = new BasicDBObject();
+        if (base != null) {
+            if (base.containsField(field)) {
+                throw new IllegalArgumentException("La consulta base ya restringe el campo " + field);
+            }
+            query.putAll(base);
+        }
+        BasicDBObject range = new BasicDBObject();
+        if (lower != null) {
+            range.put("$gt", lower);
+        }
+        if (upper != null) {
+            range.put("$lte", upper);
+        }
+        if (range.isEmpty()) {
+            range.put("$exists", true);
+        }
+        query.put(field, range);
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + (lower == null ? "-inf" : lower) + ", " + (upper == null ? "+inf" : upper) + "]";
+    }
+}
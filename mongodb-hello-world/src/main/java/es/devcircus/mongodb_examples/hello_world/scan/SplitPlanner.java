@@ -0,0 +1,126 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.scan;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Cálculo de los puntos de corte de un recorrido paralelo. Todas
+ * las consultas que lanza ordenan por el campo partido, así que conviene que
+ * esté indexado (como el índice {i: 1} de creatingAnIndex()).
+ */
+public final class SplitPlanner {
+
+    private SplitPlanner() {
+    }
+
+    /**
+     * Método que reparte el intervalo [mínimo, máximo] del campo en rangos de
+     * igual amplitud. Sólo hacen falta dos consultas, pero exige un campo
+     * numérico y reparte mal si los valores no están uniformemente
+     * distribuidos.
+     *
+     * @param coll Colección.
+     * @param field Campo numérico indexado.
+     * @param base Consulta base, o null.
+     * @param splits Número de rangos deseado.
+     * @return Rangos que cubren todos los documentos con el campo informado.
+     */
+    public static List<RangeSplit> minMax(DBCollection coll, String field, DBObject base, int splits) {
+        Object min = probe(coll, field, base, 1, 0);
+        Object max = probe(coll, field, base, -1, 0);
+        List<Object> bounds = new ArrayList<>();
+        if (min instanceof Number && max instanceof Number) {
+            double low = ((Number) min).doubleValue();
+            double high = ((Number) max).doubleValue();
+            boolean integral = isIntegral(min) && isIntegral(max);
+            for (int k = 1; k < splits; k++) {
+                double bound = low + (high - low) * k / splits;
+                addBound(bounds, integral ? (Object) (long) Math.floor(bound) : (Object) bound);
+            }
+        } else if (min != null) {
+            throw new IllegalArgumentException("El campo " + field + " no es numérico; emplea sampled()");
+        }
+        return toSplits(bounds);
+    }
+
+    /**
+     * Método que toma los puntos de corte recorriendo el índice: el corte k
+     * es el valor en la posición k * n / splits. Reparte bien cualquier
+     * distribución y cualquier tipo de valor, a cambio de una consulta por
+     * corte.
+     *
+     * @param coll Colección.
+     * @param field Campo indexado.
+     * @param base Consulta base, o null.
+     * @param splits Número de rangos deseado.
+     * @return Rangos que cubren todos los documentos con el campo informado.
+     */
+    public static List<RangeSplit> sampled(DBCollection coll, String field, DBObject base, int splits) {
+        long count = coll.getCount(base == null ? new BasicDBObject() : base);
+        List<Object> bounds = new ArrayList<>();
+        for (int k = 1; k < splits && count > 0; k++) {
+            Object bound = probe(coll, field, base, 1, (int) (count * k / splits));
+            if (bound != null) {
+                addBound(bounds, bound);
+            }
+        }
+        return toSplits(bounds);
+    }
+
+    private static Object probe(DBCollection coll, String field, DBObject base, int direction, int skip) {
+        BasicDBObject query = new BasicDBObject();
+        if (base != null) {
+            query.putAll(base);
+        }
+        query.put(field, new BasicDBObject("$exists", true));
+        DBCursor cur = coll.find(query, new BasicDBObject(field, 1))
+                .sort(new BasicDBObject(field, direction))
+                .skip(skip)
+                .limit(1);
+        return cur.hasNext() ? cur.next().get(field) : null;
+    }
+
+    private static void addBound(List<Object> bounds, Object bound) {
+        if (bounds.isEmpty() || !bound.equals(bounds.get(bounds.size() - 1))) {
+            bounds.add(bound);
+        }
+    }
+
+    private static List<RangeSplit> toSplits(List<Object> bounds) {
+        List<RangeSplit> splits = new ArrayList<>(bounds.size() + 1);
+        Object lower = null;
+        for (Object bound : bounds) {
+            splits.add(new RangeSplit(lower, bound));
+            lower = bound;
+        }
+        splits.add(new RangeSplit(lower, null));
+        return splits;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte;
+    }
+}
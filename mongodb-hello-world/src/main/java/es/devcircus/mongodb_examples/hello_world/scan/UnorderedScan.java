@@ -0,0 +1,117 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.scan;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.cursor.ScanOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Recorrido paralelo sin orden. Todos los rangos vuelcan en un
+ * único buffer acotado y el consumidor recibe los documentos según llegan.
+ */
+class UnorderedScan implements ParallelScan {
+
+    /**
+     * Marca de fin de un rango dentro del buffer.
+     */
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> buffer;
+    private final List<Future<?>> readers = new ArrayList<>();
+    private int pendingSplits;
+    private volatile boolean closed;
+    private Object next;
+
+    UnorderedScan(DBCollection coll, List<DBObject> queries, ScanOptions options, ExecutorService executor) {
+        this.buffer = new ArrayBlockingQueue<>(options.getPrefetch() * Math.max(1, queries.size()));
+        this.pendingSplits = queries.size();
+        for (DBObject query : queries) {
+            DBCursor cursor = options.open(coll, query);
+            readers.add(executor.submit(() -> fill(cursor)));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null || next == END) {
+            if (closed || pendingSplits == 0) {
+                return false;
+            }
+            try {
+                next = buffer.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new MongoException("Recorrido paralelo interrumpido", ex);
+            }
+            if (next == END) {
+                pendingSplits--;
+            } else if (next instanceof RuntimeException) {
+                RuntimeException ex = (RuntimeException) next;
+                close();
+                throw ex;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public DBObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DBObject doc = (DBObject) next;
+        next = null;
+        return doc;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Future<?> reader : readers) {
+            reader.cancel(true);
+        }
+        buffer.clear();
+        next = null;
+    }
+
+    private void fill(DBCursor cursor) {
+        try {
+            try {
+                while (!closed && cursor.hasNext()) {
+                    buffer.put(cursor.next());
+                }
+                buffer.put(END);
+            } catch (RuntimeException ex) {
+                buffer.put(ex);
+            }
+        } catch (InterruptedException ex) {
+            // cerrado por el consumidor
+        }
+    }
+}
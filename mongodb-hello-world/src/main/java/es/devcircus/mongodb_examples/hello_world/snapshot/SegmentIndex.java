@@ -0,0 +1,103 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Índice de un segmento: número de documentos, bytes ocupados y
+ * la posición de cada documento dentro del segmento. Se guarda junto al
+ * segmento, en little-endian como el propio BSON: int32 documentos, int64
+ * bytes y un int32 por documento.
+ */
+class SegmentIndex {
+
+    private static final int HEADER_BYTES = 4 + 8;
+
+    private int[] offsets;
+    private int documents;
+    private long bytes;
+
+    SegmentIndex() {
+        this.offsets = new int[1024];
+    }
+
+    private SegmentIndex(int[] offsets, long bytes) {
+        this.offsets = offsets;
+        this.documents = offsets.length;
+        this.bytes = bytes;
+    }
+
+    void add(int offset, int length) {
+        if (documents == offsets.length) {
+            offsets = Arrays.copyOf(offsets, documents * 2);
+        }
+        offsets[documents++] = offset;
+        bytes = offset + length;
+    }
+
+    int getDocuments() {
+        return documents;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    int getOffset(int document) {
+        return offsets[document];
+    }
+
+    void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4 * documents).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(documents);
+        buffer.putLong(bytes);
+        for (int i = 0; i < documents; i++) {
+            buffer.putInt(offsets[i]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    static SegmentIndex read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            int documents = buffer.getInt();
+            long bytes = buffer.getLong();
+            if (buffer.remaining() != 4 * documents) {
+                throw new SnapshotException("Índice incompleto: " + file);
+            }
+            int[] offsets = new int[documents];
+            buffer.asIntBuffer().get(offsets);
+            return new SegmentIndex(offsets, bytes);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.snapshot;
+
+import com.mongodb.Bytes;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Exportación de una colección a una instantánea: los documentos
+ * se escriben en BSON, uno detrás de otro (cada documento BSON empieza por su
+ * longitud), en segmentos proyectados en memoria con
+ * {@link FileChannel#map}. Cada segmento va acompañado de un índice con la
+ * posición de sus documentos, y el manifiesto se escribe el último, de forma
+ * que una exportación a medias no se puede restaurar. Todo se escribe en un
+ * directorio temporal junto al de destino, que sólo sustituye a la
+ * instantánea anterior cuando el manifiesto está escrito: si la exportación
+ * falla, la última instantánea buena sigue intacta.
+ *
+ * <pre>
+ * new SnapshotExporter(SnapshotOptions.defaults()).export(coll, Paths.get("dump"));
+ * </pre>
+ */
+public class SnapshotExporter {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotExporter.class.getName());
+
+    private final SnapshotOptions options;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param options Opciones de la instantánea.
+     */
+    public SnapshotExporter(SnapshotOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Método que exporta todos los documentos de una colección. Si el
+     * directorio ya contiene una instantánea, se sustituye entero al
+     * terminar; si contiene otros ficheros, la exportación se rechaza.
+     *
+     * @param coll Colección de origen.
+     * @param dir Directorio de la instantánea; se crea si no existe.
+     * @return Documentos, bytes y segmentos escritos.
+     * @throws SnapshotException Si falla la escritura de los ficheros.
+     * @throws MongoException Si falla la lectura de la colección.
+     */
+    public SnapshotStats export(DBCollection coll, Path dir) throws MongoException {
+        long start = System.nanoTime();
+        List<DBObject> segments = new ArrayList<>();
+        SegmentWriter segment = null;
+        Path work = null;
+        try {
+            Path parent = dir.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            if (Files.exists(dir)) {
+                checkSnapshot(dir);
+            }
+            work = Files.createTempDirectory(parent, dir.getFileName() + ".export-");
+            List<DBObject> indexes = options.isIndexes()
+                    ? coll.getIndexInfo() : Collections.<DBObject>emptyList();
+            // snapshot() evita que un documento que se mueve durante el
+            // recorrido aparezca dos veces
+            DBCursor cursor = coll.find().snapshot().batchSize(options.getBatchSize());
+            while (cursor.hasNext()) {
+                byte[] doc = Bytes.encode(cursor.next());
+                if (segment == null || !segment.fits(doc.length)) {
+                    if (segment != null) {
+                        segments.add(segment.finish());
+                    }
+                    segment = new SegmentWriter(work, segments.size(), options.getSegmentBytes());
+                    if (!segment.fits(doc.length)) {
+                        throw new SnapshotException("Hay un documento de " + doc.length
+                                + " bytes, mayor que un segmento");
+                    }
+                }
+                segment.append(doc);
+            }
+            if (segment != null) {
+                segments.add(segment.finish());
+                segment = null;
+            }
+            SnapshotManifest manifest = new SnapshotManifest(coll.getFullName(), new Date(), segments, indexes);
+            manifest.write(work);
+            replace(dir, work);
+            work = null;
+            SnapshotStats stats = new SnapshotStats(manifest.getDocuments(), manifest.getBytes(),
+                    segments.size(), System.nanoTime() - start);
+            LOGGER.log(Level.INFO, "Instantánea de {0} en {1}: {2}", new Object[]{coll.getFullName(), dir, stats});
+            return stats;
+        } catch (IOException ex) {
+            throw new SnapshotException("Error escribiendo la instantánea en " + dir, ex);
+        } finally {
+            if (segment != null) {
+                segment.abort();
+            }
+            if (work != null) {
+                delete(work);
+            }
+        }
+    }
+
+    /**
+     * Sustituye la instantánea de {@code dir}, si la hay, por la recién
+     * escrita en {@code work}. Los dos cambios de nombre son atómicos; si se
+     * interrumpe el proceso entre ellos, la instantánea anterior queda en el
+     * directorio {@code .old-} de al lado.
+     */
+    private static void replace(Path dir, Path work) throws IOException {
+        if (!Files.exists(dir)) {
+            Files.move(work, dir, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        Path old = work.resolveSibling(dir.getFileName() + ".old-" + System.nanoTime());
+        Files.move(dir, old, StandardCopyOption.ATOMIC_MOVE);
+        try {
+            Files.move(work, dir, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Files.move(old, dir, StandardCopyOption.ATOMIC_MOVE);
+            throw ex;
+        }
+        delete(old);
+    }
+
+    /**
+     * Comprueba que un directorio existente sólo contiene ficheros de una
+     * instantánea, antes de sustituirlo entero.
+     */
+    private static void checkSnapshot(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            throw new SnapshotException(dir + " no es un directorio");
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.equals(SnapshotManifest.FILE) && !name.matches("segment-\\d+\\.(bson|idx)")) {
+                    throw new SnapshotException(dir + " contiene ficheros que no son de una instantánea: " + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Borra un directorio de instantánea, que no tiene subdirectorios. Un
+     * fallo sólo deja basura, así que se registra y no se propaga.
+     */
+    private static void delete(Path dir) {
+        try {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "No se ha podido borrar " + dir, ex);
+        }
+    }
+
+    /**
+     * Segmento en escritura. El fichero se proyecta entero al abrirlo y se
+     * recorta a los bytes escritos al terminar.
+     */
+    private static class SegmentWriter {
+
+        private final Path dir;
+        private final String file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final SegmentIndex index = new SegmentIndex();
+
+        SegmentWriter(Path dir, int number, int size) throws IOException {
+            this.dir = dir;
+            this.file = String.format("segment-%05d.bson", number);
+            this.channel = FileChannel.open(dir.resolve(file), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        boolean fits(int length) {
+            return buffer.remaining() >= length;
+        }
+
+        void append(byte[] doc) {
+            index.add(buffer.position(), doc.length);
+            buffer.put(doc);
+        }
+
+        DBObject finish() throws IOException {
+            buffer.force();
+            // a partir de aquí no se vuelve a tocar la proyección, así que
+            // se puede recortar el fichero aunque siga proyectado
+            channel.truncate(buffer.position());
+            channel.close();
+            index.write(dir.resolve(SnapshotImporter.indexFile(file)));
+            return SnapshotManifest.segment(file, index.getDocuments(), index.getBytes());
+        }
+
+        void abort() {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, null, ex);
+            }
+        }
+    }
+}
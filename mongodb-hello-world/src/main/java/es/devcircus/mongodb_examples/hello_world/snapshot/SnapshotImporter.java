@@ -0,0 +1,159 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.snapshot;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.bson.BsonInserter;
+import es.devcircus.mongodb_examples.hello_world.bson.BufferPool;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Restauración de una instantánea escrita con
+ * {@link SnapshotExporter}. Los segmentos se cargan en paralelo, uno por
+ * hilo: cada segmento se proyecta en memoria en modo lectura y sus documentos
+ * se copian tal cual, sin decodificarlos, a los mensajes OP_INSERT de un
+ * {@link BsonInserter}. Los índices se crean al final, que es más rápido que
+ * mantenerlos durante la carga. Los documentos se añaden a los que ya tenga
+ * la colección; para una restauración limpia hay que vaciarla antes.
+ */
+public class SnapshotImporter {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotImporter.class.getName());
+
+    private final SnapshotOptions options;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param options Opciones de la instantánea.
+     */
+    public SnapshotImporter(SnapshotOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Método que restaura una instantánea en una colección, que no tiene por
+     * qué ser la de origen. Se emplea el nivel de confirmación de la
+     * colección de destino.
+     *
+     * @param dir Directorio de la instantánea.
+     * @param coll Colección de destino.
+     * @return Documentos, bytes y segmentos restaurados.
+     * @throws SnapshotException Si falta algún fichero o está corrupto.
+     * @throws MongoException Si falla alguna inserción.
+     */
+    public SnapshotStats restore(Path dir, DBCollection coll) throws MongoException {
+        long start = System.nanoTime();
+        SnapshotManifest manifest = SnapshotManifest.read(dir);
+        int threads = Math.max(1, Math.min(options.getThreads(), manifest.getSegmentCount()));
+        BufferPool pool = new BufferPool(2 * threads, options.getMessageBytes(), true);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("mongo-snapshot"));
+        CompletionService<Integer> segments = new ExecutorCompletionService<>(workers);
+        long documents = 0;
+        try {
+            for (int i = 0; i < manifest.getSegmentCount(); i++) {
+                Path file = dir.resolve(manifest.getSegmentFile(i));
+                segments.submit(() -> restoreSegment(file, coll, pool));
+            }
+            // se recogen por orden de llegada para que el primer fallo
+            // interrumpa al resto sin esperar
+            for (int i = 0; i < manifest.getSegmentCount(); i++) {
+                documents += segments.take().get();
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new SnapshotException("Falló la restauración de " + dir, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SnapshotException("Restauración de " + dir + " interrumpida", ex);
+        } finally {
+            workers.shutdownNow();
+        }
+        if (options.isIndexes()) {
+            createIndexes(coll, manifest);
+        }
+        SnapshotStats stats = new SnapshotStats(documents, manifest.getBytes(), manifest.getSegmentCount(),
+                System.nanoTime() - start);
+        LOGGER.log(Level.INFO, "Restaurada la instantánea {0} en {1}: {2}",
+                new Object[]{dir, coll.getFullName(), stats});
+        return stats;
+    }
+
+    /**
+     * Nombre del índice de un segmento.
+     */
+    static String indexFile(String segmentFile) {
+        return segmentFile.substring(0, segmentFile.lastIndexOf('.')) + ".idx";
+    }
+
+    private int restoreSegment(Path file, DBCollection coll, BufferPool pool) throws IOException {
+        SegmentIndex index = SegmentIndex.read(file.resolveSibling(indexFile(file.getFileName().toString())));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                BsonInserter inserter = new BsonInserter(coll, pool)) {
+            long size = channel.size();
+            if (size != index.getBytes()) {
+                throw new SnapshotException("El segmento " + file + " no coincide con su índice");
+            }
+            ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer document = segment.duplicate();
+            for (int i = 0; i < index.getDocuments(); i++) {
+                int offset = index.getOffset(i);
+                int length = segment.getInt(offset);
+                if (length < 5 || offset + length > size || segment.get(offset + length - 1) != 0) {
+                    throw new SnapshotException("Documento " + i + " corrupto en " + file);
+                }
+                document.clear();
+                document.position(offset);
+                document.limit(offset + length);
+                inserter.insertEncoded(document);
+            }
+        }
+        return index.getDocuments();
+    }
+
+    private static void createIndexes(DBCollection coll, SnapshotManifest manifest) throws MongoException {
+        for (DBObject index : manifest.getIndexes()) {
+            if ("_id_".equals(index.get("name"))) {
+                continue;
+            }
+            DBObject indexOptions = new BasicDBObject(index.toMap());
+            indexOptions.removeField("key");
+            indexOptions.removeField("ns");
+            coll.ensureIndex((DBObject) index.get("key"), indexOptions);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.snapshot;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
+import com.mongodb.DBObject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Descripción de una instantánea: colección de origen, fecha,
+ * segmentos con su número de documentos y sus bytes, y los índices de la
+ * colección. Se guarda como un documento BSON en {@value #FILE}.
+ */
+public class SnapshotManifest {
+
+    public static final String FILE = "manifest.bson";
+
+    private final String namespace;
+    private final Date created;
+    private final List<DBObject> segments;
+    private final List<DBObject> indexes;
+
+    SnapshotManifest(String namespace, Date created, List<DBObject> segments, List<DBObject> indexes) {
+        this.namespace = namespace;
+        this.created = created;
+        this.segments = segments;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Método que lee el manifiesto de una instantánea.
+     *
+     * @param dir Directorio de la instantánea.
+     * @return Manifiesto.
+     * @throws SnapshotException Si no existe o no se puede leer.
+     */
+    public static SnapshotManifest read(Path dir) {
+        Path file = dir.resolve(FILE);
+        if (!Files.isRegularFile(file)) {
+            throw new SnapshotException("No hay ninguna instantánea en " + dir);
+        }
+        DBObject doc;
+        try {
+            doc = Bytes.decode(Files.readAllBytes(file));
+        } catch (IOException ex) {
+            throw new SnapshotException("No se puede leer " + file, ex);
+        }
+        return new SnapshotManifest((String) doc.get("ns"), (Date) doc.get("created"),
+                list(doc.get("segments")), list(doc.get("indexes")));
+    }
+
+    void write(Path dir) throws IOException {
+        BasicDBList segmentList = new BasicDBList();
+        segmentList.addAll(segments);
+        BasicDBList indexList = new BasicDBList();
+        indexList.addAll(indexes);
+        DBObject doc = new BasicDBObject("ns", namespace)
+                .append("created", created)
+                .append("documents", getDocuments())
+                .append("bytes", getBytes())
+                .append("segments", segmentList)
+                .append("indexes", indexList);
+        Files.write(dir.resolve(FILE), Bytes.encode(doc));
+    }
+
+    static DBObject segment(String file, int documents, long bytes) {
+        return new BasicDBObject("file", file).append("documents", documents).append("bytes", bytes);
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Nombre del fichero de un segmento, relativo al directorio de la
+     * instantánea. Su índice tiene el mismo nombre con extensión .idx.
+     *
+     * @param segment Número de segmento.
+     * @return Nombre del fichero.
+     */
+    public String getSegmentFile(int segment) {
+        return (String) segments.get(segment).get("file");
+    }
+
+    public int getSegmentDocuments(int segment) {
+        return ((Number) segments.get(segment).get("documents")).intValue();
+    }
+
+    public long getSegmentBytes(int segment) {
+        return ((Number) segments.get(segment).get("bytes")).longValue();
+    }
+
+    public long getDocuments() {
+        long documents = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            documents += getSegmentDocuments(i);
+        }
+        return documents;
+    }
+
+    public long getBytes() {
+        long bytes = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            bytes += getSegmentBytes(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Índices de la colección tal y como los devuelve
+     * {@code getIndexInfo()}, incluido el de _id.
+     *
+     * @return Lista de índices, vacía si no se guardaron.
+     */
+    public List<DBObject> getIndexes() {
+        return Collections.unmodifiableList(indexes);
+    }
+
+    private static List<DBObject> list(Object value) {
+        List<DBObject> result = new ArrayList<>();
+        if (value != null) {
+            for (Object item : (List<?>) value) {
+                result.add((DBObject) item);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.snapshot;
+
+import es.devcircus.mongodb_examples.hello_world.bson.BsonInserter;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de las instantáneas: tamaño máximo de cada segmento,
+ * tamaño de lote del cursor al exportar y, al restaurar, cuántos segmentos se
+ * cargan a la vez y el tamaño de cada mensaje de inserción.
+ */
+public class SnapshotOptions {
+
+    private int segmentBytes = 64 * 1024 * 1024;
+    private int batchSize = 1000;
+    private int threads = 4;
+    private int messageBytes = 4 * 1024 * 1024;
+    private boolean indexes = true;
+
+    /**
+     * Método que crea unas opciones por defecto: segmentos de 64 MB, lotes de
+     * 1000 documentos, 4 hilos, mensajes de 4 MB y con los índices.
+     *
+     * @return Opciones por defecto.
+     */
+    public static SnapshotOptions defaults() {
+        return new SnapshotOptions();
+    }
+
+    /**
+     * Tamaño máximo de un segmento. Cada segmento se proyecta entero en
+     * memoria mientras se escribe, así que tampoco conviene que sea enorme.
+     *
+     * @param segmentBytes Bytes por segmento.
+     * @return Las propias opciones.
+     */
+    public SnapshotOptions segmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+        return this;
+    }
+
+    public SnapshotOptions batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Número de segmentos que se restauran a la vez, cada uno con su propio
+     * insertador.
+     *
+     * @param threads Número de hilos.
+     * @return Las propias opciones.
+     */
+    public SnapshotOptions threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Tamaño de los mensajes OP_INSERT de la restauración. Debe ser mayor que
+     * {@link BsonInserter#DEFAULT_MAX_DOCUMENT_BYTES}.
+     *
+     * @param messageBytes Bytes por mensaje.
+     * @return Las propias opciones.
+     */
+    public SnapshotOptions messageBytes(int messageBytes) {
+        this.messageBytes = messageBytes;
+        return this;
+    }
+
+    /**
+     * Si es true se guardan los índices de la colección y se vuelven a crear
+     * al terminar la restauración, después de cargar los documentos.
+     *
+     * @param indexes true para incluir los índices.
+     * @return Las propias opciones.
+     */
+    public SnapshotOptions indexes(boolean indexes) {
+        this.indexes = indexes;
+        return this;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getMessageBytes() {
+        return messageBytes;
+    }
+
+    public boolean isIndexes() {
+        return indexes;
+    }
+}
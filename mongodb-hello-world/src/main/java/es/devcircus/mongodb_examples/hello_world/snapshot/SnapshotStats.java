@@ -0,0 +1,67 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.snapshot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Resultado de una exportación o una restauración: documentos,
+ * bytes de BSON, segmentos y tiempo empleado.
+ */
+public class SnapshotStats {
+
+    private final long documents;
+    private final long bytes;
+    private final int segments;
+    private final long elapsedNanos;
+
+    SnapshotStats(long documents, long bytes, int segments, long elapsedNanos) {
+        this.documents = documents;
+        this.bytes = bytes;
+        this.segments = segments;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public double getDocumentsPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds == 0 ? 0 : documents / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d documentos, %.1f MB en %d segmentos, %.3f s, %.1f docs/s",
+                documents, bytes / (1024.0 * 1024.0), segments, getElapsedSeconds(), getDocumentsPerSecond());
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+import com.mongodb.DBObject;
+import com.mongodb.DBTimestamp;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Cambio de un documento, leído del oplog o de la copia
+ * inicial.
+ */
+public class ChangeEvent {
+
+    private final ChangeType type;
+    private final String namespace;
+    private final Object id;
+    private final DBObject document;
+    private final DBTimestamp timestamp;
+
+    ChangeEvent(ChangeType type, String namespace, Object id, DBObject document, DBTimestamp timestamp) {
+        this.type = type;
+        this.namespace = namespace;
+        this.id = id;
+        this.document = document;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Método que traduce una entrada del oplog.
+     *
+     * @param entry Entrada del oplog.
+     * @return Evento, o null si la entrada no es una inserción, una
+     * modificación o un borrado (comandos, entradas vacías...).
+     */
+    static ChangeEvent fromOplog(DBObject entry) {
+        DBTimestamp ts = (DBTimestamp) entry.get("ts");
+        String ns = (String) entry.get("ns");
+        DBObject o = (DBObject) entry.get("o");
+        String op = (String) entry.get("op");
+        if ("i".equals(op)) {
+            return new ChangeEvent(ChangeType.INSERT, ns, o.get("_id"), o, ts);
+        }
+        if ("u".equals(op)) {
+            return new ChangeEvent(ChangeType.UPDATE, ns, ((DBObject) entry.get("o2")).get("_id"), o, ts);
+        }
+        if ("d".equals(op)) {
+            return new ChangeEvent(ChangeType.DELETE, ns, o.get("_id"), null, ts);
+        }
+        return null;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * Documento completo en las inserciones, modificación en las
+     * modificaciones y null en los borrados.
+     *
+     * @return Documento del evento.
+     */
+    public DBObject getDocument() {
+        return document;
+    }
+
+    /**
+     * Posición del cambio en el oplog. En los eventos de la copia inicial es
+     * la posición desde la que se seguirá el oplog.
+     *
+     * @return Marca de tiempo del oplog.
+     */
+    public DBTimestamp getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + namespace + " " + id + (document != null ? " " + document : "");
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Destino de los cambios de una sincronización. Los lotes
+ * llegan en el orden del oplog, pero la entrega es "al menos una vez": tras
+ * un fallo o un reinicio se repiten los cambios posteriores al último punto
+ * de control, así que aplicarlos debe ser idempotente (inserciones como
+ * upserts, borrados que toleran que el documento ya no exista...).
+ */
+public interface ChangeSink {
+
+    /**
+     * Método que aplica un lote de cambios. Si lanza una excepción el lote
+     * se vuelve a entregar.
+     *
+     * @param events Cambios en orden.
+     */
+    void apply(List<ChangeEvent> events);
+
+    /**
+     * Método al que se llama antes de cada copia completa, incluida la
+     * primera. La copia sólo entrega inserciones: si el destino conserva
+     * documentos de antes, los que se borraron en el origen mientras no se
+     * seguía el oplog se quedarían en él para siempre, así que el destino
+     * debe descartar aquí su contenido. Si lanza una excepción la copia se
+     * repite.
+     */
+    void reset();
+}
@@ -0,0 +1,40 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Tipos de cambio que entrega la sincronización.
+ */
+public enum ChangeType {
+
+    /**
+     * Documento nuevo; el evento lleva el documento completo.
+     */
+    INSERT,
+    /**
+     * Documento modificado; el evento lleva la modificación tal y como
+     * aparece en el oplog, con operadores ($set, $inc...) o como documento
+     * de reemplazo.
+     */
+    UPDATE,
+    /**
+     * Documento borrado; el evento sólo lleva su _id.
+     */
+    DELETE
+}
@@ -0,0 +1,86 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.MongoException;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Destino que replica los cambios en otra colección, que puede
+ * estar en otro servidor. Es idempotente: las inserciones se aplican como
+ * upserts por _id y los borrados de documentos que no existen no tienen
+ * efecto. Antes de cada copia completa se vacía la colección réplica. Las
+ * modificaciones se aplican tal y como vienen del oplog, lo que vale para los
+ * servidores que las registran con operadores ($set, $unset) o como
+ * reemplazo; el formato de diferencias de los servidores 5.0 y
+ * posteriores ($v: 2) no se puede aplicar con update().
+ */
+public class CollectionMirrorSink implements ChangeSink {
+
+    private final DBCollection target;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param target Colección réplica.
+     */
+    public CollectionMirrorSink(DBCollection target) {
+        this.target = target;
+    }
+
+    @Override
+    public void reset() {
+        // se confirma en la misma conexión antes de empezar a copiar, para
+        // que el borrado no pueda llegar después de las primeras inserciones
+        DB db = target.getDB();
+        db.requestStart();
+        try {
+            target.remove(new BasicDBObject());
+            Object err = db.getLastError().get("err");
+            if (err != null) {
+                throw new MongoException("No se ha podido vaciar " + target.getFullName() + ": " + err);
+            }
+        } finally {
+            db.requestDone();
+        }
+    }
+
+    @Override
+    public void apply(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            BasicDBObject id = new BasicDBObject("_id", event.getId());
+            switch (event.getType()) {
+                case INSERT:
+                    target.update(id, event.getDocument(), true, false);
+                    break;
+                case UPDATE:
+                    target.update(id, event.getDocument(), false, false);
+                    break;
+                case DELETE:
+                    target.remove(id);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Tipo de cambio desconocido: " + event.getType());
+            }
+        }
+    }
+}
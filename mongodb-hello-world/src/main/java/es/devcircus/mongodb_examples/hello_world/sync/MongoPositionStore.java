@@ -0,0 +1,66 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DBTimestamp;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Posiciones guardadas en una colección de MongoDB, un
+ * documento por sincronización con su nombre como _id. Las escrituras se
+ * confirman (WriteConcern.STRICT) por la misma razón que los puntos de
+ * control de las migraciones: una posición que no llegó a guardarse no debe
+ * darse por buena.
+ */
+public class MongoPositionStore implements PositionStore {
+
+    public static final String DEFAULT_COLLECTION = "sync.positions";
+
+    private final DBCollection coll;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección en la que se guardan las posiciones.
+     */
+    public MongoPositionStore(DBCollection coll) {
+        this.coll = coll;
+        this.coll.setWriteConcern(DB.WriteConcern.STRICT);
+    }
+
+    @Override
+    public DBTimestamp load(String job) {
+        DBObject doc = coll.findOne(new BasicDBObject("_id", job));
+        return doc != null ? (DBTimestamp) doc.get("ts") : null;
+    }
+
+    @Override
+    public void save(String job, DBTimestamp position) {
+        BasicDBObject id = new BasicDBObject("_id", job);
+        coll.update(id, new BasicDBObject("_id", job).append("ts", position), true, false);
+    }
+
+    @Override
+    public void clear(String job) {
+        coll.remove(new BasicDBObject("_id", job));
+    }
+}
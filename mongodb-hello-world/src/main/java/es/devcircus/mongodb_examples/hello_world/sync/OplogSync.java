@@ -0,0 +1,297 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBTimestamp;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Sincronización incremental de una colección a partir del
+ * oplog. Un hilo sigue el oplog con un cursor tailable y awaitData, filtrado
+ * por el espacio de nombres de la colección, traduce las entradas a
+ * inserciones, modificaciones y borrados, y las entrega en orden y por lotes
+ * al {@link ChangeSink}. Tras cada lote guarda la posición en el
+ * {@link PositionStore}, de forma que al reiniciar se continúa desde ahí. La
+ * primera vez, o si la posición ya ha salido del oplog, hace una copia
+ * completa de la colección, sobre un destino vaciado con
+ * {@link ChangeSink#reset()}, y sigue desde el punto del oplog en que empezó
+ * la copia. Así el coste es proporcional al volumen de cambios y no al tamaño de
+ * la colección. El driver no conoce los change streams; el oplog funciona con
+ * cualquier versión del servidor que forme parte de un replica set.
+ */
+public class OplogSync {
+
+    private static final Logger LOGGER = Logger.getLogger(OplogSync.class.getName());
+    /**
+     * Bloquea el getMore en el servidor mientras no haya datos nuevos. El
+     * driver no define la constante.
+     */
+    private static final int QUERYOPTION_AWAITDATA = 32;
+    /**
+     * Una consulta que vuelve vacía antes de este tiempo indica que el
+     * servidor no ha esperado datos; se hace una pausa para no girar en
+     * vacío.
+     */
+    private static final long MIN_IDLE_MILLIS = 100;
+
+    private final String job;
+    private final DBCollection source;
+    private final DBCollection oplog;
+    private final ChangeSink sink;
+    private final PositionStore positions;
+    private final SyncOptions options;
+    private final SyncStats stats = new SyncStats();
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param job Nombre de la sincronización, con el que se guarda la
+     * posición.
+     * @param source Colección a sincronizar.
+     * @param local Base de datos local del servidor, donde está el oplog.
+     * @param sink Destino de los cambios.
+     * @param positions Almacén de posiciones.
+     * @param options Opciones de la sincronización.
+     */
+    public OplogSync(String job, DBCollection source, DB local, ChangeSink sink, PositionStore positions,
+            SyncOptions options) {
+        this.job = job;
+        this.source = source;
+        this.oplog = local.getCollection(options.getOplogCollection());
+        this.sink = sink;
+        this.positions = positions;
+        this.options = options;
+    }
+
+    /**
+     * Método que arranca la sincronización en un hilo propio.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new DaemonThreadFactory("oplog-sync-" + job).newThread(this::run);
+        thread.start();
+    }
+
+    /**
+     * Método que detiene la sincronización y espera a que termine el lote en
+     * curso. Puede tardar lo que dure la espera de awaitData en el servidor.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public SyncStats getStats() {
+        return stats;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                DBTimestamp position = positions.load(job);
+                if (position == null) {
+                    position = initialSync();
+                }
+                stats.advanced(position);
+                tail(position);
+            } catch (SyncException ex) {
+                if (!options.isInitialSync()) {
+                    LOGGER.log(Level.SEVERE, null, ex);
+                    running = false;
+                    return;
+                }
+                LOGGER.log(Level.WARNING, "{0}; se repite la copia completa", ex.getMessage());
+                positions.clear(job);
+            } catch (RuntimeException ex) {
+                if (!running) {
+                    return;
+                }
+                // fallo del servidor o del destino: se repite desde la
+                // última posición guardada
+                stats.retry();
+                LOGGER.log(Level.WARNING, null, ex);
+                pause(options.getRetryDelayMillis());
+            }
+        }
+    }
+
+    /**
+     * Método que entrega todos los documentos de la colección como
+     * inserciones, después de vaciar el destino. La posición se toma antes de
+     * empezar: los cambios hechos durante la copia se vuelven a entregar
+     * desde el oplog y, como el destino es idempotente, el resultado
+     * converge.
+     *
+     * @return Posición del oplog desde la que seguir.
+     */
+    private DBTimestamp initialSync() {
+        DBTimestamp start = newest();
+        if (options.isInitialSync()) {
+            sink.reset();
+            List<ChangeEvent> batch = new ArrayList<>(options.getBatchSize());
+            DBCursor cur = source.find();
+            while (running && cur.hasNext()) {
+                DBObject doc = cur.next();
+                batch.add(new ChangeEvent(ChangeType.INSERT, source.getFullName(), doc.get("_id"), doc, start));
+                if (batch.size() >= options.getBatchSize()) {
+                    sink.apply(batch);
+                    stats.initialDocuments(batch.size());
+                    batch = new ArrayList<>(options.getBatchSize());
+                }
+            }
+            if (!running) {
+                // copia incompleta: no se guarda la posición y se repetirá
+                return start;
+            }
+            if (!batch.isEmpty()) {
+                sink.apply(batch);
+                stats.initialDocuments(batch.size());
+            }
+        }
+        positions.save(job, start);
+        return start;
+    }
+
+    private void tail(DBTimestamp position) {
+        DBTimestamp committed = position;
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(options.getMaxBatchDelayMillis());
+        while (running) {
+            checkAvailable(committed);
+            long opened = System.nanoTime();
+            DBCursor cur = oplog.find(new BasicDBObject("ts", new BasicDBObject("$gt", committed))
+                    .append("ns", source.getFullName()))
+                    .addOption(Bytes.QUERYOPTION_TAILABLE)
+                    .addOption(QUERYOPTION_AWAITDATA)
+                    .addOption(Bytes.QUERYOPTION_OPLOGREPLAY);
+            List<ChangeEvent> batch = new ArrayList<>(options.getBatchSize());
+            DBTimestamp last = committed;
+            long batchStarted = 0;
+            boolean read = false;
+            // hasNext() devuelve false cuando el servidor agota la espera sin
+            // datos nuevos o cuando el cursor muere; en los dos casos se
+            // entrega lo pendiente y se vuelve a abrir desde la posición
+            while (running && cur.hasNext()) {
+                DBObject entry = cur.next();
+                read = true;
+                last = (DBTimestamp) entry.get("ts");
+                ChangeEvent event = ChangeEvent.fromOplog(entry);
+                if (event != null) {
+                    if (batch.isEmpty()) {
+                        batchStarted = System.nanoTime();
+                    }
+                    batch.add(event);
+                }
+                if (batch.size() >= options.getBatchSize()
+                        || (!batch.isEmpty() && System.nanoTime() - batchStarted >= maxDelayNanos)) {
+                    deliver(batch, last);
+                    committed = last;
+                    batch = new ArrayList<>(options.getBatchSize());
+                }
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch, last);
+            } else if (last != committed) {
+                positions.save(job, last);
+                stats.advanced(last);
+            }
+            committed = last;
+            if (!read && System.nanoTime() - opened < TimeUnit.MILLISECONDS.toNanos(MIN_IDLE_MILLIS)) {
+                pause(MIN_IDLE_MILLIS);
+            }
+        }
+    }
+
+    private void deliver(List<ChangeEvent> batch, DBTimestamp last) {
+        sink.apply(batch);
+        positions.save(job, last);
+        stats.delivered(batch.size(), last);
+    }
+
+    /**
+     * Método que comprueba que la posición sigue en el oplog. Si la entrada
+     * más antigua es posterior, los cambios intermedios se han perdido.
+     *
+     * @param position Posición desde la que se va a seguir.
+     */
+    private void checkAvailable(DBTimestamp position) {
+        DBCursor cur = oplog.find().sort(new BasicDBObject("$natural", 1)).limit(1);
+        if (cur.hasNext()) {
+            DBTimestamp oldest = (DBTimestamp) cur.next().get("ts");
+            if (compare(oldest, position) > 0) {
+                throw new SyncException("La posición " + position + " de " + job
+                        + " ya no está en el oplog, que empieza en " + oldest);
+            }
+        }
+    }
+
+    private DBTimestamp newest() {
+        DBCursor cur = oplog.find().sort(new BasicDBObject("$natural", -1)).limit(1);
+        if (!cur.hasNext()) {
+            throw new MongoException("No hay oplog en " + oplog.getFullName()
+                    + "; el servidor debe formar parte de un replica set");
+        }
+        return (DBTimestamp) cur.next().get("ts");
+    }
+
+    private void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    static int compare(DBTimestamp a, DBTimestamp b) {
+        if (a.getTime() != b.getTime()) {
+            return Integer.compare(a.getTime(), b.getTime());
+        }
+        return Integer.compare(a.getInc(), b.getInc());
+    }
+}
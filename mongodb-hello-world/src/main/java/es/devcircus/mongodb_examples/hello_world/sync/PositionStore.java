@@ -0,0 +1,53 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+import com.mongodb.DBTimestamp;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Almacén de la posición en el oplog hasta la que se ha
+ * entregado cada sincronización.
+ */
+public interface PositionStore {
+
+    /**
+     * Método que recupera la posición de una sincronización.
+     *
+     * @param job Nombre de la sincronización.
+     * @return Marca de tiempo del último cambio entregado, o null si no ha
+     * empezado nunca.
+     */
+    DBTimestamp load(String job);
+
+    /**
+     * Método que guarda la posición de una sincronización.
+     *
+     * @param job Nombre de la sincronización.
+     * @param position Marca de tiempo del último cambio entregado.
+     */
+    void save(String job, DBTimestamp position);
+
+    /**
+     * Método que borra la posición, para volver a empezar con una copia
+     * completa.
+     *
+     * @param job Nombre de la sincronización.
+     */
+    void clear(String job);
+}
@@ -0,0 +1,114 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de una sincronización: tamaño y espera máxima de los
+ * lotes, pausa tras un error, colección del oplog y si se hace una copia
+ * completa cuando no hay posición guardada.
+ */
+public class SyncOptions {
+
+    private int batchSize = 500;
+    private int maxBatchDelayMillis = 1000;
+    private int retryDelayMillis = 1000;
+    private boolean initialSync = true;
+    private String oplogCollection = "oplog.rs";
+
+    /**
+     * Método que crea unas opciones por defecto: lotes de hasta 500 cambios
+     * o un segundo de espera, un segundo de pausa tras un error, copia
+     * inicial y el oplog de un replica set.
+     *
+     * @return Opciones por defecto.
+     */
+    public static SyncOptions defaults() {
+        return new SyncOptions();
+    }
+
+    public SyncOptions batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Tiempo máximo que un cambio espera en un lote incompleto mientras
+     * siguen llegando cambios. Cuando el oplog se queda sin cambios el lote
+     * se entrega en cuanto el servidor lo indica, como mucho tras la espera
+     * de awaitData.
+     *
+     * @param maxBatchDelayMillis Espera en milisegundos.
+     * @return Las propias opciones.
+     */
+    public SyncOptions maxBatchDelayMillis(int maxBatchDelayMillis) {
+        this.maxBatchDelayMillis = maxBatchDelayMillis;
+        return this;
+    }
+
+    public SyncOptions retryDelayMillis(int retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+        return this;
+    }
+
+    /**
+     * Si no hay posición guardada, o la guardada ya no está en el oplog,
+     * entrega primero todos los documentos de la colección como inserciones
+     * y después sigue el oplog. Sin copia inicial, empieza por el final del
+     * oplog y una posición perdida detiene la sincronización.
+     *
+     * @param initialSync true para hacer la copia inicial.
+     * @return Las propias opciones.
+     */
+    public SyncOptions initialSync(boolean initialSync) {
+        this.initialSync = initialSync;
+        return this;
+    }
+
+    /**
+     * Colección del oplog en la base de datos local: "oplog.rs" en un
+     * replica set, "oplog.$main" en una réplica maestro/esclavo.
+     *
+     * @param oplogCollection Nombre de la colección.
+     * @return Las propias opciones.
+     */
+    public SyncOptions oplogCollection(String oplogCollection) {
+        this.oplogCollection = oplogCollection;
+        return this;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxBatchDelayMillis() {
+        return maxBatchDelayMillis;
+    }
+
+    public int getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    public boolean isInitialSync() {
+        return initialSync;
+    }
+
+    public String getOplogCollection() {
+        return oplogCollection;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.sync;
+
+import com.mongodb.DBTimestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Progreso de una sincronización: documentos de la copia
+ * inicial, cambios y lotes entregados, reintentos y retraso respecto al
+ * último cambio entregado.
+ */
+public class SyncStats {
+
+    private final LongAdder initialDocuments = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private volatile DBTimestamp position;
+
+    void initialDocuments(int count) {
+        initialDocuments.add(count);
+    }
+
+    void delivered(int count, DBTimestamp position) {
+        events.add(count);
+        batches.increment();
+        this.position = position;
+    }
+
+    void advanced(DBTimestamp position) {
+        this.position = position;
+    }
+
+    void retry() {
+        retries.increment();
+    }
+
+    public long getInitialDocuments() {
+        return initialDocuments.sum();
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Última posición del oplog entregada o confirmada.
+     *
+     * @return Marca de tiempo, o null si todavía no hay ninguna.
+     */
+    public DBTimestamp getPosition() {
+        return position;
+    }
+
+    /**
+     * Segundos entre la hora actual y la del último cambio entregado. Si no
+     * hay cambios en la colección crece aunque la sincronización esté al
+     * día.
+     *
+     * @return Retraso en segundos; -1 si todavía no hay posición.
+     */
+    public long getLagSeconds() {
+        DBTimestamp current = position;
+        if (current == null) {
+            return -1;
+        }
+        return Math.max(0, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - current.getTime());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d documentos iniciales, %d cambios en %d lotes, %d reintentos, posición %s",
+                getInitialDocuments(), getEvents(), getBatches(), getRetries(), position);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Distribuciones de las claves que leen las operaciones, las
+ * mismas que ofrece YCSB.
+ */
+public enum KeyDistribution {
+
+    /**
+     * Todas las claves con la misma probabilidad.
+     */
+    UNIFORM {
+        @Override
+        KeyChooser newChooser(long keyCount) {
+            return count -> ThreadLocalRandom.current().nextLong(count);
+        }
+    },
+    /**
+     * Unas pocas claves concentran casi todas las lecturas (constante
+     * 0,99). Las más leídas son las más bajas.
+     */
+    ZIPFIAN {
+        @Override
+        KeyChooser newChooser(long keyCount) {
+            ZipfianGenerator zipfian = new ZipfianGenerator(keyCount);
+            return count -> Math.min(zipfian.next(count), count - 1);
+        }
+    },
+    /**
+     * Las claves insertadas más recientemente son las más leídas, con una
+     * caída zipfiana hacia las antiguas.
+     */
+    LATEST {
+        @Override
+        KeyChooser newChooser(long keyCount) {
+            ZipfianGenerator zipfian = new ZipfianGenerator(keyCount);
+            return count -> Math.max(0, count - 1 - zipfian.next(count));
+        }
+    };
+
+    /**
+     * Método que crea un generador de claves para la distribución.
+     *
+     * @param keyCount Número inicial de claves.
+     * @return Generador de claves, seguro entre hilos.
+     */
+    abstract KeyChooser newChooser(long keyCount);
+
+    /**
+     * Generador de claves.
+     */
+    interface KeyChooser {
+
+        /**
+         * Método que elige una clave.
+         *
+         * @param keyCount Número actual de claves; la clave devuelta está
+         * entre 0 y keyCount - 1.
+         * @return Clave.
+         */
+        long next(long keyCount);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.workload;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.connection.ConnectionSettings;
+import es.devcircus.mongodb_examples.hello_world.connection.ManagedMongo;
+import es.devcircus.mongodb_examples.hello_world.connection.MongoConnectionManager;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Modo generador de carga de los ejemplos. Se configura con
+ * propiedades del sistema: workload.host, workload.port, workload.db,
+ * workload.collection, workload.threads, workload.target (operaciones por
+ * segundo, 0 sin límite), workload.duration y workload.warmup (segundos),
+ * workload.report (segundos entre informes), workload.distribution
+ * (UNIFORM, ZIPFIAN o LATEST), workload.mix (por ejemplo
+ * "INSERT=10,FIND_ONE=90"), workload.documentSize, workload.recordCount y
+ * workload.writeConcern (STRICT por defecto; NORMAL o NONE no esperan la
+ * respuesta del servidor) y workload.load (false para reutilizar los
+ * documentos de una ejecución anterior).
+ */
+public class LoadGenerator {
+
+    /**
+     * Método main.
+     *
+     * @param args Array de argumentos del programa.
+     */
+    public static void main(String[] args) {
+        WorkloadOptions options = WorkloadOptions.defaults()
+                .threads(Integer.getInteger("workload.threads", 4))
+                .targetOpsPerSecond(Integer.getInteger("workload.target", 0))
+                .durationSeconds(Integer.getInteger("workload.duration", 60))
+                .warmupSeconds(Integer.getInteger("workload.warmup", 10))
+                .reportSeconds(Integer.getInteger("workload.report", 5))
+                .distribution(KeyDistribution.valueOf(
+                        System.getProperty("workload.distribution", "ZIPFIAN").toUpperCase()))
+                .documentSize(Integer.getInteger("workload.documentSize", 100))
+                .recordCount(Long.getLong("workload.recordCount", 10000L))
+                .writeConcern(DB.WriteConcern.valueOf(
+                        System.getProperty("workload.writeConcern", "STRICT").toUpperCase()));
+        if (System.getProperty("workload.mix") != null) {
+            options.mix(System.getProperty("workload.mix"));
+        }
+        try {
+            ManagedMongo m = MongoConnectionManager.get(ConnectionSettings.defaults()
+                    .host(System.getProperty("workload.host", "localhost"))
+                    .port(Integer.getInteger("workload.port", 27017))
+                    .connectionsPerHost(options.getThreads() + 1));
+            DBCollection coll = m.getDB(System.getProperty("workload.db", "mydb"))
+                    .getCollection(System.getProperty("workload.collection", "workload"));
+            WorkloadGenerator generator = new WorkloadGenerator(coll, options);
+            if (Boolean.parseBoolean(System.getProperty("workload.load", "true"))) {
+                generator.load();
+            }
+            System.out.println(" Carga terminada.......: " + generator.run());
+        } catch (MongoException ex) {
+            Logger.getLogger(LoadGenerator.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            MongoConnectionManager.shutdown();
+        }
+    }
+}
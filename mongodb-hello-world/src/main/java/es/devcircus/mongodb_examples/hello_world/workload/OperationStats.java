@@ -0,0 +1,120 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.workload;
+
+import es.devcircus.mongodb_examples.hello_world.metrics.LatencyHistogram;
+import es.devcircus.mongodb_examples.hello_world.metrics.OperationSnapshot;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Medidas de una operación durante una carga: las del
+ * intervalo de informe en curso, que se reinician en cada informe, y las
+ * acumuladas desde el final del calentamiento.
+ */
+final class OperationStats {
+
+    private final WorkloadOperation operation;
+    private final AtomicReference<Window> interval;
+    private volatile Window total;
+
+    OperationStats(WorkloadOperation operation, long startNanos) {
+        this.operation = operation;
+        this.interval = new AtomicReference<>(new Window(startNanos));
+    }
+
+    void record(long nanos, int documents, boolean failed) {
+        interval.get().record(nanos, documents, failed);
+        Window measured = total;
+        if (measured != null) {
+            measured.record(nanos, documents, failed);
+        }
+    }
+
+    /**
+     * Método que cierra el intervalo en curso y abre uno nuevo.
+     *
+     * @param nowNanos Instante actual.
+     * @return Foto del intervalo cerrado.
+     */
+    OperationSnapshot roll(long nowNanos) {
+        return interval.getAndSet(new Window(nowNanos)).snapshot(operation.name(), nowNanos);
+    }
+
+    /**
+     * Método que empieza a acumular medidas, al terminar el calentamiento.
+     *
+     * @param nowNanos Instante actual.
+     */
+    void startMeasuring(long nowNanos) {
+        total = new Window(nowNanos);
+    }
+
+    /**
+     * Método que devuelve las medidas acumuladas.
+     *
+     * @param nowNanos Instante actual.
+     * @return Foto de las medidas, o null si no ha terminado el
+     * calentamiento.
+     */
+    OperationSnapshot total(long nowNanos) {
+        Window measured = total;
+        return measured != null ? measured.snapshot(operation.name(), nowNanos) : null;
+    }
+
+    /**
+     * Medidas desde un instante dado.
+     */
+    private static class Window {
+
+        private final long startNanos;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder documents = new LongAdder();
+
+        Window(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        void record(long nanos, int documents, boolean failed) {
+            latency.record(nanos);
+            this.documents.add(documents);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        OperationSnapshot snapshot(String operation, long nowNanos) {
+            long count = latency.getCount();
+            double seconds = (nowNanos - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            return new OperationSnapshot(operation, count, errors.sum(), documents.sum(),
+                    seconds > 0 ? count / seconds : 0,
+                    toMillis(latency.getMeanNanos()),
+                    toMillis(latency.getValueAtPercentile(50)),
+                    toMillis(latency.getValueAtPercentile(99)),
+                    toMillis(latency.getValueAtPercentile(99.9)),
+                    toMillis(latency.getMaxNanos()));
+        }
+
+        private static double toMillis(double nanos) {
+            return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.workload;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.bulk.BulkInserter;
+import es.devcircus.mongodb_examples.hello_world.metrics.OperationSnapshot;
+import es.devcircus.mongodb_examples.hello_world.util.DaemonThreadFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Generador de carga al estilo de YCSB sobre las operaciones de
+ * los ejemplos. Cada hilo elige una operación según los pesos de la mezcla y
+ * una clave según la distribución, la ejecuta y registra su latencia. Con un
+ * ritmo objetivo, cada hilo lanza sus operaciones en instantes fijos y la
+ * latencia se mide desde el instante previsto, para no ocultar las colas que
+ * provoca una operación lenta (omisión coordinada). Cada cierto tiempo se
+ * deja en el log el ritmo y los percentiles del intervalo; el resultado sólo
+ * incluye lo ocurrido tras el calentamiento.
+ */
+public class WorkloadGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkloadGenerator.class.getName());
+
+    private final DBCollection coll;
+    private final WorkloadOptions options;
+    private final WorkloadOperation[] operations;
+    private final int[] cumulativeWeights;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param coll Colección de trabajo. Su WriteConcern no se modifica: las
+     * escrituras se confirman según el de las opciones.
+     * @param options Opciones de la carga.
+     */
+    public WorkloadGenerator(DBCollection coll, WorkloadOptions options) {
+        Map<WorkloadOperation, Integer> mix = options.getMix();
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla de operaciones está vacía");
+        }
+        this.coll = coll;
+        this.options = options;
+        this.operations = new WorkloadOperation[mix.size()];
+        this.cumulativeWeights = new int[mix.size()];
+        int i = 0;
+        int total = 0;
+        for (Map.Entry<WorkloadOperation, Integer> entry : mix.entrySet()) {
+            total += entry.getValue();
+            operations[i] = entry.getKey();
+            cumulativeWeights[i] = total;
+            i++;
+        }
+    }
+
+    /**
+     * Método que vacía la colección, carga los documentos iniciales con
+     * claves de 0 a recordCount - 1 y crea el índice sobre i.
+     */
+    public void load() {
+        coll.drop();
+        BulkInserter inserter = new BulkInserter(coll);
+        try {
+            for (long i = 0; i < options.getRecordCount(); i++) {
+                inserter.add(WorkloadOperation.document(i, options.getDocumentSize()));
+            }
+        } finally {
+            inserter.close();
+        }
+        coll.createIndex(new BasicDBObject("i", 1));
+    }
+
+    /**
+     * Método que ejecuta la carga durante el calentamiento y la duración
+     * configurados. Supone que la colección ya tiene los documentos
+     * iniciales, de {@link #load()} o de una ejecución anterior.
+     *
+     * @return Medidas tras el calentamiento.
+     * @throws InterruptedException Si se interrumpe el hilo que espera.
+     */
+    public WorkloadResult run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        Map<WorkloadOperation, OperationStats> stats = new EnumMap<>(WorkloadOperation.class);
+        for (WorkloadOperation operation : operations) {
+            stats.put(operation, new OperationStats(operation, start));
+        }
+        if (options.getWarmupSeconds() == 0) {
+            startMeasuring(stats);
+        }
+        AtomicLong keys = new AtomicLong(options.getRecordCount());
+        KeyDistribution.KeyChooser chooser = options.getDistribution().newChooser(options.getRecordCount());
+
+        ExecutorService workers = Executors.newFixedThreadPool(options.getThreads(),
+                new DaemonThreadFactory("workload"));
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+                new DaemonThreadFactory("workload-report"));
+        try {
+            if (options.getWarmupSeconds() > 0) {
+                reporter.schedule(() -> startMeasuring(stats), options.getWarmupSeconds(), TimeUnit.SECONDS);
+            }
+            if (options.getReportSeconds() > 0) {
+                reporter.scheduleAtFixedRate(() -> report(stats, measureStart), options.getReportSeconds(),
+                        options.getReportSeconds(), TimeUnit.SECONDS);
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < options.getThreads(); i++) {
+                futures.add(workers.submit(() -> work(stats, keys, chooser, end)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        } finally {
+            workers.shutdownNow();
+            reporter.shutdownNow();
+        }
+
+        long now = System.nanoTime();
+        List<OperationSnapshot> measured = new ArrayList<>();
+        for (OperationStats operation : stats.values()) {
+            OperationSnapshot snapshot = operation.total(now);
+            if (snapshot != null) {
+                measured.add(snapshot);
+            }
+        }
+        return new WorkloadResult(measured, Math.max(0, now - measureStart) / (double) TimeUnit.SECONDS.toNanos(1),
+                options.getWriteConcern());
+    }
+
+    private void work(Map<WorkloadOperation, OperationStats> stats, AtomicLong keys,
+            KeyDistribution.KeyChooser chooser, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = options.getTargetOpsPerSecond() > 0
+                ? TimeUnit.SECONDS.toNanos(1) * options.getThreads() / options.getTargetOpsPerSecond()
+                : 0;
+        // los hilos arrancan desfasados para no lanzar sus operaciones a la vez
+        long next = System.nanoTime() + (intervalNanos > 0 ? random.nextLong(intervalNanos) : 0);
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            if (now - end >= 0) {
+                return;
+            }
+            long begin = now;
+            if (intervalNanos > 0) {
+                if (next - now > 0) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+                begin = next;
+                next += intervalNanos;
+            }
+            WorkloadOperation operation = choose(random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]));
+            long key = operation == WorkloadOperation.INSERT ? keys.getAndIncrement() : chooser.next(keys.get());
+            int documents = 0;
+            boolean failed = false;
+            try {
+                documents = operation.execute(coll, key, options);
+            } catch (MongoException ex) {
+                failed = true;
+                LOGGER.log(Level.FINE, null, ex);
+            }
+            stats.get(operation).record(System.nanoTime() - begin, documents, failed);
+        }
+    }
+
+    private WorkloadOperation choose(int value) {
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private static void startMeasuring(Map<WorkloadOperation, OperationStats> stats) {
+        long now = System.nanoTime();
+        for (OperationStats operation : stats.values()) {
+            operation.startMeasuring(now);
+        }
+    }
+
+    private static void report(Map<WorkloadOperation, OperationStats> stats, long measureStart) {
+        long now = System.nanoTime();
+        String phase = now - measureStart < 0 ? "calentamiento" : "medida";
+        for (OperationStats operation : stats.values()) {
+            OperationSnapshot snapshot = operation.roll(now);
+            if (snapshot.getCount() > 0) {
+                LOGGER.log(Level.INFO, "[{0}] {1}", new Object[]{phase, snapshot});
+            }
+        }
+    }
+}
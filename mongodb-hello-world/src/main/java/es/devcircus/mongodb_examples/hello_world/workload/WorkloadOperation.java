@@ -0,0 +1,189 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.workload;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import es.devcircus.mongodb_examples.hello_world.bulk.DocumentSizeEstimator;
+import java.util.Arrays;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Operaciones de los ejemplos de Main que reproduce el generador
+ * de carga. Todas trabajan sobre el campo "i" de documentos con la forma del
+ * de insertIngADocument().
+ */
+public enum WorkloadOperation {
+
+    /**
+     * Inserción de un documento nuevo, con la clave siguiente a la última.
+     */
+    INSERT(false) {
+        @Override
+        int execute(DBCollection coll, long key, WorkloadOptions options) {
+            write(coll, options, () -> coll.insert(document(key, options.getDocumentSize())));
+            return 1;
+        }
+    },
+    /**
+     * findOne() por igualdad sobre i.
+     */
+    FIND_ONE(true) {
+        @Override
+        int execute(DBCollection coll, long key, WorkloadOptions options) {
+            return coll.findOne(new BasicDBObject("i", key)) != null ? 1 : 0;
+        }
+    },
+    /**
+     * find() por igualdad sobre i, recorriendo el cursor.
+     */
+    FIND_EQUALITY(true) {
+        @Override
+        int execute(DBCollection coll, long key, WorkloadOptions options) {
+            return consume(coll.find(new BasicDBObject("i", key)));
+        }
+    },
+    /**
+     * find() por rango, key &lt; i &lt;= key + rangeSize.
+     */
+    FIND_RANGE(true) {
+        @Override
+        int execute(DBCollection coll, long key, WorkloadOptions options) {
+            return consume(coll.find(new BasicDBObject("i",
+                    new BasicDBObject("$gt", key).append("$lte", key + options.getRangeSize()))));
+        }
+    },
+    /**
+     * getCount() de toda la colección.
+     */
+    COUNT(true) {
+        @Override
+        int execute(DBCollection coll, long key, WorkloadOptions options) {
+            coll.getCount();
+            return 0;
+        }
+    },
+    /**
+     * Recorrido con cursor de scanLength documentos a partir de la clave.
+     */
+    SCAN(true) {
+        @Override
+        int execute(DBCollection coll, long key, WorkloadOptions options) {
+            return consume(coll.find(new BasicDBObject("i", new BasicDBObject("$gte", key)))
+                    .sort(new BasicDBObject("i", 1))
+                    .limit(options.getScanLength()));
+        }
+    };
+
+    private static final int BASE_SIZE = DocumentSizeEstimator.estimate(document(0, 0));
+    /**
+     * Tipo, nombre "padding", longitud y terminador del campo de relleno.
+     */
+    private static final int PADDING_OVERHEAD = 14;
+
+    private final boolean read;
+
+    WorkloadOperation(boolean read) {
+        this.read = read;
+    }
+
+    /**
+     * Indica si la operación es de lectura.
+     *
+     * @return true si no modifica la colección.
+     */
+    public boolean isRead() {
+        return read;
+    }
+
+    /**
+     * Método que ejecuta la operación.
+     *
+     * @param coll Colección de trabajo.
+     * @param key Clave elegida según la distribución, o la nueva clave en
+     * {@link #INSERT}.
+     * @param options Opciones de la carga.
+     * @return Documentos insertados o devueltos.
+     */
+    abstract int execute(DBCollection coll, long key, WorkloadOptions options);
+
+    /**
+     * Método que crea el documento de insertIngADocument() con la clave
+     * indicada y relleno hasta ocupar aproximadamente el tamaño pedido.
+     *
+     * @param key Valor del campo i.
+     * @param size Tamaño aproximado en bytes.
+     * @return Documento.
+     */
+    static DBObject document(long key, int size) {
+        BasicDBObject doc = new BasicDBObject();
+        doc.put("name", "MongoDB");
+        doc.put("type", "database");
+        doc.put("count", 1);
+        doc.put("info", new BasicDBObject("x", 203).append("y", 102));
+        doc.put("i", key);
+        int padding = size - BASE_SIZE - PADDING_OVERHEAD;
+        if (padding > 0) {
+            char[] chars = new char[padding];
+            Arrays.fill(chars, 'x');
+            doc.put("padding", new String(chars));
+        }
+        return doc;
+    }
+
+    /**
+     * Método que hace una escritura con el WriteConcern de las opciones sin
+     * cambiar el de la colección, que el driver comparte con todos los que
+     * la usan. Con STRICT se confirma con un getlasterror en la misma
+     * conexión; el driver no admite un WriteConcern por llamada, así que
+     * NORMAL o NONE no pueden rebajar el de una colección que ya es STRICT.
+     */
+    private static void write(DBCollection coll, WorkloadOptions options, Runnable write) {
+        if (options.getWriteConcern() != DB.WriteConcern.STRICT
+                || coll.getWriteConcern() == DB.WriteConcern.STRICT) {
+            write.run();
+            return;
+        }
+        DB db = coll.getDB();
+        db.requestStart();
+        try {
+            write.run();
+            DBObject reply = db.getLastError();
+            Object err = reply.get("err");
+            if (err != null) {
+                Object code = reply.get("code");
+                throw new MongoException(code instanceof Number ? ((Number) code).intValue() : -1, err.toString());
+            }
+        } finally {
+            db.requestDone();
+        }
+    }
+
+    private static int consume(DBCursor cur) {
+        int n = 0;
+        while (cur.hasNext()) {
+            cur.next();
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.workload;
+
+import com.mongodb.DB;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Opciones de una carga: la mezcla de operaciones, la
+ * distribución de las claves, el tamaño de los documentos, el número de
+ * hilos, el ritmo objetivo, el WriteConcern de las escrituras y la duración,
+ * con su calentamiento.
+ */
+public class WorkloadOptions {
+
+    private final Map<WorkloadOperation, Integer> mix = new EnumMap<>(WorkloadOperation.class);
+    private KeyDistribution distribution = KeyDistribution.ZIPFIAN;
+    private long recordCount = 10000;
+    private int documentSize = 100;
+    private int threads = 4;
+    private int targetOpsPerSecond;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;
+    private int reportSeconds = 5;
+    private int rangeSize = 5;
+    private int scanLength = 100;
+    private DB.WriteConcern writeConcern = DB.WriteConcern.STRICT;
+
+    /**
+     * Método que crea unas opciones por defecto: 90% de lecturas repartidas
+     * entre findOne (45), find por igualdad (20), find por rango (15), count
+     * (5) y recorrido (5), 10% de inserciones, claves zipfianas sobre 10000
+     * documentos de unos 100 bytes, 4 hilos sin límite de ritmo, escrituras
+     * confirmadas (STRICT), 60 segundos de medida tras 10 de calentamiento.
+     *
+     * @return Opciones por defecto.
+     */
+    public static WorkloadOptions defaults() {
+        return new WorkloadOptions()
+                .weight(WorkloadOperation.INSERT, 10)
+                .weight(WorkloadOperation.FIND_ONE, 45)
+                .weight(WorkloadOperation.FIND_EQUALITY, 20)
+                .weight(WorkloadOperation.FIND_RANGE, 15)
+                .weight(WorkloadOperation.COUNT, 5)
+                .weight(WorkloadOperation.SCAN, 5);
+    }
+
+    /**
+     * Peso relativo de una operación en la mezcla; cero la quita.
+     *
+     * @param operation Operación.
+     * @param weight Peso.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions weight(WorkloadOperation operation, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Peso negativo para " + operation + ": " + weight);
+        }
+        if (weight == 0) {
+            mix.remove(operation);
+        } else {
+            mix.put(operation, weight);
+        }
+        return this;
+    }
+
+    /**
+     * Mezcla completa en el formato "INSERT=10,FIND_ONE=90". Sustituye a la
+     * anterior.
+     *
+     * @param mix Pesos separados por comas.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions mix(String mix) {
+        this.mix.clear();
+        for (String item : mix.split(",")) {
+            String[] parts = item.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mezcla no válida: " + mix);
+            }
+            weight(WorkloadOperation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return this;
+    }
+
+    public WorkloadOptions distribution(KeyDistribution distribution) {
+        this.distribution = distribution;
+        return this;
+    }
+
+    /**
+     * Documentos que se cargan antes de empezar, con claves de 0 a
+     * recordCount - 1.
+     *
+     * @param recordCount Número de documentos.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions recordCount(long recordCount) {
+        this.recordCount = recordCount;
+        return this;
+    }
+
+    /**
+     * Tamaño aproximado en BSON de los documentos cargados e insertados. Los
+     * documentos crecen con un campo de relleno; por debajo del tamaño del
+     * documento de insertIngADocument() no se rellena.
+     *
+     * @param documentSize Tamaño en bytes.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions documentSize(int documentSize) {
+        this.documentSize = documentSize;
+        return this;
+    }
+
+    public WorkloadOptions threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Operaciones por segundo entre todos los hilos; cero para ir tan rápido
+     * como se pueda. Con un ritmo fijado, la latencia se mide desde el
+     * instante en que tocaba lanzar la operación y no desde que se lanzó, de
+     * forma que las esperas tras una operación lenta también cuentan.
+     *
+     * @param targetOpsPerSecond Ritmo objetivo.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions targetOpsPerSecond(int targetOpsPerSecond) {
+        this.targetOpsPerSecond = targetOpsPerSecond;
+        return this;
+    }
+
+    /**
+     * Segundos de medida, sin contar el calentamiento.
+     *
+     * @param durationSeconds Duración en segundos.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions durationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+        return this;
+    }
+
+    /**
+     * Segundos iniciales que se ejecutan pero quedan fuera del resultado,
+     * mientras se llenan cachés, pools de conexiones y el JIT.
+     *
+     * @param warmupSeconds Calentamiento en segundos.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions warmupSeconds(int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+        return this;
+    }
+
+    /**
+     * Segundos entre dos informes de intervalo en el log; cero para no
+     * mostrarlos.
+     *
+     * @param reportSeconds Periodo en segundos.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions reportSeconds(int reportSeconds) {
+        this.reportSeconds = reportSeconds;
+        return this;
+    }
+
+    /**
+     * Anchura de las consultas por rango, key &lt; i &lt;= key + rangeSize.
+     *
+     * @param rangeSize Anchura del rango.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions rangeSize(int rangeSize) {
+        this.rangeSize = rangeSize;
+        return this;
+    }
+
+    /**
+     * Documentos que lee cada recorrido con cursor.
+     *
+     * @param scanLength Número de documentos.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions scanLength(int scanLength) {
+        this.scanLength = scanLength;
+        return this;
+    }
+
+    /**
+     * WriteConcern de las escrituras. Con STRICT cada inserción espera la
+     * respuesta del servidor, y su latencia es la de la escritura; con
+     * NORMAL o NONE sólo mide lo que tarda el cliente en escribir en el
+     * socket, y no sirve para dimensionar el servidor.
+     *
+     * @param writeConcern WriteConcern de cada escritura.
+     * @return Las propias opciones.
+     */
+    public WorkloadOptions writeConcern(DB.WriteConcern writeConcern) {
+        this.writeConcern = writeConcern;
+        return this;
+    }
+
+    public Map<WorkloadOperation, Integer> getMix() {
+        return Collections.unmodifiableMap(mix);
+    }
+
+    public KeyDistribution getDistribution() {
+        return distribution;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getDocumentSize() {
+        return documentSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getTargetOpsPerSecond() {
+        return targetOpsPerSecond;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getReportSeconds() {
+        return reportSeconds;
+    }
+
+    public int getRangeSize() {
+        return rangeSize;
+    }
+
+    public int getScanLength() {
+        return scanLength;
+    }
+
+    public DB.WriteConcern getWriteConcern() {
+        return writeConcern;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.workload;
+
+import com.mongodb.DB;
+import es.devcircus.mongodb_examples.hello_world.metrics.OperationSnapshot;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Resultado de una carga, sin el calentamiento: ritmo total y
+ * medidas de cada operación, junto con el WriteConcern con el que se
+ * midieron las escrituras.
+ */
+public class WorkloadResult {
+
+    private final List<OperationSnapshot> operations;
+    private final double seconds;
+    private final DB.WriteConcern writeConcern;
+
+    WorkloadResult(List<OperationSnapshot> operations, double seconds, DB.WriteConcern writeConcern) {
+        this.operations = operations;
+        this.seconds = seconds;
+        this.writeConcern = writeConcern;
+    }
+
+    public List<OperationSnapshot> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    public double getSeconds() {
+        return seconds;
+    }
+
+    public DB.WriteConcern getWriteConcern() {
+        return writeConcern;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (OperationSnapshot operation : operations) {
+            count += operation.getCount();
+        }
+        return count;
+    }
+
+    public double getThroughput() {
+        return seconds > 0 ? getCount() / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%d ops en %.1f s (%.1f ops/s, escrituras %s)",
+                getCount(), seconds, getThroughput(), writeConcern));
+        for (OperationSnapshot operation : operations) {
+            sb.append("\n  - ").append(operation);
+        }
+        return sb.toString();
+    }
+}
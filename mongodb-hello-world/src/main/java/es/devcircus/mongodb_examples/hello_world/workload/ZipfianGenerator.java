@@ -0,0 +1,103 @@
+/**
+ * This file is part of mongodb-examples.
+ *
+ * mongodb-examples is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 2, or (at your option) any later version.
+ *
+ * mongodb-examples is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; see the file COPYING. If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+package es.devcircus.mongodb_examples.hello_world.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Adrian Novegil Toledo
+ * @mail adrian.novegil@gmail.com
+ * @description Generador de valores con distribución de Zipf entre 0 y n - 1
+ * por el método de Gray et al. ("Quickly Generating Billion-Record Synthetic
+ * Databases"), el mismo de YCSB. Cada valor cuesta una potencia; la suma
+ * zeta(n) se calcula una vez y, cuando n crece por las inserciones, sólo se
+ * suman los términos nuevos.
+ */
+class ZipfianGenerator {
+
+    private static final double THETA = 0.99;
+
+    private static final double ALPHA = 1 / (1 - THETA);
+    private static final double ZETA_2 = 1 + Math.pow(0.5, THETA);
+    private static final double HALF_POW_THETA = Math.pow(0.5, THETA);
+
+    private volatile State state;
+
+    /**
+     * Constructor de la clase.
+     *
+     * @param items Número inicial de valores.
+     */
+    ZipfianGenerator(long items) {
+        this.state = new State(Math.max(1, items), zeta(0, Math.max(1, items), 0));
+    }
+
+    /**
+     * Método que genera un valor.
+     *
+     * @param items Número actual de valores.
+     * @return Valor entre 0 y items - 1.
+     */
+    long next(long items) {
+        State current = state;
+        if (items > current.items) {
+            current = grow(items);
+        }
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * current.zetan;
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < 1 + HALF_POW_THETA) {
+            return 1;
+        }
+        return (long) (current.items * Math.pow(current.eta * u - current.eta + 1, ALPHA));
+    }
+
+    private synchronized State grow(long items) {
+        State current = state;
+        if (items > current.items) {
+            current = new State(items, zeta(current.items, items, current.zetan));
+            state = current;
+        }
+        return current;
+    }
+
+    private static double zeta(long from, long to, double initial) {
+        double sum = initial;
+        for (long i = from; i < to; i++) {
+            sum += 1 / Math.pow(i + 1, THETA);
+        }
+        return sum;
+    }
+
+    /**
+     * Constantes para un número de valores dado.
+     */
+    private static class State {
+
+        private final long items;
+        private final double zetan;
+        private final double eta;
+
+        State(long items, double zetan) {
+            this.items = items;
+            this.zetan = zetan;
+            this.eta = (1 - Math.pow(2.0 / items, 1 - THETA)) / (1 - ZETA_2 / zetan);
+        }
+    }
+}